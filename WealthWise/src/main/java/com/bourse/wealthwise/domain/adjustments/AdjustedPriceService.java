@@ -0,0 +1,305 @@
+package com.bourse.wealthwise.domain.adjustments;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.action.CapitalRaise;
+import com.bourse.wealthwise.domain.entity.action.StockRightUsage;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import com.bourse.wealthwise.domain.events.ActionEvent;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventHandler;
+import com.bourse.wealthwise.repository.PriceListener;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Daily closes adjusted for capital raises, so prices before and after an ex-rights date are comparable.
+ * An issue is identified by its rights security. A capital raise action whose ex-date or ratio differs
+ * from the issue already booked for its rights security is ignored. Issues sharing an ex-date are
+ * combined into one adjustment. An issue only adjusts prices once its subscription price is known
+ * from StockRightUsage actions; until then its prices are left as they are.
+ * Cumulative factors per security are computed on first use and cached. A new or removed rights issue
+ * or right usage, or a new close before one of its ex-dates, drops the cache of that security only.
+ */
+@Service
+@Slf4j
+public class AdjustedPriceService implements ActionEventHandler, PriceListener {
+
+    public static final String CONSUMER_NAME = "adjustments";
+
+    private final ActionEventBus actionEventBus;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final Duration awaitTimeout;
+    private final Map<String, SecurityAdjustments> securities = new ConcurrentHashMap<>();
+    // Bumped whenever the factors of any security change
+    private final AtomicLong version = new AtomicLong();
+
+    public AdjustedPriceService(ActionEventBus actionEventBus,
+                                SecurityPriceRepository securityPriceRepository,
+                                @Value("${wealthwise.projection.await-timeout-ms:5000}") long awaitTimeoutMs) {
+        this.actionEventBus = actionEventBus;
+        this.securityPriceRepository = securityPriceRepository;
+        this.awaitTimeout = Duration.ofMillis(awaitTimeoutMs);
+        securityPriceRepository.addListener(this);
+        actionEventBus.subscribe(CONSUMER_NAME, this);
+    }
+
+    private class SecurityAdjustments {
+        // Keyed by the ISIN of the rights security
+        private final Map<String, RightsIssue> issues = new HashMap<>();
+        // Uuids of capital raise actions ignored for conflicting with the booked issue
+        private final Set<String> conflicting = new HashSet<>();
+        // Keyed by the uuid of the StockRightUsage action
+        private final Map<String, RightUsage> usages = new HashMap<>();
+        // Cumulative factor for dates before each ex-date; null until computed
+        private NavigableMap<LocalDate, Double> factors;
+        // Bumped on every invalidation, so a computation that raced with one is not cached
+        private long generation;
+
+        private void invalidate() {
+            factors = null;
+            generation++;
+            version.incrementAndGet();
+        }
+    }
+
+    private static final class RightUsage {
+        private final String rightIsin;
+        private final BigInteger cost;
+        private final BigInteger volume;
+
+        private RightUsage(StockRightUsage usage) {
+            this.rightIsin = usage.getRightSecurity().getIsin();
+            this.cost = usage.getConversionCost();
+            this.volume = usage.getVolumeToConvert();
+        }
+    }
+
+    @Override
+    public void onEvent(ActionEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case SAVED -> added(event.getAction());
+            case DELETED, CANCELLED -> removed(event.getAction());
+            case AMENDED -> {
+                removed(event.getPrevious());
+                added(event.getAction());
+            }
+        }
+    }
+
+    private void added(BaseAction action) {
+        if (action.getDatetime() == null) {
+            return;
+        }
+        if (action instanceof CapitalRaise capitalRaise && isinOf(capitalRaise.getRightSecurity()) != null) {
+            SecurityAdjustments adjustments = adjustmentsOf(capitalRaise.getOriginalSecurity().getIsin());
+            String rightIsin = capitalRaise.getRightSecurity().getIsin();
+            LocalDate exDate = action.getDatetime().toLocalDate();
+            synchronized (adjustments) {
+                RightsIssue issue = adjustments.issues.get(rightIsin);
+                if (issue == null) {
+                    issue = new RightsIssue(rightIsin, exDate, capitalRaise.getRightPerShare());
+                    adjustments.issues.put(rightIsin, issue);
+                    adjustments.invalidate();
+                } else if (!issue.hasTerms(exDate, capitalRaise.getRightPerShare())) {
+                    log.warn("Ignoring capital raise {}: {} rights per share on {} conflict with the booked issue {}",
+                            action.getUuid(), capitalRaise.getRightPerShare(), exDate, issue);
+                    adjustments.conflicting.add(action.getUuid());
+                    return;
+                }
+                issue.addAction();
+            }
+        } else if (action instanceof StockRightUsage usage && usage.getVolumeToConvert().signum() > 0
+                && isinOf(usage.getRightSecurity()) != null) {
+            SecurityAdjustments adjustments = adjustmentsOf(usage.getMainSecurity().getIsin());
+            synchronized (adjustments) {
+                adjustments.usages.put(action.getUuid(), new RightUsage(usage));
+                adjustments.invalidate();
+            }
+        }
+    }
+
+    private void removed(BaseAction action) {
+        if (action.getDatetime() == null) {
+            return;
+        }
+        if (action instanceof CapitalRaise capitalRaise && isinOf(capitalRaise.getRightSecurity()) != null) {
+            SecurityAdjustments adjustments = securities.get(capitalRaise.getOriginalSecurity().getIsin());
+            if (adjustments == null) {
+                return;
+            }
+            synchronized (adjustments) {
+                if (adjustments.conflicting.remove(action.getUuid())) {
+                    return;
+                }
+                String rightIsin = capitalRaise.getRightSecurity().getIsin();
+                RightsIssue issue = adjustments.issues.get(rightIsin);
+                if (issue != null && issue.removeAction()) {
+                    adjustments.issues.remove(rightIsin);
+                    adjustments.invalidate();
+                }
+            }
+        } else if (action instanceof StockRightUsage usage) {
+            SecurityAdjustments adjustments = securities.get(usage.getMainSecurity().getIsin());
+            if (adjustments == null) {
+                return;
+            }
+            synchronized (adjustments) {
+                if (adjustments.usages.remove(action.getUuid()) != null) {
+                    adjustments.invalidate();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onPrice(String isin, LocalDateTime timestamp, double price) {
+        // Intraday marks do not enter the adjusted daily series
+    }
+
+    @Override
+    public void onDailyClose(String isin, LocalDate date, double price) {
+        SecurityAdjustments adjustments = securities.get(isin);
+        if (adjustments == null) {
+            return;
+        }
+        synchronized (adjustments) {
+            // Only a close before some ex-date can be the cum-rights price of an issue
+            for (RightsIssue issue : adjustments.issues.values()) {
+                if (issue.getExDate().isAfter(date)) {
+                    adjustments.invalidate();
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onClear() {
+        for (SecurityAdjustments adjustments : securities.values()) {
+            synchronized (adjustments) {
+                adjustments.invalidate();
+            }
+        }
+    }
+
+    /**
+     * @return The factor that makes a close of the given date comparable to today's prices
+     */
+    public double getAdjustmentFactor(String isin, LocalDate date) {
+        Map.Entry<LocalDate, Double> factor = factorsOf(isin).higherEntry(date);
+        return factor == null ? 1 : factor.getValue();
+    }
+
+    public Optional<Double> getAdjustedPrice(String isin, LocalDate date) {
+        return securityPriceRepository.getPrice(isin, date)
+                .map(price -> price * getAdjustmentFactor(isin, date));
+    }
+
+    /**
+     * @return Adjusted daily closes within the closed date range, oldest first
+     */
+    public List<SecurityPrice> getAdjustedPrices(String isin, LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, Double> factors = factorsOf(isin);
+        List<SecurityPrice> adjusted = new ArrayList<>();
+        for (SecurityPrice price : securityPriceRepository.getPrices(isin, from, to)) {
+            Map.Entry<LocalDate, Double> factor = factors.higherEntry(price.getDate());
+            adjusted.add(factor == null
+                    ? price
+                    : new SecurityPrice(isin, price.getDate(), price.getPrice() * factor.getValue()));
+        }
+        return adjusted;
+    }
+
+    /**
+     * @return Counter bumped whenever any security's adjustment factors change, for caches of adjusted series
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Wait until every action saved before this call is reflected in the adjustments.
+     */
+    public boolean awaitCaughtUp() {
+        return actionEventBus.awaitCaughtUp(CONSUMER_NAME, awaitTimeout);
+    }
+
+    private NavigableMap<LocalDate, Double> factorsOf(String isin) {
+        awaitCaughtUp();
+        SecurityAdjustments adjustments = securities.get(isin);
+        if (adjustments == null) {
+            return Collections.emptyNavigableMap();
+        }
+
+        long generation;
+        TreeMap<LocalDate, List<RightsIssue>> issuesByExDate = new TreeMap<>();
+        Map<String, BigInteger[]> usedByRight = new HashMap<>();
+        synchronized (adjustments) {
+            if (adjustments.factors != null) {
+                return adjustments.factors;
+            }
+            generation = adjustments.generation;
+            for (RightsIssue issue : adjustments.issues.values()) {
+                issuesByExDate.computeIfAbsent(issue.getExDate(), k -> new ArrayList<>()).add(issue);
+            }
+            for (RightUsage usage : adjustments.usages.values()) {
+                BigInteger[] used = usedByRight.computeIfAbsent(usage.rightIsin,
+                        k -> new BigInteger[] {BigInteger.ZERO, BigInteger.ZERO});
+                used[0] = used[0].add(usage.cost);
+                used[1] = used[1].add(usage.volume);
+            }
+        }
+
+        // Each ex-date maps to the product of its own factor and every later one
+        TreeMap<LocalDate, Double> factors = new TreeMap<>();
+        double cumulative = 1;
+        for (Map.Entry<LocalDate, List<RightsIssue>> exDate : issuesByExDate.descendingMap().entrySet()) {
+            Double cumPrice = securityPriceRepository.getLatestCloseBefore(isin, exDate.getKey())
+                    .map(SecurityPrice::getPrice)
+                    .orElse(null);
+            // Issues on one ex-date are combined: (P + sum of r * S) / ((1 + sum of r) * P)
+            double rights = 0;
+            double subscribed = 0;
+            for (RightsIssue issue : exDate.getValue()) {
+                BigInteger[] used = usedByRight.get(issue.getRightIsin());
+                if (used == null) {
+                    // Subscription price not known yet: the issue is not adjusted for
+                    continue;
+                }
+                rights += issue.getRightPerShare();
+                subscribed += issue.getRightPerShare() * (used[0].doubleValue() / used[1].doubleValue());
+            }
+            if (cumPrice != null && cumPrice > 0 && rights > 0) {
+                cumulative *= (cumPrice + subscribed) / ((1 + rights) * cumPrice);
+            }
+            factors.put(exDate.getKey(), cumulative);
+        }
+        NavigableMap<LocalDate, Double> computed = Collections.unmodifiableNavigableMap(factors);
+
+        synchronized (adjustments) {
+            if (adjustments.generation == generation) {
+                adjustments.factors = computed;
+            }
+        }
+        return computed;
+    }
+
+    private static String isinOf(Security security) {
+        return security == null ? null : security.getIsin();
+    }
+
+    private SecurityAdjustments adjustmentsOf(String isin) {
+        return securities.computeIfAbsent(isin, k -> new SecurityAdjustments());
+    }
+}
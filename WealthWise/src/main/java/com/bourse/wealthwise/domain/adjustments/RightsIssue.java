@@ -0,0 +1,44 @@
+package com.bourse.wealthwise.domain.adjustments;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * One capital raise of a security, identified by the rights security it issues, as seen through
+ * the CapitalRaise actions booked for it. Every holder gets its own action, so the issue lives as
+ * long as any of them does.
+ */
+@Getter
+@ToString
+class RightsIssue {
+    private final String rightIsin;
+    private final LocalDate exDate;
+    private final double rightPerShare;
+    private int actionCount;
+
+    RightsIssue(String rightIsin, LocalDate exDate, double rightPerShare) {
+        this.rightIsin = rightIsin;
+        this.exDate = exDate;
+        this.rightPerShare = rightPerShare;
+    }
+
+    /**
+     * @return true if an action with these terms belongs to this issue rather than conflicting with it
+     */
+    boolean hasTerms(LocalDate exDate, double rightPerShare) {
+        return this.exDate.equals(exDate) && this.rightPerShare == rightPerShare;
+    }
+
+    void addAction() {
+        actionCount++;
+    }
+
+    /**
+     * @return true if no action refers to the issue anymore
+     */
+    boolean removeAction() {
+        return --actionCount <= 0;
+    }
+}
@@ -0,0 +1,175 @@
+package com.bourse.wealthwise.domain.api;
+
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.cdc.ChangeFeed;
+import com.bourse.wealthwise.repository.cdc.ChangeRecord;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Change-data-capture tailing API. A consumer reads a batch from an offset and asks for the
+ * next batch from the returned nextOffset; omitting the offset starts at the oldest retained entry.
+ * An entry of type GAP stands for changes the feed lost, from its gapFromOffset to its own offset;
+ * a consumer that reads one needs a full resync.
+ * Batches are read from the change feed's segment files, never from the repositories.
+ */
+@RestController
+@RequestMapping("/api/changes")
+@ConditionalOnProperty(name = "wealthwise.cdc.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ChangeFeedController {
+
+    private static final int MAX_BATCH = 100_000;
+    private static final int FLUSH_EVERY = 256;
+
+    private final ChangeFeed changeFeed;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getChanges(
+            @RequestParam(required = false) Long from,
+            @RequestParam(defaultValue = "10000") int limit) {
+        long fromOffset = from == null ? changeFeed.getOldestOffset() : from;
+        // Read before streaming starts, so an expired offset still maps to 410
+        List<ChangeRecord> records = changeFeed.read(fromOffset, Math.min(Math.max(limit, 1), MAX_BATCH));
+        long latest = changeFeed.getLatestOffset();
+        long next = records.isEmpty() ? fromOffset : records.get(records.size() - 1).getOffset() + 1;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeNumberField("nextOffset", next);
+                generator.writeNumberField("latestOffset", latest);
+                generator.writeArrayFieldStart("records");
+                int written = 0;
+                for (ChangeRecord record : records) {
+                    writeRecord(generator, record);
+                    if (++written % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        });
+    }
+
+    /**
+     * @return 200 while the feed keeps up with the mutation log, 503 with the last error while it does not
+     */
+    @GetMapping(value = "/health", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> getHealth() {
+        Optional<RuntimeException> error = changeFeed.getLastError();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("healthy", error.isEmpty());
+        body.put("latestOffset", changeFeed.getLatestOffset());
+        changeFeed.getLastGapOffset().ifPresent(offset -> body.put("lastGapOffset", offset));
+        error.ifPresent(e -> body.put("error", String.valueOf(e.getMessage())));
+        return ResponseEntity.status(error.isEmpty() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleExpired(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", e.getMessage()));
+    }
+
+    private static void writeRecord(JsonGenerator generator, ChangeRecord record) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("offset", record.getOffset());
+        if (record.isGap()) {
+            generator.writeStringField("type", "GAP");
+            generator.writeNumberField("gapFromOffset", record.getGapFromOffset());
+            generator.writeNumberField("timestamp", record.getTimestampMillis());
+            generator.writeEndObject();
+            return;
+        }
+        generator.writeStringField("type", record.getType().name());
+        generator.writeNumberField("timestamp", record.getTimestampMillis());
+        generator.writeStringField("portfolioId", record.getPortfolioId());
+        if (record.getActionId() != null) {
+            generator.writeStringField("actionId", record.getActionId());
+        }
+        if (record.getAction() != null) {
+            generator.writeFieldName("action");
+            writeAction(generator, record.getAction());
+        }
+        if (record.getPortfolio() != null) {
+            Portfolio portfolio = record.getPortfolio();
+            generator.writeObjectFieldStart("portfolio");
+            generator.writeStringField("name", portfolio.getName());
+            generator.writeStringField("managerId",
+                    portfolio.getPortfolioManager() == null ? null : portfolio.getPortfolioManager().getUuid());
+            generator.writeStringField("status", portfolio.getStatus() == null ? null : portfolio.getStatus().name());
+            generator.writeEndObject();
+        }
+        if (record.getStatus() != null) {
+            generator.writeStringField("status", record.getStatus().name());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeAction(JsonGenerator generator, BaseAction action) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("kind", action.getClass().getSimpleName());
+        generator.writeStringField("datetime", action.getDatetime() == null ? null : action.getDatetime().toString());
+        generator.writeStringField("actionType", action.getActionType() == null ? null : action.getActionType().name());
+        generator.writeStringField("actor", action.getActor() == null ? null : action.getActor().name());
+        generator.writeStringField("tracingNumber", action.getTracing_number());
+        generator.writeNumberField("version", action.getVersion());
+        if (action instanceof Buy buy) {
+            writeSecurity(generator, "isin", buy.getSecurity());
+            writeNumber(generator, "volume", buy.getVolume());
+            writeNumber(generator, "price", buy.getPrice() == null ? null : BigInteger.valueOf(buy.getPrice()));
+            writeNumber(generator, "totalValue", buy.getTotalValue());
+        } else if (action instanceof Sale sale) {
+            writeSecurity(generator, "isin", sale.getSecurity());
+            writeNumber(generator, "volume", sale.getVolume());
+            writeNumber(generator, "price", sale.getPrice() == null ? null : BigInteger.valueOf(sale.getPrice()));
+            writeNumber(generator, "totalValue", sale.getTotalValue());
+        } else if (action instanceof Deposit deposit) {
+            writeNumber(generator, "amount", deposit.getAmount());
+        } else if (action instanceof Withdrawal withdrawal) {
+            writeNumber(generator, "amount", withdrawal.getAmount());
+        } else if (action instanceof CapitalRaise capitalRaise) {
+            writeSecurity(generator, "originalIsin", capitalRaise.getOriginalSecurity());
+            writeSecurity(generator, "rightIsin", capitalRaise.getRightSecurity());
+            writeNumber(generator, "rightVolume", capitalRaise.getRightVolume());
+            generator.writeNumberField("rightPerShare", capitalRaise.getRightPerShare());
+        } else if (action instanceof StockRightUsage usage) {
+            writeSecurity(generator, "rightIsin", usage.getRightSecurity());
+            writeSecurity(generator, "mainIsin", usage.getMainSecurity());
+            writeNumber(generator, "volumeToConvert", usage.getVolumeToConvert());
+            writeNumber(generator, "conversionCost", usage.getConversionCost());
+            generator.writeStringField("tradableFrom",
+                    usage.getTradableFrom() == null ? null : usage.getTradableFrom().toString());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeSecurity(JsonGenerator generator, String field, Security security) throws IOException {
+        generator.writeStringField(field, security == null ? null : security.getIsin());
+    }
+
+    private static void writeNumber(JsonGenerator generator, String field, BigInteger value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.bourse.wealthwise.domain.api;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.action.utils.ActionDescriptionVisitor;
+import com.bourse.wealthwise.domain.entity.action.utils.ActionVisitor;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioNotFoundException;
+import com.bourse.wealthwise.domain.services.PortfolioQueryService;
+import com.bourse.wealthwise.domain.services.PortfolioSharesService.SecurityHolding;
+import com.bourse.wealthwise.domain.services.VersionedResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only query API for portfolio balance, holdings and action history.
+ * Holdings and history are written element by element with a streaming JSON generator,
+ * so response size does not drive heap usage; holdings are listed in no particular order. Requests run on virtual threads
+ * (spring.threads.virtual.enabled), which also carry the async streaming writes.
+ * Every response carries an ETag derived from the portfolio version; a matching
+ * If-None-Match is answered with 304 and no body.
+ */
+@RestController
+@RequestMapping("/api/portfolios")
+@RequiredArgsConstructor
+public class PortfolioActionController {
+
+    // Push buffered JSON to the client every this many elements
+    private static final int FLUSH_EVERY = 256;
+
+    private final PortfolioQueryService portfolioQueryService;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping("/{portfolioId}/balance")
+    public ResponseEntity<Map<String, Object>> getBalance(
+            @PathVariable String portfolioId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+            WebRequest request) {
+        VersionedResult<BigInteger> balance = portfolioQueryService.getBalance(portfolioId, at);
+        if (request.checkNotModified(balance.getEtag())) {
+            return null;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("portfolioId", portfolioId);
+        body.put("at", at == null ? null : at.toString());
+        body.put("balance", balance.getValue());
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping(value = "/{portfolioId}/holdings", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getHoldings(
+            @PathVariable String portfolioId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+            WebRequest request) {
+        // Resolved before streaming starts, so an unknown portfolio still maps to 404
+        VersionedResult<Void> stamp = portfolioQueryService.getHoldingsStamp(portfolioId, at);
+        if (request.checkNotModified(stamp.getEtag())) {
+            return null;
+        }
+        return json(out -> writeHoldings(out, portfolioId, at));
+    }
+
+    @GetMapping(value = "/{portfolioId}/actions", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getActions(
+            @PathVariable String portfolioId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            WebRequest request) {
+        VersionedResult<Collection<BaseAction>> actions = portfolioQueryService.getActions(portfolioId, from, to);
+        if (request.checkNotModified(actions.getEtag())) {
+            return null;
+        }
+        return json(out -> writeActions(out, actions.getValue()));
+    }
+
+    @ExceptionHandler(PortfolioNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(PortfolioNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Writes each holding as it is visited, so memory stays flat however many securities are held
+     */
+    private void writeHoldings(OutputStream out, String portfolioId, LocalDateTime at) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            int[] written = {0};
+            try {
+                portfolioQueryService.forEachHolding(portfolioId, at, holding -> {
+                    try {
+                        writeHolding(generator, holding);
+                        flushPeriodically(generator, ++written[0]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static void writeHolding(JsonGenerator generator, SecurityHolding holding) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("isin", holding.getSecurity().getIsin());
+        generator.writeStringField("symbol", holding.getSecurity().getSymbol());
+        generator.writeStringField("name", holding.getSecurity().getName());
+        generator.writeNumberField("volume", holding.getVolume());
+        generator.writeNumberField("tradableVolume", holding.getTradableVolume());
+        generator.writeNumberField("lockedVolume", holding.getLockedVolume());
+        if (holding.getValue() == null) {
+            generator.writeNullField("value");
+        } else {
+            generator.writeNumberField("value", holding.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeActions(OutputStream out, Collection<BaseAction> actions) throws IOException {
+        ActionVisitor visitor = new ActionDescriptionVisitor();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            int written = 0;
+            for (BaseAction action : actions) {
+                if (action.getDatetime() == null) {
+                    continue;
+                }
+                generator.writeStartObject();
+                generator.writeStringField("uuid", action.getUuid());
+                generator.writeStringField("datetime", action.getDatetime().toString());
+                generator.writeStringField("type", action.getActionType() == null ? null : action.getActionType().name());
+                generator.writeStringField("tracingNumber", action.getTracing_number());
+                generator.writeNumberField("version", action.getVersion());
+                generator.writeStringField("description", action.accept(visitor));
+                generator.writeEndObject();
+                flushPeriodically(generator, ++written);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static void flushPeriodically(JsonGenerator generator, int written) throws IOException {
+        if (written % FLUSH_EVERY == 0) {
+            generator.flush();
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> json(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
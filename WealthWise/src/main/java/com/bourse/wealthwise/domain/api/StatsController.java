@@ -0,0 +1,28 @@
+package com.bourse.wealthwise.domain.api;
+
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.storage.HistoryCacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Operational counters, to size caches from observed traffic
+ */
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final ActionRepository actionRepository;
+
+    /**
+     * @return Heap residency, hit rate and load latency of portfolio action histories
+     */
+    @GetMapping(value = "/action-histories", produces = MediaType.APPLICATION_JSON_VALUE)
+    public HistoryCacheStats getActionHistoryStats() {
+        return actionRepository.getHistoryCacheStats();
+    }
+}
@@ -0,0 +1,19 @@
+package com.bourse.wealthwise.domain.candles;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class Candle {
+    private final LocalDateTime start;
+    private final double open;
+    private final double high;
+    private final double low;
+    private final double close;
+    private final int count;
+}
@@ -0,0 +1,86 @@
+package com.bourse.wealthwise.domain.candles;
+
+import com.bourse.wealthwise.repository.PriceListener;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolling OHLC bars per security at every {@link CandleResolution}, updated on each price write.
+ * Intraday marks feed every resolution; a daily close only feeds the daily and weekly bars, as the
+ * close of its day, since it says nothing about any minute or hour. Each resolution keeps at most
+ * its configured number of bars per security, dropping the oldest.
+ * Range queries read the bars only, never the raw prices.
+ */
+@Component
+public class CandleAggregator implements PriceListener {
+
+    private static final CandleResolution[] CLOSE_RESOLUTIONS = {CandleResolution.ONE_DAY, CandleResolution.ONE_WEEK};
+
+    private final Map<String, Map<CandleResolution, CandleSeries>> series = new ConcurrentHashMap<>();
+    private final Map<CandleResolution, Integer> maxBars = new EnumMap<>(CandleResolution.class);
+
+    public CandleAggregator(SecurityPriceRepository securityPriceRepository,
+                            @Value("${wealthwise.candles.max-bars.one-minute:10080}") int maxMinuteBars,
+                            @Value("${wealthwise.candles.max-bars.one-hour:8784}") int maxHourBars,
+                            @Value("${wealthwise.candles.max-bars.one-day:3660}") int maxDayBars,
+                            @Value("${wealthwise.candles.max-bars.one-week:1044}") int maxWeekBars) {
+        maxBars.put(CandleResolution.ONE_MINUTE, maxMinuteBars);
+        maxBars.put(CandleResolution.ONE_HOUR, maxHourBars);
+        maxBars.put(CandleResolution.ONE_DAY, maxDayBars);
+        maxBars.put(CandleResolution.ONE_WEEK, maxWeekBars);
+        securityPriceRepository.addListener(this);
+    }
+
+    @Override
+    public void onPrice(String isin, LocalDateTime timestamp, double price) {
+        // Bars are fed by onTick and onDailyClose, which tell marks and closes apart
+    }
+
+    @Override
+    public void onTick(String isin, LocalDateTime timestamp, double price) {
+        for (CandleSeries candles : seriesOf(isin).values()) {
+            candles.add(timestamp, price);
+        }
+    }
+
+    @Override
+    public void onDailyClose(String isin, LocalDate date, double price) {
+        Map<CandleResolution, CandleSeries> bySecurity = seriesOf(isin);
+        LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
+        for (CandleResolution resolution : CLOSE_RESOLUTIONS) {
+            bySecurity.get(resolution).add(endOfDay, price);
+        }
+    }
+
+    @Override
+    public void onClear() {
+        series.clear();
+    }
+
+    /**
+     * @return Bars of the security overlapping the closed range, oldest first
+     */
+    public List<Candle> getCandles(String isin, CandleResolution resolution, LocalDateTime from, LocalDateTime to) {
+        Map<CandleResolution, CandleSeries> bySecurity = series.get(isin);
+        return bySecurity == null ? List.of() : bySecurity.get(resolution).between(from, to);
+    }
+
+    private Map<CandleResolution, CandleSeries> seriesOf(String isin) {
+        return series.computeIfAbsent(isin, k -> {
+            Map<CandleResolution, CandleSeries> byResolution = new EnumMap<>(CandleResolution.class);
+            for (CandleResolution resolution : CandleResolution.values()) {
+                byResolution.put(resolution, new CandleSeries(resolution, maxBars.get(resolution)));
+            }
+            return byResolution;
+        });
+    }
+}
@@ -0,0 +1,26 @@
+package com.bourse.wealthwise.domain.candles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+public enum CandleResolution {
+    ONE_MINUTE,
+    ONE_HOUR,
+    ONE_DAY,
+    ONE_WEEK;
+
+    /**
+     * @return Start of the bar containing the given time; weeks start on Monday
+     */
+    public LocalDateTime barStart(LocalDateTime dateTime) {
+        return switch (this) {
+            case ONE_MINUTE -> dateTime.truncatedTo(ChronoUnit.MINUTES);
+            case ONE_HOUR -> dateTime.truncatedTo(ChronoUnit.HOURS);
+            case ONE_DAY -> dateTime.truncatedTo(ChronoUnit.DAYS);
+            case ONE_WEEK -> dateTime.truncatedTo(ChronoUnit.DAYS)
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package com.bourse.wealthwise.domain.candles;
+
+import com.bourse.wealthwise.utils.EpochNanos;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bars of one security at one resolution, sorted by start time, held in parallel primitive arrays.
+ * Each bar remembers when its open and close were observed, so a late point corrects
+ * its own bar in place without the raw points. At most a fixed number of bars is kept;
+ * a new bar beyond it drops the oldest, and a point older than every kept bar of a full series is ignored.
+ */
+class CandleSeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CandleResolution resolution;
+    private final int maxBars;
+    private long[] starts;
+    private double[] opens;
+    private double[] highs;
+    private double[] lows;
+    private double[] closes;
+    private long[] openTimes;
+    private long[] closeTimes;
+    private int[] counts;
+    private int size;
+
+    CandleSeries(CandleResolution resolution, int maxBars) {
+        if (maxBars <= 0) {
+            throw new IllegalArgumentException("A candle series must keep at least one bar");
+        }
+        this.resolution = resolution;
+        this.maxBars = maxBars;
+        int capacity = Math.min(INITIAL_CAPACITY, maxBars);
+        starts = new long[capacity];
+        opens = new double[capacity];
+        highs = new double[capacity];
+        lows = new double[capacity];
+        closes = new double[capacity];
+        openTimes = new long[capacity];
+        closeTimes = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    synchronized void add(LocalDateTime timestamp, double price) {
+        long start = EpochNanos.of(resolution.barStart(timestamp));
+        long time = EpochNanos.of(timestamp);
+
+        // In-order points hit the last bar, so the search is skipped on the hot path
+        int index = size > 0 && starts[size - 1] == start ? size - 1 : Arrays.binarySearch(starts, 0, size, start);
+        if (index < 0) {
+            index = -index - 1;
+            if (size == maxBars) {
+                if (index == 0) {
+                    return;
+                }
+                dropOldest();
+                index--;
+            }
+            insert(index, start, time, price);
+            return;
+        }
+
+        if (time < openTimes[index]) {
+            openTimes[index] = time;
+            opens[index] = price;
+        }
+        if (time >= closeTimes[index]) {
+            closeTimes[index] = time;
+            closes[index] = price;
+        }
+        highs[index] = Math.max(highs[index], price);
+        lows[index] = Math.min(lows[index], price);
+        counts[index]++;
+    }
+
+    /**
+     * @return Bars overlapping the closed range, oldest first
+     */
+    synchronized List<Candle> between(LocalDateTime from, LocalDateTime to) {
+        int first = lowerBound(EpochNanos.of(resolution.barStart(from)));
+        int last = lowerBound(EpochNanos.of(to) + 1);
+        List<Candle> candles = new ArrayList<>(Math.max(0, last - first));
+        for (int i = first; i < last; i++) {
+            candles.add(new Candle(EpochNanos.toDateTime(starts[i]), opens[i], highs[i], lows[i], closes[i], counts[i]));
+        }
+        return candles;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void insert(int index, long start, long time, double price) {
+        if (size == starts.length) {
+            grow();
+        }
+        int tail = size - index;
+        if (tail > 0) {
+            System.arraycopy(starts, index, starts, index + 1, tail);
+            System.arraycopy(opens, index, opens, index + 1, tail);
+            System.arraycopy(highs, index, highs, index + 1, tail);
+            System.arraycopy(lows, index, lows, index + 1, tail);
+            System.arraycopy(closes, index, closes, index + 1, tail);
+            System.arraycopy(openTimes, index, openTimes, index + 1, tail);
+            System.arraycopy(closeTimes, index, closeTimes, index + 1, tail);
+            System.arraycopy(counts, index, counts, index + 1, tail);
+        }
+        starts[index] = start;
+        opens[index] = highs[index] = lows[index] = closes[index] = price;
+        openTimes[index] = closeTimes[index] = time;
+        counts[index] = 1;
+        size++;
+    }
+
+    private void dropOldest() {
+        int tail = --size;
+        System.arraycopy(starts, 1, starts, 0, tail);
+        System.arraycopy(opens, 1, opens, 0, tail);
+        System.arraycopy(highs, 1, highs, 0, tail);
+        System.arraycopy(lows, 1, lows, 0, tail);
+        System.arraycopy(closes, 1, closes, 0, tail);
+        System.arraycopy(openTimes, 1, openTimes, 0, tail);
+        System.arraycopy(closeTimes, 1, closeTimes, 0, tail);
+        System.arraycopy(counts, 1, counts, 0, tail);
+    }
+
+    private void grow() {
+        int capacity = Math.min(starts.length * 2, maxBars);
+        starts = Arrays.copyOf(starts, capacity);
+        opens = Arrays.copyOf(opens, capacity);
+        highs = Arrays.copyOf(highs, capacity);
+        lows = Arrays.copyOf(lows, capacity);
+        closes = Arrays.copyOf(closes, capacity);
+        openTimes = Arrays.copyOf(openTimes, capacity);
+        closeTimes = Arrays.copyOf(closeTimes, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+
+    // First index whose start is at or after the given value
+    private int lowerBound(long start) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < start) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,51 @@
+package com.bourse.wealthwise.domain.entity.action;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Orders actions by datetime, then uuid, so actions sharing a timestamp still have a total order.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class ActionTimeKey implements Comparable<ActionTimeKey> {
+
+    private static final String HIGHEST_UUID = "\uffff";
+
+    private static final Comparator<ActionTimeKey> ORDER = Comparator
+            .comparing(ActionTimeKey::getDatetime, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(ActionTimeKey::getUuid, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    private final LocalDateTime datetime;
+    private final String uuid;
+
+    public static ActionTimeKey of(BaseAction action) {
+        return new ActionTimeKey(action.getDatetime(), action.getUuid());
+    }
+
+    /**
+     * @return A key ordered before every action at the given time
+     */
+    public static ActionTimeKey lowest(LocalDateTime datetime) {
+        return new ActionTimeKey(datetime, null);
+    }
+
+    /**
+     * @return A key ordered after every action at the given time
+     */
+    public static ActionTimeKey highest(LocalDateTime datetime) {
+        return new ActionTimeKey(datetime, HIGHEST_UUID);
+    }
+
+    @Override
+    public int compareTo(ActionTimeKey other) {
+        return ORDER.compare(this, other);
+    }
+}
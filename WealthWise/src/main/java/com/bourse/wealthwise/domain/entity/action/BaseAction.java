@@ -5,6 +5,7 @@ import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
 import com.bourse.wealthwise.domain.entity.security.SecurityChange;
 
+import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
@@ -13,7 +14,7 @@ import lombok.experimental.SuperBuilder;
 import java.time.LocalDateTime;
 import java.util.List;
 
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @Getter
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public abstract class BaseAction {
@@ -30,13 +31,15 @@ public abstract class BaseAction {
     @Setter
     protected Actor actor;
 
+    // Set by ActionRepository on a copy of each amendment; the caller's action is never changed
+    @Builder.Default
+    protected int version = 1;
+
+    // Generated by each concrete action's builder
+    public abstract BaseActionBuilder<?, ?> toBuilder();
+
     public abstract List<BalanceChange> getBalanceChanges();
     public abstract List<SecurityChange> getSecurityChanges();
     public abstract String accept(ActionVisitor visitor);
 
-
-    //TODO: delete any change if update on action occured
-
-
-
 }
@@ -11,7 +11,7 @@ import java.math.BigInteger;
 import java.util.List;
 import java.util.UUID;
 
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @Getter
 public class CapitalRaise extends BaseAction {
     private final Security originalSecurity;
@@ -13,7 +13,7 @@ import java.math.BigInteger;
 import java.util.List;
 import java.util.UUID;
 
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @Getter
 public class Deposit extends BaseAction {
     private BigInteger amount;
@@ -8,17 +8,19 @@ import lombok.Getter;
 import lombok.experimental.SuperBuilder;
 
 import java.math.BigInteger;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @Getter
 public class StockRightUsage extends BaseAction {
     private final Security rightSecurity;
     private final Security mainSecurity;
     private final BigInteger volumeToConvert;
     private final BigInteger conversionCost;
+    private final LocalDateTime tradableFrom;
 
     @Override
     public List<BalanceChange> getBalanceChanges() {
@@ -55,6 +57,7 @@ public class StockRightUsage extends BaseAction {
                         .volumeChange(this.volumeToConvert)
                         .action(this)
                         .isTradable(false)
+                        .tradableFrom(this.tradableFrom)
                         .build()
         );
     }
@@ -4,7 +4,6 @@ package com.bourse.wealthwise.domain.entity.portfolio;
 import com.bourse.wealthwise.domain.entity.account.User;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.Setter;
 import lombok.ToString;
 
 @ToString
@@ -19,12 +18,24 @@ public class Portfolio {
 
     private User portfolioManager;
 
-    @Setter
-    private PortfolioStatus status;
+    // Changed only through PortfolioRepository.updateStatus, which keeps its status index in step
+    private final PortfolioStatus status;
 
     public Portfolio(String uuid, User portfolioManager, String name) {
+        this(uuid, portfolioManager, name, PortfolioStatus.ACTIVE);
+    }
+
+    public Portfolio(String uuid, User portfolioManager, String name, PortfolioStatus status) {
         this.uuid = uuid;
         this.portfolioManager = portfolioManager;
         this.name = name;
+        this.status = status;
+    }
+
+    /**
+     * @return A copy of this portfolio with the given status
+     */
+    public Portfolio withStatus(PortfolioStatus status) {
+        return new Portfolio(uuid, portfolioManager, name, status);
     }
 }
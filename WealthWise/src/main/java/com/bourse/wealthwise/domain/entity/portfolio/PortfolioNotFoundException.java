@@ -0,0 +1,12 @@
+package com.bourse.wealthwise.domain.entity.portfolio;
+
+/**
+ * No portfolio with the given uuid exists on this node.
+ * An {@link IllegalArgumentException}, so callers that catch the general case keep working.
+ */
+public class PortfolioNotFoundException extends IllegalArgumentException {
+
+    public PortfolioNotFoundException(String portfolioId) {
+        super("Portfolio not found: " + portfolioId);
+    }
+}
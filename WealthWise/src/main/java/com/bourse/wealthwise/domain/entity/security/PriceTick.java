@@ -0,0 +1,16 @@
+package com.bourse.wealthwise.domain.entity.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class PriceTick {
+    private final String isin;
+    private final LocalDateTime timestamp;
+    private final double price;
+}
@@ -3,11 +3,13 @@ package com.bourse.wealthwise.domain.entity.security;
 import com.bourse.wealthwise.domain.entity.action.BaseAction;
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
 import lombok.Builder;
+import lombok.Getter;
 
 import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+@Getter
 @Builder
 public class SecurityChange {
     private UUID uuid;
@@ -21,7 +23,19 @@ public class SecurityChange {
 
     private Boolean isTradable;
 
-    private BigInteger volumeChange;
+    // When an untradable change becomes tradable; null keeps it locked
+    private LocalDateTime tradableFrom;
 
+    private BigInteger volumeChange;
 
+    /**
+     * @return null for tradable changes, otherwise when the volume unlocks
+     * ({@link LocalDateTime#MAX} if no unlock time is known)
+     */
+    public LocalDateTime getLockedUntil() {
+        if (isTradable == null || isTradable) {
+            return null;
+        }
+        return tradableFrom != null ? tradableFrom : LocalDateTime.MAX;
+    }
 }
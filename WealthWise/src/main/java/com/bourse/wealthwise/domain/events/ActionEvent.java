@@ -0,0 +1,17 @@
+package com.bourse.wealthwise.domain.events;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class ActionEvent {
+    private final long sequence;
+    private final ActionEventType type;
+    private final BaseAction action;
+    // The replaced version for AMENDED events, null otherwise
+    private final BaseAction previous;
+}
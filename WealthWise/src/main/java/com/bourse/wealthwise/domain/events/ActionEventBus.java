@@ -0,0 +1,294 @@
+package com.bourse.wealthwise.domain.events;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process single-producer / multi-consumer ring buffer for action events.
+ * Every consumer runs on its own thread and receives all events in order, in batches
+ * of whatever is available. The producer blocks once the slowest consumer is a full
+ * ring behind, so a stalled projection applies back-pressure instead of losing events.
+ * A consumer whose handler throws is stopped at the failing event and reported as failed,
+ * rather than skipping the event and carrying on from a state that no longer matches the stream.
+ */
+@Component
+@Slf4j
+public class ActionEventBus {
+
+    private final ActionEvent[] ringBuffer;
+    private final int bufferSize;
+    private final int indexMask;
+
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final Map<String, EventProcessor> processors = new ConcurrentHashMap<>();
+    private final Object publishLock = new Object();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final Condition consumed = lock.newCondition();
+
+    public ActionEventBus(@Value("${wealthwise.events.ring-size:4096}") int bufferSize) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.ringBuffer = new ActionEvent[bufferSize];
+    }
+
+    /**
+     * Publish an event to every subscribed consumer.
+     * Producers are serialized, so concurrent callers still see a single ordered stream.
+     * @return The sequence assigned to the event
+     */
+    public long publish(ActionEventType type, BaseAction action) {
+        return publish(type, action, null);
+    }
+
+    /**
+     * Publish the replacement of an action by a newer version.
+     * Consumers revert the previous version's deltas and apply the amended ones.
+     * @return The sequence assigned to the event
+     */
+    public long publishAmendment(BaseAction previous, BaseAction amended) {
+        return publish(ActionEventType.AMENDED, amended, previous);
+    }
+
+    private long publish(ActionEventType type, BaseAction action, BaseAction previous) {
+        long sequence;
+        synchronized (publishLock) {
+            sequence = cursor.get() + 1;
+            waitForCapacity(sequence);
+            ringBuffer[(int) (sequence & indexMask)] = new ActionEvent(sequence, type, action, previous);
+            cursor.set(sequence);
+        }
+        signalAll(published);
+        return sequence;
+    }
+
+    /**
+     * Register a consumer. It receives every event published after the subscription.
+     */
+    public void subscribe(String name, ActionEventHandler handler) {
+        synchronized (publishLock) {
+            if (processors.containsKey(name)) {
+                throw new IllegalArgumentException("Consumer already subscribed: " + name);
+            }
+            EventProcessor processor = new EventProcessor(name, handler, cursor.get());
+            processors.put(name, processor);
+            processor.start();
+        }
+    }
+
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * @return How many published events the consumer has not processed yet
+     */
+    public long getLag(String name) {
+        return cursor.get() - processor(name).sequence.get();
+    }
+
+    public Map<String, Long> getConsumerLags() {
+        long current = cursor.get();
+        Map<String, Long> lags = new LinkedHashMap<>();
+        processors.forEach((name, processor) -> lags.put(name, current - processor.sequence.get()));
+        return lags;
+    }
+
+    /**
+     * Block until the consumer has processed everything published before this call.
+     * Used by readers that must observe their own writes.
+     * @return false if the timeout elapsed or the thread was interrupted
+     */
+    public boolean awaitCaughtUp(String name, Duration timeout) {
+        return awaitConsumer(name, cursor.get(), timeout);
+    }
+
+    /**
+     * Block until the consumer has processed the event with the given sequence.
+     * @return false if the timeout elapsed or the thread was interrupted
+     */
+    public boolean awaitConsumer(String name, long sequence, Duration timeout) {
+        EventProcessor processor = processor(name);
+        if (processor.sequence.get() >= sequence) {
+            return true;
+        }
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (processor.sequence.get() < sequence) {
+                if (remaining <= 0 || processor.failure != null) {
+                    return false;
+                }
+                remaining = consumed.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the consumer was stopped by a failing handler
+     */
+    public boolean isHealthy(String name) {
+        return processor(name).failure == null;
+    }
+
+    /**
+     * @return The error that stopped each failed consumer, by consumer name
+     */
+    public Map<String, Throwable> getFailedConsumers() {
+        Map<String, Throwable> failed = new LinkedHashMap<>();
+        processors.forEach((name, processor) -> {
+            if (processor.failure != null) {
+                failed.put(name, processor.failure);
+            }
+        });
+        return failed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        processors.values().forEach(processor -> processor.running = false);
+        signalAll(published);
+        for (EventProcessor processor : processors.values()) {
+            try {
+                processor.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private EventProcessor processor(String name) {
+        EventProcessor processor = processors.get(name);
+        if (processor == null) {
+            throw new IllegalArgumentException("Unknown consumer: " + name);
+        }
+        return processor;
+    }
+
+    private void waitForCapacity(long sequence) {
+        long wrapPoint = sequence - bufferSize;
+        if (wrapPoint < 0 || wrapPoint <= minimumConsumerSequence()) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (wrapPoint > minimumConsumerSequence()) {
+                consumed.await(1, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ring buffer capacity", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long minimumConsumerSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (EventProcessor processor : processors.values()) {
+            if (processor.running) {
+                minimum = Math.min(minimum, processor.sequence.get());
+            }
+        }
+        return minimum;
+    }
+
+    private void signalAll(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class EventProcessor implements Runnable {
+        private final String name;
+        private final ActionEventHandler handler;
+        private final AtomicLong sequence;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private volatile Throwable failure;
+
+        private EventProcessor(String name, ActionEventHandler handler, long startSequence) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence = new AtomicLong(startSequence);
+            this.thread = new Thread(this, "action-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            while (running) {
+                long available = waitFor(next);
+                if (available < next) {
+                    continue;
+                }
+                for (long s = next; s <= available; s++) {
+                    ActionEvent event = ringBuffer[(int) (s & indexMask)];
+                    try {
+                        handler.onEvent(event, s == available);
+                    } catch (Exception e) {
+                        // Stop here: the producer no longer waits for this consumer
+                        log.error("Consumer {} failed on event {} and was stopped", name, event, e);
+                        sequence.set(s - 1);
+                        failure = e;
+                        running = false;
+                        signalAll(consumed);
+                        return;
+                    }
+                }
+                sequence.set(available);
+                next = available + 1;
+                signalAll(consumed);
+            }
+        }
+
+        private long waitFor(long next) {
+            long available = cursor.get();
+            if (available >= next) {
+                return available;
+            }
+            lock.lock();
+            try {
+                while (running && cursor.get() < next) {
+                    published.await(100, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                lock.unlock();
+            }
+            return cursor.get();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.bourse.wealthwise.domain.events;
+
+public interface ActionEventHandler {
+
+    /**
+     * Called on the consumer's own thread for every published event, in sequence order.
+     * @param event The published event
+     * @param endOfBatch true for the last event currently available to this consumer
+     */
+    void onEvent(ActionEvent event, boolean endOfBatch);
+}
@@ -0,0 +1,9 @@
+package com.bourse.wealthwise.domain.events;
+
+public enum ActionEventType {
+    SAVED,
+    DELETED,
+    AMENDED,
+    // Removed by a cancellation, which keeps it in the action's history; consumers revert it like DELETED
+    CANCELLED
+}
@@ -0,0 +1,146 @@
+package com.bourse.wealthwise.domain.exposure;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.action.CapitalRaise;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import com.bourse.wealthwise.domain.events.ActionEvent;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventHandler;
+import com.bourse.wealthwise.domain.projection.PositionLedger;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Volume of each security held across all portfolios, maintained from the security deltas of every action.
+ * Only the bus thread writes; a read is one map lookup and never visits a portfolio.
+ * Two totals are kept per security. The net total is the sum of every change, so a portfolio that sold
+ * more than it held counts against the others. The held total adds up each portfolio's position as a
+ * replay of its actions builds it, dropped at zero or below, which is what a capital raise allocates on.
+ * Both are BigInteger sums, so no volume can overflow them.
+ */
+@Component
+public class MarketExposureProjection implements ActionEventHandler {
+
+    public static final String CONSUMER_NAME = "exposure";
+
+    private final ActionEventBus actionEventBus;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final Duration awaitTimeout;
+    private final Map<String, BigInteger> volumeByIsin = new ConcurrentHashMap<>();
+    private final Map<String, BigInteger> heldVolumeByIsin = new ConcurrentHashMap<>();
+    // Position per portfolio and ISIN, to tell how a change moves the held total; bus thread only
+    private final Map<String, Map<String, PositionLedger>> ledgers = new HashMap<>();
+
+    public MarketExposureProjection(ActionEventBus actionEventBus,
+                                    SecurityPriceRepository securityPriceRepository,
+                                    @Value("${wealthwise.projection.await-timeout-ms:5000}") long awaitTimeoutMs) {
+        this.actionEventBus = actionEventBus;
+        this.securityPriceRepository = securityPriceRepository;
+        this.awaitTimeout = Duration.ofMillis(awaitTimeoutMs);
+        actionEventBus.subscribe(CONSUMER_NAME, this);
+    }
+
+    @Override
+    public void onEvent(ActionEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case SAVED -> add(event.getAction(), false);
+            case DELETED, CANCELLED -> add(event.getAction(), true);
+            case AMENDED -> {
+                add(event.getPrevious(), true);
+                add(event.getAction(), false);
+            }
+        }
+    }
+
+    private void add(BaseAction action, boolean revert) {
+        Map<String, List<SecurityChange>> changesByIsin = new LinkedHashMap<>();
+        for (SecurityChange securityChange : action.getSecurityChanges()) {
+            // A security without an ISIN can never be looked up here
+            String isin = securityChange.getSecurity().getIsin();
+            if (isin == null) {
+                continue;
+            }
+            BigInteger volume = revert ? securityChange.getVolumeChange().negate() : securityChange.getVolumeChange();
+            volumeByIsin.merge(isin, volume, BigInteger::add);
+            changesByIsin.computeIfAbsent(isin, k -> new ArrayList<>()).add(securityChange);
+        }
+        // Like the live holdings, positions only count actions of a portfolio with a date
+        if (action.getPortfolio() == null || action.getDatetime() == null || changesByIsin.isEmpty()) {
+            return;
+        }
+        String portfolioId = action.getPortfolio().getUuid();
+        Map<String, PositionLedger> portfolioLedgers = ledgers.computeIfAbsent(portfolioId, k -> new HashMap<>());
+        ActionTimeKey key = ActionTimeKey.of(action);
+        changesByIsin.forEach((isin, changes) -> {
+            PositionLedger ledger = portfolioLedgers.computeIfAbsent(isin, k -> new PositionLedger());
+            BigInteger before = ledger.getTotal();
+            if (revert) {
+                ledger.remove(key);
+            } else {
+                ledger.add(key, changes);
+            }
+            BigInteger heldChange = ledger.getTotal().subtract(before);
+            if (heldChange.signum() != 0) {
+                heldVolumeByIsin.merge(isin, heldChange, BigInteger::add);
+            }
+            if (ledger.isEmpty()) {
+                portfolioLedgers.remove(isin);
+            }
+        });
+        if (portfolioLedgers.isEmpty()) {
+            ledgers.remove(portfolioId);
+        }
+    }
+
+    /**
+     * @return Net volume of the security held across every portfolio
+     * @throws ArithmeticException if the total does not fit in a long
+     */
+    public long getTotalVolume(String isin) {
+        return volumeByIsin.getOrDefault(isin, BigInteger.ZERO).longValueExact();
+    }
+
+    /**
+     * @return Sum of the positions held in the security; a portfolio that sold out counts as zero
+     */
+    public BigInteger getHeldVolume(String isin) {
+        return heldVolumeByIsin.getOrDefault(isin, BigInteger.ZERO);
+    }
+
+    /**
+     * @return Total volume valued at the freshest mark, else the last close; empty if never priced
+     */
+    public Optional<Double> getTotalValue(String isin) {
+        LocalDateTime now = LocalDateTime.now();
+        return securityPriceRepository.getMarkPrice(isin, now)
+                .or(() -> securityPriceRepository.getLatestCloseBefore(isin, now.toLocalDate().plusDays(1))
+                        .map(SecurityPrice::getPrice))
+                .map(price -> price * volumeByIsin.getOrDefault(isin, BigInteger.ZERO).doubleValue());
+    }
+
+    /**
+     * Estimate the rights a capital raise on the security would allocate, before running it.
+     * Allocation only covers positive positions and rounds each one down, so rounding their
+     * sum instead gives an upper bound on the real total.
+     */
+    public BigInteger estimateRightVolume(String isin, double rightPerShare) {
+        BigInteger volume = getHeldVolume(isin);
+        return volume.signum() <= 0 ? BigInteger.ZERO : CapitalRaise.calculateRightVolume(volume, rightPerShare);
+    }
+
+    /**
+     * Wait until every action saved before this call is reflected in the totals.
+     */
+    public boolean awaitCaughtUp() {
+        return actionEventBus.awaitCaughtUp(CONSUMER_NAME, awaitTimeout);
+    }
+}
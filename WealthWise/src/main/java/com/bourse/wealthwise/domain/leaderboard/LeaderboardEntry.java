@@ -0,0 +1,23 @@
+package com.bourse.wealthwise.domain.leaderboard;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Comparator;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class LeaderboardEntry {
+
+    // Largest first; ties broken by portfolio so distinct portfolios never collide
+    static final Comparator<LeaderboardEntry> ORDER = Comparator
+            .comparingDouble(LeaderboardEntry::getValue).reversed()
+            .thenComparing(LeaderboardEntry::getPortfolioId);
+
+    private final String portfolioId;
+    private final double value;
+}
@@ -0,0 +1,246 @@
+package com.bourse.wealthwise.domain.leaderboard;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import com.bourse.wealthwise.domain.events.ActionEvent;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventHandler;
+import com.bourse.wealthwise.domain.projection.CurrentHoldingsProjection;
+import com.bourse.wealthwise.repository.PriceListener;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Portfolios ranked by market value and by cash, kept sorted as actions and prices change.
+ * Events only mark portfolios, or for prices securities, dirty. A periodic refresh rescores
+ * just the dirty portfolios and moves their entries within the sorted sets. A repriced security
+ * does not rescore its holders: each holder's market value moves by its volume times the change
+ * in price, from the volumes and price recorded when the holders were last scored.
+ * Reads walk the head of a sorted set and are at most one refresh interval stale;
+ * a read finding the board older than the maximum staleness refreshes it first.
+ */
+@Component
+@Slf4j
+public class PortfolioLeaderboard implements ActionEventHandler, PriceListener {
+
+    public static final String CONSUMER_NAME = "leaderboard";
+
+    private final ActionEventBus actionEventBus;
+    private final CurrentHoldingsProjection currentHoldingsProjection;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final Duration awaitTimeout;
+    private final long maxStalenessNanos;
+
+    private final Map<Ranking, ConcurrentSkipListSet<LeaderboardEntry>> rankings = new EnumMap<>(Ranking.class);
+    // Entries currently ranked for each portfolio, so they can be removed when it is rescored
+    private final Map<String, Map<Ranking, LeaderboardEntry>> entries = new ConcurrentHashMap<>();
+    // Volume of a security held by each of its holders, as of their last rescoring
+    private final Map<String, Map<String, BigInteger>> holdingsByIsin = new HashMap<>();
+    private final Map<String, Set<String>> isinsByPortfolio = new HashMap<>();
+    // Price every held security is valued at in the market value entries
+    private final Map<String, Double> appliedPrices = new ConcurrentHashMap<>();
+
+    private final Set<String> dirtyPortfolios = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtySecurities = ConcurrentHashMap.newKeySet();
+    private volatile long lastRefreshNanos = System.nanoTime();
+    // Not a monitor: refresh waits on the event bus, and a virtual thread waiting inside one pins its carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public PortfolioLeaderboard(ActionEventBus actionEventBus,
+                                CurrentHoldingsProjection currentHoldingsProjection,
+                                SecurityPriceRepository securityPriceRepository,
+                                @Value("${wealthwise.leaderboard.max-staleness-ms:5000}") long maxStalenessMs,
+                                @Value("${wealthwise.projection.await-timeout-ms:5000}") long awaitTimeoutMs) {
+        this.actionEventBus = actionEventBus;
+        this.currentHoldingsProjection = currentHoldingsProjection;
+        this.securityPriceRepository = securityPriceRepository;
+        this.maxStalenessNanos = Duration.ofMillis(maxStalenessMs).toNanos();
+        this.awaitTimeout = Duration.ofMillis(awaitTimeoutMs);
+        for (Ranking ranking : Ranking.values()) {
+            rankings.put(ranking, new ConcurrentSkipListSet<>(LeaderboardEntry.ORDER));
+        }
+        actionEventBus.subscribe(CONSUMER_NAME, this);
+        securityPriceRepository.addListener(this);
+    }
+
+    @Override
+    public void onEvent(ActionEvent event, boolean endOfBatch) {
+        markDirty(event.getAction());
+        if (event.getPrevious() != null) {
+            markDirty(event.getPrevious());
+        }
+    }
+
+    private void markDirty(BaseAction action) {
+        if (action.getPortfolio() != null) {
+            dirtyPortfolios.add(action.getPortfolio().getUuid());
+        }
+    }
+
+    @Override
+    public void onPrice(String isin, LocalDateTime timestamp, double price) {
+        dirtySecurities.add(isin);
+    }
+
+    @Override
+    public void onClear() {
+        dirtyPortfolios.addAll(entries.keySet());
+        dirtySecurities.addAll(appliedPrices.keySet());
+    }
+
+    /**
+     * @return The n largest portfolios of the ranking, largest first
+     */
+    public List<LeaderboardEntry> getTop(Ranking ranking, int n) {
+        if (System.nanoTime() - lastRefreshNanos > maxStalenessNanos) {
+            refresh();
+        }
+        List<LeaderboardEntry> top = new ArrayList<>(Math.min(n, 64));
+        for (LeaderboardEntry entry : rankings.get(ranking)) {
+            if (top.size() >= n) {
+                break;
+            }
+            top.add(entry);
+        }
+        return top;
+    }
+
+    /**
+     * Revalue the holders of every security repriced since the last refresh,
+     * then rescore every portfolio touched by an action
+     */
+    @Scheduled(fixedDelayString = "${wealthwise.leaderboard.refresh-ms:1000}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            // Every event published so far must have marked its portfolio, and be in the holdings it reads
+            actionEventBus.awaitCaughtUp(CONSUMER_NAME, awaitTimeout);
+            currentHoldingsProjection.awaitCaughtUp();
+            long startedNanos = System.nanoTime();
+
+            List<String> securities = drain(dirtySecurities);
+            for (String isin : securities) {
+                reprice(isin);
+            }
+            List<String> portfolios = drain(dirtyPortfolios);
+            for (String portfolioId : portfolios) {
+                rescore(portfolioId);
+            }
+            lastRefreshNanos = startedNanos;
+            if (!portfolios.isEmpty() || !securities.isEmpty()) {
+                log.debug("Rescored {} portfolios, repriced {} securities", portfolios.size(), securities.size());
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Move the market value of every holder of the security by its volume times the change in price
+     */
+    private void reprice(String isin) {
+        Double applied = appliedPrices.get(isin);
+        if (applied == null) {
+            // Nobody holds it; whoever buys it is scored at the price of the day
+            return;
+        }
+        double price = latestPrice(isin);
+        double change = price - applied;
+        appliedPrices.put(isin, price);
+        if (change == 0) {
+            return;
+        }
+        holdingsByIsin.getOrDefault(isin, Map.of()).forEach((portfolioId, volume) -> {
+            LeaderboardEntry entry = entries.getOrDefault(portfolioId, Map.of()).get(Ranking.MARKET_VALUE);
+            if (entry != null) {
+                replace(portfolioId, Ranking.MARKET_VALUE,
+                        new LeaderboardEntry(portfolioId, entry.getValue() + volume.doubleValue() * change));
+            }
+        });
+    }
+
+    private void rescore(String portfolioId) {
+        Map<Security, BigInteger> volumes = currentHoldingsProjection.getVolumes(portfolioId);
+        BigInteger cash = currentHoldingsProjection.getCashBalance(portfolioId);
+
+        double marketValue = 0;
+        Map<String, BigInteger> holdings = new HashMap<>();
+        for (Map.Entry<Security, BigInteger> holding : volumes.entrySet()) {
+            String isin = holding.getKey().getIsin();
+            holdings.put(isin, holding.getValue());
+            marketValue += holding.getValue().doubleValue() * appliedPrices.computeIfAbsent(isin, this::latestPrice);
+        }
+        reindexHolder(portfolioId, holdings);
+
+        Map<Ranking, LeaderboardEntry> previous = entries.remove(portfolioId);
+        if (previous != null) {
+            previous.forEach((ranking, entry) -> rankings.get(ranking).remove(entry));
+        }
+        if (volumes.isEmpty() && cash.signum() == 0) {
+            return;
+        }
+        Map<Ranking, LeaderboardEntry> current = new EnumMap<>(Ranking.class);
+        current.put(Ranking.MARKET_VALUE, new LeaderboardEntry(portfolioId, marketValue));
+        current.put(Ranking.CASH, new LeaderboardEntry(portfolioId, cash.doubleValue()));
+        current.forEach((ranking, entry) -> rankings.get(ranking).add(entry));
+        entries.put(portfolioId, current);
+    }
+
+    private void replace(String portfolioId, Ranking ranking, LeaderboardEntry entry) {
+        LeaderboardEntry previous = entries.get(portfolioId).put(ranking, entry);
+        rankings.get(ranking).remove(previous);
+        rankings.get(ranking).add(entry);
+    }
+
+    private void reindexHolder(String portfolioId, Map<String, BigInteger> holdings) {
+        Set<String> previous = isinsByPortfolio.getOrDefault(portfolioId, Set.of());
+        for (String isin : previous) {
+            if (!holdings.containsKey(isin)) {
+                Map<String, BigInteger> holders = holdingsByIsin.get(isin);
+                holders.remove(portfolioId);
+                if (holders.isEmpty()) {
+                    holdingsByIsin.remove(isin);
+                    appliedPrices.remove(isin);
+                }
+            }
+        }
+        holdings.forEach((isin, volume) -> holdingsByIsin.computeIfAbsent(isin, k -> new HashMap<>()).put(portfolioId, volume));
+        if (holdings.isEmpty()) {
+            isinsByPortfolio.remove(portfolioId);
+        } else {
+            isinsByPortfolio.put(portfolioId, holdings.keySet());
+        }
+    }
+
+    /**
+     * @return The freshest mark, else the last close; 0 for a security never priced
+     */
+    private double latestPrice(String isin) {
+        LocalDateTime now = LocalDateTime.now();
+        return securityPriceRepository.getMarkPrice(isin, now)
+                .or(() -> securityPriceRepository.getLatestCloseBefore(isin, now.toLocalDate().plusDays(1))
+                        .map(SecurityPrice::getPrice))
+                .orElse(0.0);
+    }
+
+    private static List<String> drain(Set<String> dirty) {
+        List<String> drained = new ArrayList<>();
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+}
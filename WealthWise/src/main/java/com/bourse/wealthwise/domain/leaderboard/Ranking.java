@@ -0,0 +1,6 @@
+package com.bourse.wealthwise.domain.leaderboard;
+
+public enum Ranking {
+    MARKET_VALUE,
+    CASH
+}
@@ -0,0 +1,109 @@
+package com.bourse.wealthwise.domain.lots;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lots and realized gains of one security in one portfolio.
+ */
+public class LotBook {
+
+    @Getter
+    private final Security security;
+    private final List<TaxLot> lots = new ArrayList<>();
+    private final List<RealizedGain> realizations = new ArrayList<>();
+
+    LotBook(Security security) {
+        this.security = security;
+    }
+
+    void open(String actionUuid, LocalDateTime openedAt, BigInteger volume, BigDecimal cost) {
+        lots.add(new TaxLot(actionUuid, openedAt, volume, cost));
+    }
+
+    /**
+     * Consume open lots in the order given by the matching method.
+     * Volume beyond the open lots is closed at zero cost.
+     * @param proceeds Sale proceeds, or null when the volume is transferred rather than sold
+     * @return The cost basis of the consumed volume
+     */
+    BigDecimal close(String actionUuid, LocalDateTime closedAt, BigInteger volume,
+                     BigDecimal proceeds, LotMatchingMethod matchingMethod) {
+        BigInteger toClose = volume;
+        BigDecimal costBasis = BigDecimal.ZERO;
+        for (TaxLot lot : matchingMethod.consumptionOrder(getOpenLots())) {
+            if (toClose.signum() <= 0) {
+                break;
+            }
+            BigInteger closed = lot.getRemaining().min(toClose);
+            costBasis = costBasis.add(lot.close(actionUuid, closedAt, closed));
+            toClose = toClose.subtract(closed);
+        }
+        if (proceeds != null) {
+            realizations.add(new RealizedGain(actionUuid, closedAt, volume, proceeds, costBasis));
+        }
+        return costBasis;
+    }
+
+    /**
+     * Undo everything done by actions at or after the given key, leaving the state just before it
+     */
+    void rewindTo(ActionTimeKey key) {
+        lots.removeIf(lot -> lot.getOpenKey().compareTo(key) >= 0);
+        for (TaxLot lot : lots) {
+            lot.rewindTo(key);
+        }
+        realizations.removeIf(gain -> new ActionTimeKey(gain.getRealizedAt(), gain.getActionUuid()).compareTo(key) >= 0);
+    }
+
+    public List<TaxLot> getOpenLots() {
+        List<TaxLot> open = new ArrayList<>();
+        for (TaxLot lot : lots) {
+            if (lot.isOpen()) {
+                open.add(lot);
+            }
+        }
+        return open;
+    }
+
+    public List<RealizedGain> getRealizations() {
+        return Collections.unmodifiableList(realizations);
+    }
+
+    public BigInteger openVolumeAt(LocalDateTime dateTime) {
+        BigInteger open = BigInteger.ZERO;
+        for (TaxLot lot : lots) {
+            open = open.add(lot.remainingAt(dateTime));
+        }
+        return open;
+    }
+
+    public BigDecimal costBasisAt(LocalDateTime dateTime) {
+        BigDecimal costBasis = BigDecimal.ZERO;
+        for (TaxLot lot : lots) {
+            BigInteger remaining = lot.remainingAt(dateTime);
+            if (remaining.signum() > 0) {
+                costBasis = costBasis.add(lot.getUnitCost().multiply(new BigDecimal(remaining)));
+            }
+        }
+        return costBasis;
+    }
+
+    public BigDecimal realizedGainAt(LocalDateTime dateTime) {
+        BigDecimal realized = BigDecimal.ZERO;
+        for (RealizedGain gain : realizations) {
+            if (!gain.getRealizedAt().isAfter(dateTime)) {
+                realized = realized.add(gain.getGain());
+            }
+        }
+        return realized;
+    }
+}
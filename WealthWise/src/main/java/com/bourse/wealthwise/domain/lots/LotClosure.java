@@ -0,0 +1,17 @@
+package com.bourse.wealthwise.domain.lots;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class LotClosure {
+    private final String actionUuid;
+    private final LocalDateTime closedAt;
+    private final BigInteger volume;
+}
@@ -0,0 +1,15 @@
+package com.bourse.wealthwise.domain.lots;
+
+import java.util.List;
+
+/**
+ * Decides which open lots a sale consumes first.
+ */
+public interface LotMatchingMethod {
+
+    /**
+     * @param openLots Open lots in the order they were opened
+     * @return The same lots in the order they should be consumed
+     */
+    List<TaxLot> consumptionOrder(List<TaxLot> openLots);
+}
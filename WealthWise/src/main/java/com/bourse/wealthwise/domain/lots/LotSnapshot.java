@@ -0,0 +1,19 @@
+package com.bourse.wealthwise.domain.lots;
+
+import com.bourse.wealthwise.domain.entity.security.Security;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class LotSnapshot {
+    private final Security security;
+    private final BigInteger openVolume;
+    private final BigDecimal costBasis;
+    private final BigDecimal realizedGain;
+}
@@ -0,0 +1,122 @@
+package com.bourse.wealthwise.domain.lots;
+
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.security.Security;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lot books of one portfolio. The books keep no copy of the actions they were built from:
+ * actions arriving in time order are applied in place, and a backdated insert or a delete
+ * rewinds the books to just before the affected timestamp and reapplies the portfolio's later
+ * actions as its stored history holds them.
+ * <p>
+ * The stored history may already be ahead of the event being applied. Replaying it then applies
+ * changes whose own events are still queued; each of those rewinds to its timestamp again when
+ * it arrives, so the books settle on the stored history once the events have caught up.
+ */
+class PortfolioLots {
+
+    private final LotMatchingMethod matchingMethod;
+    // The portfolio's stored actions from a key on, oldest first
+    private final Function<ActionTimeKey, Iterable<BaseAction>> historyFrom;
+    private final Map<Security, LotBook> books = new HashMap<>();
+    // Key of the latest action applied, or null before the first
+    private ActionTimeKey lastKey;
+
+    PortfolioLots(LotMatchingMethod matchingMethod, Function<ActionTimeKey, Iterable<BaseAction>> historyFrom) {
+        this.matchingMethod = matchingMethod;
+        this.historyFrom = historyFrom;
+    }
+
+    void add(BaseAction action) {
+        ActionTimeKey key = ActionTimeKey.of(action);
+        if (lastKey == null || key.compareTo(lastKey) > 0) {
+            apply(action);
+            lastKey = key;
+        } else {
+            recomputeFrom(key);
+        }
+    }
+
+    void remove(BaseAction action) {
+        ActionTimeKey key = ActionTimeKey.of(action);
+        if (lastKey != null && key.compareTo(lastKey) <= 0) {
+            recomputeFrom(key);
+        }
+    }
+
+    /**
+     * Swap an action for its amended version, recomputing from the earlier of the two timestamps
+     */
+    void replace(BaseAction previous, BaseAction amended) {
+        ActionTimeKey previousKey = ActionTimeKey.of(previous);
+        ActionTimeKey amendedKey = ActionTimeKey.of(amended);
+        recomputeFrom(previousKey.compareTo(amendedKey) <= 0 ? previousKey : amendedKey);
+    }
+
+    LotBook book(Security security) {
+        return books.get(security);
+    }
+
+    Collection<LotBook> books() {
+        return books.values();
+    }
+
+    private void recomputeFrom(ActionTimeKey key) {
+        for (LotBook book : books.values()) {
+            book.rewindTo(key);
+        }
+        ActionTimeKey last = null;
+        for (BaseAction action : historyFrom.apply(key)) {
+            if (action.getDatetime() == null) {
+                // Undated actions never reach the books
+                continue;
+            }
+            apply(action);
+            last = ActionTimeKey.of(action);
+        }
+        if (last != null) {
+            lastKey = last;
+        } else if (lastKey == null || lastKey.compareTo(key) >= 0) {
+            // Nothing applied at or after the key remains; the key is a safe bound
+            lastKey = key;
+        }
+    }
+
+    private void apply(BaseAction action) {
+        if (action instanceof Buy buy) {
+            if (buy.getVolume().signum() > 0) {
+                bookOf(buy.getSecurity()).open(buy.getUuid(), buy.getDatetime(),
+                        buy.getVolume(), new BigDecimal(buy.getTotalValue()));
+            }
+        } else if (action instanceof Sale sale) {
+            if (sale.getVolume().signum() > 0) {
+                bookOf(sale.getSecurity()).close(sale.getUuid(), sale.getDatetime(),
+                        sale.getVolume(), new BigDecimal(sale.getTotalValue()), matchingMethod);
+            }
+        } else if (action instanceof CapitalRaise capitalRaise) {
+            if (capitalRaise.getRightVolume().signum() > 0) {
+                // Rights are allocated for free
+                bookOf(capitalRaise.getRightSecurity()).open(capitalRaise.getUuid(), capitalRaise.getDatetime(),
+                        capitalRaise.getRightVolume(), BigDecimal.ZERO);
+            }
+        } else if (action instanceof StockRightUsage usage) {
+            if (usage.getVolumeToConvert().signum() > 0) {
+                // The rights' cost basis carries over to the new shares together with the conversion cost
+                BigDecimal carriedCost = bookOf(usage.getRightSecurity()).close(usage.getUuid(), usage.getDatetime(),
+                        usage.getVolumeToConvert(), null, matchingMethod);
+                bookOf(usage.getMainSecurity()).open(usage.getUuid(), usage.getDatetime(),
+                        usage.getVolumeToConvert(), carriedCost.add(new BigDecimal(usage.getConversionCost())));
+            }
+        }
+    }
+
+    private LotBook bookOf(Security security) {
+        return books.computeIfAbsent(security, LotBook::new);
+    }
+}
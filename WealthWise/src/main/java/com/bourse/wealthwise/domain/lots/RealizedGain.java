@@ -0,0 +1,24 @@
+package com.bourse.wealthwise.domain.lots;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class RealizedGain {
+    private final String actionUuid;
+    private final LocalDateTime realizedAt;
+    private final BigInteger volume;
+    private final BigDecimal proceeds;
+    private final BigDecimal costBasis;
+
+    public BigDecimal getGain() {
+        return proceeds.subtract(costBasis);
+    }
+}
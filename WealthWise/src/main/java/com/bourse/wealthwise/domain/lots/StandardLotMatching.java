@@ -0,0 +1,31 @@
+package com.bourse.wealthwise.domain.lots;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public enum StandardLotMatching implements LotMatchingMethod {
+    FIFO {
+        @Override
+        public List<TaxLot> consumptionOrder(List<TaxLot> openLots) {
+            return openLots;
+        }
+    },
+    LIFO {
+        @Override
+        public List<TaxLot> consumptionOrder(List<TaxLot> openLots) {
+            List<TaxLot> ordered = new ArrayList<>(openLots);
+            Collections.reverse(ordered);
+            return ordered;
+        }
+    },
+    HIGHEST_COST {
+        @Override
+        public List<TaxLot> consumptionOrder(List<TaxLot> openLots) {
+            List<TaxLot> ordered = new ArrayList<>(openLots);
+            ordered.sort(Comparator.comparing(TaxLot::getUnitCost).reversed());
+            return ordered;
+        }
+    }
+}
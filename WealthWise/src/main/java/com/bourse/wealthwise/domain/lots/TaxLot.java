@@ -0,0 +1,90 @@
+package com.bourse.wealthwise.domain.lots;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shares acquired by one action at one cost. Closures are kept with their time,
+ * so the open volume at any past date can be read back without replaying trades.
+ */
+@Getter
+@ToString
+public class TaxLot {
+    private final String actionUuid;
+    private final LocalDateTime openedAt;
+    private final BigInteger volume;
+    private final BigDecimal cost;
+    private final List<LotClosure> closures = new ArrayList<>();
+    private BigInteger remaining;
+
+    public TaxLot(String actionUuid, LocalDateTime openedAt, BigInteger volume, BigDecimal cost) {
+        this.actionUuid = actionUuid;
+        this.openedAt = openedAt;
+        this.volume = volume;
+        this.cost = cost;
+        this.remaining = volume;
+    }
+
+    public BigDecimal getUnitCost() {
+        return volume.signum() == 0
+                ? BigDecimal.ZERO
+                : cost.divide(new BigDecimal(volume), MathContext.DECIMAL64);
+    }
+
+    public List<LotClosure> getClosures() {
+        return Collections.unmodifiableList(closures);
+    }
+
+    public boolean isOpen() {
+        return remaining.signum() > 0;
+    }
+
+    /**
+     * Close part of the lot
+     * @return The cost basis of the closed volume
+     */
+    BigDecimal close(String closingActionUuid, LocalDateTime closedAt, BigInteger closedVolume) {
+        closures.add(new LotClosure(closingActionUuid, closedAt, closedVolume));
+        remaining = remaining.subtract(closedVolume);
+        return getUnitCost().multiply(new BigDecimal(closedVolume));
+    }
+
+    ActionTimeKey getOpenKey() {
+        return new ActionTimeKey(openedAt, actionUuid);
+    }
+
+    /**
+     * Undo every closure made by an action at or after the given key
+     */
+    void rewindTo(ActionTimeKey key) {
+        closures.removeIf(closure -> {
+            if (new ActionTimeKey(closure.getClosedAt(), closure.getActionUuid()).compareTo(key) >= 0) {
+                remaining = remaining.add(closure.getVolume());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public BigInteger remainingAt(LocalDateTime dateTime) {
+        if (openedAt.isAfter(dateTime)) {
+            return BigInteger.ZERO;
+        }
+        BigInteger open = volume;
+        for (LotClosure closure : closures) {
+            if (!closure.getClosedAt().isAfter(dateTime)) {
+                open = open.subtract(closure.getVolume());
+            }
+        }
+        return open;
+    }
+}
@@ -0,0 +1,127 @@
+package com.bourse.wealthwise.domain.lots;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.events.ActionEvent;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventHandler;
+import com.bourse.wealthwise.domain.events.ActionEventType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps tax lots per portfolio and security, updated incrementally from the action event stream.
+ * Recomputations read the actions back from the action repository rather than from a copy.
+ */
+@Component
+public class TaxLotEngine implements ActionEventHandler {
+
+    public static final String CONSUMER_NAME = "tax-lots";
+
+    private final ActionEventBus actionEventBus;
+    private final ActionRepository actionRepository;
+    private final LotMatchingMethod matchingMethod;
+    private final Duration awaitTimeout;
+    private final Map<String, PortfolioLots> portfolios = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TaxLotEngine(ActionEventBus actionEventBus,
+                        ActionRepository actionRepository,
+                        @Value("${wealthwise.lots.method:FIFO}") StandardLotMatching matchingMethod,
+                        @Value("${wealthwise.projection.await-timeout-ms:5000}") long awaitTimeoutMs) {
+        this(actionEventBus, actionRepository, (LotMatchingMethod) matchingMethod, awaitTimeoutMs);
+    }
+
+    public TaxLotEngine(ActionEventBus actionEventBus, ActionRepository actionRepository,
+                        LotMatchingMethod matchingMethod, long awaitTimeoutMs) {
+        this.actionEventBus = actionEventBus;
+        this.actionRepository = actionRepository;
+        this.matchingMethod = matchingMethod;
+        this.awaitTimeout = Duration.ofMillis(awaitTimeoutMs);
+        actionEventBus.subscribe(CONSUMER_NAME, this);
+    }
+
+    @Override
+    public void onEvent(ActionEvent event, boolean endOfBatch) {
+        BaseAction action = event.getAction();
+        BaseAction previous = event.getPrevious();
+        if (event.getType() == ActionEventType.AMENDED && !samePortfolio(previous, action)) {
+            // Moved between portfolios: remove from one, add to the other
+            withLots(previous, lots -> lots.remove(previous));
+            withLots(action, lots -> lots.add(action));
+            return;
+        }
+        withLots(action, lots -> {
+            switch (event.getType()) {
+                case SAVED -> lots.add(action);
+                case DELETED, CANCELLED -> lots.remove(action);
+                case AMENDED -> lots.replace(previous, action);
+            }
+        });
+    }
+
+    private void withLots(BaseAction action, Consumer<PortfolioLots> update) {
+        if (action.getPortfolio() == null || action.getDatetime() == null) {
+            return;
+        }
+        PortfolioLots lots = portfolios.computeIfAbsent(action.getPortfolio().getUuid(),
+                portfolioId -> new PortfolioLots(matchingMethod, key -> actionRepository.findActionsFrom(portfolioId, key)));
+        synchronized (lots) {
+            update.accept(lots);
+        }
+    }
+
+    private static boolean samePortfolio(BaseAction previous, BaseAction action) {
+        return previous.getPortfolio() != null && previous.getPortfolio().equals(action.getPortfolio())
+                && previous.getDatetime() != null && action.getDatetime() != null;
+    }
+
+    /**
+     * @return Open volume, cost basis and realized gain of every security the portfolio has traded, as of the given time
+     */
+    public List<LotSnapshot> getSnapshots(String portfolioId, LocalDateTime dateTime) {
+        PortfolioLots lots = portfolios.get(portfolioId);
+        if (lots == null) {
+            return Collections.emptyList();
+        }
+        List<LotSnapshot> snapshots = new ArrayList<>();
+        synchronized (lots) {
+            for (LotBook book : lots.books()) {
+                snapshots.add(new LotSnapshot(book.getSecurity(),
+                        book.openVolumeAt(dateTime),
+                        book.costBasisAt(dateTime),
+                        book.realizedGainAt(dateTime)));
+            }
+        }
+        return snapshots;
+    }
+
+    public List<TaxLot> getOpenLots(String portfolioId, Security security) {
+        PortfolioLots lots = portfolios.get(portfolioId);
+        if (lots == null) {
+            return Collections.emptyList();
+        }
+        synchronized (lots) {
+            LotBook book = lots.book(security);
+            return book == null ? Collections.emptyList() : book.getOpenLots();
+        }
+    }
+
+    /**
+     * Wait until every action saved before this call is reflected in the lots.
+     */
+    public boolean awaitCaughtUp() {
+        return actionEventBus.awaitCaughtUp(CONSUMER_NAME, awaitTimeout);
+    }
+}
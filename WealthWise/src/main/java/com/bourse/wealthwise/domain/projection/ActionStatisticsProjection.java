@@ -0,0 +1,75 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.events.ActionEvent;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live action counters per type and per portfolio, maintained from the action event stream.
+ */
+@Component
+public class ActionStatisticsProjection implements ActionEventHandler {
+
+    public static final String CONSUMER_NAME = "statistics";
+
+    private final ActionEventBus actionEventBus;
+    private final Map<ActionType, AtomicLong> countByType = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> countByPortfolio = new ConcurrentHashMap<>();
+    private final AtomicLong totalCount = new AtomicLong();
+
+    public ActionStatisticsProjection(ActionEventBus actionEventBus) {
+        this.actionEventBus = actionEventBus;
+        actionEventBus.subscribe(CONSUMER_NAME, this);
+    }
+
+    @Override
+    public void onEvent(ActionEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case SAVED -> count(event.getAction(), 1);
+            case DELETED, CANCELLED -> count(event.getAction(), -1);
+            case AMENDED -> {
+                count(event.getPrevious(), -1);
+                count(event.getAction(), 1);
+            }
+        }
+    }
+
+    private void count(BaseAction action, long delta) {
+        totalCount.addAndGet(delta);
+        if (action.getActionType() != null) {
+            countByType.computeIfAbsent(action.getActionType(), k -> new AtomicLong()).addAndGet(delta);
+        }
+        if (action.getPortfolio() != null) {
+            countByPortfolio.computeIfAbsent(action.getPortfolio().getUuid(), k -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getCount(ActionType actionType) {
+        AtomicLong count = countByType.get(actionType);
+        return count == null ? 0 : count.get();
+    }
+
+    public long getCountOf(String portfolioId) {
+        AtomicLong count = countByPortfolio.get(portfolioId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Wait until every action saved before this call is reflected in the counters.
+     */
+    public boolean awaitCaughtUp(Duration timeout) {
+        return actionEventBus.awaitCaughtUp(CONSUMER_NAME, timeout);
+    }
+}
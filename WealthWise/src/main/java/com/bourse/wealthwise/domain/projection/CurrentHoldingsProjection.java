@@ -0,0 +1,210 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.domain.events.ActionEvent;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Live holdings and cash balance per portfolio, updated from the action event stream.
+ * Answers "now" queries without replaying the portfolio's history.
+ * Each position is kept by a {@link PositionLedger}, so it reads as a replay of the actions in key order
+ * would, however late an action arrives or is deleted.
+ */
+@Component
+public class CurrentHoldingsProjection implements ActionEventHandler {
+
+    public static final String CONSUMER_NAME = "holdings";
+
+    private final ActionEventBus actionEventBus;
+    private final Duration awaitTimeout;
+    private final Map<String, PortfolioState> states = new ConcurrentHashMap<>();
+
+    public CurrentHoldingsProjection(ActionEventBus actionEventBus,
+                                     @Value("${wealthwise.projection.await-timeout-ms:5000}") long awaitTimeoutMs) {
+        this.actionEventBus = actionEventBus;
+        this.awaitTimeout = Duration.ofMillis(awaitTimeoutMs);
+        actionEventBus.subscribe(CONSUMER_NAME, this);
+    }
+
+    private static class PortfolioState {
+        private final HoldingsSnapshot holdings = new HoldingsSnapshot();
+        // Changes behind each position; bus thread only
+        private final Map<Security, PositionLedger> ledgers = new HashMap<>();
+        // Multiset of action datetimes, so the latest one survives deletes
+        private final ConcurrentSkipListMap<LocalDateTime, Integer> actionTimes = new ConcurrentSkipListMap<>();
+    }
+
+    @Override
+    public void onEvent(ActionEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case SAVED -> apply(event.getAction());
+            case DELETED, CANCELLED -> revert(event.getAction());
+            case AMENDED -> {
+                revert(event.getPrevious());
+                apply(event.getAction());
+            }
+        }
+    }
+
+    private void apply(BaseAction action) {
+        if (action.getPortfolio() == null || action.getDatetime() == null) {
+            return;
+        }
+        PortfolioState state = states.computeIfAbsent(action.getPortfolio().getUuid(), k -> new PortfolioState());
+        ActionTimeKey key = ActionTimeKey.of(action);
+        Map<Security, List<SecurityChange>> changesBySecurity = new LinkedHashMap<>();
+        for (SecurityChange securityChange : action.getSecurityChanges()) {
+            changesBySecurity.computeIfAbsent(securityChange.getSecurity(), k -> new ArrayList<>()).add(securityChange);
+        }
+        changesBySecurity.forEach((security, changes) -> {
+            PositionLedger ledger = state.ledgers.computeIfAbsent(security, k -> new PositionLedger());
+            ledger.add(key, changes);
+            state.holdings.setPosition(security, ledger.getPosition());
+        });
+        state.holdings.applyCash(action, false);
+        state.actionTimes.merge(action.getDatetime(), 1, Integer::sum);
+    }
+
+    private void revert(BaseAction action) {
+        if (action.getPortfolio() == null || action.getDatetime() == null) {
+            return;
+        }
+        PortfolioState state = states.computeIfAbsent(action.getPortfolio().getUuid(), k -> new PortfolioState());
+        ActionTimeKey key = ActionTimeKey.of(action);
+        for (SecurityChange securityChange : action.getSecurityChanges()) {
+            Security security = securityChange.getSecurity();
+            PositionLedger ledger = state.ledgers.get(security);
+            if (ledger == null) {
+                continue;
+            }
+            ledger.remove(key);
+            state.holdings.setPosition(security, ledger.getPosition());
+            if (ledger.isEmpty()) {
+                state.ledgers.remove(security);
+            }
+        }
+        state.holdings.applyCash(action, true);
+        state.actionTimes.computeIfPresent(action.getDatetime(), (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * @return true if no action of the portfolio is dated after the given time,
+     * i.e. the live state equals a replay up to and including that time
+     */
+    public boolean isCurrentAt(String portfolioId, LocalDateTime dateTime) {
+        LocalDateTime latest = latestActionTime(portfolioId);
+        return latest == null || !latest.isAfter(dateTime);
+    }
+
+    /**
+     * @return true if every action of the portfolio is dated strictly before the given time
+     */
+    public boolean isCurrentBefore(String portfolioId, LocalDateTime dateTime) {
+        LocalDateTime latest = latestActionTime(portfolioId);
+        return latest == null || latest.isBefore(dateTime);
+    }
+
+    /**
+     * @return The earliest time strictly after the given one at which the live state of the portfolio
+     * changes without a new action, i.e. a future-dated action takes effect or locked shares unlock;
+     * null if there is none
+     */
+    public LocalDateTime nextChangeAfter(String portfolioId, LocalDateTime dateTime) {
+        PortfolioState state = states.get(portfolioId);
+        if (state == null) {
+            return null;
+        }
+        LocalDateTime nextAction = state.actionTimes.higherKey(dateTime);
+        LocalDateTime nextUnlock = state.holdings.nextUnlockAfter(dateTime);
+        if (nextAction == null || (nextUnlock != null && nextUnlock.isBefore(nextAction))) {
+            return nextUnlock;
+        }
+        return nextAction;
+    }
+
+    /**
+     * @return Volumes held right now, keyed by security
+     */
+    public Map<Security, BigInteger> getVolumes(String portfolioId) {
+        PortfolioState state = states.get(portfolioId);
+        return state == null ? Collections.emptyMap() : state.holdings.getVolumes();
+    }
+
+    public BigInteger getVolume(String portfolioId, Security security) {
+        Position position = position(portfolioId, security);
+        return position == null ? BigInteger.ZERO : position.getTotal();
+    }
+
+    /**
+     * @return Tradable/locked split of every held security, with unlocks evaluated at the given time
+     */
+    public Map<Security, PositionVolume> getPositionVolumes(String portfolioId, LocalDateTime dateTime) {
+        PortfolioState state = states.get(portfolioId);
+        return state == null ? Collections.emptyMap() : state.holdings.getPositionVolumes(dateTime);
+    }
+
+    /**
+     * Visit the tradable/locked split of every held security straight from the live state, without copying it
+     */
+    public void forEachPositionVolume(String portfolioId, LocalDateTime dateTime, BiConsumer<Security, PositionVolume> visitor) {
+        PortfolioState state = states.get(portfolioId);
+        if (state != null) {
+            state.holdings.forEachPositionVolume(dateTime, visitor);
+        }
+    }
+
+    /**
+     * @return A copy of the live holdings and cash, for a caller to apply further actions to
+     */
+    public HoldingsSnapshot copyHoldings(String portfolioId) {
+        PortfolioState state = states.get(portfolioId);
+        return state == null ? new HoldingsSnapshot() : state.holdings.copy();
+    }
+
+    public PositionVolume getPositionVolume(String portfolioId, Security security, LocalDateTime dateTime) {
+        Position position = position(portfolioId, security);
+        return position == null
+                ? new PositionVolume(BigInteger.ZERO, BigInteger.ZERO)
+                : position.volumeAt(dateTime);
+    }
+
+    public BigInteger getCashBalance(String portfolioId) {
+        PortfolioState state = states.get(portfolioId);
+        return state == null ? BigInteger.ZERO : state.holdings.getCash();
+    }
+
+    /**
+     * Wait until every action saved before this call is reflected in the projection.
+     */
+    public boolean awaitCaughtUp() {
+        return actionEventBus.awaitCaughtUp(CONSUMER_NAME, awaitTimeout);
+    }
+
+    private LocalDateTime latestActionTime(String portfolioId) {
+        PortfolioState state = states.get(portfolioId);
+        if (state == null) {
+            return null;
+        }
+        Map.Entry<LocalDateTime, Integer> last = state.actionTimes.lastEntry();
+        return last == null ? null : last.getKey();
+    }
+
+    private Position position(String portfolioId, Security security) {
+        PortfolioState state = states.get(portfolioId);
+        return state == null ? null : state.holdings.getPosition(security);
+    }
+}
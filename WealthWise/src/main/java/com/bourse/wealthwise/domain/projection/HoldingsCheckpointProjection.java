@@ -0,0 +1,138 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.events.ActionEvent;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventHandler;
+import com.bourse.wealthwise.repository.ActionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Periodic holdings checkpoints per portfolio, used to answer queries for past timestamps.
+ * A query replays only the actions between the nearest earlier checkpoint and the requested time.
+ * A saved, deleted or amended action drops just the checkpoints at or after its own timestamp.
+ * They are rebuilt lazily by the next query that passes over that range.
+ */
+@Component
+public class HoldingsCheckpointProjection implements ActionEventHandler {
+
+    public static final String CONSUMER_NAME = "checkpoints";
+
+    private final ActionEventBus actionEventBus;
+    private final ActionRepository actionRepository;
+    private final int interval;
+    private final Duration awaitTimeout;
+    private final Map<String, PortfolioCheckpoints> portfolios = new ConcurrentHashMap<>();
+
+    public HoldingsCheckpointProjection(ActionEventBus actionEventBus,
+                                        ActionRepository actionRepository,
+                                        @Value("${wealthwise.checkpoints.interval:256}") int interval,
+                                        @Value("${wealthwise.projection.await-timeout-ms:5000}") long awaitTimeoutMs) {
+        this.actionEventBus = actionEventBus;
+        this.actionRepository = actionRepository;
+        this.interval = interval;
+        this.awaitTimeout = Duration.ofMillis(awaitTimeoutMs);
+        actionEventBus.subscribe(CONSUMER_NAME, this);
+    }
+
+    private static class PortfolioCheckpoints {
+        // Each checkpoint holds the state after every action up to and including its key
+        private final ConcurrentSkipListMap<ActionTimeKey, HoldingsSnapshot> checkpoints = new ConcurrentSkipListMap<>();
+        // Bumped on every invalidation, so a rebuild that raced with one does not store stale checkpoints
+        private long generation;
+    }
+
+    @Override
+    public void onEvent(ActionEvent event, boolean endOfBatch) {
+        invalidateFrom(event.getAction());
+        if (event.getPrevious() != null) {
+            invalidateFrom(event.getPrevious());
+        }
+    }
+
+    private void invalidateFrom(BaseAction action) {
+        if (action.getPortfolio() == null || action.getDatetime() == null) {
+            return;
+        }
+        invalidateFrom(action.getPortfolio().getUuid(), ActionTimeKey.of(action));
+    }
+
+    /**
+     * Drop every checkpoint at or after the given key
+     */
+    public void invalidateFrom(String portfolioId, ActionTimeKey key) {
+        PortfolioCheckpoints portfolio = portfolios.get(portfolioId);
+        if (portfolio == null) {
+            return;
+        }
+        synchronized (portfolio) {
+            portfolio.checkpoints.tailMap(key, true).clear();
+            portfolio.generation++;
+        }
+    }
+
+    /**
+     * @return Holdings after every action dated at or before the given time
+     */
+    public HoldingsSnapshot snapshotAt(String portfolioId, LocalDateTime dateTime) {
+        return snapshot(portfolioId, ActionTimeKey.highest(dateTime));
+    }
+
+    /**
+     * @return Holdings after every action dated strictly before the given time
+     */
+    public HoldingsSnapshot snapshotBefore(String portfolioId, LocalDateTime dateTime) {
+        return snapshot(portfolioId, ActionTimeKey.lowest(dateTime));
+    }
+
+    public int getCheckpointCount(String portfolioId) {
+        PortfolioCheckpoints portfolio = portfolios.get(portfolioId);
+        return portfolio == null ? 0 : portfolio.checkpoints.size();
+    }
+
+    private HoldingsSnapshot snapshot(String portfolioId, ActionTimeKey upperBound) {
+        actionEventBus.awaitCaughtUp(CONSUMER_NAME, awaitTimeout);
+        PortfolioCheckpoints portfolio = portfolios.computeIfAbsent(portfolioId, k -> new PortfolioCheckpoints());
+
+        long generation;
+        Map.Entry<ActionTimeKey, HoldingsSnapshot> base;
+        synchronized (portfolio) {
+            generation = portfolio.generation;
+            base = portfolio.checkpoints.floorEntry(upperBound);
+        }
+
+        HoldingsSnapshot state = base == null ? new HoldingsSnapshot() : base.getValue().copy();
+        Map<ActionTimeKey, HoldingsSnapshot> newCheckpoints = new TreeMap<>();
+        int sinceCheckpoint = 0;
+
+        for (BaseAction action : actionRepository.findActionsOf(
+                portfolioId, base == null ? null : base.getKey(), upperBound)) {
+            if (action.getDatetime() == null) {
+                continue;
+            }
+            state.apply(action);
+            if (++sinceCheckpoint >= interval) {
+                newCheckpoints.put(ActionTimeKey.of(action), state.copy());
+                sinceCheckpoint = 0;
+            }
+        }
+
+        if (!newCheckpoints.isEmpty()) {
+            synchronized (portfolio) {
+                if (portfolio.generation == generation) {
+                    portfolio.checkpoints.putAll(newCheckpoints);
+                }
+            }
+        }
+        return state;
+    }
+}
@@ -0,0 +1,123 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Positions and cash balance of one portfolio after some set of actions.
+ * Written by a single thread, safe to read concurrently.
+ * <p>
+ * Applying actions in key order replays them: once a position reaches zero or below the security is
+ * dropped, and later buys start again from zero. The live projection keeps its positions this way
+ * through a {@link PositionLedger} per security and installs them here, and only sums the cash.
+ */
+public class HoldingsSnapshot {
+
+    private final Map<Security, Position> positions = new ConcurrentHashMap<>();
+    private volatile BigInteger cash = BigInteger.ZERO;
+
+    public void apply(BaseAction action) {
+        for (SecurityChange securityChange : action.getSecurityChanges()) {
+            Position position = positions.computeIfAbsent(securityChange.getSecurity(), k -> new Position());
+            position.apply(securityChange);
+            if (position.getTotal().signum() <= 0) {
+                positions.remove(securityChange.getSecurity());
+            }
+        }
+        applyCash(action, false);
+    }
+
+    void applyCash(BaseAction action, boolean revert) {
+        BigInteger balance = cash;
+        for (BalanceChange balanceChange : action.getBalanceChanges()) {
+            balance = revert
+                    ? balance.subtract(balanceChange.getChange_amount())
+                    : balance.add(balanceChange.getChange_amount());
+        }
+        cash = balance;
+    }
+
+    /**
+     * Install the position of the security, or drop it if null
+     */
+    void setPosition(Security security, Position position) {
+        if (position == null) {
+            positions.remove(security);
+        } else {
+            positions.put(security, position);
+        }
+    }
+
+    public BigInteger getCash() {
+        return cash;
+    }
+
+    public Position getPosition(Security security) {
+        return positions.get(security);
+    }
+
+    /**
+     * @return Every held security
+     */
+    public Set<Security> getSecurities() {
+        return Collections.unmodifiableSet(positions.keySet());
+    }
+
+    /**
+     * @return Total volume of every held security
+     */
+    public Map<Security, BigInteger> getVolumes() {
+        Map<Security, BigInteger> volumes = new HashMap<>();
+        positions.forEach((security, position) -> volumes.put(security, position.getTotal()));
+        return volumes;
+    }
+
+    /**
+     * @return Tradable/locked split of every held security, with unlocks evaluated at the given time
+     */
+    public Map<Security, PositionVolume> getPositionVolumes(LocalDateTime dateTime) {
+        Map<Security, PositionVolume> volumes = new HashMap<>();
+        forEachPositionVolume(dateTime, volumes::put);
+        return volumes;
+    }
+
+    /**
+     * Visit the tradable/locked split of every held security, without copying the positions.
+     * Positions changed during the visit may or may not be seen.
+     */
+    public void forEachPositionVolume(LocalDateTime dateTime, BiConsumer<Security, PositionVolume> visitor) {
+        positions.forEach((security, position) -> visitor.accept(security, position.volumeAt(dateTime)));
+    }
+
+    /**
+     * @return The earliest unlock time of any position strictly after the given time, or null if none
+     */
+    public LocalDateTime nextUnlockAfter(LocalDateTime dateTime) {
+        LocalDateTime next = null;
+        for (Position position : positions.values()) {
+            LocalDateTime unlock = position.nextUnlockAfter(dateTime);
+            if (unlock != null && (next == null || unlock.isBefore(next))) {
+                next = unlock;
+            }
+        }
+        return next;
+    }
+
+    public HoldingsSnapshot copy() {
+        HoldingsSnapshot copy = new HoldingsSnapshot();
+        positions.forEach((security, position) -> copy.positions.put(security, position.copy()));
+        copy.cash = cash;
+        return copy;
+    }
+}
@@ -0,0 +1,82 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Volume of one security in one portfolio, split into tradable volume and
+ * locked volume bucketed by the time it unlocks.
+ * Written by a single thread, safe to read concurrently.
+ */
+public class Position {
+
+    private volatile BigInteger tradable = BigInteger.ZERO;
+    private final ConcurrentSkipListMap<LocalDateTime, BigInteger> lockedUntil = new ConcurrentSkipListMap<>();
+
+    public void apply(SecurityChange securityChange) {
+        apply(securityChange, false);
+    }
+
+    public void revert(SecurityChange securityChange) {
+        apply(securityChange, true);
+    }
+
+    private void apply(SecurityChange securityChange, boolean revert) {
+        BigInteger volume = revert ? securityChange.getVolumeChange().negate() : securityChange.getVolumeChange();
+        LocalDateTime unlockTime = securityChange.getLockedUntil();
+        if (unlockTime == null) {
+            tradable = tradable.add(volume);
+        } else {
+            lockedUntil.merge(unlockTime, volume, (current, delta) -> {
+                BigInteger sum = current.add(delta);
+                return sum.signum() == 0 ? null : sum;
+            });
+        }
+    }
+
+    public BigInteger getTotal() {
+        BigInteger total = tradable;
+        for (BigInteger locked : lockedUntil.values()) {
+            total = total.add(locked);
+        }
+        return total;
+    }
+
+    /**
+     * @return The split at the given time; locked buckets whose unlock time has passed count as tradable
+     */
+    public PositionVolume volumeAt(LocalDateTime dateTime) {
+        BigInteger unlocked = BigInteger.ZERO;
+        BigInteger locked = BigInteger.ZERO;
+        for (Map.Entry<LocalDateTime, BigInteger> entry : lockedUntil.entrySet()) {
+            if (entry.getKey().isAfter(dateTime)) {
+                locked = locked.add(entry.getValue());
+            } else {
+                unlocked = unlocked.add(entry.getValue());
+            }
+        }
+        return new PositionVolume(tradable.add(unlocked), locked);
+    }
+
+    /**
+     * @return The earliest unlock time strictly after the given time, or null if none
+     */
+    public LocalDateTime nextUnlockAfter(LocalDateTime dateTime) {
+        return lockedUntil.higherKey(dateTime);
+    }
+
+    public Position copy() {
+        Position copy = new Position();
+        copy.tradable = tradable;
+        copy.lockedUntil.putAll(lockedUntil);
+        return copy;
+    }
+
+    public boolean isEmpty() {
+        return tradable.signum() == 0 && lockedUntil.isEmpty();
+    }
+}
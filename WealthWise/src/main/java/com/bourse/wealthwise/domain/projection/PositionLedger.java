@@ -0,0 +1,150 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Every change of one security in one portfolio, in key order, so the position can be kept the way a replay
+ * builds it: once the running total reaches zero or below the position is dropped, and later buys start again
+ * from zero. Adding or removing an action recomputes the running totals forward from its key and stops as soon
+ * as they meet the ones already stored. The position itself only moves by the action's own changes, unless
+ * the point of the last drop moved, in which case it is rebuilt from the changes after that point.
+ * Used by a single thread; the position it hands out is safe to read concurrently.
+ */
+public class PositionLedger {
+
+    private static final class Entry {
+        private final List<SecurityChange> changes;
+        // Running total after this entry's changes, clamped at zero; null until first computed
+        private BigInteger totalAfter;
+        // Index of the last change that dropped the position, or -1 if none did
+        private int dropIndex = -1;
+
+        private Entry(List<SecurityChange> changes) {
+            this.changes = changes;
+        }
+    }
+
+    private final TreeMap<ActionTimeKey, Entry> entries = new TreeMap<>();
+    // Keys of the entries that dropped the position
+    private final TreeSet<ActionTimeKey> drops = new TreeSet<>();
+    private Position position = new Position();
+
+    /**
+     * Record the changes of the action at the given key, replacing any recorded under it before
+     */
+    public void add(ActionTimeKey key, List<SecurityChange> changes) {
+        remove(key);
+        ActionTimeKey lastDrop = lastDrop();
+        entries.put(key, new Entry(changes));
+        if (recomputeFrom(key)) {
+            rebuild();
+        } else if (lastDrop == null || key.compareTo(lastDrop) > 0) {
+            changes.forEach(position::apply);
+        }
+    }
+
+    /**
+     * Take back the changes recorded under the given key, if any
+     */
+    public void remove(ActionTimeKey key) {
+        ActionTimeKey lastDrop = lastDrop();
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        boolean dropsChanged = drops.remove(key);
+        ActionTimeKey next = entries.higherKey(key);
+        if (next != null) {
+            dropsChanged |= recomputeFrom(next);
+        }
+        if (dropsChanged) {
+            rebuild();
+        } else if (lastDrop == null || key.compareTo(lastDrop) > 0) {
+            entry.changes.forEach(position::revert);
+        }
+    }
+
+    /**
+     * @return The position after every recorded change, or null if nothing is held
+     */
+    public Position getPosition() {
+        return position.isEmpty() ? null : position;
+    }
+
+    /**
+     * @return Volume held after every recorded change; never negative
+     */
+    public BigInteger getTotal() {
+        return position.getTotal();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Recompute the running totals from the given key on, until they meet the stored ones
+     * @return true if any entry started or stopped dropping the position
+     */
+    private boolean recomputeFrom(ActionTimeKey from) {
+        Map.Entry<ActionTimeKey, Entry> previous = entries.lowerEntry(from);
+        BigInteger total = previous == null ? BigInteger.ZERO : previous.getValue().totalAfter;
+        boolean dropsChanged = false;
+        for (Map.Entry<ActionTimeKey, Entry> mapEntry : entries.tailMap(from, true).entrySet()) {
+            Entry entry = mapEntry.getValue();
+            int dropIndex = -1;
+            for (int i = 0; i < entry.changes.size(); i++) {
+                total = total.add(entry.changes.get(i).getVolumeChange());
+                if (total.signum() <= 0) {
+                    total = BigInteger.ZERO;
+                    dropIndex = i;
+                }
+            }
+            if (total.equals(entry.totalAfter) && dropIndex == entry.dropIndex) {
+                break;
+            }
+            if (dropIndex != entry.dropIndex) {
+                dropsChanged = true;
+                if (dropIndex < 0) {
+                    drops.remove(mapEntry.getKey());
+                } else {
+                    drops.add(mapEntry.getKey());
+                }
+            }
+            entry.totalAfter = total;
+            entry.dropIndex = dropIndex;
+        }
+        return dropsChanged;
+    }
+
+    /**
+     * Replace the position with the sum of the changes after the last drop
+     */
+    private void rebuild() {
+        Position rebuilt = new Position();
+        ActionTimeKey lastDrop = lastDrop();
+        Iterable<Entry> after = entries.values();
+        if (lastDrop != null) {
+            Entry dropped = entries.get(lastDrop);
+            for (int i = dropped.dropIndex + 1; i < dropped.changes.size(); i++) {
+                rebuilt.apply(dropped.changes.get(i));
+            }
+            after = entries.tailMap(lastDrop, false).values();
+        }
+        for (Entry entry : after) {
+            entry.changes.forEach(rebuilt::apply);
+        }
+        position = rebuilt;
+    }
+
+    private ActionTimeKey lastDrop() {
+        return drops.isEmpty() ? null : drops.last();
+    }
+}
@@ -0,0 +1,19 @@
+package com.bourse.wealthwise.domain.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigInteger;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class PositionVolume {
+    private final BigInteger tradable;
+    private final BigInteger locked;
+
+    public BigInteger getTotal() {
+        return tradable.add(locked);
+    }
+}
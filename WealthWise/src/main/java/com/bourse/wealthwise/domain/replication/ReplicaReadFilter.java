@@ -0,0 +1,70 @@
+package com.bourse.wealthwise.domain.replication;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read-your-writes on replicas. A portfolio query carrying {@code X-WealthWise-Min-Version}
+ * is answered only once this node has applied that version of the leader's log, waiting
+ * briefly for it and otherwise answering 503. Every answer carries the version it reflects
+ * in {@code X-WealthWise-Version}, which a client can pass on to its next read.
+ * A replica refuses every request other than a read, since its state is the leader's.
+ */
+@Component
+public class ReplicaReadFilter extends OncePerRequestFilter {
+
+    public static final String MIN_VERSION_HEADER = "X-WealthWise-Min-Version";
+    public static final String VERSION_HEADER = "X-WealthWise-Version";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReplicationFollower replicationFollower;
+    private final Duration readWait;
+
+    public ReplicaReadFilter(ReplicationFollower replicationFollower,
+                             @Value("${wealthwise.replication.read-wait-ms:1000}") long readWaitMs) {
+        this.replicationFollower = replicationFollower;
+        this.readWait = Duration.ofMillis(readWaitMs);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (replicationFollower.isFollower() && !READ_METHODS.contains(request.getMethod())) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "Read-only replica; send writes to the leader");
+            return;
+        }
+        if (!request.getRequestURI().startsWith("/api/portfolios/")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String minVersion = request.getHeader(MIN_VERSION_HEADER);
+        if (minVersion != null) {
+            long version;
+            try {
+                version = Long.parseLong(minVersion.trim());
+            } catch (NumberFormatException e) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), "Invalid " + MIN_VERSION_HEADER + ": " + minVersion);
+                return;
+            }
+            if (!replicationFollower.awaitVersion(version, readWait)) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        "Replica is at version " + replicationFollower.getAppliedVersion() + ", behind " + version);
+                return;
+            }
+        }
+        response.setHeader(VERSION_HEADER, Long.toString(replicationFollower.getAppliedVersion()));
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,73 @@
+package com.bourse.wealthwise.domain.replication;
+
+import com.bourse.wealthwise.repository.replication.Mutation;
+import com.bourse.wealthwise.repository.replication.MutationLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The mutation log of this node for its followers, and its replication status.
+ */
+@RestController
+@RequestMapping("/api/replication")
+@RequiredArgsConstructor
+public class ReplicationController {
+
+    private static final int MAX_BATCH = 100_000;
+
+    private final MutationLog mutationLog;
+    private final ReplicationFollower replicationFollower;
+
+    /**
+     * Binary batch: the log head, the entry count, then per entry its version, type,
+     * timestamp and length-prefixed payload
+     */
+    @GetMapping(value = "/mutations", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getMutations(@RequestParam long after,
+                                               @RequestParam(defaultValue = "10000") int limit) throws IOException {
+        List<Mutation> mutations = mutationLog.read(after, Math.min(Math.max(limit, 1), MAX_BATCH));
+        // Read after the batch, so the head is never behind its last entry
+        long head = mutationLog.getVersion();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(head);
+            out.writeInt(mutations.size());
+            for (Mutation mutation : mutations) {
+                out.writeLong(mutation.getVersion());
+                out.writeByte(mutation.getType().ordinal());
+                out.writeLong(mutation.getTimestampMillis());
+                out.writeInt(mutation.getPayload().length);
+                out.write(mutation.getPayload());
+            }
+        }
+        return ResponseEntity.ok(bytes.toByteArray());
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> getStatus() {
+        ReplicationStatus status = replicationFollower.getStatus();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("role", status.isFollower() ? "follower" : "leader");
+        body.put("appliedVersion", status.getAppliedVersion());
+        body.put("leaderVersion", status.getLeaderVersion());
+        body.put("lag", status.getLag());
+        body.put("stalenessMillis", status.getStalenessMillis());
+        return body;
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleTruncated(IllegalStateException e) {
+        // The follower asked for entries the log no longer holds; it has to be rebuilt
+        return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,173 @@
+package com.bourse.wealthwise.domain.replication;
+
+import com.bourse.wealthwise.repository.replication.Mutation;
+import com.bourse.wealthwise.repository.replication.MutationApplier;
+import com.bourse.wealthwise.repository.replication.MutationLog;
+import com.bourse.wealthwise.repository.replication.MutationType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Keeps this node a read replica of the leader at {@code wealthwise.replication.leader-url}.
+ * The leader's mutation log is pulled in batches and applied in order; a mutation that
+ * cannot be applied stops replication at that version until a later pull succeeds.
+ * Without a leader url this node is a leader itself and the follower stays idle.
+ * With one, every other write path is off: see {@link #ON_LEADER} and {@link ReplicaReadFilter}.
+ */
+@Component
+@Slf4j
+public class ReplicationFollower {
+
+    /**
+     * Condition for beans that write on their own, such as listeners and peer endpoints;
+     * a replica is changed only by the mutations it pulls from its leader
+     */
+    public static final String ON_LEADER = "'${wealthwise.replication.leader-url:}'.isBlank()";
+
+    private final MutationApplier mutationApplier;
+    private final MutationLog mutationLog;
+    private final URI leaderUri;
+    private final int batchSize;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+
+    private final Object progress = new Object();
+    private volatile long appliedVersion;
+    private volatile long leaderVersion;
+    private volatile long caughtUpMillis = System.currentTimeMillis();
+
+    public ReplicationFollower(MutationApplier mutationApplier,
+                               MutationLog mutationLog,
+                               @Value("${wealthwise.replication.leader-url:}") String leaderUrl,
+                               @Value("${wealthwise.replication.batch-size:10000}") int batchSize,
+                               @Value("${wealthwise.replication.timeout-ms:10000}") long timeoutMs) {
+        this.mutationApplier = mutationApplier;
+        this.mutationLog = mutationLog;
+        this.leaderUri = leaderUrl.isBlank() ? null : URI.create(leaderUrl);
+        this.batchSize = batchSize;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    public boolean isFollower() {
+        return leaderUri != null;
+    }
+
+    /**
+     * Apply every mutation the leader has logged since the last pull
+     */
+    @Scheduled(fixedDelayString = "${wealthwise.replication.poll-ms:100}")
+    public void pull() {
+        if (leaderUri == null) {
+            return;
+        }
+        try {
+            // A full batch means more are likely waiting
+            int pulled;
+            do {
+                pulled = pullBatch();
+            } while (pulled == batchSize);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Replication from {} stopped at version {}", leaderUri, appliedVersion, e);
+        }
+    }
+
+    /**
+     * Block until this node has applied the given version of the leader's log.
+     * On the leader itself, wait for its own log to reach the version.
+     * @return false if the timeout elapsed or the thread was interrupted
+     */
+    public boolean awaitVersion(long version, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (progress) {
+            while (getAppliedVersion() < version) {
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                try {
+                    // The leader's own log is not signalled, so poll it
+                    progress.wait(leaderUri == null ? Math.min(remainingMillis, 10) : remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public long getAppliedVersion() {
+        return leaderUri == null ? mutationLog.getVersion() : appliedVersion;
+    }
+
+    public ReplicationStatus getStatus() {
+        if (leaderUri == null) {
+            long version = mutationLog.getVersion();
+            return new ReplicationStatus(false, version, version, 0);
+        }
+        long applied = appliedVersion;
+        long leader = Math.max(leaderVersion, applied);
+        long staleness = applied >= leader ? 0 : System.currentTimeMillis() - caughtUpMillis;
+        return new ReplicationStatus(true, applied, leader, staleness);
+    }
+
+    private int pullBatch() throws IOException {
+        long pulledAt = System.currentTimeMillis();
+        HttpRequest request = HttpRequest.newBuilder(leaderUri.resolve(
+                        "/api/replication/mutations?after=" + appliedVersion + "&limit=" + batchSize))
+                .timeout(timeout)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = send(request);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(response.body()))) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Leader answered " + response.statusCode() + ": "
+                        + new String(in.readAllBytes()));
+            }
+            leaderVersion = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long version = in.readLong();
+                MutationType type = MutationType.values()[in.readByte()];
+                long timestampMillis = in.readLong();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                mutationApplier.apply(new Mutation(version, type, timestampMillis, payload));
+                advance(version);
+            }
+            if (appliedVersion >= leaderVersion) {
+                caughtUpMillis = pulledAt;
+            }
+            return count;
+        }
+    }
+
+    private void advance(long version) {
+        synchronized (progress) {
+            appliedVersion = version;
+            progress.notifyAll();
+        }
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while pulling from " + leaderUri, e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.bourse.wealthwise.domain.replication;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ReplicationStatus {
+    private final boolean follower;
+    // Latest mutation applied locally; on the leader, the head of its log
+    private final long appliedVersion;
+    // Head of the leader's log as of the last pull
+    private final long leaderVersion;
+    // How long ago this node last had every mutation of the leader; 0 while caught up
+    private final long stalenessMillis;
+
+    public long getLag() {
+        return Math.max(0, leaderVersion - appliedVersion);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bourse.wealthwise.domain.risk;
+
+/**
+ * Lower-triangular factor L with L * L' = A, packed row by row: L[i][j] is at i * (i + 1) / 2 + j.
+ * Covariance matrices estimated from few observations are often only semi-definite,
+ * so a non-positive pivot yields a zero column instead of a failure.
+ */
+final class Cholesky {
+
+    private static final double TOLERANCE = 1e-14;
+
+    private Cholesky() {
+    }
+
+    static double[] decompose(double[][] a) {
+        int n = a.length;
+        double[] lower = new double[n * (n + 1) / 2];
+        for (int i = 0; i < n; i++) {
+            int rowI = i * (i + 1) / 2;
+            for (int j = 0; j <= i; j++) {
+                int rowJ = j * (j + 1) / 2;
+                double sum = a[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= lower[rowI + k] * lower[rowJ + k];
+                }
+                if (i == j) {
+                    lower[rowI + i] = sum > TOLERANCE * Math.max(1, Math.abs(a[i][i])) ? Math.sqrt(sum) : 0;
+                } else {
+                    double pivot = lower[rowJ + j];
+                    lower[rowI + j] = pivot == 0 ? 0 : sum / pivot;
+                }
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * out = L * x
+     */
+    static void multiply(double[] lower, double[] x, double[] out) {
+        int n = x.length;
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            for (int k = 0; k <= i; k++) {
+                sum += lower[offset + k] * x[k];
+            }
+            out[i] = sum;
+            offset += i + 1;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.bourse.wealthwise.domain.risk;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sample covariance of daily returns, with volatility and correlation derived from it.
+ * Each pair covers the days both securities have a return; {@link #getObservationCount(String)}
+ * tells how many days a security's own figures rest on.
+ */
+public class CovarianceMatrix {
+
+    public static final int TRADING_DAYS_PER_YEAR = 252;
+
+    @Getter
+    private final List<String> isins;
+    @Getter
+    private final int observationCount;
+    private final int[] observationCounts;
+    private final double[][] covariance;
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    CovarianceMatrix(List<String> isins, int observationCount, int[] observationCounts, double[][] covariance) {
+        this.isins = isins;
+        this.observationCount = observationCount;
+        this.observationCounts = observationCounts;
+        this.covariance = covariance;
+        for (int i = 0; i < isins.size(); i++) {
+            indexes.put(isins.get(i), i);
+        }
+    }
+
+    /**
+     * @return Number of daily returns the security has in the window; fewer than
+     * {@link #getObservationCount()} if it was first priced part way through
+     */
+    public int getObservationCount(String isin) {
+        return observationCounts[index(isin)];
+    }
+
+    public double getCovariance(String first, String second) {
+        return covariance[index(first)][index(second)];
+    }
+
+    /**
+     * @return Standard deviation of daily returns
+     */
+    public double getDailyVolatility(String isin) {
+        int i = index(isin);
+        return Math.sqrt(covariance[i][i]);
+    }
+
+    public double getAnnualizedVolatility(String isin) {
+        return getDailyVolatility(isin) * Math.sqrt(TRADING_DAYS_PER_YEAR);
+    }
+
+    /**
+     * @return Pearson correlation, or NaN if either security has no variance
+     */
+    public double getCorrelation(String first, String second) {
+        int i = index(first);
+        int j = index(second);
+        return covariance[i][j] / Math.sqrt(covariance[i][i] * covariance[j][j]);
+    }
+
+    /**
+     * @return w' * C * w, with C the covariance, for weights aligned with {@link #getIsins()}
+     */
+    public double portfolioVariance(double[] weights) {
+        double variance = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] == 0) {
+                continue;
+            }
+            double[] row = covariance[i];
+            double sum = 0;
+            for (int j = 0; j < weights.length; j++) {
+                sum += row[j] * weights[j];
+            }
+            variance += weights[i] * sum;
+        }
+        return variance;
+    }
+
+    /**
+     * @return C * w, the covariance of every security with the weighted portfolio
+     */
+    public double[] covarianceWithPortfolio(double[] weights) {
+        double[] result = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            double[] row = covariance[i];
+            double sum = 0;
+            for (int j = 0; j < weights.length; j++) {
+                sum += row[j] * weights[j];
+            }
+            result[i] = sum;
+        }
+        return result;
+    }
+
+    public boolean contains(String isin) {
+        return indexes.containsKey(isin);
+    }
+
+    double[][] raw() {
+        return covariance;
+    }
+
+    private int index(String isin) {
+        Integer index = indexes.get(isin);
+        if (index == null) {
+            throw new IllegalArgumentException("Security not in matrix: " + isin);
+        }
+        return index;
+    }
+}
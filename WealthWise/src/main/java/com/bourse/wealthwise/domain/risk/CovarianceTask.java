@@ -0,0 +1,90 @@
+package com.bourse.wealthwise.domain.risk;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills the covariance matrix of return rows, splitting the rows between fork-join workers.
+ * Each task computes the upper triangle of its rows and mirrors it, so every pair is computed once.
+ * Later rows are cheaper, which work stealing evens out. Two complete rows are multiplied as
+ * demeaned rows; a pair with a partial row (NaN on days without a return) is computed in one pass
+ * over the days both have.
+ */
+class CovarianceTask extends RecursiveAction {
+
+    private static final int ROWS_PER_LEAF = 8;
+
+    private final double[][] returns;
+    // Demeaned complete rows; null for a partial row
+    private final double[][] demeaned;
+    private final double[][] covariance;
+    private final int fromRow;
+    private final int toRow;
+
+    CovarianceTask(double[][] returns, double[][] demeaned, double[][] covariance, int fromRow, int toRow) {
+        this.returns = returns;
+        this.demeaned = demeaned;
+        this.covariance = covariance;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+    }
+
+    @Override
+    protected void compute() {
+        if (toRow - fromRow <= ROWS_PER_LEAF) {
+            computeRows();
+            return;
+        }
+        int middle = (fromRow + toRow) >>> 1;
+        invokeAll(new CovarianceTask(returns, demeaned, covariance, fromRow, middle),
+                new CovarianceTask(returns, demeaned, covariance, middle, toRow));
+    }
+
+    private void computeRows() {
+        int n = demeaned.length;
+        for (int i = fromRow; i < toRow; i++) {
+            double[] x = demeaned[i];
+            for (int j = i; j < n; j++) {
+                double[] y = demeaned[j];
+                double value = x != null && y != null ? complete(x, y) : pairwise(returns[i], returns[j]);
+                covariance[i][j] = value;
+                covariance[j][i] = value;
+            }
+        }
+    }
+
+    private static double complete(double[] x, double[] y) {
+        double sum = 0;
+        for (int t = 0; t < x.length; t++) {
+            sum += x[t] * y[t];
+        }
+        return sum / (x.length - 1);
+    }
+
+    /**
+     * @return Sample covariance over the days both rows have a return; 0 with fewer than two
+     */
+    private static double pairwise(double[] x, double[] y) {
+        int count = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int t = 0; t < x.length; t++) {
+            if (!Double.isNaN(x[t]) && !Double.isNaN(y[t])) {
+                count++;
+                sumX += x[t];
+                sumY += y[t];
+            }
+        }
+        if (count < 2) {
+            return 0;
+        }
+        double meanX = sumX / count;
+        double meanY = sumY / count;
+        double sum = 0;
+        for (int t = 0; t < x.length; t++) {
+            if (!Double.isNaN(x[t]) && !Double.isNaN(y[t])) {
+                sum += (x[t] - meanX) * (y[t] - meanY);
+            }
+        }
+        return sum / (count - 1);
+    }
+}
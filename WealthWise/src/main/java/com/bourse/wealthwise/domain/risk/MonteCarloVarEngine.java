@@ -0,0 +1,285 @@
+package com.bourse.wealthwise.domain.risk;
+
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo 1-day and 10-day VaR and expected shortfall.
+ * Correlated normal returns are drawn from the Cholesky factor of the return covariance and
+ * shared by every portfolio: each scenario is generated once and revalued for all holders.
+ * Paths run in blocks on the common fork-join pool. Each block draws its shocks from its own
+ * SplittableRandom, split from a fixed seed in block order before any block starts, so a run is
+ * reproducible regardless of scheduling. A block's correlated returns are computed once and every
+ * portfolio is valued against them; only the loss tail of each portfolio is kept, which bounds
+ * memory without regenerating any path.
+ */
+@Service
+@Slf4j
+public class MonteCarloVarEngine {
+
+    static final int LONG_HORIZON_DAYS = 10;
+
+    private final PortfolioRepository portfolioRepository;
+    private final RiskAnalyticsService riskAnalyticsService;
+    private final int paths;
+    private final int pathBlockSize;
+    private final int windowDays;
+    private final double confidence;
+    private final long seed;
+    private final Map<String, ValueAtRisk> latest = new ConcurrentHashMap<>();
+
+    public MonteCarloVarEngine(PortfolioRepository portfolioRepository,
+                               RiskAnalyticsService riskAnalyticsService,
+                               @Value("${wealthwise.var.paths:100000}") int paths,
+                               @Value("${wealthwise.var.path-block-size:1024}") int pathBlockSize,
+                               @Value("${wealthwise.var.window-days:365}") int windowDays,
+                               @Value("${wealthwise.var.confidence:0.99}") double confidence,
+                               @Value("${wealthwise.var.seed:20250101}") long seed) {
+        this.portfolioRepository = portfolioRepository;
+        this.riskAnalyticsService = riskAnalyticsService;
+        this.paths = paths;
+        this.pathBlockSize = pathBlockSize;
+        this.windowDays = windowDays;
+        this.confidence = confidence;
+        this.seed = seed;
+    }
+
+    // Holdings of one portfolio as parallel arrays of matrix indexes and market values
+    private static class Exposure {
+        private final String portfolioId;
+        private final int[] indexes;
+        private final double[] values;
+        private final double marketValue;
+
+        private Exposure(String portfolioId, int[] indexes, double[] values) {
+            this.portfolioId = portfolioId;
+            this.indexes = indexes;
+            this.values = values;
+            this.marketValue = Arrays.stream(values).sum();
+        }
+    }
+
+    /**
+     * Nightly full-book run over the last complete day
+     */
+    @Scheduled(cron = "${wealthwise.var.cron:-}")
+    public void runNightly() {
+        long started = System.nanoTime();
+        Map<String, ValueAtRisk> results = runFullBook(LocalDate.now().minusDays(1));
+        log.info("VaR run for {} portfolios with {} paths took {} ms",
+                results.size(), paths, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Run every active portfolio and keep the results as the latest figures
+     */
+    public Map<String, ValueAtRisk> runFullBook(LocalDate asOf) {
+        List<String> portfolioIds = portfolioRepository.findByStatus(PortfolioStatus.ACTIVE).stream()
+                .map(Portfolio::getUuid)
+                .toList();
+        Map<String, ValueAtRisk> results = run(portfolioIds, asOf);
+        latest.putAll(results);
+        return results;
+    }
+
+    public Optional<ValueAtRisk> getLatest(String portfolioId) {
+        return Optional.ofNullable(latest.get(portfolioId));
+    }
+
+    /**
+     * @return Figures for every given portfolio, valued at the last close on or before the as-of date
+     */
+    public Map<String, ValueAtRisk> run(Collection<String> portfolioIds, LocalDate asOf) {
+        Map<String, Map<String, Double>> values = new LinkedHashMap<>();
+        Set<String> universe = new TreeSet<>();
+        for (String portfolioId : portfolioIds) {
+            Map<String, Double> portfolioValues = riskAnalyticsService.getMarketValues(portfolioId, asOf);
+            values.put(portfolioId, portfolioValues);
+            universe.addAll(portfolioValues.keySet());
+        }
+
+        CovarianceMatrix covariance = riskAnalyticsService.getCovariance(universe, asOf.minusDays(windowDays), asOf);
+        double[] lower = Cholesky.decompose(covariance.raw());
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < covariance.getIsins().size(); i++) {
+            indexes.put(covariance.getIsins().get(i), i);
+        }
+
+        List<Exposure> exposures = new ArrayList<>();
+        values.forEach((portfolioId, portfolioValues) -> {
+            int[] portfolioIndexes = new int[portfolioValues.size()];
+            double[] portfolioAmounts = new double[portfolioValues.size()];
+            int k = 0;
+            for (Map.Entry<String, Double> value : portfolioValues.entrySet()) {
+                portfolioIndexes[k] = indexes.get(value.getKey());
+                portfolioAmounts[k++] = value.getValue();
+            }
+            exposures.add(new Exposure(portfolioId, portfolioIndexes, portfolioAmounts));
+        });
+
+        int securities = covariance.getIsins().size();
+        int tailSize = paths - tailIndex(paths);
+        Tail[] oneDayTails = new Tail[exposures.size()];
+        Tail[] tenDayTails = new Tail[exposures.size()];
+        for (int p = 0; p < exposures.size(); p++) {
+            oneDayTails[p] = new Tail(tailSize);
+            tenDayTails[p] = new Tail(tailSize);
+        }
+
+        // Split sequentially from the seed, so a run sees the same scenarios however it is scheduled
+        int blocks = (paths + pathBlockSize - 1) / pathBlockSize;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++) {
+            randoms[b] = root.split();
+        }
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int blockPaths = Math.min(pathBlockSize, paths - b * pathBlockSize);
+            double[][] oneDay = new double[blockPaths][securities];
+            double[][] remainingDays = new double[blockPaths][securities];
+            simulateBlock(randoms[b], blockPaths, lower, securities, oneDay, remainingDays);
+            double[] oneDayLosses = new double[blockPaths];
+            double[] tenDayLosses = new double[blockPaths];
+            for (int p = 0; p < exposures.size(); p++) {
+                value(exposures.get(p), blockPaths, oneDay, remainingDays, oneDayLosses, tenDayLosses);
+                oneDayTails[p].offerAll(oneDayLosses);
+                tenDayTails[p].offerAll(tenDayLosses);
+            }
+        });
+
+        Map<String, ValueAtRisk> results = new LinkedHashMap<>();
+        for (int p = 0; p < exposures.size(); p++) {
+            Exposure exposure = exposures.get(p);
+            results.put(exposure.portfolioId, ValueAtRisk.builder()
+                    .portfolioId(exposure.portfolioId)
+                    .asOf(asOf)
+                    .confidence(confidence)
+                    .paths(paths)
+                    .marketValue(exposure.marketValue)
+                    .oneDayVar(oneDayTails[p].quantile())
+                    .oneDayExpectedShortfall(oneDayTails[p].mean())
+                    .tenDayVar(tenDayTails[p].quantile())
+                    .tenDayExpectedShortfall(tenDayTails[p].mean())
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * Correlated returns of one block of paths, computed once and shared by every portfolio.
+     * The 10-day return is the 1-day return plus the sum of nine more independent days,
+     * drawn at once as a single normal with nine times the variance.
+     * Shocks are drawn in path order from the block's own generator.
+     */
+    private static void simulateBlock(SplittableRandom random, int blockPaths, double[] lower, int securities,
+                                      double[][] oneDay, double[][] remainingDays) {
+        double remainingScale = Math.sqrt(LONG_HORIZON_DAYS - 1);
+        double[] oneDayShocks = new double[securities];
+        double[] remainingShocks = new double[securities];
+        for (int path = 0; path < blockPaths; path++) {
+            for (int i = 0; i < securities; i++) {
+                oneDayShocks[i] = random.nextGaussian();
+            }
+            for (int i = 0; i < securities; i++) {
+                remainingShocks[i] = random.nextGaussian() * remainingScale;
+            }
+            Cholesky.multiply(lower, oneDayShocks, oneDay[path]);
+            Cholesky.multiply(lower, remainingShocks, remainingDays[path]);
+        }
+    }
+
+    private static void value(Exposure exposure, int blockPaths, double[][] oneDay, double[][] remainingDays,
+                              double[] oneDayLosses, double[] tenDayLosses) {
+        for (int path = 0; path < blockPaths; path++) {
+            double firstDayLoss = 0;
+            double laterDaysLoss = 0;
+            for (int k = 0; k < exposure.indexes.length; k++) {
+                firstDayLoss -= exposure.values[k] * oneDay[path][exposure.indexes[k]];
+                laterDaysLoss -= exposure.values[k] * remainingDays[path][exposure.indexes[k]];
+            }
+            oneDayLosses[path] = firstDayLoss;
+            tenDayLosses[path] = firstDayLoss + laterDaysLoss;
+        }
+    }
+
+    /**
+     * @return Index of the loss quantile at the confidence level among the given number of sorted losses
+     */
+    private int tailIndex(int count) {
+        return Math.min(count - 1, Math.max(0, (int) Math.ceil(confidence * count) - 1));
+    }
+
+    /**
+     * The largest losses of one portfolio, as many as lie at or beyond the quantile, in a min-heap.
+     * Keeps the figures exact while holding only the tail instead of every path. Blocks merge into it
+     * in any order; the set of largest losses, and so every figure, does not depend on that order.
+     */
+    private static final class Tail {
+        private final double[] heap;
+        private int size;
+
+        private Tail(int capacity) {
+            this.heap = new double[capacity];
+        }
+
+        private synchronized void offerAll(double[] losses) {
+            for (double loss : losses) {
+                offer(loss);
+            }
+        }
+
+        private void offer(double loss) {
+            if (size < heap.length) {
+                int i = size++;
+                while (i > 0 && heap[(i - 1) / 2] > loss) {
+                    heap[i] = heap[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = loss;
+            } else if (loss > heap[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && heap[child + 1] < heap[child]) {
+                        child++;
+                    }
+                    if (heap[child] >= loss) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = loss;
+            }
+        }
+
+        // The smallest loss kept is the quantile
+        private double quantile() {
+            return heap[0];
+        }
+
+        // Summed in sorted order, so the heap layout left by the merge order cannot change the last digit
+        private double mean() {
+            double[] losses = Arrays.copyOf(heap, size);
+            Arrays.sort(losses);
+            double sum = 0;
+            for (double loss : losses) {
+                sum += loss;
+            }
+            return sum / size;
+        }
+    }
+}
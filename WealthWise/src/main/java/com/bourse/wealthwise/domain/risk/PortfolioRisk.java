@@ -0,0 +1,25 @@
+package com.bourse.wealthwise.domain.risk;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Builder
+public class PortfolioRisk {
+    private final String portfolioId;
+    private final LocalDate from;
+    private final LocalDate to;
+    // Market-value weights of the holdings that have a price, summing to 1
+    private final Map<String, Double> weights;
+    private final double dailyVolatility;
+    private final double annualizedVolatility;
+    // Null without a benchmark
+    private final Double beta;
+    // Correlation between every pair of weighted holdings, in the order of holdingIsins
+    private final List<String> holdingIsins;
+    private final double[][] correlations;
+}
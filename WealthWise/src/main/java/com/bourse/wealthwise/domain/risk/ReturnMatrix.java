@@ -0,0 +1,38 @@
+package com.bourse.wealthwise.domain.risk;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Daily simple returns of several securities aligned on a common calendar.
+ * Row i holds the returns of security i, contiguous, so row dot products stream through memory.
+ * A day on which a security has no close carries its previous close forward, i.e. a zero return.
+ * Days before a security's first close have no return at all and hold NaN.
+ */
+@Getter
+public class ReturnMatrix {
+    private final List<String> isins;
+    // Date of each return column: the later of the two closes
+    private final LocalDate[] dates;
+    private final double[][] returns;
+
+    ReturnMatrix(List<String> isins, LocalDate[] dates, double[][] returns) {
+        this.isins = isins;
+        this.dates = dates;
+        this.returns = returns;
+    }
+
+    public int getSecurityCount() {
+        return isins.size();
+    }
+
+    public int getObservationCount() {
+        return dates.length;
+    }
+
+    public int indexOf(String isin) {
+        return isins.indexOf(isin);
+    }
+}
@@ -0,0 +1,232 @@
+package com.bourse.wealthwise.domain.risk;
+
+import com.bourse.wealthwise.domain.adjustments.AdjustedPriceService;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import com.bourse.wealthwise.domain.services.PortfolioSharesService;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Volatility, beta and correlation from daily returns of capital-raise-adjusted closes.
+ * Return series are aligned into a primitive matrix and the covariance matrix is computed
+ * on the common fork-join pool. Matrices are cached per (security set, window) until a
+ * daily close or an adjustment factor changes.
+ */
+@Service
+public class RiskAnalyticsService {
+
+    private final AdjustedPriceService adjustedPriceService;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final PortfolioSharesService portfolioSharesService;
+    private final Map<MatrixKey, CachedMatrix> cache;
+
+    public RiskAnalyticsService(AdjustedPriceService adjustedPriceService,
+                                SecurityPriceRepository securityPriceRepository,
+                                PortfolioSharesService portfolioSharesService,
+                                @Value("${wealthwise.risk.cache-size:16}") int cacheSize) {
+        this.adjustedPriceService = adjustedPriceService;
+        this.securityPriceRepository = securityPriceRepository;
+        this.portfolioSharesService = portfolioSharesService;
+        // Large matrices, so only a few are kept, least recently used evicted first
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MatrixKey, CachedMatrix> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class MatrixKey {
+        private final List<String> isins;
+        private final LocalDate from;
+        private final LocalDate to;
+    }
+
+    @AllArgsConstructor
+    private static class CachedMatrix {
+        private final CovarianceMatrix matrix;
+        private final long closeVersion;
+        private final long adjustmentVersion;
+    }
+
+    /**
+     * @return Daily returns of the securities between closes within the closed date range, rows in ISIN order.
+     * Days before a security's first close in the range are NaN, so a security listed part way through
+     * is left out of those days instead of shortening the window of every other security.
+     */
+    public ReturnMatrix getReturns(Collection<String> isins, LocalDate from, LocalDate to) {
+        List<String> ordered = isins.stream().distinct().sorted().toList();
+        List<List<SecurityPrice>> series = ordered.parallelStream()
+                .map(isin -> adjustedPriceService.getAdjustedPrices(isin, from, to))
+                .toList();
+
+        TreeSet<LocalDate> calendar = new TreeSet<>();
+        series.forEach(prices -> prices.forEach(price -> calendar.add(price.getDate())));
+        LocalDate[] days = calendar.toArray(new LocalDate[0]);
+        if (days.length < 2) {
+            return new ReturnMatrix(ordered, new LocalDate[0], new double[ordered.size()][0]);
+        }
+        Map<LocalDate, Integer> dayIndex = new HashMap<>();
+        for (int d = 0; d < days.length; d++) {
+            dayIndex.put(days[d], d);
+        }
+
+        double[][] returns = new double[ordered.size()][days.length - 1];
+        IntStream.range(0, ordered.size()).parallel().forEach(i -> {
+            double[] closes = new double[days.length];
+            Arrays.fill(closes, Double.NaN);
+            for (SecurityPrice price : series.get(i)) {
+                closes[dayIndex.get(price.getDate())] = price.getPrice();
+            }
+            double previous = Double.NaN;
+            for (int d = 0; d < days.length; d++) {
+                double current = Double.isNaN(closes[d]) ? previous : closes[d];
+                if (d > 0) {
+                    returns[i][d - 1] = Double.isNaN(previous)
+                            ? Double.NaN
+                            : previous == 0 ? 0 : current / previous - 1;
+                }
+                previous = current;
+            }
+        });
+        return new ReturnMatrix(ordered, Arrays.copyOfRange(days, 1, days.length), returns);
+    }
+
+    /**
+     * @return Sample covariance of daily returns within the closed date range
+     */
+    public CovarianceMatrix getCovariance(Collection<String> isins, LocalDate from, LocalDate to) {
+        MatrixKey key = new MatrixKey(isins.stream().distinct().sorted().toList(), from, to);
+        long closeVersion = securityPriceRepository.getCloseVersion();
+        long adjustmentVersion = adjustedPriceService.getVersion();
+        CachedMatrix cached = cache.get(key);
+        if (cached != null && cached.closeVersion == closeVersion && cached.adjustmentVersion == adjustmentVersion) {
+            return cached.matrix;
+        }
+
+        CovarianceMatrix matrix = computeCovariance(getReturns(key.isins, from, to));
+        cache.put(key, new CachedMatrix(matrix, closeVersion, adjustmentVersion));
+        return matrix;
+    }
+
+    /**
+     * Risk of the portfolio's holdings at the end of the window, weighted by market value at the last close.
+     * @param benchmarkIsin Security to measure beta against, or null
+     */
+    public PortfolioRisk getPortfolioRisk(String portfolioId, LocalDate from, LocalDate to, String benchmarkIsin) {
+        Map<String, Double> values = getMarketValues(portfolioId, to);
+        double total = values.values().stream().mapToDouble(Double::doubleValue).sum();
+
+        Map<String, Double> weights = new LinkedHashMap<>();
+        values.forEach((isin, value) -> weights.put(isin, value / total));
+        List<String> holdingIsins = List.copyOf(weights.keySet());
+
+        Set<String> universe = new TreeSet<>(holdingIsins);
+        if (benchmarkIsin != null) {
+            universe.add(benchmarkIsin);
+        }
+        CovarianceMatrix covariance = getCovariance(universe, from, to);
+        double[] w = new double[covariance.getIsins().size()];
+        for (int i = 0; i < w.length; i++) {
+            w[i] = weights.getOrDefault(covariance.getIsins().get(i), 0.0);
+        }
+
+        double dailyVolatility = Math.sqrt(Math.max(0, covariance.portfolioVariance(w)));
+        Double beta = null;
+        if (benchmarkIsin != null) {
+            double benchmarkVariance = covariance.getCovariance(benchmarkIsin, benchmarkIsin);
+            if (benchmarkVariance > 0) {
+                beta = covariance.covarianceWithPortfolio(w)[covariance.getIsins().indexOf(benchmarkIsin)] / benchmarkVariance;
+            }
+        }
+
+        double[][] correlations = new double[holdingIsins.size()][holdingIsins.size()];
+        for (int i = 0; i < holdingIsins.size(); i++) {
+            for (int j = 0; j < holdingIsins.size(); j++) {
+                correlations[i][j] = covariance.getCorrelation(holdingIsins.get(i), holdingIsins.get(j));
+            }
+        }
+
+        return PortfolioRisk.builder()
+                .portfolioId(portfolioId)
+                .from(from)
+                .to(to)
+                .weights(weights)
+                .dailyVolatility(dailyVolatility)
+                .annualizedVolatility(dailyVolatility * Math.sqrt(CovarianceMatrix.TRADING_DAYS_PER_YEAR))
+                .beta(beta)
+                .holdingIsins(holdingIsins)
+                .correlations(correlations)
+                .build();
+    }
+
+    /**
+     * @return Positive market values of the portfolio's holdings at the end of the day, at the last close
+     * on or before it, keyed and ordered by ISIN
+     */
+    public Map<String, Double> getMarketValues(String portfolioId, LocalDate asOf) {
+        Map<Security, BigInteger> volumes = portfolioSharesService.getSecurityVolumes(portfolioId, asOf.atTime(LocalTime.MAX));
+        Map<String, Double> values = new TreeMap<>();
+        volumes.forEach((security, volume) -> securityPriceRepository
+                .getLatestCloseBefore(security.getIsin(), asOf.plusDays(1))
+                .map(price -> price.getPrice() * volume.doubleValue())
+                .filter(value -> value > 0)
+                .ifPresent(value -> values.merge(security.getIsin(), value, Double::sum)));
+        return values;
+    }
+
+    /**
+     * Each pair is estimated from the days both securities have a return, so every security keeps
+     * its whole history. Such a matrix may be slightly indefinite; {@link Cholesky} zeroes the
+     * offending directions.
+     */
+    static CovarianceMatrix computeCovariance(ReturnMatrix returns) {
+        int n = returns.getSecurityCount();
+        int observations = returns.getObservationCount();
+        double[][] covariance = new double[n][n];
+        int[] counts = new int[n];
+        if (observations < 2) {
+            return new CovarianceMatrix(returns.getIsins(), observations, counts, covariance);
+        }
+
+        double[][] demeaned = new double[n][];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double[] row = returns.getReturns()[i];
+            double mean = 0;
+            int count = 0;
+            for (double r : row) {
+                if (!Double.isNaN(r)) {
+                    mean += r;
+                    count++;
+                }
+            }
+            counts[i] = count;
+            if (count < observations) {
+                // Partial row: its pairs are computed over the days both have
+                return;
+            }
+            mean /= observations;
+            double[] centered = new double[observations];
+            for (int t = 0; t < observations; t++) {
+                centered[t] = row[t] - mean;
+            }
+            demeaned[i] = centered;
+        });
+
+        ForkJoinPool.commonPool().invoke(new CovarianceTask(returns.getReturns(), demeaned, covariance, 0, n));
+        return new CovarianceMatrix(returns.getIsins(), observations, counts, covariance);
+    }
+}
@@ -0,0 +1,25 @@
+package com.bourse.wealthwise.domain.risk;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * Simulated loss figures of one portfolio, as positive amounts in the portfolio's currency.
+ */
+@Getter
+@ToString
+@Builder
+public class ValueAtRisk {
+    private final String portfolioId;
+    private final LocalDate asOf;
+    private final double confidence;
+    private final int paths;
+    private final double marketValue;
+    private final double oneDayVar;
+    private final double oneDayExpectedShortfall;
+    private final double tenDayVar;
+    private final double tenDayExpectedShortfall;
+}
@@ -0,0 +1,125 @@
+package com.bourse.wealthwise.domain.scenario;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityChange;
+import com.bourse.wealthwise.domain.projection.CurrentHoldingsProjection;
+import com.bourse.wealthwise.domain.projection.HoldingsSnapshot;
+import com.bourse.wealthwise.domain.projection.PositionVolume;
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * What-if view of one portfolio: hypothetical actions layered over a base state.
+ * Only the hypothetical actions are stored; a read applies them, in the order they were added,
+ * over the base, which is either the live holdings projection or a parent scenario.
+ * Positions are dropped at zero or below as in any replay, so a fork reads the same as
+ * applying the parent's actions and then its own.
+ * The base is not frozen, so real actions saved after creation are visible here too.
+ * Nothing is written to the repositories or published on the event bus.
+ */
+public class Scenario {
+
+    @Getter
+    private final String portfolioId;
+    private final CurrentHoldingsProjection live;
+    private final Scenario parent;
+    private final List<BaseAction> actions = new CopyOnWriteArrayList<>();
+
+    Scenario(String portfolioId, CurrentHoldingsProjection live, Scenario parent) {
+        this.portfolioId = portfolioId;
+        this.live = live;
+        this.parent = parent;
+    }
+
+    /**
+     * Add a hypothetical action to this scenario
+     * @param action The action, belonging to the scenario's portfolio
+     * @return This scenario
+     */
+    public synchronized Scenario apply(BaseAction action) {
+        checkPortfolio(action);
+        actions.add(action);
+        return this;
+    }
+
+    /**
+     * Take back a hypothetical action previously applied to this scenario
+     */
+    public synchronized Scenario undo(BaseAction action) {
+        if (!actions.remove(action)) {
+            throw new IllegalArgumentException("Action not in scenario: " + action.getUuid());
+        }
+        return this;
+    }
+
+    /**
+     * @return A child scenario over this one, seeing every action applied here so far and later
+     */
+    public Scenario fork() {
+        return new Scenario(portfolioId, live, this);
+    }
+
+    /**
+     * @return Hypothetical actions of this scenario alone, in the order they were applied
+     */
+    public List<BaseAction> getActions() {
+        return List.copyOf(actions);
+    }
+
+    public BigInteger getCashBalance() {
+        BigInteger balance = parent == null ? live.getCashBalance(portfolioId) : parent.getCashBalance();
+        for (BaseAction action : actions) {
+            for (BalanceChange balanceChange : action.getBalanceChanges()) {
+                balance = balance.add(balanceChange.getChange_amount());
+            }
+        }
+        return balance;
+    }
+
+    public BigInteger getVolume(Security security) {
+        BigInteger volume = parent == null ? live.getVolume(portfolioId, security) : parent.getVolume(security);
+        for (BaseAction action : actions) {
+            for (SecurityChange securityChange : action.getSecurityChanges()) {
+                if (security.equals(securityChange.getSecurity())) {
+                    volume = volume.add(securityChange.getVolumeChange()).max(BigInteger.ZERO);
+                }
+            }
+        }
+        return volume;
+    }
+
+    /**
+     * @return Tradable/locked split of every security held in the scenario,
+     * with unlocks evaluated at the given time
+     */
+    public Map<Security, PositionVolume> getPositionVolumes(LocalDateTime dateTime) {
+        return getHoldings().getPositionVolumes(dateTime);
+    }
+
+    private HoldingsSnapshot getHoldings() {
+        HoldingsSnapshot holdings = parent == null ? live.copyHoldings(portfolioId) : parent.getHoldings();
+        actions.forEach(holdings::apply);
+        return holdings;
+    }
+
+    /**
+     * @return true if the scenario holds enough tradable volume at the given time to sell
+     */
+    public boolean canSell(Security security, BigInteger volume, LocalDateTime dateTime) {
+        PositionVolume positionVolume = getPositionVolumes(dateTime).get(security);
+        return positionVolume != null && positionVolume.getTradable().compareTo(volume) >= 0;
+    }
+
+    private void checkPortfolio(BaseAction action) {
+        if (action.getPortfolio() == null || !portfolioId.equals(action.getPortfolio().getUuid())) {
+            throw new IllegalArgumentException("Action does not belong to portfolio " + portfolioId);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.bourse.wealthwise.domain.scenario;
+
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioNotFoundException;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.projection.CurrentHoldingsProjection;
+import com.bourse.wealthwise.domain.projection.PositionVolume;
+import com.bourse.wealthwise.domain.services.PortfolioSharesService.SecurityHolding;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class ScenarioService {
+
+    private final PortfolioRepository portfolioRepository;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final CurrentHoldingsProjection currentHoldingsProjection;
+
+    /**
+     * Open a what-if scenario over the live state of a portfolio.
+     * Nothing is copied, so creation costs the same however large the portfolio is.
+     * @param portfolioId The portfolio ID
+     * @return An empty scenario
+     */
+    public Scenario create(String portfolioId) {
+        String uuid = portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId))
+                .getUuid();
+        currentHoldingsProjection.awaitCaughtUp();
+        return new Scenario(uuid, currentHoldingsProjection, null);
+    }
+
+    /**
+     * Holdings of a scenario valued at the freshest mark, in the same shape as real portfolio holdings
+     * @param scenario The scenario
+     * @param dateTime The valuation time
+     * @return List of SecurityHolding sorted by security name
+     */
+    public List<SecurityHolding> getHoldings(Scenario scenario, LocalDateTime dateTime) {
+        List<SecurityHolding> holdings = new ArrayList<>();
+        for (Map.Entry<Security, PositionVolume> entry : scenario.getPositionVolumes(dateTime).entrySet()) {
+            Security security = entry.getKey();
+            BigInteger volume = entry.getValue().getTotal();
+            holdings.add(SecurityHolding.builder()
+                    .security(security)
+                    .volume(volume)
+                    .tradableVolume(entry.getValue().getTradable())
+                    .lockedVolume(entry.getValue().getLocked())
+                    .value(securityPriceRepository.getMarkPrice(security.getIsin(), dateTime)
+                            .map(price -> price * volume.doubleValue())
+                            .orElse(null))
+                    .build());
+        }
+        holdings.sort(Comparator.comparing(h -> h.getSecurity().getName() != null ?
+                h.getSecurity().getName() : h.getSecurity().getSymbol()));
+        return holdings;
+    }
+}
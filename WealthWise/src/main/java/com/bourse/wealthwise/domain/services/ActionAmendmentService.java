@@ -0,0 +1,57 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.action.Actor;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.repository.ActionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ActionAmendmentService {
+
+    private final ActionRepository actionRepository;
+
+    /**
+     * Replace an action with a corrected version.
+     * Derived state reverts the old version's deltas and applies the new ones.
+     * @param uuid The action to amend
+     * @param amended The corrected action, carrying the same uuid and portfolio
+     * @return The stored amended action with its new version number
+     */
+    public BaseAction amend(String uuid, BaseAction amended) {
+        BaseAction current = actionRepository.findById(uuid)
+                .orElseThrow(() -> new IllegalArgumentException("Action not found: " + uuid));
+        if (!uuid.equals(amended.getUuid())) {
+            throw new IllegalArgumentException("Amended action must keep uuid " + uuid);
+        }
+        if (!current.getPortfolio().equals(amended.getPortfolio())) {
+            throw new IllegalArgumentException("Amended action must stay in portfolio " + current.getPortfolio().getUuid());
+        }
+        BaseAction stored = actionRepository.amend(amended.getActor() == null
+                ? amended.toBuilder().actor(Actor.MANUAL).build()
+                : amended);
+        log.info("Amended action {} to version {}", uuid, stored.getVersion());
+        return stored;
+    }
+
+    /**
+     * Cancel an action. Derived state reverts its deltas.
+     * @param uuid The action to cancel
+     */
+    public void cancel(String uuid) {
+        actionRepository.cancel(uuid);
+        log.info("Cancelled action {}", uuid);
+    }
+
+    /**
+     * @return Earlier and cancelled versions of the action, oldest first
+     */
+    public List<BaseAction> getHistory(String uuid) {
+        return actionRepository.findVersionsOf(uuid);
+    }
+}
@@ -1,5 +1,7 @@
 package com.bourse.wealthwise.domain.services;
 
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioNotFoundException;
+import com.bourse.wealthwise.domain.projection.CurrentHoldingsProjection;
 import com.bourse.wealthwise.repository.ActionRepository;
 import com.bourse.wealthwise.repository.PortfolioRepository;
 import lombok.RequiredArgsConstructor;
@@ -12,18 +14,22 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class BalanceActionService {
 
-    private final ActionRepository actionRepository;
     private final PortfolioRepository portfolioRepository;
+    private final CurrentHoldingsProjection currentHoldingsProjection;
+    private final ActionRepository actionRepository;
 
     public BigInteger getBalanceForPortfolio(String portfolioId, LocalDateTime localDateTime) {
-        return actionRepository.findAllActionsOf(
-                        portfolioRepository.findById(portfolioId)
-                                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"))
-                                .getUuid()
-                ).stream()
-                .filter(action -> action.getDatetime() != null && action.getDatetime().isBefore(localDateTime))
-                .map(action -> action.getBalanceChanges().getFirst().getChange_amount())
-                .reduce(BigInteger.ZERO, BigInteger::add);
+        String uuid = portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId))
+                .getUuid();
+
+        if (currentHoldingsProjection.awaitCaughtUp()
+                && currentHoldingsProjection.isCurrentBefore(uuid, localDateTime)) {
+            return currentHoldingsProjection.getCashBalance(uuid);
+        }
+
+        // A past balance is aggregated by the action store, from the cash column by default
+        return actionRepository.getCashBalanceBefore(uuid, localDateTime);
     }
 
 }
@@ -1,31 +1,81 @@
 package com.bourse.wealthwise.domain.services;
 
 import com.bourse.wealthwise.domain.entity.action.Actor;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
 import com.bourse.wealthwise.domain.entity.action.CapitalRaise;
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
 import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.exposure.MarketExposureProjection;
+import com.bourse.wealthwise.domain.projection.CurrentHoldingsProjection;
+import com.bourse.wealthwise.domain.projection.HoldingsCheckpointProjection;
+import com.bourse.wealthwise.domain.projection.Position;
+import com.bourse.wealthwise.domain.replication.ReplicationFollower;
+import com.bourse.wealthwise.domain.sharding.ShardClient;
+import com.bourse.wealthwise.domain.sharding.ShardRouter;
 import com.bourse.wealthwise.repository.ActionRepository;
 import com.bourse.wealthwise.repository.PortfolioRepository;
 import com.bourse.wealthwise.repository.SecurityRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
 import java.math.BigInteger;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Allocates capital raises announced on the queue. Only a leader listens: a read replica
+ * receives the allocations through its leader's mutation log.
+ * <p>
+ * Each allocation carries the tracing number {@code CR-<symbol>-<date>-<portfolio>}, which the
+ * action repository keeps unique, so allocating the same raise again on the same day stores
+ * nothing new. That is what makes retrying a shard safe after a call that timed out but went through.
+ */
 @Component
-@RequiredArgsConstructor
+@ConditionalOnExpression(ReplicationFollower.ON_LEADER)
 @Slf4j
 public class CapitalRaiseListenerService {
 
     private final SecurityRepository securityRepository;
     private final PortfolioRepository portfolioRepository;
     private final ActionRepository actionRepository;
-    private final PortfolioSharesService portfolioSharesService;
+    private final CurrentHoldingsProjection currentHoldingsProjection;
+    private final HoldingsCheckpointProjection holdingsCheckpointProjection;
+    private final MarketExposureProjection marketExposureProjection;
+    private final ShardRouter shardRouter;
+    private final ShardClient shardClient;
+    private final int retries;
+    private final long retryBackoffMillis;
+
+    public CapitalRaiseListenerService(SecurityRepository securityRepository,
+                                       PortfolioRepository portfolioRepository,
+                                       ActionRepository actionRepository,
+                                       CurrentHoldingsProjection currentHoldingsProjection,
+                                       HoldingsCheckpointProjection holdingsCheckpointProjection,
+                                       MarketExposureProjection marketExposureProjection,
+                                       ShardRouter shardRouter,
+                                       ShardClient shardClient,
+                                       @Value("${wealthwise.sharding.capital-raise-retries:2}") int retries,
+                                       @Value("${wealthwise.sharding.capital-raise-retry-backoff-ms:500}") long retryBackoffMillis) {
+        this.securityRepository = securityRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.actionRepository = actionRepository;
+        this.currentHoldingsProjection = currentHoldingsProjection;
+        this.holdingsCheckpointProjection = holdingsCheckpointProjection;
+        this.marketExposureProjection = marketExposureProjection;
+        this.shardRouter = shardRouter;
+        this.shardClient = shardClient;
+        this.retries = retries;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
 
     @JmsListener(destination = "capital.raise.queue")
     public void handleCapitalRaiseAnnouncement(String message) {
@@ -41,57 +91,135 @@ public class CapitalRaiseListenerService {
             String securitySymbol = parts[1];
             double rightPerShare = Double.parseDouble(parts[2]);
 
-            // Find the security by symbol
-            Security originalSecurity = securityRepository.findSecurityBySymbol(securitySymbol);
-            if (originalSecurity == null) {
-                log.error("Security not found for symbol: {}", securitySymbol);
-                return;
+            CapitalRaiseResult result = raise(securitySymbol, rightPerShare);
+            if (!result.isComplete()) {
+                log.error("Capital raise on {} did not reach shards {}", securitySymbol, result.getFailedShards());
             }
+            log.info("Capital raise processing completed for security: {} ({} portfolios, {} rights)",
+                    securitySymbol, result.getAllocatedPortfolios(), result.getRightVolume());
 
-            // Find the stock right security
-            String rightSymbol = "H" + securitySymbol;
-            Security rightSecurity = securityRepository.findSecurityBySymbol(rightSymbol);
-            if (rightSecurity == null) {
-                log.error("Stock right security not found for symbol: {}", rightSymbol);
-                return;
-            }
+        } catch (Exception e) {
+            log.error("Error processing capital raise announcement: " + message, e);
+        }
+    }
 
-            // Process all portfolios
-            LocalDateTime now = LocalDateTime.now();
-            for (Portfolio portfolio : portfolioRepository.findAll()) {
-                processPortfolioCapitalRaise(portfolio, originalSecurity, rightSecurity, rightPerShare, now);
+    /**
+     * Allocate today's capital raise on the security
+     * @see #raise(String, double, LocalDate)
+     */
+    public CapitalRaiseResult raise(String securitySymbol, double rightPerShare) {
+        return raise(securitySymbol, rightPerShare, LocalDate.now());
+    }
+
+    /**
+     * Allocate a capital raise on every shard at once and sum up what each allocated.
+     * Shards that fail are asked again, with a growing pause, up to the configured number
+     * of retries; a shard still failing then is reported in the result and the others keep
+     * their allocations. Raising again later completes the missing shards without
+     * allocating twice on the others.
+     */
+    public CapitalRaiseResult raise(String securitySymbol, double rightPerShare, LocalDate date) {
+        if (!shardRouter.isSharded()) {
+            return allocateLocal(securitySymbol, rightPerShare, date);
+        }
+        List<String> pending = new ArrayList<>();
+        pending.add(shardRouter.getSelf());
+        pending.addAll(shardRouter.getPeers());
+        CapitalRaiseResult total = CapitalRaiseResult.EMPTY;
+        for (int attempt = 0; ; attempt++) {
+            Map<String, Future<CapitalRaiseResult>> shares = new LinkedHashMap<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String shard : pending) {
+                    shares.put(shard, executor.submit(() -> shard.equals(shardRouter.getSelf())
+                            ? allocateLocal(securitySymbol, rightPerShare, date)
+                            : shardClient.allocateCapitalRaise(shard, securitySymbol, rightPerShare, date)));
+                }
+            }
+            pending = new ArrayList<>();
+            for (Map.Entry<String, Future<CapitalRaiseResult>> share : shares.entrySet()) {
+                try {
+                    total = total.plus(share.getValue().get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    pending.add(share.getKey());
+                } catch (ExecutionException e) {
+                    log.error("Capital raise on {} failed on shard {} (attempt {})",
+                            securitySymbol, share.getKey(), attempt + 1, e.getCause());
+                    pending.add(share.getKey());
+                }
             }
+            if (pending.isEmpty() || attempt >= retries || !pause(attempt)) {
+                break;
+            }
+        }
+        for (String shard : pending) {
+            total = total.plus(CapitalRaiseResult.failed(shard));
+        }
+        return total;
+    }
 
-            log.info("Capital raise processing completed for security: {}", securitySymbol);
+    /**
+     * Allocate a capital raise to the active portfolios stored on this node. Portfolios already
+     * allocated this raise on the date keep their allocation and are counted with it.
+     * @throws IllegalStateException if the holdings projection lags behind the saved actions;
+     *         nothing is allocated, since an allocation can never be corrected by raising again
+     */
+    public CapitalRaiseResult allocateLocal(String securitySymbol, double rightPerShare, LocalDate date) {
+        // Find the security by symbol
+        Security originalSecurity = securityRepository.findSecurityBySymbol(securitySymbol);
+        if (originalSecurity == null) {
+            throw new IllegalArgumentException("Security not found: " + securitySymbol);
+        }
 
-        } catch (Exception e) {
-            log.error("Error processing capital raise announcement: " + message, e);
+        // Find the stock right security
+        String rightSymbol = "H" + securitySymbol;
+        Security rightSecurity = securityRepository.findSecurityBySymbol(rightSymbol);
+        if (rightSecurity == null) {
+            throw new IllegalArgumentException("Security not found: " + rightSymbol);
         }
+
+        log.info("Capital raise on {} will allocate at most {} rights",
+                securitySymbol, marketExposureProjection.estimateRightVolume(originalSecurity.getIsin(), rightPerShare));
+
+        // Process active portfolios against the holdings as of now
+        if (!currentHoldingsProjection.awaitCaughtUp()) {
+            throw new IllegalStateException("Holdings projection is lagging; capital raise on "
+                    + securitySymbol + " was not allocated");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        CapitalRaiseResult result = CapitalRaiseResult.EMPTY;
+        for (Portfolio portfolio : portfolioRepository.findByStatus(PortfolioStatus.ACTIVE)) {
+            BigInteger rightVolume = processPortfolioCapitalRaise(portfolio, originalSecurity, rightSecurity, rightPerShare, date, now);
+            if (rightVolume.signum() > 0) {
+                result = result.plus(new CapitalRaiseResult(1, rightVolume, List.of()));
+            }
+        }
+        return result;
     }
 
-    private void processPortfolioCapitalRaise(Portfolio portfolio, Security originalSecurity,
+    /**
+     * @return The rights allocated to the portfolio; zero if it holds none of the security
+     */
+    private BigInteger processPortfolioCapitalRaise(Portfolio portfolio, Security originalSecurity,
                                               Security rightSecurity, double rightPerShare,
-                                              LocalDateTime dateTime) {
-        Map<Security, BigInteger> holdings = portfolioSharesService.getSecurityVolumes(
-                portfolio.getUuid(), dateTime);
-
-        BigInteger originalVolume = holdings.get(originalSecurity);
-        if (originalVolume == null || originalVolume.compareTo(BigInteger.ZERO) <= 0) {
+                                              LocalDate date, LocalDateTime dateTime) {
+        BigInteger originalVolume = getVolumeAt(portfolio.getUuid(), originalSecurity, dateTime);
+        if (originalVolume.compareTo(BigInteger.ZERO) <= 0) {
             // Portfolio doesn't hold this security
-            return;
+            return BigInteger.ZERO;
         }
 
         BigInteger rightVolume = CapitalRaise.calculateRightVolume(originalVolume, rightPerShare);
 
         if (rightVolume.compareTo(BigInteger.ZERO) <= 0) {
-            return;
+            return BigInteger.ZERO;
         }
 
         CapitalRaise capitalRaise = CapitalRaise.builder()
                 .uuid(UUID.randomUUID().toString())
                 .portfolio(portfolio)
                 .datetime(dateTime)
-                .tracing_number("CR-" + UUID.randomUUID().toString())
+                .tracing_number(tracingNumber(originalSecurity.getSymbol(), date, portfolio.getUuid()))
                 .actor(Actor.PUBLISHER)
                 .originalSecurity(originalSecurity)
                 .rightSecurity(rightSecurity)
@@ -99,9 +227,49 @@ public class CapitalRaiseListenerService {
                 .rightPerShare(rightPerShare)
                 .build();
 
-        actionRepository.save(capitalRaise);
+        BaseAction stored = actionRepository.save(capitalRaise);
+        if (stored != capitalRaise) {
+            if (!(stored instanceof CapitalRaise existing)) {
+                throw new IllegalStateException("Tracing number " + capitalRaise.getTracing_number()
+                        + " is held by another action");
+            }
+            log.info("Portfolio {} was already allocated {} rights of {}",
+                    portfolio.getUuid(), existing.getRightVolume(), rightSecurity.getSymbol());
+            return existing.getRightVolume();
+        }
 
         log.info("Allocated {} rights of {} to portfolio {} (original holding: {})",
                 rightVolume, rightSecurity.getSymbol(), portfolio.getUuid(), originalVolume);
+        return rightVolume;
+    }
+
+    /**
+     * @return Volume held at the given time; the live holdings include actions booked ahead of it,
+     * so a portfolio with any is replayed up to the time instead
+     */
+    private BigInteger getVolumeAt(String portfolioId, Security security, LocalDateTime dateTime) {
+        if (currentHoldingsProjection.isCurrentAt(portfolioId, dateTime)) {
+            return currentHoldingsProjection.getVolume(portfolioId, security);
+        }
+        Position position = holdingsCheckpointProjection.snapshotAt(portfolioId, dateTime).getPosition(security);
+        return position == null ? BigInteger.ZERO : position.getTotal().max(BigInteger.ZERO);
+    }
+
+    static String tracingNumber(String securitySymbol, LocalDate date, String portfolioId) {
+        return "CR-" + securitySymbol + "-" + date + "-" + portfolioId;
+    }
+
+    /**
+     * Wait before the next retry
+     * @return False if interrupted, so no retry should follow
+     */
+    private boolean pause(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMillis * (attempt + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.bourse.wealthwise.domain.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rights allocated by a capital raise, on one shard or summed over several.
+ * Shards that could not be reached are listed rather than failing the whole raise,
+ * since the others have already allocated by then.
+ */
+@Getter
+@AllArgsConstructor
+public class CapitalRaiseResult {
+
+    public static final CapitalRaiseResult EMPTY = new CapitalRaiseResult(0, BigInteger.ZERO, List.of());
+
+    private final int allocatedPortfolios;
+    private final BigInteger rightVolume;
+    private final List<String> failedShards;
+
+    public static CapitalRaiseResult failed(String shard) {
+        return new CapitalRaiseResult(0, BigInteger.ZERO, List.of(shard));
+    }
+
+    public CapitalRaiseResult plus(CapitalRaiseResult other) {
+        List<String> failed = new ArrayList<>(failedShards);
+        failed.addAll(other.failedShards);
+        return new CapitalRaiseResult(allocatedPortfolios + other.allocatedPortfolios,
+                rightVolume.add(other.rightVolume), List.copyOf(failed));
+    }
+
+    public boolean isComplete() {
+        return failedShards.isEmpty();
+    }
+}
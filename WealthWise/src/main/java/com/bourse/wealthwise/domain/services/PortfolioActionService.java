@@ -1,14 +1,18 @@
 package com.bourse.wealthwise.domain.services;
 
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
 import com.bourse.wealthwise.domain.entity.action.utils.ActionDescriptionVisitor;
 import com.bourse.wealthwise.domain.entity.action.utils.ActionVisitor;
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioNotFoundException;
 import com.bourse.wealthwise.repository.ActionRepository;
 import com.bourse.wealthwise.repository.PortfolioRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -23,11 +27,30 @@ public class PortfolioActionService {
 
         return actionRepository.findAllActionsOf(
                         portfolioRepository.findById(portfolioId)
-                                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"))
+                                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId))
                                 .getUuid()
                 ).stream()
                 .filter(action -> action.getDatetime() != null && action.getDatetime().isBefore(localDateTime))
                 .map(action -> action.accept(visitor))
                 .toList();
     }
+
+    /**
+     * Time-ordered view of a portfolio's actions, read lazily from the repository index
+     * @param portfolioId The portfolio ID
+     * @param from Start of the window, inclusive, or null to start from the first action
+     * @param to End of the window, inclusive
+     * @return Live view of the matching actions
+     */
+    public Collection<BaseAction> findActions(String portfolioId, LocalDateTime from, LocalDateTime to) {
+        String uuid = portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId))
+                .getUuid();
+        if (from != null && from.isAfter(to)) {
+            return List.of();
+        }
+        // The lowest key of "from" sorts just after every action strictly before it
+        ActionTimeKey fromExclusive = from == null ? null : ActionTimeKey.lowest(from);
+        return actionRepository.findActionsOf(uuid, fromExclusive, ActionTimeKey.highest(to));
+    }
 }
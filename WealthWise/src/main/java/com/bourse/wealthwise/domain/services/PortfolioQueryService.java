@@ -0,0 +1,191 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioNotFoundException;
+import com.bourse.wealthwise.domain.projection.CurrentHoldingsProjection;
+import com.bourse.wealthwise.domain.services.PortfolioSharesService.SecurityHolding;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Version-stamped balance, holdings and history queries for the HTTP API.
+ * The balance and the holdings stamp are cached by (portfolio, version, as-of). The portfolio
+ * version also tells whether the portfolio exists, so polling an unchanged balance costs one
+ * version read and one cache lookup. A missing as-of means "latest";
+ * such results also expire when a future-dated action or a share unlock takes effect.
+ */
+@Service
+public class PortfolioQueryService {
+
+    private final PortfolioRepository portfolioRepository;
+    private final SecurityPriceRepository securityPriceRepository;
+    private final CurrentHoldingsProjection currentHoldingsProjection;
+    private final BalanceActionService balanceActionService;
+    private final PortfolioSharesService portfolioSharesService;
+    private final PortfolioActionService portfolioActionService;
+    private final Map<QueryKey, VersionedResult<?>> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PortfolioQueryService(PortfolioRepository portfolioRepository,
+                                 SecurityPriceRepository securityPriceRepository,
+                                 CurrentHoldingsProjection currentHoldingsProjection,
+                                 BalanceActionService balanceActionService,
+                                 PortfolioSharesService portfolioSharesService,
+                                 PortfolioActionService portfolioActionService,
+                                 @Value("${wealthwise.query-cache.size:1024}") int cacheSize) {
+        this.portfolioRepository = portfolioRepository;
+        this.securityPriceRepository = securityPriceRepository;
+        this.currentHoldingsProjection = currentHoldingsProjection;
+        this.balanceActionService = balanceActionService;
+        this.portfolioSharesService = portfolioSharesService;
+        this.portfolioActionService = portfolioActionService;
+        // Access-ordered, so the least recently read result is evicted first
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QueryKey, VersionedResult<?>> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class QueryKey {
+        private final String portfolioId;
+        private final String query;
+        private final long version;
+        private final LocalDateTime asOf;
+
+        private String etag(LocalDateTime validUntil) {
+            return etag(validUntil, 0);
+        }
+
+        private String etag(LocalDateTime validUntil, long priceVersion) {
+            String point = asOf != null ? asOf.toString() : "latest" + (validUntil == null ? "" : "@" + validUntil);
+            return "\"" + query + "-" + version + "-" + priceVersion + "-" + point + "\"";
+        }
+    }
+
+    /**
+     * @param at Balance before this time, or null for the latest balance
+     */
+    public VersionedResult<BigInteger> getBalance(String portfolioId, LocalDateTime at) {
+        QueryKey key = new QueryKey(portfolioId, "balance", versionOf(portfolioId), at);
+        LocalDateTime now = LocalDateTime.now();
+        VersionedResult<BigInteger> cached = lookup(key, now);
+        if (cached != null) {
+            return cached;
+        }
+
+        BigInteger balance = balanceActionService.getBalanceForPortfolio(portfolioId, at == null ? now : at);
+        return store(key, balance, at == null ? nextChangeAfter(portfolioId, now) : null);
+    }
+
+    /**
+     * Holdings are streamed by {@link #forEachHolding} rather than cached. What is cached is the
+     * ISINs held at the portfolio version; the stamp adds up their price versions on every poll,
+     * so ticks of securities the portfolio does not hold leave it unchanged.
+     * @param at Holdings at this time, or null for the latest holdings
+     * @return The stamp of the holdings, with no value
+     */
+    public VersionedResult<Void> getHoldingsStamp(String portfolioId, LocalDateTime at) {
+        QueryKey key = new QueryKey(portfolioId, "holdings", versionOf(portfolioId), at);
+        LocalDateTime now = LocalDateTime.now();
+        VersionedResult<List<String>> held = lookup(key, now);
+        if (held == null) {
+            List<String> isins = new ArrayList<>();
+            portfolioSharesService.getPositionVolumes(portfolioId, at == null ? now : at)
+                    .keySet().forEach(security -> isins.add(security.getIsin()));
+            LocalDateTime validUntil = null;
+            if (at == null) {
+                // Without an intraday mark values use the day's close, so a latest result also expires at midnight
+                LocalDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay();
+                LocalDateTime nextChange = nextChangeAfter(portfolioId, now);
+                validUntil = nextChange == null || midnight.isBefore(nextChange) ? midnight : nextChange;
+            }
+            held = store(key, isins, validUntil);
+        }
+
+        // Each counter only grows, so the sum over a fixed set of ISINs moves whenever one of them does
+        long priceVersion = 0;
+        for (String isin : held.getValue()) {
+            priceVersion += securityPriceRepository.getVersion(isin);
+        }
+        return new VersionedResult<>(null, key.etag(held.getValidUntil(), priceVersion), held.getValidUntil());
+    }
+
+    /**
+     * Visit the holdings one by one, valued as they are visited, without collecting them
+     * @param at Holdings at this time, or null for the latest holdings
+     */
+    public void forEachHolding(String portfolioId, LocalDateTime at, Consumer<SecurityHolding> visitor) {
+        portfolioSharesService.forEachHolding(portfolioId, at == null ? LocalDateTime.now() : at, visitor);
+    }
+
+    /**
+     * History is returned as a live view and only stamped, never cached.
+     * @param from Start of the window, inclusive, or null for the first action
+     * @param to End of the window, inclusive, or null for the latest action
+     */
+    public VersionedResult<Collection<BaseAction>> getActions(String portfolioId, LocalDateTime from, LocalDateTime to) {
+        long version = versionOf(portfolioId);
+        LocalDateTime now = LocalDateTime.now();
+        Collection<BaseAction> actions = portfolioActionService.findActions(portfolioId, from, to == null ? now : to);
+        QueryKey key = new QueryKey(portfolioId, "actions" + (from == null ? "" : "@" + from), version, to);
+        LocalDateTime validUntil = to == null ? nextChangeAfter(portfolioId, now) : null;
+        return new VersionedResult<>(actions, key.etag(validUntil), validUntil);
+    }
+
+    public long getCacheHits() {
+        return hits.get();
+    }
+
+    public long getCacheMisses() {
+        return misses.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> VersionedResult<T> lookup(QueryKey key, LocalDateTime now) {
+        VersionedResult<T> cached = (VersionedResult<T>) cache.get(key);
+        if (cached != null && cached.isValidAt(now)) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private <T> VersionedResult<T> store(QueryKey key, T value, LocalDateTime validUntil) {
+        VersionedResult<T> result = new VersionedResult<>(value, key.etag(validUntil), validUntil);
+        cache.put(key, result);
+        return result;
+    }
+
+    private LocalDateTime nextChangeAfter(String portfolioId, LocalDateTime dateTime) {
+        currentHoldingsProjection.awaitCaughtUp();
+        return currentHoldingsProjection.nextChangeAfter(portfolioId, dateTime);
+    }
+
+    /**
+     * One lookup checks that the portfolio exists and reads its version
+     */
+    private long versionOf(String portfolioId) {
+        long version = portfolioRepository.getVersion(portfolioId);
+        if (version == PortfolioRepository.NOT_STORED) {
+            throw new PortfolioNotFoundException(portfolioId);
+        }
+        return version;
+    }
+}
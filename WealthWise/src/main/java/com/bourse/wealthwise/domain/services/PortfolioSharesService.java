@@ -1,8 +1,10 @@
 package com.bourse.wealthwise.domain.services;
 
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioNotFoundException;
 import com.bourse.wealthwise.domain.entity.security.Security;
-import com.bourse.wealthwise.domain.entity.security.SecurityChange;
-import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.domain.projection.CurrentHoldingsProjection;
+import com.bourse.wealthwise.domain.projection.HoldingsCheckpointProjection;
+import com.bourse.wealthwise.domain.projection.PositionVolume;
 import com.bourse.wealthwise.repository.PortfolioRepository;
 import com.bourse.wealthwise.repository.SecurityPriceRepository;
 import lombok.Builder;
@@ -11,18 +13,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigInteger;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class PortfolioSharesService {
 
-    private final ActionRepository actionRepository;
     private final PortfolioRepository portfolioRepository;
     private final SecurityPriceRepository securityPriceRepository;
+    private final CurrentHoldingsProjection currentHoldingsProjection;
+    private final HoldingsCheckpointProjection holdingsCheckpointProjection;
 
     /**
      * Represents a security holding in a portfolio
@@ -32,7 +35,9 @@ public class PortfolioSharesService {
     public static class SecurityHolding {
         private final Security security;
         private final BigInteger volume;
-        private final Double value; // Day value based on price
+        private final BigInteger tradableVolume;
+        private final BigInteger lockedVolume;
+        private final Double value; // Value at the latest mark, or the day's close
     }
 
     /**
@@ -42,54 +47,51 @@ public class PortfolioSharesService {
      * @return List of SecurityHolding sorted by security name
      */
     public List<SecurityHolding> getPortfolioSharesAtDateTime(String portfolioId, LocalDateTime dateTime) {
-        // Validate portfolio exists
-        portfolioRepository.findById(portfolioId)
-                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found: " + portfolioId));
+        List<SecurityHolding> holdings = new ArrayList<>();
+        forEachHolding(portfolioId, dateTime, holdings::add);
 
-        // Get all security changes before the specified datetime
-        Map<Security, BigInteger> securityVolumeMap = new HashMap<>();
+        // Sort by security name
+        holdings.sort(Comparator.comparing(h -> h.getSecurity().getName() != null ?
+                h.getSecurity().getName() : h.getSecurity().getSymbol()));
 
-        actionRepository.findAllActionsOf(portfolioId).stream()
-                .filter(action -> action.getDatetime() != null && !action.getDatetime().isAfter(dateTime))
-                .flatMap(action -> action.getSecurityChanges().stream())
-                .forEach(securityChange -> {
-                    Security security = securityChange.getSecurity();
-                    BigInteger currentVolume = securityVolumeMap.getOrDefault(security, BigInteger.ZERO);
-                    BigInteger newVolume = currentVolume.add(securityChange.getVolumeChange());
-
-                    if (newVolume.compareTo(BigInteger.ZERO) > 0) {
-                        securityVolumeMap.put(security, newVolume);
-                    } else {
-                        // Remove security if volume becomes zero or negative
-                        securityVolumeMap.remove(security);
-                    }
-                });
-
-        // Convert to SecurityHolding list with day values
-        LocalDate date = dateTime.toLocalDate();
-        List<SecurityHolding> holdings = new ArrayList<>();
+        return holdings;
+    }
 
-        for (Map.Entry<Security, BigInteger> entry : securityVolumeMap.entrySet()) {
-            Security security = entry.getKey();
-            BigInteger volume = entry.getValue();
+    /**
+     * Visit portfolio shares at a specific date and time one by one, in no particular order.
+     * Nothing is collected: latest holdings are read straight from the live projection,
+     * past ones from the replayed snapshot, and each holding is valued as it is visited.
+     * @param portfolioId The portfolio ID
+     * @param dateTime The date and time to calculate holdings for
+     * @param visitor Called once per held security
+     */
+    public void forEachHolding(String portfolioId, LocalDateTime dateTime, Consumer<SecurityHolding> visitor) {
+        // Validate portfolio exists
+        portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId));
+
+        BiConsumer<Security, PositionVolume> toHolding = (security, positionVolume) -> {
+            BigInteger volume = positionVolume.getTotal();
 
-            // Get day value from SecurityPriceRepository
-            Double dayValue = securityPriceRepository.getPrice(security.getIsin(), date)
+            // Value at the freshest intraday mark, or the day's close
+            Double dayValue = securityPriceRepository.getMarkPrice(security.getIsin(), dateTime)
                     .map(price -> price * volume.doubleValue())
                     .orElse(null);
 
-            holdings.add(SecurityHolding.builder()
+            visitor.accept(SecurityHolding.builder()
                     .security(security)
                     .volume(volume)
+                    .tradableVolume(positionVolume.getTradable())
+                    .lockedVolume(positionVolume.getLocked())
                     .value(dayValue)
                     .build());
+        };
+        if (currentHoldingsProjection.awaitCaughtUp()
+                && currentHoldingsProjection.isCurrentAt(portfolioId, dateTime)) {
+            currentHoldingsProjection.forEachPositionVolume(portfolioId, dateTime, toHolding);
+        } else {
+            holdingsCheckpointProjection.snapshotAt(portfolioId, dateTime).forEachPositionVolume(dateTime, toHolding);
         }
-
-        // Sort by security name
-        holdings.sort(Comparator.comparing(h -> h.getSecurity().getName() != null ?
-                h.getSecurity().getName() : h.getSecurity().getSymbol()));
-
-        return holdings;
     }
 
     /**
@@ -100,22 +102,44 @@ public class PortfolioSharesService {
      */
     public Map<Security, BigInteger> getSecurityVolumes(String portfolioId, LocalDateTime dateTime) {
         Map<Security, BigInteger> securityVolumeMap = new HashMap<>();
+        getPositionVolumes(portfolioId, dateTime)
+                .forEach((security, volume) -> securityVolumeMap.put(security, volume.getTotal()));
+        return securityVolumeMap;
+    }
+
+    /**
+     * Get the tradable/locked split of every held security at a specific datetime.
+     * Volumes are running sums of the changes up to that time in action order; once a sum reaches
+     * zero or below the security is dropped, and later buys start again from zero.
+     * Served from the live projection when no action is dated after the given time,
+     * otherwise the portfolio history is replayed from the nearest checkpoint.
+     * @param portfolioId The portfolio ID
+     * @param dateTime The date and time
+     * @return Map of Security to its volume split
+     */
+    public Map<Security, PositionVolume> getPositionVolumes(String portfolioId, LocalDateTime dateTime) {
+        if (currentHoldingsProjection.awaitCaughtUp()
+                && currentHoldingsProjection.isCurrentAt(portfolioId, dateTime)) {
+            return currentHoldingsProjection.getPositionVolumes(portfolioId, dateTime);
+        }
+        return historicalPositionVolumes(portfolioId, dateTime);
+    }
 
-        actionRepository.findAllActionsOf(portfolioId).stream()
-                .filter(action -> action.getDatetime() != null && !action.getDatetime().isAfter(dateTime))
-                .flatMap(action -> action.getSecurityChanges().stream())
-                .forEach(securityChange -> {
-                    Security security = securityChange.getSecurity();
-                    BigInteger currentVolume = securityVolumeMap.getOrDefault(security, BigInteger.ZERO);
-                    BigInteger newVolume = currentVolume.add(securityChange.getVolumeChange());
-
-                    if (newVolume.compareTo(BigInteger.ZERO) > 0) {
-                        securityVolumeMap.put(security, newVolume);
-                    } else {
-                        securityVolumeMap.remove(security);
-                    }
-                });
+    /**
+     * Check whether a sale of the given volume is covered by tradable shares
+     * @param portfolioId The portfolio ID
+     * @param security The security to sell
+     * @param volume The volume to sell
+     * @param dateTime The time of the sale
+     * @return true if enough tradable volume is held
+     */
+    public boolean canSell(String portfolioId, Security security, BigInteger volume, LocalDateTime dateTime) {
+        PositionVolume positionVolume = getPositionVolumes(portfolioId, dateTime).get(security);
+        return positionVolume != null && positionVolume.getTradable().compareTo(volume) >= 0;
+    }
 
-        return securityVolumeMap;
+    private Map<Security, PositionVolume> historicalPositionVolumes(String portfolioId, LocalDateTime dateTime) {
+        // Replays only from the nearest checkpoint before dateTime
+        return holdingsCheckpointProjection.snapshotAt(portfolioId, dateTime).getPositionVolumes(dateTime);
     }
-}
\ No newline at end of file
+}
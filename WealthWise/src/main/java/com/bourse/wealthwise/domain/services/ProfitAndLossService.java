@@ -0,0 +1,82 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioNotFoundException;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.lots.LotSnapshot;
+import com.bourse.wealthwise.domain.lots.TaxLotEngine;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class ProfitAndLossService {
+
+    private final TaxLotEngine taxLotEngine;
+    private final PortfolioRepository portfolioRepository;
+    private final SecurityPriceRepository securityPriceRepository;
+
+    /**
+     * Represents the profit and loss of one security in a portfolio
+     */
+    @Getter
+    @Builder
+    public static class HoldingProfitAndLoss {
+        private final Security security;
+        private final BigInteger openVolume;
+        private final BigDecimal costBasis;
+        private final BigDecimal realizedGain;
+        private final BigDecimal marketValue; // null when no price exists for the day
+        private final BigDecimal unrealizedGain; // null when no price exists for the day
+    }
+
+    /**
+     * Calculate realized and unrealized P&L of a portfolio at the end of a given day,
+     * from the stored tax lots and that day's prices
+     * @param portfolioId The portfolio ID
+     * @param date The day to value the portfolio at
+     * @return List of HoldingProfitAndLoss sorted by security name
+     */
+    public List<HoldingProfitAndLoss> getProfitAndLoss(String portfolioId, LocalDate date) {
+        portfolioRepository.findById(portfolioId)
+                .orElseThrow(() -> new PortfolioNotFoundException(portfolioId));
+        taxLotEngine.awaitCaughtUp();
+
+        LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
+        List<HoldingProfitAndLoss> result = new ArrayList<>();
+
+        for (LotSnapshot snapshot : taxLotEngine.getSnapshots(portfolioId, endOfDay)) {
+            if (snapshot.getOpenVolume().signum() == 0 && snapshot.getRealizedGain().signum() == 0) {
+                continue;
+            }
+            BigDecimal marketValue = securityPriceRepository.getPrice(snapshot.getSecurity().getIsin(), date)
+                    .map(price -> BigDecimal.valueOf(price).multiply(new BigDecimal(snapshot.getOpenVolume())))
+                    .orElse(null);
+
+            result.add(HoldingProfitAndLoss.builder()
+                    .security(snapshot.getSecurity())
+                    .openVolume(snapshot.getOpenVolume())
+                    .costBasis(snapshot.getCostBasis())
+                    .realizedGain(snapshot.getRealizedGain())
+                    .marketValue(marketValue)
+                    .unrealizedGain(marketValue == null ? null : marketValue.subtract(snapshot.getCostBasis()))
+                    .build());
+        }
+
+        result.sort(Comparator.comparing(h -> h.getSecurity().getName() != null ?
+                h.getSecurity().getName() : h.getSecurity().getSymbol()));
+        return result;
+    }
+}
@@ -0,0 +1,22 @@
+package com.bourse.wealthwise.domain.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A query result stamped with an entity tag that changes whenever the result can change.
+ */
+@Getter
+@AllArgsConstructor
+public class VersionedResult<T> {
+    private final T value;
+    private final String etag;
+    // For "latest" queries: the first time at which the result may differ; null if only a new version changes it
+    private final LocalDateTime validUntil;
+
+    public boolean isValidAt(LocalDateTime dateTime) {
+        return validUntil == null || dateTime.isBefore(validUntil);
+    }
+}
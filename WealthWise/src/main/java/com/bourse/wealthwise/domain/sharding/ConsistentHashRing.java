@@ -0,0 +1,59 @@
+package com.bourse.wealthwise.domain.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Maps keys to nodes by their position on a hash ring. Each node is placed at many
+ * virtual points, so keys spread evenly and adding or removing a node only moves
+ * the keys between its points and their predecessors.
+ */
+public class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes per node must be positive: " + virtualNodes);
+        }
+        this.nodes = Collections.unmodifiableSet(new LinkedHashSet<>(nodes));
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // A collision keeps the first node placed; nodes are placed in a fixed order
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * @return The node owning the key: the first point at or after the key's hash, wrapping around
+     */
+    public String ownerOf(String key) {
+        Map.Entry<Long, String> point = ring.ceilingEntry(hash(key));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(String value) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,113 @@
+package com.bourse.wealthwise.domain.sharding;
+
+import com.bourse.wealthwise.domain.services.CapitalRaiseResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * HTTP calls from this node to the other shards of the cluster.
+ */
+@Component
+public class ShardClient {
+
+    // Marks a request already routed by a shard, so a disagreement about ownership cannot loop
+    public static final String FORWARDED_HEADER = "X-WealthWise-Forwarded-By";
+    // Carries the cluster secret on calls only peers may make
+    public static final String SHARD_TOKEN_HEADER = "X-WealthWise-Shard-Token";
+
+    // Request headers a forwarded query depends on; everything else is hop-local
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(HttpHeaders.ACCEPT, HttpHeaders.IF_NONE_MATCH);
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG);
+
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+
+    public ShardClient(ShardRouter shardRouter,
+                       ObjectMapper objectMapper,
+                       @Value("${wealthwise.sharding.timeout-ms:10000}") long timeoutMs) {
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Replay a read-only query on the node owning its portfolio and stream the answer back unchanged
+     */
+    public void forward(HttpServletRequest request, HttpServletResponse response, String node) throws IOException {
+        String target = request.getRequestURI() + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(shardRouter.getBaseUri(node).resolve(target))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, shardRouter.getSelf())
+                .GET();
+        for (String header : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                forwarded.header(header, value);
+            }
+        }
+
+        HttpResponse<InputStream> answer = send(forwarded.build(), HttpResponse.BodyHandlers.ofInputStream(), node);
+        response.setStatus(answer.statusCode());
+        for (String header : FORWARDED_RESPONSE_HEADERS) {
+            answer.headers().firstValue(header).ifPresent(value -> response.setHeader(header, value));
+        }
+        try (InputStream in = answer.body(); OutputStream out = response.getOutputStream()) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Run the share of a capital raise that belongs to the portfolios of another node
+     */
+    public CapitalRaiseResult allocateCapitalRaise(String node, String symbol, double rightPerShare, LocalDate date)
+            throws IOException {
+        URI uri = shardRouter.getBaseUri(node).resolve("/api/shards/capital-raises?symbol="
+                + URLEncoder.encode(symbol, StandardCharsets.UTF_8) + "&rightPerShare=" + rightPerShare + "&date=" + date);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, shardRouter.getSelf())
+                .header(SHARD_TOKEN_HEADER, shardRouter.getSecret())
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString(), node);
+        if (response.statusCode() != 200) {
+            throw new IOException("Shard " + node + " answered " + response.statusCode() + ": " + response.body());
+        }
+        JsonNode body = objectMapper.readTree(response.body());
+        return new CapitalRaiseResult(body.path("allocatedPortfolios").asInt(),
+                new BigInteger(body.path("rightVolume").asText("0")), List.of());
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler, String node) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling shard " + node, e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.bourse.wealthwise.domain.sharding;
+
+import com.bourse.wealthwise.domain.replication.ReplicationFollower;
+import com.bourse.wealthwise.domain.services.CapitalRaiseListenerService;
+import com.bourse.wealthwise.domain.services.CapitalRaiseResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoints the nodes of a sharded cluster call on each other. They write, so a read replica has none,
+ * and they answer only requests presenting the cluster secret.
+ */
+@RestController
+@ConditionalOnExpression(ReplicationFollower.ON_LEADER)
+@RequestMapping("/api/shards")
+@RequiredArgsConstructor
+public class ShardController {
+
+    private final CapitalRaiseListenerService capitalRaiseListenerService;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Allocate the rights of a capital raise to the portfolios of this node only
+     */
+    @PostMapping("/capital-raises")
+    public ResponseEntity<Map<String, Object>> allocateCapitalRaise(
+            @RequestHeader(name = ShardClient.SHARD_TOKEN_HEADER, required = false) String token,
+            @RequestParam String symbol,
+            @RequestParam double rightPerShare,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (!shardRouter.isPeer(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only shards of this cluster may call this"));
+        }
+        CapitalRaiseResult result = capitalRaiseListenerService.allocateLocal(symbol, rightPerShare, date);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("shard", shardRouter.getSelf());
+        body.put("allocatedPortfolios", result.getAllocatedPortfolios());
+        body.put("rightVolume", result.getRightVolume());
+        return ResponseEntity.ok(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+    }
+}
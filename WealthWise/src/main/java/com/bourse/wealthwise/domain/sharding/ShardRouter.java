@@ -0,0 +1,119 @@
+package com.bourse.wealthwise.domain.sharding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Which node of the cluster owns each portfolio. Portfolios are placed on a consistent
+ * hash ring by uuid; every node must be started with the same node list to agree on it.
+ * With {@code wealthwise.sharding.nodes} unset the process is a single node owning everything.
+ * <p>
+ * Nodes are listed as {@code name=baseUrl} pairs, e.g.
+ * {@code a=http://localhost:8081,b=http://localhost:8082}, and {@code wealthwise.sharding.self}
+ * names the entry of this process. Every node shares {@code wealthwise.sharding.secret}, which
+ * a node presents to its peers on the calls only shards may make.
+ */
+@Component
+public class ShardRouter {
+
+    private final String self;
+    private final Map<String, URI> nodes = new LinkedHashMap<>();
+    private final ConsistentHashRing ring;
+    private final byte[] secret;
+
+    public ShardRouter(@Value("${wealthwise.sharding.self:}") String self,
+                       @Value("${wealthwise.sharding.nodes:}") String nodes,
+                       @Value("${wealthwise.sharding.virtual-nodes:128}") int virtualNodes,
+                       @Value("${wealthwise.sharding.secret:}") String secret) {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        for (String node : nodes.split(",")) {
+            if (node.isBlank()) {
+                continue;
+            }
+            String[] parts = node.trim().split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Shard node must be name=baseUrl: " + node);
+            }
+            this.nodes.put(parts[0].trim(), URI.create(parts[1].trim()));
+        }
+        if (this.nodes.isEmpty()) {
+            this.self = self;
+            this.ring = null;
+            return;
+        }
+        if (!this.nodes.containsKey(self)) {
+            throw new IllegalArgumentException("Shard " + self + " is not one of the nodes " + this.nodes.keySet());
+        }
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("A sharded node needs wealthwise.sharding.secret");
+        }
+        this.self = self;
+        this.ring = new ConsistentHashRing(this.nodes.keySet(), virtualNodes);
+    }
+
+    public boolean isSharded() {
+        return ring != null;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * @return The secret this node presents to its peers
+     */
+    public String getSecret() {
+        return new String(secret, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Whether a request presenting the token comes from a node of this cluster;
+     *         never when not sharded, since a single node has no peers
+     */
+    public boolean isPeer(String token) {
+        return ring != null && token != null
+                && MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The name of the node owning the portfolio; this node's name when not sharded
+     */
+    public String ownerOf(String portfolioId) {
+        return ring == null ? self : ring.ownerOf(portfolioId);
+    }
+
+    public boolean isLocal(String portfolioId) {
+        return ring == null || self.equals(ring.ownerOf(portfolioId));
+    }
+
+    /**
+     * Reject data of a portfolio that another node owns, so each node only ever stores its own share
+     */
+    public void checkLocal(String portfolioId) {
+        if (!isLocal(portfolioId)) {
+            throw new IllegalArgumentException("Portfolio " + portfolioId + " is owned by shard " + ownerOf(portfolioId));
+        }
+    }
+
+    public URI getBaseUri(String node) {
+        URI uri = nodes.get(node);
+        if (uri == null) {
+            throw new IllegalArgumentException("Shard not found: " + node);
+        }
+        return uri;
+    }
+
+    /**
+     * @return Every other node of the cluster, in configuration order
+     */
+    public List<String> getPeers() {
+        List<String> peers = new ArrayList<>(nodes.keySet());
+        peers.remove(self);
+        return peers;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bourse.wealthwise.domain.sharding;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends portfolio queries to the node owning the portfolio, so any node can be asked.
+ * Queries for local portfolios, and every other path, pass straight through.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    // 421 Misdirected Request, which HttpStatus does not define
+    private static final int MISDIRECTED_REQUEST = 421;
+
+    private static final Pattern PORTFOLIO_PATH = Pattern.compile("^/api/portfolios/([^/]+)(/.*)?$");
+
+    private final ShardRouter shardRouter;
+    private final ShardClient shardClient;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !shardRouter.isSharded();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Matcher matcher = PORTFOLIO_PATH.matcher(request.getRequestURI());
+        if (!matcher.matches() || shardRouter.isLocal(matcher.group(1))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String owner = shardRouter.ownerOf(matcher.group(1));
+        String forwardedBy = request.getHeader(ShardClient.FORWARDED_HEADER);
+        if (forwardedBy != null) {
+            // The sender thinks this node owns the portfolio: the nodes were started with different lists
+            log.error("Shard {} forwarded portfolio {} owned by {}", forwardedBy, matcher.group(1), owner);
+            response.sendError(MISDIRECTED_REQUEST, "Portfolio is owned by shard " + owner);
+            return;
+        }
+        try {
+            shardClient.forward(request, response, owner);
+        } catch (IOException e) {
+            log.warn("Could not forward {} to shard {}", request.getRequestURI(), owner, e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpStatus.BAD_GATEWAY.value(), "Shard " + owner + " is unavailable");
+            }
+        }
+    }
+}
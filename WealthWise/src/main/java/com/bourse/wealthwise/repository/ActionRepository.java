@@ -1,34 +1,494 @@
 package com.bourse.wealthwise.repository;
 
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
 import com.bourse.wealthwise.domain.entity.action.BaseAction;
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventType;
+import com.bourse.wealthwise.domain.sharding.ShardRouter;
+import com.bourse.wealthwise.repository.replication.MutationLog;
+import com.bourse.wealthwise.repository.storage.ActionStore;
+import com.bourse.wealthwise.repository.storage.HistoryCacheStats;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Actions live in per-portfolio histories of an {@link ActionStore}; every other index points into
+ * them by portfolio and key. By default the store keeps them as columns and builds an action only
+ * when one is read. With {@code wealthwise.actions.hot-portfolios} set, only that many histories
+ * stay on the heap and the least recently used ones are spilled to local files until they are read again;
+ * with {@code wealthwise.actions.storage=jdbc} they are rows of an embedded database.
+ * In a sharded cluster only actions of portfolios owned by this node are accepted.
+ * Earlier and cancelled versions are kept for the {@code wealthwise.actions.versioned-actions}
+ * most recently changed actions, at most {@code wealthwise.actions.kept-versions} each.
+ */
 @Component
 public class ActionRepository {
 
-    private final Map<String, BaseAction> actions = new ConcurrentHashMap<>();
+    // Index entries resolved per round of store lookups in a window
+    private static final int RESOLVE_BATCH = 256;
+
+    // Where each stored action lives
+    private final Map<String, ActionLocation> locations = new ConcurrentHashMap<>();
+    private final ActionStore actionsByPortfolio;
+    private final ConcurrentSkipListMap<ActionTimeKey, String> actionsByTime = new ConcurrentSkipListMap<>();
+    private final Map<ActionType, ConcurrentSkipListMap<ActionTimeKey, String>> actionsByType = new ConcurrentHashMap<>();
+    // Unique: a tracing number belongs to at most one stored action
+    private final Map<String, String> uuidByTracingNumber = new ConcurrentHashMap<>();
+    // Least recently changed first; guarded by its own monitor, never held while blocking
+    private final LinkedHashMap<String, List<BaseAction>> supersededVersions = new LinkedHashMap<>();
+    private final int keptVersions;
+    private final int versionedActions;
+    // Every change is stored, published and logged under this lock, so the projections and the
+    // mutation log see changes in the order they were made; the bus serializes publishing anyway.
+    // Not a monitor: a virtual thread blocked on the event bus while holding one would pin its carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ActionEventBus actionEventBus;
+    private final ShardRouter shardRouter;
+    private final MutationLog mutationLog;
+    // Holds the portfolio versions, bumped after every change to a portfolio's actions has been published
+    private final PortfolioRepository portfolioRepository;
+
+    public ActionRepository(ActionEventBus actionEventBus,
+                            ShardRouter shardRouter,
+                            MutationLog mutationLog,
+                            ActionStore actionStore,
+                            PortfolioRepository portfolioRepository,
+                            @Value("${wealthwise.actions.kept-versions:16}") int keptVersions,
+                            @Value("${wealthwise.actions.versioned-actions:100000}") int versionedActions) {
+        if (keptVersions < 1 || versionedActions < 1) {
+            throw new IllegalArgumentException("Version retention must be positive: " + keptVersions + ", " + versionedActions);
+        }
+        this.keptVersions = keptVersions;
+        this.versionedActions = versionedActions;
+        this.actionEventBus = actionEventBus;
+        this.shardRouter = shardRouter;
+        this.mutationLog = mutationLog;
+        this.actionsByPortfolio = actionStore;
+        this.portfolioRepository = portfolioRepository;
+    }
+
+    private static final class ActionLocation {
+        private final String portfolioId;
+        private final ActionTimeKey key;
+
+        private ActionLocation(BaseAction action) {
+            this.portfolioId = portfolioIdOf(action);
+            this.key = ActionTimeKey.of(action);
+        }
+    }
 
+    /**
+     * Store an action, or replace the stored action with the same uuid.
+     * Saving is idempotent per tracing number: if another action already carries the
+     * same tracing number, nothing is stored or published and that action is returned.
+     * @return The stored action, which is the existing one for a duplicate tracing number
+     */
     public BaseAction save(BaseAction action) {
-        actions.put(action.getUuid(), action);
-        return action;
+        checkLocal(action);
+        writeLock.lock();
+        try {
+            Optional<BaseAction> duplicate = claimTracingNumber(action);
+            if (duplicate.isPresent()) {
+                return duplicate.get();
+            }
+            ActionLocation replaced = locations.put(action.getUuid(), new ActionLocation(action));
+            BaseAction previous = resolve(replaced);
+            if (previous != null) {
+                unindex(previous);
+                releaseTracingNumber(previous, action);
+            }
+            index(action);
+            if (previous != null) {
+                actionEventBus.publish(ActionEventType.DELETED, previous);
+                bumpVersion(previous);
+            }
+            actionEventBus.publish(ActionEventType.SAVED, action);
+            bumpVersion(action);
+            mutationLog.actionSaved(action);
+            return action;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Save several actions under one hold of the write lock, so no other write lands between them
+     * @return The stored action for each argument, in order, as {@link #save} returns it
+     */
+    public List<BaseAction> saveAll(Collection<? extends BaseAction> actions) {
+        for (BaseAction action : actions) {
+            checkLocal(action);
+        }
+        List<BaseAction> saved = new ArrayList<>(actions.size());
+        writeLock.lock();
+        try {
+            for (BaseAction action : actions) {
+                saved.add(save(action));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return saved;
+    }
+
+    /**
+     * Replace a stored action with a new version carrying the same uuid.
+     * The replaced version is kept in the action's history.
+     * @return A copy of the amended action carrying its new version number; the argument is not changed
+     */
+    public BaseAction amend(BaseAction amendment) {
+        checkLocal(amendment);
+        writeLock.lock();
+        try {
+            BaseAction previous = resolve(locations.get(amendment.getUuid()));
+            if (previous == null) {
+                throw new IllegalArgumentException("Action not found: " + amendment.getUuid());
+            }
+            if (claimTracingNumber(amendment).isPresent()) {
+                throw new IllegalArgumentException("Tracing number already used: " + amendment.getTracing_number());
+            }
+            BaseAction amended = amendment.toBuilder().version(previous.getVersion() + 1).build();
+            locations.put(amended.getUuid(), new ActionLocation(amended));
+            keepVersion(previous);
+            unindex(previous);
+            releaseTracingNumber(previous, amended);
+            index(amended);
+            actionEventBus.publishAmendment(previous, amended);
+            bumpVersion(previous);
+            bumpVersion(amended);
+            mutationLog.actionAmended(amended);
+            return amended;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Remove an action, keeping it in the action's history.
+     * Published as CANCELLED, so consumers can tell it from a plain delete.
+     */
+    public void cancel(String uuid) {
+        writeLock.lock();
+        try {
+            BaseAction cancelled = remove(uuid, ActionEventType.CANCELLED);
+            if (cancelled == null) {
+                throw new IllegalArgumentException("Action not found: " + uuid);
+            }
+            keepVersion(cancelled);
+            mutationLog.actionCancelled(cancelled);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return The retained earlier or cancelled versions of the action, oldest first
+     */
+    public List<BaseAction> findVersionsOf(String uuid) {
+        synchronized (supersededVersions) {
+            return List.copyOf(supersededVersions.getOrDefault(uuid, List.of()));
+        }
     }
 
     public Optional<BaseAction> findById(String uuid) {
-        return Optional.ofNullable(actions.get(uuid));
+        return Optional.ofNullable(resolve(locations.get(uuid)));
+    }
+
+    /**
+     * @return Heap residency and load latency of portfolio histories
+     */
+    public HistoryCacheStats getHistoryCacheStats() {
+        return actionsByPortfolio.getStats();
+    }
+
+    public Optional<BaseAction> findByTracingNumber(String tracingNumber) {
+        String uuid = uuidByTracingNumber.get(tracingNumber);
+        return uuid == null ? Optional.empty() : findById(uuid);
     }
 
     public List<BaseAction> findAllActionsOf(String portfolioId) {
-        return actions.values().stream()
-                .filter(action -> action.getPortfolio().getUuid().equals(portfolioId))
-                .sorted(Comparator.comparing(BaseAction::getDatetime))
-                .toList();
+        return List.copyOf(actionsByPortfolio.range(portfolioId, null, false, null));
+    }
+
+    /**
+     * Time-ordered view of a portfolio's actions within a key range
+     * @param portfolioId The portfolio ID
+     * @param fromExclusive Lower bound, or null to start from the first action
+     * @param toInclusive Upper bound
+     * @return Live view of the matching actions, ordered by datetime then uuid
+     */
+    public Collection<BaseAction> findActionsOf(String portfolioId, ActionTimeKey fromExclusive, ActionTimeKey toInclusive) {
+        return actionsByPortfolio.range(portfolioId, fromExclusive, false, toInclusive);
+    }
+
+    /**
+     * Time-ordered view of a portfolio's actions from a key on
+     * @param portfolioId The portfolio ID
+     * @param fromInclusive Lower bound
+     * @return Live view of the matching actions, ordered by datetime then uuid
+     */
+    public Collection<BaseAction> findActionsFrom(String portfolioId, ActionTimeKey fromInclusive) {
+        return actionsByPortfolio.range(portfolioId, fromInclusive, true, null);
+    }
+
+    /**
+     * Cash balance of a portfolio from its stored actions, aggregated by the action store
+     * @return Sum of the cash changes of the actions dated strictly before the given time
+     */
+    public BigInteger getCashBalanceBefore(String portfolioId, LocalDateTime before) {
+        return actionsByPortfolio.getCashBalanceBefore(portfolioId, before);
+    }
+
+    /**
+     * Time-ordered view of every action across all portfolios within a time window
+     * @param from Start of the window, inclusive
+     * @param to End of the window, inclusive
+     * @return Live view of the matching actions, ordered by datetime then uuid
+     */
+    public Collection<BaseAction> findActionsBetween(LocalDateTime from, LocalDateTime to) {
+        return window(actionsByTime, from, to);
+    }
+
+    /**
+     * Time-ordered view of every action of one type across all portfolios within a time window
+     * @param from Start of the window, inclusive
+     * @param to End of the window, inclusive
+     * @param actionType The action type to keep
+     * @return Live view of the matching actions, ordered by datetime then uuid
+     */
+    public Collection<BaseAction> findActionsBetween(LocalDateTime from, LocalDateTime to, ActionType actionType) {
+        ConcurrentSkipListMap<ActionTimeKey, String> typeActions = actionsByType.get(actionType);
+        return typeActions == null ? List.of() : window(typeActions, from, to);
     }
 
     public void deleteById(String uuid) {
-        actions.remove(uuid);
+        writeLock.lock();
+        try {
+            BaseAction removed = remove(uuid, ActionEventType.DELETED);
+            if (removed != null) {
+                mutationLog.actionDeleted(removed);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void deleteAll() {
+        for (String uuid : locations.keySet()) {
+            deleteById(uuid);
+        }
+        synchronized (supersededVersions) {
+            supersededVersions.clear();
+        }
+    }
+
+    /**
+     * Keep a replaced version, forgetting the oldest beyond the retention bounds
+     */
+    private void keepVersion(BaseAction version) {
+        synchronized (supersededVersions) {
+            // Re-inserted, so the action moves to the most recently changed end
+            List<BaseAction> versions = supersededVersions.remove(version.getUuid());
+            if (versions == null) {
+                versions = new ArrayList<>();
+            }
+            versions.add(version);
+            if (versions.size() > keptVersions) {
+                versions.remove(0);
+            }
+            supersededVersions.put(version.getUuid(), versions);
+            Iterator<String> eldest = supersededVersions.keySet().iterator();
+            while (supersededVersions.size() > versionedActions) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    // Called with the write lock held
+    private BaseAction remove(String uuid, ActionEventType type) {
+        BaseAction removed = resolve(locations.remove(uuid));
+        if (removed == null) {
+            return null;
+        }
+        unindex(removed);
+        releaseTracingNumber(removed, null);
+        actionEventBus.publish(type, removed);
+        bumpVersion(removed);
+        return removed;
+    }
+
+    /**
+     * Atomically reserve the action's tracing number for its uuid
+     * @return The action already holding the tracing number, if it is taken by another uuid
+     */
+    private Optional<BaseAction> claimTracingNumber(BaseAction action) {
+        String tracingNumber = action.getTracing_number();
+        if (tracingNumber == null) {
+            return Optional.empty();
+        }
+        while (true) {
+            String owner = uuidByTracingNumber.putIfAbsent(tracingNumber, action.getUuid());
+            if (owner == null || owner.equals(action.getUuid())) {
+                return Optional.empty();
+            }
+            BaseAction existing = findById(owner).orElse(null);
+            if (existing != null && tracingNumber.equals(existing.getTracing_number())) {
+                return Optional.of(existing);
+            }
+            // The owner is being deleted or re-numbered; take over its stale entry
+            if (uuidByTracingNumber.replace(tracingNumber, owner, action.getUuid())) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Drop the replaced action's tracing number, unless the replacing action still uses it
+     */
+    private void releaseTracingNumber(BaseAction replaced, BaseAction current) {
+        String tracingNumber = replaced.getTracing_number();
+        if (tracingNumber != null && (current == null || !tracingNumber.equals(current.getTracing_number()))) {
+            uuidByTracingNumber.remove(tracingNumber, replaced.getUuid());
+        }
+    }
+
+    private void index(BaseAction action) {
+        String portfolioId = portfolioIdOf(action);
+        ActionTimeKey key = ActionTimeKey.of(action);
+        actionsByPortfolio.put(portfolioId, key, action);
+        if (action.getDatetime() != null) {
+            actionsByTime.put(key, portfolioId);
+            if (action.getActionType() != null) {
+                actionsByType
+                        .computeIfAbsent(action.getActionType(), k -> new ConcurrentSkipListMap<>())
+                        .put(key, portfolioId);
+            }
+        }
+    }
+
+    private void unindex(BaseAction action) {
+        String portfolioId = portfolioIdOf(action);
+        ActionTimeKey key = ActionTimeKey.of(action);
+        actionsByPortfolio.remove(portfolioId, key);
+        actionsByTime.remove(key, portfolioId);
+        if (action.getActionType() != null) {
+            ConcurrentSkipListMap<ActionTimeKey, String> typeActions = actionsByType.get(action.getActionType());
+            if (typeActions != null) {
+                typeActions.remove(key, portfolioId);
+            }
+        }
+    }
+
+    private BaseAction resolve(ActionLocation location) {
+        return location == null ? null : resolve(location.portfolioId, location.key);
+    }
+
+    private BaseAction resolve(String portfolioId, ActionTimeKey key) {
+        return actionsByPortfolio.get(portfolioId, key);
+    }
+
+    private Collection<BaseAction> window(ConcurrentSkipListMap<ActionTimeKey, String> index,
+                                          LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+        return resolving(index.subMap(ActionTimeKey.lowest(from), true, ActionTimeKey.highest(to), true));
+    }
+
+    /**
+     * Live view of the actions an index range points to, resolved from their histories while iterating.
+     * Entries are resolved a batch at a time with one store lookup per portfolio in the batch,
+     * so a window over a few portfolios does not go to the store once per action.
+     */
+    private Collection<BaseAction> resolving(NavigableMap<ActionTimeKey, String> range) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<BaseAction> iterator() {
+                Iterator<Map.Entry<ActionTimeKey, String>> entries = range.entrySet().iterator();
+                return new Iterator<>() {
+                    private final List<BaseAction> batch = new ArrayList<>(RESOLVE_BATCH);
+                    private int position;
+
+                    private void fill() {
+                        batch.clear();
+                        position = 0;
+                        while (batch.isEmpty() && entries.hasNext()) {
+                            List<Map.Entry<ActionTimeKey, String>> read = new ArrayList<>(RESOLVE_BATCH);
+                            Map<String, List<ActionTimeKey>> keysByPortfolio = new HashMap<>();
+                            while (read.size() < RESOLVE_BATCH && entries.hasNext()) {
+                                Map.Entry<ActionTimeKey, String> entry = entries.next();
+                                read.add(entry);
+                                keysByPortfolio.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+                            }
+                            Map<ActionTimeKey, BaseAction> resolved = new HashMap<>();
+                            keysByPortfolio.forEach((portfolioId, keys) -> {
+                                List<BaseAction> actions = actionsByPortfolio.getAll(portfolioId, keys);
+                                for (int i = 0; i < keys.size(); i++) {
+                                    resolved.put(keys.get(i), actions.get(i));
+                                }
+                            });
+                            for (Map.Entry<ActionTimeKey, String> entry : read) {
+                                // Skips an action removed since the entry was read
+                                BaseAction action = resolved.get(entry.getKey());
+                                if (action != null) {
+                                    batch.add(action);
+                                }
+                            }
+                        }
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        if (position == batch.size()) {
+                            fill();
+                        }
+                        return position < batch.size();
+                    }
+
+                    @Override
+                    public BaseAction next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return batch.get(position++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Iterator<BaseAction> it = iterator(); it.hasNext(); it.next()) {
+                    size++;
+                }
+                return size;
+            }
+        };
+    }
+
+    private void bumpVersion(BaseAction action) {
+        portfolioRepository.bumpVersion(portfolioIdOf(action));
+    }
+
+    private void checkLocal(BaseAction action) {
+        if (action.getPortfolio() != null) {
+            shardRouter.checkLocal(action.getPortfolio().getUuid());
+        }
+    }
+
+    private static String portfolioIdOf(BaseAction action) {
+        Portfolio portfolio = action.getPortfolio();
+        return portfolio == null ? "" : portfolio.getUuid();
     }
 
 }
@@ -1,30 +1,208 @@
 package com.bourse.wealthwise.repository;
 
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioNotFoundException;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import com.bourse.wealthwise.domain.sharding.ShardRouter;
+import com.bourse.wealthwise.repository.replication.MutationLog;
+import com.bourse.wealthwise.repository.storage.PortfolioStore;
 import org.springframework.stereotype.Component;
-import org.springframework.stereotype.Repository;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Portfolios owned by this node; in a sharded cluster, portfolios of other shards are rejected.
+ */
 @Component
 public class PortfolioRepository {
 
-    private final Map<String, Portfolio> portfolios = new ConcurrentHashMap<>();
+    private final Map<String, Set<Portfolio>> portfoliosByManager = new ConcurrentHashMap<>();
+    private final Map<PortfolioStatus, Set<Portfolio>> portfoliosByStatus = new EnumMap<>(PortfolioStatus.class);
+    // Change counter per uuid, stored or not; kept after a delete, so a recreated portfolio never repeats a version
+    private final Map<String, PortfolioVersion> versions = new ConcurrentHashMap<>();
+
+    private final PortfolioStore portfolioStore;
+    private final ShardRouter shardRouter;
+    private final MutationLog mutationLog;
+
+    public PortfolioRepository(PortfolioStore portfolioStore, ShardRouter shardRouter, MutationLog mutationLog) {
+        this.portfolioStore = portfolioStore;
+        this.shardRouter = shardRouter;
+        this.mutationLog = mutationLog;
+        for (PortfolioStatus status : PortfolioStatus.values()) {
+            portfoliosByStatus.put(status, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Version of a portfolio that is not stored
+     */
+    public static final long NOT_STORED = -1;
+
+    private static final class PortfolioVersion {
+        private final AtomicLong changes = new AtomicLong();
+        private volatile boolean stored;
+    }
 
     public Portfolio save(Portfolio portfolio) {
-        portfolios.put(portfolio.getUuid(), portfolio);
+        shardRouter.checkLocal(portfolio.getUuid());
+        // Indexes and log are updated inside compute, so changes to one portfolio are applied one at a time
+        String uuid = portfolio.getUuid();
+        portfolioStore.compute(uuid, previous -> {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(portfolio);
+            PortfolioVersion version = versionOf(uuid);
+            version.stored = true;
+            version.changes.incrementAndGet();
+            mutationLog.portfolioSaved(portfolio);
+            return portfolio;
+        });
         return portfolio;
     }
 
+    /**
+     * Save several portfolios; each is checked against the shard before any is stored
+     */
+    public List<Portfolio> saveAll(Collection<Portfolio> portfolios) {
+        for (Portfolio portfolio : portfolios) {
+            shardRouter.checkLocal(portfolio.getUuid());
+        }
+        List<Portfolio> saved = new ArrayList<>(portfolios.size());
+        for (Portfolio portfolio : portfolios) {
+            saved.add(save(portfolio));
+        }
+        return saved;
+    }
+
+    /**
+     * Change a portfolio's status by storing a copy with the new status, and move it to the matching status index
+     * @return The stored copy
+     */
+    public Portfolio updateStatus(String uuid, PortfolioStatus status) {
+        Portfolio updated = portfolioStore.compute(uuid, current -> {
+            if (current == null) {
+                return null;
+            }
+            unindex(current);
+            Portfolio copy = current.withStatus(status);
+            index(copy);
+            versionOf(uuid).changes.incrementAndGet();
+            mutationLog.portfolioStatusChanged(uuid, status);
+            return copy;
+        });
+        if (updated == null) {
+            throw new PortfolioNotFoundException(uuid);
+        }
+        return updated;
+    }
+
     public Optional<Portfolio> findById(String uuid) {
-        return Optional.ofNullable(portfolios.get(uuid));
+        return Optional.ofNullable(portfolioStore.get(uuid));
+    }
+
+    /**
+     * @return The portfolios among the given uuids, in uuid order; unknown uuids are skipped
+     */
+    public List<Portfolio> findAllById(Collection<String> uuids) {
+        return portfolioStore.getAll(uuids);
+    }
+
+    /**
+     * Page through every portfolio in uuid order without copying them all at once
+     * @param afterUuid Uuid of the last portfolio of the previous page, or null for the first page
+     */
+    public List<Portfolio> findPage(String afterUuid, int limit) {
+        return portfolioStore.range(afterUuid, limit);
     }
 
     public List<Portfolio> findAll() {
-        return new ArrayList<>(portfolios.values());
+        return portfolioStore.range(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Live read-only view of the portfolios managed by the given user
+     */
+    public Collection<Portfolio> findByManager(String managerUuid) {
+        Set<Portfolio> managed = portfoliosByManager.get(managerUuid);
+        return managed == null ? Set.of() : Collections.unmodifiableSet(managed);
+    }
+
+    /**
+     * @return Live read-only view of the portfolios with the given status
+     */
+    public Collection<Portfolio> findByStatus(PortfolioStatus status) {
+        return Collections.unmodifiableSet(portfoliosByStatus.get(status));
+    }
+
+    /**
+     * Record a change to a portfolio's actions; the portfolio need not be stored.
+     * Called after the change is published to the projections, so a reader that sees the
+     * new version also sees the change once the projections have caught up.
+     */
+    public void bumpVersion(String uuid) {
+        versionOf(uuid).changes.incrementAndGet();
+    }
+
+    /**
+     * One lookup for both existence and freshness of a portfolio
+     * @return Counter bumped by every change to the portfolio or its actions, or {@link #NOT_STORED}
+     */
+    public long getVersion(String uuid) {
+        PortfolioVersion version = versions.get(uuid);
+        return version == null || !version.stored ? NOT_STORED : version.changes.get();
     }
 
     public void deleteById(String uuid) {
-        portfolios.remove(uuid);
+        portfolioStore.compute(uuid, removed -> {
+            if (removed == null) {
+                return null;
+            }
+            unindex(removed);
+            PortfolioVersion version = versionOf(uuid);
+            version.stored = false;
+            version.changes.incrementAndGet();
+            mutationLog.portfolioDeleted(uuid);
+            return null;
+        });
+    }
+
+    public void deleteAll() {
+        for (String uuid : portfolioStore.uuids()) {
+            deleteById(uuid);
+        }
+    }
+
+    private PortfolioVersion versionOf(String uuid) {
+        return versions.computeIfAbsent(uuid, k -> new PortfolioVersion());
+    }
+
+    private void index(Portfolio portfolio) {
+        String manager = managerOf(portfolio);
+        if (manager != null) {
+            portfoliosByManager.computeIfAbsent(manager, k -> ConcurrentHashMap.newKeySet()).add(portfolio);
+        }
+        portfoliosByStatus.get(statusOf(portfolio)).add(portfolio);
+    }
+
+    private void unindex(Portfolio portfolio) {
+        String manager = managerOf(portfolio);
+        if (manager != null) {
+            Set<Portfolio> managed = portfoliosByManager.get(manager);
+            if (managed != null) {
+                managed.remove(portfolio);
+            }
+        }
+        portfoliosByStatus.get(statusOf(portfolio)).remove(portfolio);
+    }
+
+    private static String managerOf(Portfolio portfolio) {
+        return portfolio.getPortfolioManager() == null ? null : portfolio.getPortfolioManager().getUuid();
+    }
+
+    private static PortfolioStatus statusOf(Portfolio portfolio) {
+        return portfolio.getStatus() == null ? PortfolioStatus.ACTIVE : portfolio.getStatus();
     }
 }
@@ -0,0 +1,32 @@
+package com.bourse.wealthwise.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Notified synchronously on the writer's thread for every price written to {@link SecurityPriceRepository}.
+ */
+public interface PriceListener {
+
+    /**
+     * @param isin The security
+     * @param timestamp When the price was observed; daily closes are reported at the end of their day
+     * @param price The price
+     */
+    void onPrice(String isin, LocalDateTime timestamp, double price);
+
+    /**
+     * Called after {@link #onPrice} when the price is an intraday mark
+     */
+    default void onTick(String isin, LocalDateTime timestamp, double price) {
+    }
+
+    /**
+     * Called after {@link #onPrice} when the price is a daily close
+     */
+    default void onDailyClose(String isin, LocalDate date, double price) {
+    }
+
+    default void onClear() {
+    }
+}
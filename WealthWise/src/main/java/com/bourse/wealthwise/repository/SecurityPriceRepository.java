@@ -1,36 +1,184 @@
 package com.bourse.wealthwise.repository;
 
+import com.bourse.wealthwise.domain.entity.security.PriceTick;
 import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import com.bourse.wealthwise.repository.storage.PriceStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class SecurityPriceRepository {
 
-    private final Map<String, Map<LocalDate, Double>> priceMap = new HashMap<>();
+    // Daily closing prices per ISIN, ordered by date
+    private final PriceStore priceStore;
+    // Most recent intraday ticks per ISIN
+    private final Map<String, TickRingBuffer> tickBuffers = new ConcurrentHashMap<>();
+    private final int tickBufferSize;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong closeVersion = new AtomicLong();
+    // Bumped by every close and tick of one ISIN; never removed, so a version is not repeated after a clear
+    private final Map<String, AtomicLong> isinVersions = new ConcurrentHashMap<>();
+    private final List<PriceListener> listeners = new CopyOnWriteArrayList<>();
+
+    public SecurityPriceRepository(PriceStore priceStore,
+                                   @Value("${wealthwise.prices.tick-buffer-size:4096}") int tickBufferSize) {
+        this.priceStore = priceStore;
+        this.tickBufferSize = tickBufferSize;
+    }
 
     public void addPrice(String isin, LocalDate date, double price) {
-        priceMap
-                .computeIfAbsent(isin, k -> new HashMap<>())
-                .put(date, price);
+        priceStore.put(isin, date, price);
+        bumpVersion(isin);
+        closeVersion.incrementAndGet();
+        notifyDailyClose(isin, date, price);
+    }
+
+    /**
+     * Store many daily closes of one security in a single batch; listeners are notified oldest first
+     */
+    public void addPrices(String isin, SortedMap<LocalDate, Double> prices) {
+        if (prices.isEmpty()) {
+            return;
+        }
+        priceStore.putAll(isin, prices);
+        bumpVersion(isin);
+        closeVersion.incrementAndGet();
+        prices.forEach((date, price) -> notifyDailyClose(isin, date, price));
+    }
+
+    private void notifyDailyClose(String isin, LocalDate date, double price) {
+        LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
+        for (PriceListener listener : listeners) {
+            listener.onPrice(isin, endOfDay, price);
+            listener.onDailyClose(isin, date, price);
+        }
     }
 
     public Optional<Double> getPrice(String isin, LocalDate date) {
-        return Optional.ofNullable(
-                priceMap.getOrDefault(isin, Collections.emptyMap()).get(date)
-        );
+        return priceStore.get(isin, date);
     }
 
     public List<SecurityPrice> getPricesForSecurity(String isin) {
-        Map<LocalDate, Double> datePriceMap = priceMap.getOrDefault(isin, Collections.emptyMap());
         List<SecurityPrice> prices = new ArrayList<>();
-        datePriceMap.forEach((date, price) -> prices.add(new SecurityPrice(isin, date, price)));
+        priceStore.all(isin).forEach((date, price) -> prices.add(new SecurityPrice(isin, date, price)));
         return prices;
     }
 
+    /**
+     * @return Daily closes within the closed date range, oldest first
+     */
+    public List<SecurityPrice> getPrices(String isin, LocalDate from, LocalDate to) {
+        List<SecurityPrice> range = new ArrayList<>();
+        priceStore.range(isin, from, to).forEach((date, price) -> range.add(new SecurityPrice(isin, date, price)));
+        return range;
+    }
+
+    /**
+     * @return The last daily close strictly before the given date
+     */
+    public Optional<SecurityPrice> getLatestCloseBefore(String isin, LocalDate date) {
+        return priceStore.lowerEntry(isin, date)
+                .map(entry -> new SecurityPrice(isin, entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Record an intraday mark. Only the most recent ticks per ISIN are retained.
+     */
+    public void addTick(String isin, LocalDateTime timestamp, double price) {
+        tickBuffers
+                .computeIfAbsent(isin, k -> new TickRingBuffer(isin, tickBufferSize))
+                .add(timestamp, price);
+        bumpVersion(isin);
+        for (PriceListener listener : listeners) {
+            listener.onPrice(isin, timestamp, price);
+            listener.onTick(isin, timestamp, price);
+        }
+    }
+
+    /**
+     * @return The newest intraday mark of the security, read without locking
+     */
+    public Optional<PriceTick> getLastTick(String isin) {
+        TickRingBuffer ticks = tickBuffers.get(isin);
+        return Optional.ofNullable(ticks == null ? null : ticks.getLast());
+    }
+
+    /**
+     * @return Retained intraday ticks within the closed range, in arrival order
+     */
+    public List<PriceTick> getTicks(String isin, LocalDateTime from, LocalDateTime to) {
+        TickRingBuffer ticks = tickBuffers.get(isin);
+        return ticks == null ? List.of() : ticks.between(from, to);
+    }
+
+    /**
+     * Price to value a holding at the given time: the freshest intraday mark of that day
+     * at or before the time, falling back to the day's closing price.
+     */
+    public Optional<Double> getMarkPrice(String isin, LocalDateTime dateTime) {
+        TickRingBuffer ticks = tickBuffers.get(isin);
+        if (ticks != null) {
+            LocalDateTime startOfDay = dateTime.toLocalDate().atStartOfDay();
+            PriceTick last = ticks.getLast();
+            if (last != null && !last.getTimestamp().isAfter(dateTime) && !last.getTimestamp().isBefore(startOfDay)) {
+                return Optional.of(last.getPrice());
+            }
+            if (last != null && last.getTimestamp().isAfter(dateTime)) {
+                // Valuing an earlier moment: look for the mark in effect then
+                PriceTick earlier = ticks.latestBetween(startOfDay, dateTime);
+                if (earlier != null) {
+                    return Optional.of(earlier.getPrice());
+                }
+            }
+        }
+        return getPrice(isin, dateTime.toLocalDate());
+    }
+
+    /**
+     * @return Counter bumped by every price change, for caches of valuations
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * @return Counter bumped by every price change of one security, for caches of valuations of a few securities
+     */
+    public long getVersion(String isin) {
+        AtomicLong isinVersion = isinVersions.get(isin);
+        return isinVersion == null ? 0 : isinVersion.get();
+    }
+
+    /**
+     * @return Counter bumped by every daily close change, for caches that ignore intraday marks
+     */
+    public long getCloseVersion() {
+        return closeVersion.get();
+    }
+
     public void clear() {
-        priceMap.clear();
+        priceStore.clear();
+        tickBuffers.clear();
+        isinVersions.values().forEach(AtomicLong::incrementAndGet);
+        version.incrementAndGet();
+        closeVersion.incrementAndGet();
+        listeners.forEach(PriceListener::onClear);
+    }
+
+    private void bumpVersion(String isin) {
+        isinVersions.computeIfAbsent(isin, k -> new AtomicLong()).incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    public void addListener(PriceListener listener) {
+        listeners.add(listener);
     }
 }
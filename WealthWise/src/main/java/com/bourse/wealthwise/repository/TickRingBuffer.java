@@ -0,0 +1,85 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.security.PriceTick;
+import com.bourse.wealthwise.utils.EpochNanos;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fixed-size ring of the most recent intraday ticks of one security, in arrival order.
+ * Writes and range reads share a lock; the last price is published through an atomic
+ * reference, so valuation threads read it without locking.
+ */
+class TickRingBuffer {
+
+    private final String isin;
+    private final long[] timestamps;
+    private final double[] prices;
+    private final int capacity;
+    private long written;
+    private final AtomicReference<PriceTick> last = new AtomicReference<>();
+
+    TickRingBuffer(String isin, int capacity) {
+        this.isin = isin;
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.prices = new double[capacity];
+    }
+
+    void add(LocalDateTime timestamp, double price) {
+        synchronized (this) {
+            int slot = (int) (written % capacity);
+            timestamps[slot] = EpochNanos.of(timestamp);
+            prices[slot] = price;
+            written++;
+        }
+        PriceTick tick = new PriceTick(isin, timestamp, price);
+        // A late tick lands in the ring but never replaces a newer last price
+        last.accumulateAndGet(tick, (current, candidate) ->
+                current == null || !candidate.getTimestamp().isBefore(current.getTimestamp()) ? candidate : current);
+    }
+
+    PriceTick getLast() {
+        return last.get();
+    }
+
+    /**
+     * @return The latest retained tick at or before the given time and not before the lower bound, or null
+     */
+    synchronized PriceTick latestBetween(LocalDateTime from, LocalDateTime to) {
+        long fromNanos = EpochNanos.of(from);
+        long toNanos = EpochNanos.of(to);
+        int best = -1;
+        for (int i = 0; i < retained(); i++) {
+            long t = timestamps[i];
+            if (t >= fromNanos && t <= toNanos && (best < 0 || t >= timestamps[best])) {
+                best = i;
+            }
+        }
+        return best < 0 ? null : new PriceTick(isin, EpochNanos.toDateTime(timestamps[best]), prices[best]);
+    }
+
+    /**
+     * @return Retained ticks within the closed range, oldest arrival first
+     */
+    synchronized List<PriceTick> between(LocalDateTime from, LocalDateTime to) {
+        long fromNanos = EpochNanos.of(from);
+        long toNanos = EpochNanos.of(to);
+        List<PriceTick> ticks = new ArrayList<>();
+        long start = written - retained();
+        for (long seq = start; seq < written; seq++) {
+            int slot = (int) (seq % capacity);
+            if (timestamps[slot] >= fromNanos && timestamps[slot] <= toNanos) {
+                ticks.add(new PriceTick(isin, EpochNanos.toDateTime(timestamps[slot]), prices[slot]));
+            }
+        }
+        return ticks;
+    }
+
+    private int retained() {
+        return (int) Math.min(written, capacity);
+    }
+}
@@ -0,0 +1,507 @@
+package com.bourse.wealthwise.repository.cdc;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.replication.Mutation;
+import com.bourse.wealthwise.repository.replication.MutationLog;
+import com.bourse.wealthwise.repository.replication.MutationType;
+import com.bourse.wealthwise.repository.replication.PortableActionCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Change-data-capture feed of every saved, amended, cancelled and deleted action and portfolio.
+ * A background thread tails the mutation log into append-only segment files, so neither
+ * writers nor the query path do any work for consumers: reads are served from the files.
+ * <p>
+ * Every entry has an offset one above the previous one. Offsets continue across restarts
+ * from the last entry on disk, so a consumer can store the offset it has read up to and
+ * resume from the next one at any time, as long as that segment is still retained.
+ * If the mutation log drops changes before they are tailed, because the feed fell behind its
+ * retention, a gap entry takes the offsets of the lost changes and tailing carries on after it;
+ * a consumer that reads a gap has missed changes and needs a full resync.
+ * Segment files are named by the offset of their first entry; each entry is its offset,
+ * type, timestamp and the length-prefixed mutation payload; a gap is stored at its last offset
+ * with the first offset it stands for as its payload. A sparse in-memory index holds the
+ * byte position of every 1024th entry of each segment, so a read seeks close
+ * to its offset rather than scanning the segment; it is rebuilt from the files on startup.
+ * <p>
+ * A failed write is retried with backoff, after cutting the segment back to its last complete
+ * entry. While the tailing fails, {@link #isHealthy()} is false and {@link #getLastError()} says why.
+ */
+@Component
+@ConditionalOnProperty(name = "wealthwise.cdc.enabled", havingValue = "true")
+@Slf4j
+public class ChangeFeed implements AutoCloseable {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int DRAIN_BATCH = 10_000;
+    private static final int INDEX_INTERVAL = 1024;
+    private static final int HEADER_BYTES = Long.BYTES + Byte.BYTES + Long.BYTES + Integer.BYTES;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final MutationType[] TYPES = MutationType.values();
+    private static final byte GAP = -1;
+
+    private final MutationLog mutationLog;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long pollMillis;
+
+    // Segment files by the offset of their first entry, oldest first
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    // Offsets are this plus the mutation log version: the last offset written before this process
+    private final long baseOffset;
+    // Every entry up to this offset is flushed to its segment and may be read
+    private volatile long latestOffset;
+    // Offset of the newest gap in the feed; 0 if there is none
+    private volatile long lastGapOffset;
+
+    private long drainedVersion;
+    private Segment current;
+    private DataOutputStream out;
+    private int entriesInSegment;
+    private long segmentPosition;
+    // A write failed part way: the last segment may end in a partial entry
+    private boolean damaged;
+    private volatile RuntimeException lastError;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public ChangeFeed(MutationLog mutationLog,
+                      @Value("${wealthwise.cdc.dir:./data/changes}") String directory,
+                      @Value("${wealthwise.cdc.segment-size:100000}") int segmentSize,
+                      @Value("${wealthwise.cdc.max-segments:0}") int maxSegments,
+                      @Value("${wealthwise.cdc.poll-ms:100}") long pollMillis) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+        }
+        this.mutationLog = mutationLog;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.pollMillis = pollMillis;
+        try {
+            Files.createDirectories(this.directory);
+            this.baseOffset = recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open change feed at " + directory, e);
+        }
+        this.latestOffset = baseOffset;
+        this.writer = new Thread(this::tail, "change-feed");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * @return Up to limit entries starting at the given offset, oldest first, beginning with any gap
+     *         that covers the offset; empty if nothing at or after the offset has been written yet.
+     *         While no segment has expired, an offset before the first one reads from the start.
+     * @throws IllegalArgumentException if the segment holding the offset is no longer retained
+     */
+    public List<ChangeRecord> read(long fromOffset, int limit) {
+        long latest = latestOffset;
+        List<ChangeRecord> records = new ArrayList<>(Math.min(limit, DRAIN_BATCH));
+        if (fromOffset > latest || limit < 1) {
+            return records;
+        }
+        List<Segment> files;
+        synchronized (segments) {
+            if (segments.isEmpty()) {
+                return records;
+            }
+            Map.Entry<Long, Segment> oldest = segments.firstEntry();
+            if (fromOffset < oldest.getValue().coveredFrom && oldest.getValue().coveredFrom > 1) {
+                throw notRetained(fromOffset);
+            }
+            Long first = segments.floorKey(fromOffset);
+            files = new ArrayList<>(segments.tailMap(first == null ? oldest.getKey() : first, true).values());
+        }
+        Decoder decoder = new Decoder();
+        // Only the first segment holds entries before the offset; seek past most of them
+        Map.Entry<Long, Long> seek = files.get(0).index.floorEntry(fromOffset);
+        long position = seek == null ? 0 : seek.getValue();
+        for (Segment segment : files) {
+            Path file = segment.file;
+            try (DataInputStream in = open(file, position)) {
+                while (true) {
+                    long offset = in.readLong();
+                    if (offset > latest) {
+                        return records;
+                    }
+                    byte type = in.readByte();
+                    long timestampMillis = in.readLong();
+                    int length = in.readInt();
+                    if (offset < fromOffset) {
+                        in.skipNBytes(length);
+                        continue;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    records.add(type == GAP
+                            ? new ChangeRecord(offset, null, timestampMillis, null, null, null, null, null,
+                                    new DataInputStream(new ByteArrayInputStream(payload)).readLong())
+                            : decoder.decode(offset, TYPES[type], timestampMillis, payload));
+                    if (records.size() >= limit) {
+                        return records;
+                    }
+                }
+            } catch (EOFException e) {
+                // End of this segment; continue with the next from its start
+                position = 0;
+            } catch (NoSuchFileException e) {
+                throw notRetained(fromOffset);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read change feed segment " + file, e);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return Offset of the latest readable entry; every entry up to it is readable
+     */
+    public long getLatestOffset() {
+        return latestOffset;
+    }
+
+    /**
+     * @return Offset of the newest gap entry, where the feed lost changes; empty if it never did
+     */
+    public OptionalLong getLastGapOffset() {
+        long offset = lastGapOffset;
+        return offset == 0 ? OptionalLong.empty() : OptionalLong.of(offset);
+    }
+
+    /**
+     * @return Whether the last attempt to tail the mutation log into the feed succeeded
+     */
+    public boolean isHealthy() {
+        return lastError == null;
+    }
+
+    /**
+     * @return Why the last attempt to tail the mutation log failed; empty while the feed is healthy
+     */
+    public Optional<RuntimeException> getLastError() {
+        return Optional.ofNullable(lastError);
+    }
+
+    /**
+     * @return Offset of the oldest retained entry, or the first offset of a gap it stands for
+     */
+    public long getOldestOffset() {
+        synchronized (segments) {
+            return segments.isEmpty() ? latestOffset + 1 : segments.firstEntry().getValue().coveredFrom;
+        }
+    }
+
+    /**
+     * Write every entry of the mutation log not yet in the feed, and make it readable.
+     * Entries the log dropped before they were written become one gap entry.
+     */
+    public synchronized void drain() {
+        try {
+            if (damaged) {
+                repair();
+                damaged = false;
+            }
+            List<Mutation> batch;
+            do {
+                long oldestVersion = mutationLog.getOldestVersion();
+                if (drainedVersion < oldestVersion - 1) {
+                    log.warn("Change feed lost mutations {} to {}, dropped from the mutation log before they were written",
+                            drainedVersion + 1, oldestVersion - 1);
+                    appendGap(baseOffset + drainedVersion + 1, baseOffset + oldestVersion - 1);
+                    drainedVersion = oldestVersion - 1;
+                }
+                batch = mutationLog.read(drainedVersion, DRAIN_BATCH);
+                for (Mutation mutation : batch) {
+                    append(baseOffset + mutation.getVersion(), mutation.getType().ordinal(),
+                            mutation.getTimestampMillis(), mutation.getPayload());
+                    drainedVersion = mutation.getVersion();
+                }
+                if (out != null) {
+                    out.flush();
+                }
+                latestOffset = baseOffset + drainedVersion;
+            } while (!batch.isEmpty());
+            lastError = null;
+        } catch (IOException e) {
+            damaged = true;
+            closeSegment();
+            RuntimeException error = new UncheckedIOException("Could not write change feed", e);
+            lastError = error;
+            throw error;
+        } catch (RuntimeException e) {
+            lastError = e;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        // Not interrupted: an interrupt would close the segment channel under a write
+        running = false;
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                drain();
+            } catch (RuntimeException e) {
+                log.warn("Change feed closed at offset {} without the latest changes", latestOffset, e);
+            }
+            closeSegment();
+        }
+    }
+
+    private void tail() {
+        long backoff = pollMillis;
+        while (running) {
+            long delay = pollMillis;
+            try {
+                drain();
+                backoff = pollMillis;
+            } catch (RuntimeException e) {
+                // A write error may clear, and entries the log drops meanwhile become a gap on the next attempt
+                log.error("Change feed stalled at offset {}; retrying in {} ms", latestOffset, backoff, e);
+                delay = backoff;
+                backoff = Math.min(Math.max(backoff * 2, 1), MAX_BACKOFF_MILLIS);
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void appendGap(long fromOffset, long toOffset) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(Long.BYTES);
+        new DataOutputStream(payload).writeLong(fromOffset);
+        append(toOffset, GAP, System.currentTimeMillis(), payload.toByteArray());
+        lastGapOffset = toOffset;
+    }
+
+    private void append(long offset, int type, long timestampMillis, byte[] payload) throws IOException {
+        if (out == null) {
+            openSegment(offset, type == GAP ? new DataInputStream(new ByteArrayInputStream(payload)).readLong() : offset);
+        }
+        if (entriesInSegment % INDEX_INTERVAL == 0) {
+            // Readers only seek to offsets up to the latest flushed one
+            current.index.put(offset, segmentPosition);
+        }
+        out.writeLong(offset);
+        out.writeByte(type);
+        out.writeLong(timestampMillis);
+        out.writeInt(payload.length);
+        out.write(payload);
+        segmentPosition += HEADER_BYTES + payload.length;
+        if (++entriesInSegment >= segmentSize) {
+            out.flush();
+            closeSegment();
+        }
+    }
+
+    /**
+     * @param coveredFrom The first offset the segment stands for: its first offset, or the start of a gap it opens with
+     */
+    private void openSegment(long firstOffset, long coveredFrom) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", firstOffset, SEGMENT_SUFFIX));
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        current = new Segment(file, coveredFrom);
+        entriesInSegment = 0;
+        segmentPosition = 0;
+        List<Path> expired = new ArrayList<>();
+        synchronized (segments) {
+            segments.put(firstOffset, current);
+            while (maxSegments > 0 && segments.size() > maxSegments) {
+                expired.add(segments.pollFirstEntry().getValue().file);
+            }
+        }
+        for (Path old : expired) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    private void closeSegment() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Could not close change feed segment", e);
+        }
+        out = null;
+        current = null;
+    }
+
+    /**
+     * Register the segments on disk and index them, cutting off an entry left half written by a crash
+     * @return Offset of the last entry on disk; 0 if there is none
+     */
+    private long recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long firstOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(firstOffset, new Segment(file, firstOffset));
+            }
+        }
+        long lastOffset = 0;
+        for (Map.Entry<Long, Segment> segment : segments.entrySet()) {
+            lastOffset = scan(segment.getKey(), segment.getValue());
+        }
+        return lastOffset;
+    }
+
+    /**
+     * Bring the last segment back to its last complete entry after a failed write,
+     * and resume draining right after that entry
+     */
+    private void repair() throws IOException {
+        Map.Entry<Long, Segment> last;
+        synchronized (segments) {
+            last = segments.lastEntry();
+        }
+        if (last == null) {
+            return;
+        }
+        long lastOffset;
+        if (Files.exists(last.getValue().file)) {
+            last.getValue().index.clear();
+            lastOffset = scan(last.getKey(), last.getValue());
+        } else {
+            synchronized (segments) {
+                segments.remove(last.getKey());
+            }
+            lastOffset = last.getKey() - 1;
+        }
+        drainedVersion = lastOffset - baseOffset;
+        latestOffset = lastOffset;
+    }
+
+    /**
+     * Index a segment file, note its gaps and truncate it after its last complete entry
+     * @return Offset of the last complete entry; one below the segment's first offset if it has none
+     */
+    private long scan(long firstOffset, Segment segment) throws IOException {
+        long lastOffset = firstOffset - 1;
+        long complete = 0;
+        int entries = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.file)))) {
+            while (true) {
+                long offset = in.readLong();
+                byte type = in.readByte();
+                in.skipNBytes(Long.BYTES);
+                int length = in.readInt();
+                if (type == GAP) {
+                    long gapFrom = in.readLong();
+                    in.skipNBytes(length - Long.BYTES);
+                    if (entries == 0) {
+                        segment.coveredFrom = gapFrom;
+                    }
+                    lastGapOffset = Math.max(lastGapOffset, offset);
+                } else {
+                    in.skipNBytes(length);
+                }
+                if (entries++ % INDEX_INTERVAL == 0) {
+                    segment.index.put(offset, complete);
+                }
+                lastOffset = offset;
+                complete += HEADER_BYTES + length;
+            }
+        } catch (EOFException e) {
+            // Reached the end, possibly in the middle of an entry
+        }
+        try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.WRITE)) {
+            if (channel.size() > complete) {
+                log.warn("Truncating change feed segment {} after offset {}", segment.file, lastOffset);
+                channel.truncate(complete);
+            }
+        }
+        return lastOffset;
+    }
+
+    private static DataInputStream open(Path file, long position) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            channel.position(position);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+    }
+
+    private IllegalArgumentException notRetained(long offset) {
+        return new IllegalArgumentException("Offset " + offset + " is no longer retained; the oldest is " + getOldestOffset());
+    }
+
+    private static final class Segment {
+        private final Path file;
+        // Byte position of every INDEX_INTERVAL-th entry by offset; written while readers seek in it
+        private final ConcurrentSkipListMap<Long, Long> index = new ConcurrentSkipListMap<>();
+        // First offset the segment stands for, below its first entry's if that is a gap
+        private volatile long coveredFrom;
+
+        private Segment(Path file, long coveredFrom) {
+            this.file = file;
+            this.coveredFrom = coveredFrom;
+        }
+    }
+
+    /**
+     * Decodes payloads against stand-in securities and portfolios, never the repositories
+     */
+    private static final class Decoder {
+        private final Map<String, Security> securities = new HashMap<>();
+        private final Map<String, Portfolio> portfolios = new HashMap<>();
+        private final PortableActionCodec codec = new PortableActionCodec(
+                isin -> securities.computeIfAbsent(isin, k -> Security.builder().isin(k).build()),
+                uuid -> portfolios.computeIfAbsent(uuid, k -> new Portfolio(k, null, null)));
+
+        private ChangeRecord decode(long offset, MutationType type, long timestampMillis, byte[] payload) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            switch (type) {
+                case ACTION_SAVED, ACTION_AMENDED -> {
+                    BaseAction action = codec.read(in);
+                    String portfolioId = action.getPortfolio() == null ? null : action.getPortfolio().getUuid();
+                    return new ChangeRecord(offset, type, timestampMillis, action.getUuid(), portfolioId, action, null, null, null);
+                }
+                case ACTION_CANCELLED, ACTION_DELETED -> {
+                    String actionId = in.readUTF();
+                    String portfolioId = in.readBoolean() ? in.readUTF() : null;
+                    return new ChangeRecord(offset, type, timestampMillis, actionId, portfolioId, null, null, null, null);
+                }
+                case PORTFOLIO_SAVED -> {
+                    Portfolio portfolio = MutationLog.readPortfolio(in);
+                    return new ChangeRecord(offset, type, timestampMillis, null, portfolio.getUuid(), null, portfolio, null, null);
+                }
+                case PORTFOLIO_STATUS_CHANGED -> {
+                    String portfolioId = in.readUTF();
+                    return new ChangeRecord(offset, type, timestampMillis, null, portfolioId, null, null,
+                            MutationLog.readStatus(in), null);
+                }
+                default -> {
+                    return new ChangeRecord(offset, type, timestampMillis, null, in.readUTF(), null, null, null, null);
+                }
+            }
+        }
+    }
+}
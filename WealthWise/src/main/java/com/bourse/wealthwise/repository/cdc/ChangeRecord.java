@@ -0,0 +1,39 @@
+package com.bourse.wealthwise.repository.cdc;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import com.bourse.wealthwise.repository.replication.MutationType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One entry of the change feed. Actions and portfolios are decoded detached from the
+ * repositories: their securities carry only an ISIN and their portfolios only a uuid.
+ * A gap has no type: it stands for changes lost before the feed could write them,
+ * from {@link #getGapFromOffset()} up to and including its own offset.
+ */
+@Getter
+@AllArgsConstructor
+public class ChangeRecord {
+    private final long offset;
+    // Null for a gap
+    private final MutationType type;
+    private final long timestampMillis;
+    // Set for every action change
+    private final String actionId;
+    // Set for every change
+    private final String portfolioId;
+    // The stored version, for ACTION_SAVED and ACTION_AMENDED
+    private final BaseAction action;
+    // The saved portfolio, for PORTFOLIO_SAVED
+    private final Portfolio portfolio;
+    // The new status, for PORTFOLIO_STATUS_CHANGED
+    private final PortfolioStatus status;
+    // The first offset lost, for a gap
+    private final Long gapFromOffset;
+
+    public boolean isGap() {
+        return gapFromOffset != null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.bourse.wealthwise.repository.columnar;
+
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity block of action rows stored column by column.
+ * Rows are appended by a single writer and published through {@link #size};
+ * a row is never rewritten, only tombstoned.
+ */
+final class ActionChunk {
+
+    static final byte OBJECT = -1;
+    static final long NO_TIME = Long.MIN_VALUE;
+    static final int NO_ID = -1;
+    static final int NO_PRICE = Integer.MIN_VALUE;
+
+    final byte[] kind;
+    final byte[] actionType;
+    final byte[] actor;
+    final int[] version;
+    final long[] uuidHigh;
+    final long[] uuidLow;
+    final long[] epochNanos;
+    final int[] portfolio;
+    // Primary security and its signed volume change; the other security and its change
+    final int[] security;
+    final long[] volumeDelta;
+    final int[] otherSecurity;
+    final long[] otherVolumeDelta;
+    final long[] cashDelta;
+    final int[] price;
+    final double[] ratio;
+    final long[] auxNanos;
+    private final AtomicLongArray tombstones;
+
+    // Rarely needed values, allocated on first use
+    String[] uuidText;
+    String[] tracingNumber;
+    BaseAction[] objects;
+
+    volatile int size;
+
+    ActionChunk(int capacity) {
+        kind = new byte[capacity];
+        actionType = new byte[capacity];
+        actor = new byte[capacity];
+        version = new int[capacity];
+        uuidHigh = new long[capacity];
+        uuidLow = new long[capacity];
+        epochNanos = new long[capacity];
+        portfolio = new int[capacity];
+        security = new int[capacity];
+        volumeDelta = new long[capacity];
+        otherSecurity = new int[capacity];
+        otherVolumeDelta = new long[capacity];
+        cashDelta = new long[capacity];
+        price = new int[capacity];
+        ratio = new double[capacity];
+        auxNanos = new long[capacity];
+        tombstones = new AtomicLongArray((capacity + 63) / 64);
+    }
+
+    int capacity() {
+        return kind.length;
+    }
+
+    boolean isLive(int row) {
+        return (tombstones.get(row >>> 6) & (1L << row)) == 0;
+    }
+
+    void tombstone(int row) {
+        tombstones.getAndAccumulate(row >>> 6, 1L << row, (bits, bit) -> bits | bit);
+    }
+
+    String uuidText(int row) {
+        return uuidText == null ? null : uuidText[row];
+    }
+
+    void setUuidText(int row, String value) {
+        if (uuidText == null) {
+            uuidText = new String[capacity()];
+        }
+        uuidText[row] = value;
+    }
+
+    String tracingNumber(int row) {
+        return tracingNumber == null ? null : tracingNumber[row];
+    }
+
+    void setTracingNumber(int row, String value) {
+        if (value == null) {
+            return;
+        }
+        if (tracingNumber == null) {
+            tracingNumber = new String[capacity()];
+        }
+        tracingNumber[row] = value;
+    }
+
+    BaseAction object(int row) {
+        return objects == null ? null : objects[row];
+    }
+
+    void setObject(int row, BaseAction action) {
+        if (objects == null) {
+            objects = new BaseAction[capacity()];
+        }
+        objects[row] = action;
+    }
+
+    /**
+     * @return Approximate bytes held by the primitive columns
+     */
+    long columnBytes() {
+        // 3 byte, 5 int, 7 long and 1 double columns
+        return (long) capacity() * (3 + 5 * 4 + 7 * 8 + 8) + tombstones.length() * 8L;
+    }
+}
@@ -0,0 +1,560 @@
+package com.bourse.wealthwise.repository.columnar;
+
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.storage.ActionStore;
+import com.bourse.wealthwise.repository.storage.HistoryCacheStats;
+import com.bourse.wealthwise.utils.EpochNanos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Every stored action as one row of primitive columns, in append-only chunks; the default action store.
+ * Portfolios and securities are dictionary-encoded to ints, uuids to two longs, timestamps to epoch nanos,
+ * and volume and cash changes to signed longs. Removed and replaced rows are tombstoned, never rewritten.
+ * Each portfolio's history is an index from time key to row, so ranges and aggregations walk only
+ * that portfolio's rows in time order. Scans and aggregations read the columns directly;
+ * a {@link BaseAction} is built only for rows a caller asks for.
+ * Actions whose values do not fit the columns are kept as objects in their row.
+ * <p>
+ * Rows are appended by the action repository under its write lock, so there is a single writer;
+ * readers never lock.
+ */
+@Component
+@ConditionalOnExpression("'${wealthwise.actions.storage:memory}' == 'memory' and ${wealthwise.actions.hot-portfolios:0} <= 0")
+public class ColumnarActionStore implements ActionStore {
+
+    private static final byte BUY = 0;
+    private static final byte SALE = 1;
+    private static final byte DEPOSIT = 2;
+    private static final byte WITHDRAWAL = 3;
+    private static final byte CAPITAL_RAISE = 4;
+    private static final byte STOCK_RIGHT_USAGE = 5;
+
+    private static final ActionType[] ACTION_TYPES = ActionType.values();
+    private static final Actor[] ACTORS = Actor.values();
+
+    private final int chunkSize;
+
+    private final List<ActionChunk> chunks = new CopyOnWriteArrayList<>();
+    private volatile int rowCount;
+    private volatile long liveRows;
+
+    private final Map<String, ConcurrentSkipListMap<ActionTimeKey, Integer>> rowsByPortfolio = new ConcurrentHashMap<>();
+    private final Map<String, Integer> portfolioIds = new ConcurrentHashMap<>();
+    private final List<String> portfolioUuids = new CopyOnWriteArrayList<>();
+    // Latest instance saved of each portfolio, which materialized actions refer to
+    private final Map<String, Portfolio> portfolios = new ConcurrentHashMap<>();
+    private final Map<Security, Integer> securityIds = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final List<Security> securities = new CopyOnWriteArrayList<>();
+    private final LongAdder reads = new LongAdder();
+
+    public ColumnarActionStore(@Value("${wealthwise.columnar.chunk-size:4096}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void put(String portfolioId, ActionTimeKey key, BaseAction action) {
+        int row = append(action);
+        Integer replaced = rowsByPortfolio.computeIfAbsent(portfolioId, k -> new ConcurrentSkipListMap<>()).put(key, row);
+        if (replaced != null) {
+            tombstone(replaced);
+        }
+    }
+
+    @Override
+    public void remove(String portfolioId, ActionTimeKey key) {
+        ConcurrentSkipListMap<ActionTimeKey, Integer> rows = rowsByPortfolio.get(portfolioId);
+        Integer row = rows == null ? null : rows.remove(key);
+        if (row != null) {
+            tombstone(row);
+        }
+    }
+
+    @Override
+    public BaseAction get(String portfolioId, ActionTimeKey key) {
+        reads.increment();
+        ConcurrentSkipListMap<ActionTimeKey, Integer> rows = rowsByPortfolio.get(portfolioId);
+        Integer row = rows == null ? null : rows.get(key);
+        return row == null ? null : materialize(row);
+    }
+
+    @Override
+    public List<BaseAction> getAll(String portfolioId, List<ActionTimeKey> keys) {
+        reads.increment();
+        ConcurrentSkipListMap<ActionTimeKey, Integer> rows = rowsByPortfolio.get(portfolioId);
+        List<BaseAction> actions = new ArrayList<>(keys.size());
+        for (ActionTimeKey key : keys) {
+            Integer row = rows == null ? null : rows.get(key);
+            actions.add(row == null ? null : materialize(row));
+        }
+        return actions;
+    }
+
+    @Override
+    public Collection<BaseAction> range(String portfolioId, ActionTimeKey from, boolean fromInclusive, ActionTimeKey toInclusive) {
+        reads.increment();
+        Collection<Integer> rows = rowsOf(portfolioId, from, fromInclusive, toInclusive);
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<BaseAction> iterator() {
+                Iterator<Integer> it = rows.iterator();
+                return new Iterator<>() {
+                    private BaseAction next = advance();
+
+                    private BaseAction advance() {
+                        while (it.hasNext()) {
+                            int row = it.next();
+                            // Skips a row removed since the index entry was read
+                            if (chunkOf(row).isLive(row % chunkSize)) {
+                                return materialize(row);
+                            }
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public BaseAction next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        BaseAction current = next;
+                        next = advance();
+                        return current;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return rows.size();
+            }
+        };
+    }
+
+    /**
+     * Summed from the cash column; falls back to the actions only if the sum does not fit a long
+     */
+    @Override
+    public BigInteger getCashBalanceBefore(String portfolioId, LocalDateTime before) {
+        try {
+            return BigInteger.valueOf(cashBalance(rowsOf(portfolioId, null, false, ActionTimeKey.lowest(before))));
+        } catch (ArithmeticException e) {
+            return ActionStore.super.getCashBalanceBefore(portfolioId, before);
+        }
+    }
+
+    /**
+     * @return Actions of the portfolio dated within the closed range, ordered by datetime then uuid
+     */
+    public List<BaseAction> findActionsOf(String portfolioId, LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+        return List.copyOf(range(portfolioId, ActionTimeKey.lowest(from), true, ActionTimeKey.highest(to)));
+    }
+
+    /**
+     * @return Cash balance of the portfolio after every action dated at or before the given time
+     * @throws ArithmeticException if the balance does not fit a long
+     */
+    public long getCashBalance(String portfolioId, LocalDateTime asOf) {
+        return cashBalance(rowsOf(portfolioId, null, false, ActionTimeKey.highest(asOf)));
+    }
+
+    /**
+     * @return Volume of the security held by the portfolio after every action dated at or before the given time,
+     * dropped to zero whenever it reaches zero or below, as a replay of the holdings does
+     * @throws ArithmeticException if the volume does not fit a long
+     */
+    public long getVolume(String portfolioId, Security security, LocalDateTime asOf) {
+        Integer securityId = securityIds.get(security);
+        if (securityId == null) {
+            return 0;
+        }
+        long volume = 0;
+        for (int row : rowsOf(portfolioId, null, false, ActionTimeKey.highest(asOf))) {
+            ActionChunk chunk = chunkOf(row);
+            int offset = row % chunkSize;
+            if (chunk.isLive(offset) && chunk.epochNanos[offset] != ActionChunk.NO_TIME) {
+                volume = applyVolume(volume, chunk, offset, securityId, security);
+            }
+        }
+        return volume;
+    }
+
+    /**
+     * @return Net volume of the security across every portfolio, from a scan of the security columns
+     * @throws ArithmeticException if the volume does not fit a long
+     */
+    public long getTotalVolume(Security security) {
+        Integer securityId = securityIds.get(security);
+        if (securityId == null) {
+            return 0;
+        }
+        long total = 0;
+        int remaining = rowCount;
+        for (ActionChunk chunk : chunks) {
+            int size = Math.min(chunk.size, remaining);
+            for (int row = 0; row < size; row++) {
+                if (chunk.isLive(row)) {
+                    total = Math.addExact(total, volumeDelta(chunk, row, securityId, security));
+                }
+            }
+            remaining -= size;
+            if (remaining <= 0) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return Number of rows that are not tombstoned
+     */
+    public long getLiveRowCount() {
+        return liveRows;
+    }
+
+    /**
+     * @return Approximate heap held by the column arrays, excluding dictionaries and indexes
+     */
+    public long getColumnBytes() {
+        long bytes = 0;
+        for (ActionChunk chunk : chunks) {
+            bytes += chunk.columnBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void clear() {
+        rowsByPortfolio.clear();
+        chunks.clear();
+        rowCount = 0;
+        liveRows = 0;
+    }
+
+    @Override
+    public HistoryCacheStats getStats() {
+        return HistoryCacheStats.builder()
+                .hotPortfolios(rowsByPortfolio.size())
+                .hits(reads.sum())
+                .build();
+    }
+
+    /**
+     * @return Rows of the portfolio's actions within the key range, in time order
+     */
+    private Collection<Integer> rowsOf(String portfolioId, ActionTimeKey from, boolean fromInclusive, ActionTimeKey toInclusive) {
+        ConcurrentSkipListMap<ActionTimeKey, Integer> rows = rowsByPortfolio.get(portfolioId);
+        if (rows == null || from != null && toInclusive != null && from.compareTo(toInclusive) > 0) {
+            return List.of();
+        }
+        ConcurrentNavigableMap<ActionTimeKey, Integer> range = rows;
+        if (from != null) {
+            range = range.tailMap(from, fromInclusive);
+        }
+        if (toInclusive != null) {
+            range = range.headMap(toInclusive, true);
+        }
+        return range.values();
+    }
+
+    private long cashBalance(Collection<Integer> rows) {
+        long balance = 0;
+        for (int row : rows) {
+            ActionChunk chunk = chunkOf(row);
+            int offset = row % chunkSize;
+            if (!chunk.isLive(offset) || chunk.epochNanos[offset] == ActionChunk.NO_TIME) {
+                continue;
+            }
+            if (chunk.kind[offset] == ActionChunk.OBJECT) {
+                for (var change : chunk.object(offset).getBalanceChanges()) {
+                    balance = Math.addExact(balance, change.getChange_amount().longValueExact());
+                }
+            } else {
+                balance = Math.addExact(balance, chunk.cashDelta[offset]);
+            }
+        }
+        return balance;
+    }
+
+    private ActionChunk chunkOf(int row) {
+        return chunks.get(row / chunkSize);
+    }
+
+    private long volumeDelta(ActionChunk chunk, int row, int securityId, Security security) {
+        if (chunk.kind[row] == ActionChunk.OBJECT) {
+            long delta = 0;
+            for (var change : chunk.object(row).getSecurityChanges()) {
+                if (change.getSecurity() == security) {
+                    delta = Math.addExact(delta, change.getVolumeChange().longValueExact());
+                }
+            }
+            return delta;
+        }
+        long delta = 0;
+        if (chunk.security[row] == securityId) {
+            delta += chunk.volumeDelta[row];
+        }
+        if (chunk.otherSecurity[row] == securityId) {
+            delta = Math.addExact(delta, chunk.otherVolumeDelta[row]);
+        }
+        return delta;
+    }
+
+    /**
+     * @return The volume after each change of the row to the security, clamped at zero after each one
+     */
+    private long applyVolume(long volume, ActionChunk chunk, int row, int securityId, Security security) {
+        if (chunk.kind[row] == ActionChunk.OBJECT) {
+            for (var change : chunk.object(row).getSecurityChanges()) {
+                if (change.getSecurity() == security) {
+                    volume = Math.max(0, Math.addExact(volume, change.getVolumeChange().longValueExact()));
+                }
+            }
+            return volume;
+        }
+        if (chunk.security[row] == securityId) {
+            volume = Math.max(0, Math.addExact(volume, chunk.volumeDelta[row]));
+        }
+        if (chunk.otherSecurity[row] == securityId) {
+            volume = Math.max(0, Math.addExact(volume, chunk.otherVolumeDelta[row]));
+        }
+        return volume;
+    }
+
+    /**
+     * @return The row number of the appended action
+     */
+    private int append(BaseAction action) {
+        int index = rowCount;
+        if (index / chunkSize == chunks.size()) {
+            chunks.add(new ActionChunk(chunkSize));
+        }
+        ActionChunk chunk = chunks.get(index / chunkSize);
+        int row = index % chunkSize;
+
+        chunk.portfolio[row] = portfolioIdOf(action.getPortfolio());
+        chunk.actionType[row] = action.getActionType() == null ? -1 : (byte) action.getActionType().ordinal();
+        chunk.actor[row] = action.getActor() == null ? -1 : (byte) action.getActor().ordinal();
+        chunk.version[row] = action.getVersion();
+        chunk.setTracingNumber(row, action.getTracing_number());
+        writeUuid(chunk, row, action.getUuid());
+        chunk.security[row] = ActionChunk.NO_ID;
+        chunk.otherSecurity[row] = ActionChunk.NO_ID;
+        chunk.price[row] = ActionChunk.NO_PRICE;
+        chunk.auxNanos[row] = ActionChunk.NO_TIME;
+
+        if (!writeColumns(chunk, row, action)) {
+            chunk.kind[row] = ActionChunk.OBJECT;
+            chunk.epochNanos[row] = action.getDatetime() == null ? ActionChunk.NO_TIME : EpochNanos.of(action.getDatetime());
+            chunk.setObject(row, action);
+        }
+
+        // Publish the row before the caller indexes it
+        chunk.size = row + 1;
+        rowCount = index + 1;
+        liveRows++;
+        return index;
+    }
+
+    /**
+     * @return false if the action's values do not fit the columns
+     */
+    private boolean writeColumns(ActionChunk chunk, int row, BaseAction action) {
+        try {
+            chunk.epochNanos[row] = exactNanos(action.getDatetime());
+            if (action instanceof Buy buy) {
+                chunk.kind[row] = BUY;
+                chunk.security[row] = securityIdOf(buy.getSecurity());
+                chunk.volumeDelta[row] = buy.getVolume().longValueExact();
+                chunk.cashDelta[row] = -buy.getTotalValue().longValueExact();
+                chunk.price[row] = buy.getPrice() == null ? ActionChunk.NO_PRICE : buy.getPrice();
+            } else if (action instanceof Sale sale) {
+                chunk.kind[row] = SALE;
+                chunk.security[row] = securityIdOf(sale.getSecurity());
+                chunk.volumeDelta[row] = -sale.getVolume().longValueExact();
+                chunk.cashDelta[row] = sale.getTotalValue().longValueExact();
+                chunk.price[row] = sale.getPrice() == null ? ActionChunk.NO_PRICE : sale.getPrice();
+            } else if (action instanceof Deposit deposit) {
+                chunk.kind[row] = DEPOSIT;
+                chunk.cashDelta[row] = deposit.getAmount().longValueExact();
+            } else if (action instanceof Withdrawal withdrawal) {
+                chunk.kind[row] = WITHDRAWAL;
+                chunk.cashDelta[row] = -withdrawal.getAmount().longValueExact();
+            } else if (action instanceof CapitalRaise capitalRaise) {
+                chunk.kind[row] = CAPITAL_RAISE;
+                chunk.security[row] = securityIdOf(capitalRaise.getRightSecurity());
+                chunk.volumeDelta[row] = capitalRaise.getRightVolume().longValueExact();
+                chunk.otherSecurity[row] = securityIdOf(capitalRaise.getOriginalSecurity());
+                chunk.ratio[row] = capitalRaise.getRightPerShare();
+            } else if (action instanceof StockRightUsage usage) {
+                chunk.kind[row] = STOCK_RIGHT_USAGE;
+                long volume = usage.getVolumeToConvert().longValueExact();
+                chunk.security[row] = securityIdOf(usage.getRightSecurity());
+                chunk.volumeDelta[row] = -volume;
+                chunk.otherSecurity[row] = securityIdOf(usage.getMainSecurity());
+                chunk.otherVolumeDelta[row] = volume;
+                chunk.cashDelta[row] = -usage.getConversionCost().longValueExact();
+                chunk.auxNanos[row] = exactNanos(usage.getTradableFrom());
+            } else {
+                return false;
+            }
+            return true;
+        } catch (ArithmeticException | NullPointerException e) {
+            // Out of range or missing values; the row keeps the object instead
+            return false;
+        }
+    }
+
+    private void tombstone(int row) {
+        chunkOf(row).tombstone(row % chunkSize);
+        liveRows--;
+    }
+
+    private BaseAction materialize(int row) {
+        return materialize(chunkOf(row), row % chunkSize);
+    }
+
+    private BaseAction materialize(ActionChunk chunk, int row) {
+        if (chunk.kind[row] == ActionChunk.OBJECT) {
+            return chunk.object(row);
+        }
+        BaseAction.BaseActionBuilder<?, ?> builder = switch (chunk.kind[row]) {
+            case BUY -> Buy.builder()
+                    .security(securityOf(chunk.security[row]))
+                    .volume(BigInteger.valueOf(chunk.volumeDelta[row]))
+                    .price(priceOf(chunk, row))
+                    .totalValue(BigInteger.valueOf(-chunk.cashDelta[row]));
+            case SALE -> Sale.builder()
+                    .security(securityOf(chunk.security[row]))
+                    .volume(BigInteger.valueOf(-chunk.volumeDelta[row]))
+                    .price(priceOf(chunk, row))
+                    .totalValue(BigInteger.valueOf(chunk.cashDelta[row]));
+            case DEPOSIT -> Deposit.builder().amount(BigInteger.valueOf(chunk.cashDelta[row]));
+            case WITHDRAWAL -> Withdrawal.builder().amount(BigInteger.valueOf(-chunk.cashDelta[row]));
+            case CAPITAL_RAISE -> CapitalRaise.builder()
+                    .rightSecurity(securityOf(chunk.security[row]))
+                    .rightVolume(BigInteger.valueOf(chunk.volumeDelta[row]))
+                    .originalSecurity(securityOf(chunk.otherSecurity[row]))
+                    .rightPerShare(chunk.ratio[row]);
+            default -> StockRightUsage.builder()
+                    .rightSecurity(securityOf(chunk.security[row]))
+                    .mainSecurity(securityOf(chunk.otherSecurity[row]))
+                    .volumeToConvert(BigInteger.valueOf(chunk.otherVolumeDelta[row]))
+                    .conversionCost(BigInteger.valueOf(-chunk.cashDelta[row]))
+                    .tradableFrom(timeOf(chunk.auxNanos[row]));
+        };
+        byte actionType = chunk.actionType[row];
+        byte actor = chunk.actor[row];
+        int portfolioId = chunk.portfolio[row];
+        return builder
+                .uuid(uuidOf(chunk, row))
+                .datetime(timeOf(chunk.epochNanos[row]))
+                .portfolio(portfolioId == ActionChunk.NO_ID ? null : portfolios.get(portfolioUuids.get(portfolioId)))
+                .tracing_number(chunk.tracingNumber(row))
+                .actionType(actionType < 0 ? null : ACTION_TYPES[actionType])
+                .actor(actor < 0 ? null : ACTORS[actor])
+                .version(chunk.version[row])
+                .build();
+    }
+
+    private int portfolioIdOf(Portfolio portfolio) {
+        if (portfolio == null) {
+            return ActionChunk.NO_ID;
+        }
+        portfolios.put(portfolio.getUuid(), portfolio);
+        return portfolioIds.computeIfAbsent(portfolio.getUuid(), k -> {
+            portfolioUuids.add(k);
+            return portfolioUuids.size() - 1;
+        });
+    }
+
+    private int securityIdOf(Security security) {
+        if (security == null) {
+            return ActionChunk.NO_ID;
+        }
+        return securityIds.computeIfAbsent(security, k -> {
+            securities.add(k);
+            return securities.size() - 1;
+        });
+    }
+
+    private Security securityOf(int id) {
+        return id == ActionChunk.NO_ID ? null : securities.get(id);
+    }
+
+    private static Integer priceOf(ActionChunk chunk, int row) {
+        return chunk.price[row] == ActionChunk.NO_PRICE ? null : chunk.price[row];
+    }
+
+    private static void writeUuid(ActionChunk chunk, int row, String uuid) {
+        UUID parsed = parseCanonical(uuid);
+        if (parsed == null) {
+            chunk.setUuidText(row, uuid);
+        } else {
+            chunk.uuidHigh[row] = parsed.getMostSignificantBits();
+            chunk.uuidLow[row] = parsed.getLeastSignificantBits();
+        }
+    }
+
+    private static String uuidOf(ActionChunk chunk, int row) {
+        String text = chunk.uuidText(row);
+        return text != null ? text : new UUID(chunk.uuidHigh[row], chunk.uuidLow[row]).toString();
+    }
+
+    /**
+     * @return The uuid if the text is its canonical form, so it can be restored exactly; null otherwise
+     */
+    private static UUID parseCanonical(String uuid) {
+        if (uuid == null || uuid.length() != 36) {
+            return null;
+        }
+        try {
+            UUID parsed = UUID.fromString(uuid);
+            return parsed.toString().equals(uuid) ? parsed : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Epoch nanos of the time, or NO_TIME for none
+     * @throws ArithmeticException if the time is outside the range the column holds exactly
+     */
+    private static long exactNanos(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return ActionChunk.NO_TIME;
+        }
+        long nanos = EpochNanos.of(dateTime);
+        if (EpochNanos.isSaturated(nanos)) {
+            throw new ArithmeticException("Time out of range: " + dateTime);
+        }
+        return nanos;
+    }
+
+    private static LocalDateTime timeOf(long nanos) {
+        return nanos == ActionChunk.NO_TIME ? null : EpochNanos.toDateTime(nanos);
+    }
+}
@@ -0,0 +1,17 @@
+package com.bourse.wealthwise.repository.replication;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One change to the repositories, encoded when it was made so it can be shipped as is.
+ */
+@Getter
+@AllArgsConstructor
+public class Mutation {
+    private final long version;
+    private final MutationType type;
+    // Wall-clock time of the change on the node that made it
+    private final long timestampMillis;
+    private final byte[] payload;
+}
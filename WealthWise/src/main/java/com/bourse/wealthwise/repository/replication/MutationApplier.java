@@ -0,0 +1,45 @@
+package com.bourse.wealthwise.repository.replication;
+
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Replays mutations of another node's log against the local repositories.
+ * Securities are reference data and must already be registered locally;
+ * portfolios arrive through the log ahead of their actions.
+ */
+@Component
+public class MutationApplier {
+
+    private final ActionRepository actionRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final PortableActionCodec codec;
+
+    public MutationApplier(ActionRepository actionRepository,
+                           PortfolioRepository portfolioRepository,
+                           SecurityRepository securityRepository) {
+        this.actionRepository = actionRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.codec = new PortableActionCodec(securityRepository::findSecurityByIsin,
+                uuid -> portfolioRepository.findById(uuid).orElse(null));
+    }
+
+    public void apply(Mutation mutation) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(mutation.getPayload()));
+        switch (mutation.getType()) {
+            case ACTION_SAVED -> actionRepository.save(codec.read(in));
+            case ACTION_AMENDED -> actionRepository.amend(codec.read(in));
+            case ACTION_CANCELLED -> actionRepository.cancel(in.readUTF());
+            case ACTION_DELETED -> actionRepository.deleteById(in.readUTF());
+            case PORTFOLIO_SAVED -> portfolioRepository.save(MutationLog.readPortfolio(in));
+            case PORTFOLIO_STATUS_CHANGED -> portfolioRepository.updateStatus(in.readUTF(), MutationLog.readStatus(in));
+            case PORTFOLIO_DELETED -> portfolioRepository.deleteById(in.readUTF());
+        }
+    }
+}
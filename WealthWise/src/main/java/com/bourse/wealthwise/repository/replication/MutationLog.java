@@ -0,0 +1,187 @@
+package com.bourse.wealthwise.repository.replication;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ordered log of every change made to the action and portfolio repositories, numbered by
+ * a version that increases by one per change. Followers replay it to build read replicas.
+ * Entries are encoded when appended, so the log holds no references into the repositories.
+ * Only the most recent {@code wealthwise.replication.log-retention} entries are kept, and
+ * no more of them than fit in {@code wealthwise.replication.log-retention-bytes} of payload.
+ */
+@Component
+public class MutationLog {
+
+    private static final PortfolioStatus[] STATUSES = PortfolioStatus.values();
+
+    private final PortableActionCodec codec = new PortableActionCodec();
+    private final int retention;
+    private final long retentionBytes;
+
+    private final List<Mutation> entries = new ArrayList<>();
+    // Version of entries.get(0), or of the next entry while the log is empty
+    private long firstVersion = 1;
+    private long payloadBytes;
+
+    public MutationLog(int retention) {
+        this(retention, Long.MAX_VALUE);
+    }
+
+    @Autowired
+    public MutationLog(@Value("${wealthwise.replication.log-retention:1000000}") int retention,
+                       @Value("${wealthwise.replication.log-retention-bytes:67108864}") long retentionBytes) {
+        if (retention < 1 || retentionBytes < 1) {
+            throw new IllegalArgumentException("Log retention must be positive: " + retention + ", " + retentionBytes);
+        }
+        this.retention = retention;
+        this.retentionBytes = retentionBytes;
+    }
+
+    public void actionSaved(BaseAction action) {
+        append(MutationType.ACTION_SAVED, out -> codec.write(out, action));
+    }
+
+    public void actionAmended(BaseAction amended) {
+        append(MutationType.ACTION_AMENDED, out -> codec.write(out, amended));
+    }
+
+    public void actionCancelled(BaseAction cancelled) {
+        append(MutationType.ACTION_CANCELLED, out -> writeRemoved(out, cancelled));
+    }
+
+    public void actionDeleted(BaseAction deleted) {
+        append(MutationType.ACTION_DELETED, out -> writeRemoved(out, deleted));
+    }
+
+    public void portfolioSaved(Portfolio portfolio) {
+        append(MutationType.PORTFOLIO_SAVED, out -> writePortfolio(out, portfolio));
+    }
+
+    public void portfolioStatusChanged(String uuid, PortfolioStatus status) {
+        append(MutationType.PORTFOLIO_STATUS_CHANGED, out -> {
+            out.writeUTF(uuid);
+            out.writeByte(status.ordinal());
+        });
+    }
+
+    public void portfolioDeleted(String uuid) {
+        append(MutationType.PORTFOLIO_DELETED, out -> out.writeUTF(uuid));
+    }
+
+    /**
+     * @return Version of the latest change; 0 before the first
+     */
+    public synchronized long getVersion() {
+        return firstVersion + entries.size() - 1;
+    }
+
+    /**
+     * @return Version of the oldest retained change, or of the next change while none is retained
+     */
+    public synchronized long getOldestVersion() {
+        return firstVersion;
+    }
+
+    /**
+     * @return The entries following the given version, oldest first, at most limit of them
+     * @throws IllegalStateException if entries right after the version have already been dropped
+     */
+    public synchronized List<Mutation> read(long afterVersion, int limit) {
+        if (afterVersion < firstVersion - 1) {
+            throw new IllegalStateException("Mutations after version " + afterVersion
+                    + " are no longer retained; the oldest is " + firstVersion);
+        }
+        int from = (int) Math.min(afterVersion - firstVersion + 1, entries.size());
+        int to = (int) Math.min((long) from + limit, entries.size());
+        return new ArrayList<>(entries.subList(from, to));
+    }
+
+    /**
+     * Decode the payload of a PORTFOLIO_SAVED mutation into a new, unstored portfolio
+     */
+    public static Portfolio readPortfolio(DataInput in) throws IOException {
+        String uuid = in.readUTF();
+        String name = in.readBoolean() ? in.readUTF() : null;
+        User manager = in.readBoolean() ? User.builder().uuid(in.readUTF()).build() : null;
+        byte status = in.readByte();
+        return new Portfolio(uuid, manager, name, status < 0 ? null : STATUSES[status]);
+    }
+
+    /**
+     * Decode the status following the uuid in a PORTFOLIO_STATUS_CHANGED payload
+     */
+    public static PortfolioStatus readStatus(DataInput in) throws IOException {
+        return STATUSES[in.readByte()];
+    }
+
+    /**
+     * Removals carry the action's uuid, then its portfolio's uuid for readers outside the repositories
+     */
+    private static void writeRemoved(DataOutput out, BaseAction action) throws IOException {
+        out.writeUTF(action.getUuid());
+        out.writeBoolean(action.getPortfolio() != null);
+        if (action.getPortfolio() != null) {
+            out.writeUTF(action.getPortfolio().getUuid());
+        }
+    }
+
+    private static void writePortfolio(DataOutput out, Portfolio portfolio) throws IOException {
+        out.writeUTF(portfolio.getUuid());
+        out.writeBoolean(portfolio.getName() != null);
+        if (portfolio.getName() != null) {
+            out.writeUTF(portfolio.getName());
+        }
+        String managerUuid = portfolio.getPortfolioManager() == null ? null : portfolio.getPortfolioManager().getUuid();
+        out.writeBoolean(managerUuid != null);
+        if (managerUuid != null) {
+            out.writeUTF(managerUuid);
+        }
+        out.writeByte(portfolio.getStatus() == null ? -1 : portfolio.getStatus().ordinal());
+    }
+
+    private void append(MutationType type, PayloadWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode " + type, e);
+        }
+        synchronized (this) {
+            Mutation mutation = new Mutation(getVersion() + 1, type, System.currentTimeMillis(), bytes.toByteArray());
+            entries.add(mutation);
+            payloadBytes += mutation.getPayload().length;
+            // Trim in bulk, so dropping the oldest entries stays cheap per append
+            if (entries.size() - retention > retention / 4 || payloadBytes - retentionBytes > retentionBytes / 4) {
+                int dropped = Math.max(entries.size() - retention, 0);
+                for (int i = 0; i < dropped; i++) {
+                    payloadBytes -= entries.get(i).getPayload().length;
+                }
+                while (payloadBytes > retentionBytes && dropped < entries.size() - 1) {
+                    payloadBytes -= entries.get(dropped++).getPayload().length;
+                }
+                entries.subList(0, dropped).clear();
+                firstVersion += dropped;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,11 @@
+package com.bourse.wealthwise.repository.replication;
+
+public enum MutationType {
+    ACTION_SAVED,
+    ACTION_AMENDED,
+    ACTION_CANCELLED,
+    ACTION_DELETED,
+    PORTFOLIO_SAVED,
+    PORTFOLIO_STATUS_CHANGED,
+    PORTFOLIO_DELETED
+}
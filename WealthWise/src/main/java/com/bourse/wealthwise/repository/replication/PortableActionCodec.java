@@ -0,0 +1,68 @@
+package com.bourse.wealthwise.repository.replication;
+
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.repository.storage.ActionRecordCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Action encoding that another process can read: securities are written by ISIN and
+ * portfolios by uuid, and both are resolved against the reader's own repositories.
+ */
+public class PortableActionCodec extends ActionRecordCodec {
+
+    private final Function<String, Security> securities;
+    private final Function<String, Portfolio> portfolios;
+
+    /**
+     * A codec for writing only: every reference it reads back is unknown
+     */
+    public PortableActionCodec() {
+        this(isin -> null, uuid -> null);
+    }
+
+    public PortableActionCodec(Function<String, Security> securities, Function<String, Portfolio> portfolios) {
+        this.securities = securities;
+        this.portfolios = portfolios;
+    }
+
+    @Override
+    protected void writeSecurity(DataOutput out, Security security) throws IOException {
+        writeString(out, security == null ? null : security.getIsin());
+    }
+
+    @Override
+    protected Security readSecurity(DataInput in) throws IOException {
+        String isin = readString(in);
+        if (isin == null) {
+            return null;
+        }
+        Security security = securities.apply(isin);
+        if (security == null) {
+            throw new IOException("Unknown security " + isin);
+        }
+        return security;
+    }
+
+    @Override
+    protected void writePortfolio(DataOutput out, Portfolio portfolio) throws IOException {
+        writeString(out, portfolio == null ? null : portfolio.getUuid());
+    }
+
+    @Override
+    protected Portfolio readPortfolio(DataInput in) throws IOException {
+        String uuid = readString(in);
+        if (uuid == null) {
+            return null;
+        }
+        Portfolio portfolio = portfolios.apply(uuid);
+        if (portfolio == null) {
+            throw new IOException("Unknown portfolio " + uuid);
+        }
+        return portfolio;
+    }
+}
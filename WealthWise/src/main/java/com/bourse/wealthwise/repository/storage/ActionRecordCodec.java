@@ -0,0 +1,247 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flat binary encoding of actions, for storage outside the heap.
+ * Securities and portfolios are written as small ids into registries held by the codec,
+ * so a decoded action refers to the very same Security instance as the original:
+ * projections key holdings on Security identity. Subclasses may encode the references
+ * differently, e.g. by ISIN and uuid for another process.
+ */
+public class ActionRecordCodec {
+
+    private static final byte BUY = 0;
+    private static final byte SALE = 1;
+    private static final byte DEPOSIT = 2;
+    private static final byte WITHDRAWAL = 3;
+    private static final byte CAPITAL_RAISE = 4;
+    private static final byte STOCK_RIGHT_USAGE = 5;
+
+    private static final ActionType[] ACTION_TYPES = ActionType.values();
+    private static final Actor[] ACTORS = Actor.values();
+
+    private final Map<Security, Integer> securityIds = new IdentityHashMap<>();
+    private final List<Security> securities = new ArrayList<>();
+    private final Map<String, Portfolio> portfolios = new ConcurrentHashMap<>();
+
+    public void write(DataOutput out, BaseAction action) throws IOException {
+        out.writeByte(kindOf(action));
+        writeString(out, action.getUuid());
+        writeDateTime(out, action.getDatetime());
+        writePortfolio(out, action.getPortfolio());
+        writeString(out, action.getTracing_number());
+        out.writeByte(action.getActionType() == null ? -1 : action.getActionType().ordinal());
+        out.writeByte(action.getActor() == null ? -1 : action.getActor().ordinal());
+        out.writeInt(action.getVersion());
+
+        if (action instanceof Buy buy) {
+            writeSecurity(out, buy.getSecurity());
+            writeBigInteger(out, buy.getVolume());
+            writeInteger(out, buy.getPrice());
+            writeBigInteger(out, buy.getTotalValue());
+        } else if (action instanceof Sale sale) {
+            writeSecurity(out, sale.getSecurity());
+            writeBigInteger(out, sale.getVolume());
+            writeInteger(out, sale.getPrice());
+            writeBigInteger(out, sale.getTotalValue());
+        } else if (action instanceof Deposit deposit) {
+            writeBigInteger(out, deposit.getAmount());
+        } else if (action instanceof Withdrawal withdrawal) {
+            writeBigInteger(out, withdrawal.getAmount());
+        } else if (action instanceof CapitalRaise capitalRaise) {
+            writeSecurity(out, capitalRaise.getOriginalSecurity());
+            writeSecurity(out, capitalRaise.getRightSecurity());
+            writeBigInteger(out, capitalRaise.getRightVolume());
+            out.writeDouble(capitalRaise.getRightPerShare());
+        } else if (action instanceof StockRightUsage usage) {
+            writeSecurity(out, usage.getRightSecurity());
+            writeSecurity(out, usage.getMainSecurity());
+            writeBigInteger(out, usage.getVolumeToConvert());
+            writeBigInteger(out, usage.getConversionCost());
+            writeDateTime(out, usage.getTradableFrom());
+        }
+    }
+
+    public BaseAction read(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        if (kind < BUY || kind > STOCK_RIGHT_USAGE) {
+            throw new IOException("Unknown action kind " + kind);
+        }
+        String uuid = readString(in);
+        LocalDateTime datetime = readDateTime(in);
+        Portfolio portfolio = readPortfolio(in);
+        String tracingNumber = readString(in);
+        byte actionType = in.readByte();
+        byte actor = in.readByte();
+        int version = in.readInt();
+
+        BaseAction.BaseActionBuilder<?, ?> builder = switch (kind) {
+            case BUY -> Buy.builder()
+                    .security(readSecurity(in))
+                    .volume(readBigInteger(in))
+                    .price(readInteger(in))
+                    .totalValue(readBigInteger(in));
+            case SALE -> Sale.builder()
+                    .security(readSecurity(in))
+                    .volume(readBigInteger(in))
+                    .price(readInteger(in))
+                    .totalValue(readBigInteger(in));
+            case DEPOSIT -> Deposit.builder().amount(readBigInteger(in));
+            case WITHDRAWAL -> Withdrawal.builder().amount(readBigInteger(in));
+            case CAPITAL_RAISE -> CapitalRaise.builder()
+                    .originalSecurity(readSecurity(in))
+                    .rightSecurity(readSecurity(in))
+                    .rightVolume(readBigInteger(in))
+                    .rightPerShare(in.readDouble());
+            default -> StockRightUsage.builder()
+                    .rightSecurity(readSecurity(in))
+                    .mainSecurity(readSecurity(in))
+                    .volumeToConvert(readBigInteger(in))
+                    .conversionCost(readBigInteger(in))
+                    .tradableFrom(readDateTime(in));
+        };
+        return builder
+                .uuid(uuid)
+                .datetime(datetime)
+                .portfolio(portfolio)
+                .tracing_number(tracingNumber)
+                .actionType(actionType < 0 ? null : ACTION_TYPES[actionType])
+                .actor(actor < 0 ? null : ACTORS[actor])
+                .version(version)
+                .build();
+    }
+
+    private static byte kindOf(BaseAction action) {
+        if (action instanceof Buy) {
+            return BUY;
+        } else if (action instanceof Sale) {
+            return SALE;
+        } else if (action instanceof Deposit) {
+            return DEPOSIT;
+        } else if (action instanceof Withdrawal) {
+            return WITHDRAWAL;
+        } else if (action instanceof CapitalRaise) {
+            return CAPITAL_RAISE;
+        } else if (action instanceof StockRightUsage) {
+            return STOCK_RIGHT_USAGE;
+        }
+        throw new IllegalArgumentException("Unsupported action: " + action.getClass().getName());
+    }
+
+    protected void writeSecurity(DataOutput out, Security security) throws IOException {
+        if (security == null) {
+            out.writeInt(-1);
+            return;
+        }
+        int id;
+        synchronized (securityIds) {
+            id = securityIds.computeIfAbsent(security, k -> {
+                securities.add(k);
+                return securities.size() - 1;
+            });
+        }
+        out.writeInt(id);
+    }
+
+    protected Security readSecurity(DataInput in) throws IOException {
+        int id = in.readInt();
+        if (id < 0) {
+            return null;
+        }
+        synchronized (securityIds) {
+            if (id >= securities.size()) {
+                throw new IOException("Unknown security id " + id);
+            }
+            return securities.get(id);
+        }
+    }
+
+    protected void writePortfolio(DataOutput out, Portfolio portfolio) throws IOException {
+        if (portfolio != null) {
+            portfolios.putIfAbsent(portfolio.getUuid(), portfolio);
+        }
+        writeString(out, portfolio == null ? null : portfolio.getUuid());
+    }
+
+    protected Portfolio readPortfolio(DataInput in) throws IOException {
+        String uuid = readString(in);
+        if (uuid == null) {
+            return null;
+        }
+        Portfolio portfolio = portfolios.get(uuid);
+        if (portfolio == null) {
+            throw new IOException("Unknown portfolio " + uuid);
+        }
+        return portfolio;
+    }
+
+    protected static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    protected static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long seconds = in.readLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeBigInteger(DataOutput out, BigInteger value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.toByteArray();
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static BigInteger readBigInteger(DataInput in) throws IOException {
+        int length = in.readShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    private static void writeInteger(DataOutput out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+}
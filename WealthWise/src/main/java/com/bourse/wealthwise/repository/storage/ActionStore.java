@@ -0,0 +1,83 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage of every action behind {@link com.bourse.wealthwise.repository.ActionRepository},
+ * as a time-ordered history per portfolio. The repository keeps its own indexes and calls
+ * the writing methods under its write lock only; reads may run concurrently with a write.
+ * The backend is chosen with {@code wealthwise.actions.hot-portfolios}: columnar on the heap
+ * (0, the default), or that many hot histories on the heap and the rest spilled to disk;
+ * {@code wealthwise.actions.storage=jdbc} keeps them in an embedded database instead.
+ */
+public interface ActionStore {
+
+    /**
+     * Store an action under its key in the portfolio's history, replacing any action with the same key
+     */
+    void put(String portfolioId, ActionTimeKey key, BaseAction action);
+
+    /**
+     * Store several actions of one portfolio at once, each under its own key
+     */
+    default void putAll(String portfolioId, Collection<BaseAction> actions) {
+        for (BaseAction action : actions) {
+            put(portfolioId, ActionTimeKey.of(action), action);
+        }
+    }
+
+    void remove(String portfolioId, ActionTimeKey key);
+
+    /**
+     * @return The action stored under the key, or null
+     */
+    BaseAction get(String portfolioId, ActionTimeKey key);
+
+    /**
+     * Look up several keys of one portfolio at once
+     * @return The action stored under each key, in the order of the keys; null where there is none
+     */
+    default List<BaseAction> getAll(String portfolioId, List<ActionTimeKey> keys) {
+        List<BaseAction> actions = new ArrayList<>(keys.size());
+        for (ActionTimeKey key : keys) {
+            actions.add(get(portfolioId, key));
+        }
+        return actions;
+    }
+
+    /**
+     * Time-ordered view of a portfolio's actions within a key range
+     * @param from Lower bound, or null to start from the first action
+     * @param fromInclusive Whether an action under the lower bound itself is included
+     * @param toInclusive Upper bound, inclusive, or null to run to the last action
+     * @return Live view of the matching actions, ordered by datetime then uuid
+     */
+    Collection<BaseAction> range(String portfolioId, ActionTimeKey from, boolean fromInclusive, ActionTimeKey toInclusive);
+
+    /**
+     * @return Sum of the cash changes of the portfolio's actions dated strictly before the given time
+     */
+    default BigInteger getCashBalanceBefore(String portfolioId, LocalDateTime before) {
+        BigInteger balance = BigInteger.ZERO;
+        for (BaseAction action : range(portfolioId, null, false, ActionTimeKey.lowest(before))) {
+            if (action.getDatetime() != null && action.getDatetime().isBefore(before)) {
+                for (BalanceChange change : action.getBalanceChanges()) {
+                    balance = balance.add(change.getChange_amount());
+                }
+            }
+        }
+        return balance;
+    }
+
+    void clear();
+
+    HistoryCacheStats getStats();
+}
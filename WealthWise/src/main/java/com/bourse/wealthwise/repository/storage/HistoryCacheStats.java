@@ -0,0 +1,35 @@
+package com.bourse.wealthwise.repository.storage;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Counters of the action store's portfolio histories, to size the heap from observed traffic.
+ */
+@Getter
+@ToString
+@Builder
+public class HistoryCacheStats {
+    private final int hotPortfolios;
+    private final int spilledPortfolios;
+    private final long hits;
+    private final long misses;
+    private final long spills;
+    private final long totalLoadNanos;
+
+    /**
+     * @return Share of history reads served from the heap, 1 when nothing was read
+     */
+    public double getHitRate() {
+        long reads = hits + misses;
+        return reads == 0 ? 1.0 : (double) hits / reads;
+    }
+
+    /**
+     * @return Mean time to load a spilled history back from disk
+     */
+    public double getAverageLoadMillis() {
+        return misses == 0 ? 0 : totalLoadNanos / 1e6 / misses;
+    }
+}
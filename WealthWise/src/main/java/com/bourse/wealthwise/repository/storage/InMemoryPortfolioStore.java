@@ -0,0 +1,75 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Heap-resident portfolios. Changes run inside the hash map's per-key compute, which applies the
+ * change once; the skip list mirrors the map in uuid order for range and batch reads.
+ */
+@Component
+@ConditionalOnProperty(name = "wealthwise.portfolios.storage", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPortfolioStore implements PortfolioStore {
+
+    private final Map<String, Portfolio> portfolios = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Portfolio> byUuid = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Portfolio compute(String uuid, UnaryOperator<Portfolio> change) {
+        return portfolios.compute(uuid, (k, current) -> {
+            Portfolio next = change.apply(current);
+            if (next == null) {
+                byUuid.remove(uuid);
+            } else {
+                byUuid.put(uuid, next);
+            }
+            return next;
+        });
+    }
+
+    @Override
+    public Portfolio get(String uuid) {
+        return portfolios.get(uuid);
+    }
+
+    @Override
+    public List<Portfolio> getAll(Collection<String> uuids) {
+        List<Portfolio> found = new ArrayList<>(uuids.size());
+        for (String uuid : new TreeSet<>(uuids)) {
+            Portfolio portfolio = portfolios.get(uuid);
+            if (portfolio != null) {
+                found.add(portfolio);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Portfolio> range(String afterUuid, int limit) {
+        Collection<Portfolio> tail = afterUuid == null ? byUuid.values() : byUuid.tailMap(afterUuid, false).values();
+        List<Portfolio> page = new ArrayList<>(Math.min(Math.max(limit, 0), 1024));
+        for (Portfolio portfolio : tail) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(portfolio);
+        }
+        return page;
+    }
+
+    @Override
+    public List<String> uuids() {
+        return new ArrayList<>(byUuid.keySet());
+    }
+
+    @Override
+    public int size() {
+        return portfolios.size();
+    }
+}
@@ -0,0 +1,65 @@
+package com.bourse.wealthwise.repository.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Heap-resident closes, one skip list per ISIN. Range reads return live views.
+ */
+@Component
+@ConditionalOnProperty(name = "wealthwise.storage", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPriceStore implements PriceStore {
+
+    private final Map<String, ConcurrentSkipListMap<LocalDate, Double>> priceMap = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String isin, LocalDate date, double price) {
+        pricesOf(isin).put(date, price);
+    }
+
+    @Override
+    public void putAll(String isin, SortedMap<LocalDate, Double> prices) {
+        pricesOf(isin).putAll(prices);
+    }
+
+    @Override
+    public Optional<Double> get(String isin, LocalDate date) {
+        Map<LocalDate, Double> prices = priceMap.get(isin);
+        return Optional.ofNullable(prices == null ? null : prices.get(date));
+    }
+
+    @Override
+    public NavigableMap<LocalDate, Double> range(String isin, LocalDate from, LocalDate to) {
+        ConcurrentSkipListMap<LocalDate, Double> prices = priceMap.get(isin);
+        if (prices == null || from.isAfter(to)) {
+            return Collections.emptyNavigableMap();
+        }
+        return Collections.unmodifiableNavigableMap(prices.subMap(from, true, to, true));
+    }
+
+    @Override
+    public NavigableMap<LocalDate, Double> all(String isin) {
+        ConcurrentSkipListMap<LocalDate, Double> prices = priceMap.get(isin);
+        return prices == null ? Collections.emptyNavigableMap() : Collections.unmodifiableNavigableMap(prices);
+    }
+
+    @Override
+    public Optional<Map.Entry<LocalDate, Double>> lowerEntry(String isin, LocalDate date) {
+        ConcurrentSkipListMap<LocalDate, Double> prices = priceMap.get(isin);
+        return Optional.ofNullable(prices == null ? null : prices.lowerEntry(date));
+    }
+
+    @Override
+    public void clear() {
+        priceMap.clear();
+    }
+
+    private ConcurrentSkipListMap<LocalDate, Double> pricesOf(String isin) {
+        return priceMap.computeIfAbsent(isin, k -> new ConcurrentSkipListMap<>());
+    }
+}
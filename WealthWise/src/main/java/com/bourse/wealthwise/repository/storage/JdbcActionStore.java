@@ -0,0 +1,379 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.balance.BalanceChange;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Portfolio histories in an embedded H2 database, so the number of actions is bounded by disk rather than heap.
+ * Each action is one row holding its {@link ActionRecordCodec} record; the primary key
+ * (portfolio_id, action_datetime, uuid) is the index every point and range query seeks on, in the
+ * same order as {@link ActionTimeKey}. The cash change of each action is kept in its own column,
+ * so a balance is summed by the database without decoding a record.
+ * <p>
+ * The codec refers to securities and portfolios by ids of this process, and the repository's indexes
+ * pointing into the table live on the heap, so the table is a store of this process: it is emptied
+ * on startup. Actions without a datetime are stored under the lowest timestamp, where the key order puts them.
+ */
+@Component
+@ConditionalOnProperty(name = "wealthwise.actions.storage", havingValue = "jdbc")
+@Slf4j
+public class JdbcActionStore implements ActionStore, AutoCloseable {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS portfolio_action (
+                portfolio_id VARCHAR(64) NOT NULL,
+                action_datetime TIMESTAMP(9) NOT NULL,
+                uuid VARCHAR(64) NOT NULL,
+                cash_change NUMERIC(64, 0) NOT NULL,
+                record VARBINARY NOT NULL,
+                PRIMARY KEY (portfolio_id, action_datetime, uuid)
+            )""";
+    private static final String MERGE = "MERGE INTO portfolio_action (portfolio_id, action_datetime, uuid, cash_change, record)"
+            + " KEY (portfolio_id, action_datetime, uuid) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM portfolio_action WHERE portfolio_id = ? AND action_datetime = ? AND uuid = ?";
+    private static final String SELECT_ONE = "SELECT record FROM portfolio_action"
+            + " WHERE portfolio_id = ? AND action_datetime = ? AND uuid = ?";
+    private static final String SUM_CASH_BEFORE = "SELECT SUM(cash_change) FROM portfolio_action"
+            + " WHERE portfolio_id = ? AND action_datetime < ?";
+    private static final String COUNT_PORTFOLIOS = "SELECT COUNT(DISTINCT portfolio_id) FROM portfolio_action";
+
+    // Stands in for a missing datetime, which the key order puts before every other
+    private static final LocalDateTime NO_DATETIME = LocalDateTime.MIN;
+
+    private final JdbcConnectionPool pool;
+    private final int batchSize;
+    private final ActionRecordCodec codec = new ActionRecordCodec();
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder totalReadNanos = new LongAdder();
+
+    public JdbcActionStore(@Value("${wealthwise.storage.jdbc.url:jdbc:h2:file:./data/wealthwise}") String url,
+                           @Value("${wealthwise.storage.jdbc.user:sa}") String user,
+                           @Value("${wealthwise.storage.jdbc.password:}") String password,
+                           @Value("${wealthwise.storage.jdbc.batch-size:1000}") int batchSize) {
+        this.pool = JdbcConnectionPool.create(url, user, password);
+        this.batchSize = batchSize;
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE);
+            statement.execute("TRUNCATE TABLE portfolio_action");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not initialise action store at " + url, e);
+        }
+        log.info("Storing actions in {}", url);
+    }
+
+    @Override
+    public void put(String portfolioId, ActionTimeKey key, BaseAction action) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(MERGE)) {
+            bind(statement, portfolioId, key, action);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not store action " + key.getUuid() + " of " + portfolioId, e);
+        }
+    }
+
+    /**
+     * Written with one prepared MERGE, batched, in a single transaction
+     */
+    @Override
+    public void putAll(String portfolioId, Collection<BaseAction> actions) {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(MERGE)) {
+                int pending = 0;
+                for (BaseAction action : actions) {
+                    bind(statement, portfolioId, ActionTimeKey.of(action), action);
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not store actions of " + portfolioId, e);
+        }
+    }
+
+    @Override
+    public void remove(String portfolioId, ActionTimeKey key) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(DELETE)) {
+            bindKey(statement, 1, portfolioId, key);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not remove action " + key.getUuid() + " of " + portfolioId, e);
+        }
+    }
+
+    @Override
+    public BaseAction get(String portfolioId, ActionTimeKey key) {
+        long began = System.nanoTime();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_ONE)) {
+            bindKey(statement, 1, portfolioId, key);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? decode(rows.getBytes(1)) : null;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read action " + key.getUuid() + " of " + portfolioId, e);
+        } finally {
+            countRead(began);
+        }
+    }
+
+    /**
+     * One indexed range read spanning the keys; only the rows under the keys are decoded.
+     * The repository asks for keys out of one time window, so the span holds little else.
+     */
+    @Override
+    public List<BaseAction> getAll(String portfolioId, List<ActionTimeKey> keys) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<ActionTimeKey> wanted = new HashSet<>(keys);
+        ActionTimeKey first = Collections.min(keys);
+        ActionTimeKey last = Collections.max(keys);
+        RangeQuery query = new RangeQuery(portfolioId, first, true, last);
+        Map<ActionTimeKey, BaseAction> found = new HashMap<>();
+        long began = System.nanoTime();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = query.prepare(connection,
+                     "SELECT action_datetime, uuid, record FROM portfolio_action", "");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                ActionTimeKey key = key(rows.getObject(1, LocalDateTime.class), rows.getString(2));
+                if (wanted.contains(key)) {
+                    found.put(key, decode(rows.getBytes(3)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read actions of " + portfolioId, e);
+        } finally {
+            countRead(began);
+        }
+        List<BaseAction> actions = new ArrayList<>(keys.size());
+        for (ActionTimeKey key : keys) {
+            actions.add(found.get(key));
+        }
+        return actions;
+    }
+
+    /**
+     * Each iteration queries the range afresh, so the view sees every change made before it is iterated
+     */
+    @Override
+    public Collection<BaseAction> range(String portfolioId, ActionTimeKey from, boolean fromInclusive, ActionTimeKey toInclusive) {
+        RangeQuery query = new RangeQuery(portfolioId, from, fromInclusive, toInclusive);
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<BaseAction> iterator() {
+                return select(query).iterator();
+            }
+
+            @Override
+            public int size() {
+                return count(query);
+            }
+        };
+    }
+
+    /**
+     * Summed from the cash column by the database
+     */
+    @Override
+    public BigInteger getCashBalanceBefore(String portfolioId, LocalDateTime before) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SUM_CASH_BEFORE)) {
+            statement.setString(1, portfolioId);
+            statement.setObject(2, before);
+            try (ResultSet rows = statement.executeQuery()) {
+                BigDecimal sum = rows.next() ? rows.getBigDecimal(1) : null;
+                return sum == null ? BigInteger.ZERO : sum.toBigIntegerExact();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not sum the cash of " + portfolioId, e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE portfolio_action");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not clear action store", e);
+        }
+    }
+
+    /**
+     * Every history lives in the database, so each read counts as a miss and its query time as load time
+     */
+    @Override
+    public HistoryCacheStats getStats() {
+        int portfolios;
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(COUNT_PORTFOLIOS)) {
+            portfolios = rows.next() ? rows.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not count stored portfolios", e);
+        }
+        return HistoryCacheStats.builder()
+                .spilledPortfolios(portfolios)
+                .misses(reads.sum())
+                .totalLoadNanos(totalReadNanos.sum())
+                .build();
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    /**
+     * Bounds of a range read, as the conditions and parameters that follow the portfolio id.
+     * The bound on the datetime alone is what seeks the index; the uuid only settles ties at the bound.
+     */
+    private static final class RangeQuery {
+        private final String portfolioId;
+        private final StringBuilder where = new StringBuilder(" WHERE portfolio_id = ?");
+        private final List<Object> parameters = new ArrayList<>();
+
+        private RangeQuery(String portfolioId, ActionTimeKey from, boolean fromInclusive, ActionTimeKey toInclusive) {
+            this.portfolioId = portfolioId;
+            if (from != null) {
+                LocalDateTime datetime = datetimeOf(from);
+                if (from.getUuid() == null) {
+                    condition(" AND action_datetime >= ?", datetime);
+                } else {
+                    condition(" AND action_datetime >= ? AND (action_datetime > ? OR uuid " + (fromInclusive ? ">=" : ">") + " ?)",
+                            datetime, datetime, from.getUuid());
+                }
+            }
+            if (toInclusive != null) {
+                LocalDateTime datetime = datetimeOf(toInclusive);
+                if (toInclusive.getUuid() == null) {
+                    condition(" AND action_datetime < ?", datetime);
+                } else {
+                    condition(" AND action_datetime <= ? AND (action_datetime < ? OR uuid <= ?)",
+                            datetime, datetime, toInclusive.getUuid());
+                }
+            }
+        }
+
+        private void condition(String sql, Object... values) {
+            where.append(sql);
+            parameters.addAll(Arrays.asList(values));
+        }
+
+        private PreparedStatement prepare(Connection connection, String select, String orderBy) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(select + where + orderBy);
+            statement.setString(1, portfolioId);
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 2, parameters.get(i));
+            }
+            return statement;
+        }
+    }
+
+    private List<BaseAction> select(RangeQuery query) {
+        long began = System.nanoTime();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = query.prepare(connection,
+                     "SELECT record FROM portfolio_action", " ORDER BY action_datetime, uuid");
+             ResultSet rows = statement.executeQuery()) {
+            List<BaseAction> actions = new ArrayList<>();
+            while (rows.next()) {
+                actions.add(decode(rows.getBytes(1)));
+            }
+            return actions;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read actions of " + query.portfolioId, e);
+        } finally {
+            countRead(began);
+        }
+    }
+
+    private int count(RangeQuery query) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = query.prepare(connection, "SELECT COUNT(*) FROM portfolio_action", "");
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? rows.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not count actions of " + query.portfolioId, e);
+        }
+    }
+
+    private void bind(PreparedStatement statement, String portfolioId, ActionTimeKey key, BaseAction action) throws SQLException {
+        bindKey(statement, 1, portfolioId, key);
+        BigInteger cash = BigInteger.ZERO;
+        if (action.getDatetime() != null) {
+            for (BalanceChange change : action.getBalanceChanges()) {
+                cash = cash.add(change.getChange_amount());
+            }
+        }
+        statement.setBigDecimal(4, new BigDecimal(cash));
+        statement.setBytes(5, encode(action));
+    }
+
+    private static void bindKey(PreparedStatement statement, int index, String portfolioId, ActionTimeKey key) throws SQLException {
+        statement.setString(index, portfolioId);
+        statement.setObject(index + 1, datetimeOf(key));
+        statement.setString(index + 2, key.getUuid());
+    }
+
+    private static LocalDateTime datetimeOf(ActionTimeKey key) {
+        return key.getDatetime() == null ? NO_DATETIME : key.getDatetime();
+    }
+
+    private static ActionTimeKey key(LocalDateTime datetime, String uuid) {
+        return new ActionTimeKey(NO_DATETIME.equals(datetime) ? null : datetime, uuid);
+    }
+
+    private byte[] encode(BaseAction action) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            codec.write(out, action);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode action " + action.getUuid(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private BaseAction decode(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            return codec.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode a stored action", e);
+        }
+    }
+
+    private void countRead(long began) {
+        reads.increment();
+        totalReadNanos.add(System.nanoTime() - began);
+    }
+}
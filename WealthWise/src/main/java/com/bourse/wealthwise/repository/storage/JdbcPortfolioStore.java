@@ -0,0 +1,221 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Portfolios in an embedded H2 database, one row each, keyed and paged by uuid on the primary key index.
+ * A change runs under one of a fixed set of locks picked by the uuid's hash, so changes to one portfolio
+ * are applied one at a time while others proceed. Batch reads look up their uuids on the same index, many to a query.
+ * <p>
+ * The repository's manager, status and version indexes live on the heap, so the table is a store
+ * of this process: it is emptied on startup.
+ */
+@Component
+@ConditionalOnProperty(name = "wealthwise.portfolios.storage", havingValue = "jdbc")
+@Slf4j
+public class JdbcPortfolioStore implements PortfolioStore, AutoCloseable {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS portfolio (
+                uuid VARCHAR(64) NOT NULL PRIMARY KEY,
+                name VARCHAR(255),
+                manager_uuid VARCHAR(64),
+                manager_first_name VARCHAR(255),
+                manager_last_name VARCHAR(255),
+                status VARCHAR(16)
+            )""";
+    private static final String COLUMNS = "uuid, name, manager_uuid, manager_first_name, manager_last_name, status";
+    private static final String MERGE = "MERGE INTO portfolio (" + COLUMNS + ") KEY (uuid) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM portfolio WHERE uuid = ?";
+    private static final String SELECT_ONE = "SELECT " + COLUMNS + " FROM portfolio WHERE uuid = ?";
+    // Batch reads look up this many uuids per query, padding the last query with repeats
+    private static final int IN_LIST_SIZE = 64;
+    private static final String SELECT_UUIDS = "SELECT " + COLUMNS + " FROM portfolio WHERE uuid IN ("
+            + String.join(", ", Collections.nCopies(IN_LIST_SIZE, "?")) + ")";
+    private static final String SELECT_FIRST = "SELECT " + COLUMNS + " FROM portfolio ORDER BY uuid LIMIT ?";
+    private static final String SELECT_AFTER = "SELECT " + COLUMNS + " FROM portfolio WHERE uuid > ? ORDER BY uuid LIMIT ?";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final JdbcConnectionPool pool;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public JdbcPortfolioStore(@Value("${wealthwise.storage.jdbc.url:jdbc:h2:file:./data/wealthwise}") String url,
+                              @Value("${wealthwise.storage.jdbc.user:sa}") String user,
+                              @Value("${wealthwise.storage.jdbc.password:}") String password) {
+        this.pool = JdbcConnectionPool.create(url, user, password);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE);
+            statement.execute("TRUNCATE TABLE portfolio");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not initialise portfolio store at " + url, e);
+        }
+        log.info("Storing portfolios in {}", url);
+    }
+
+    /**
+     * The stored row is read, changed and written back on one connection under the uuid's lock
+     */
+    @Override
+    public Portfolio compute(String uuid, UnaryOperator<Portfolio> change) {
+        ReentrantLock lock = locks[Math.floorMod(uuid.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try (Connection connection = pool.getConnection()) {
+            Portfolio current = selectOne(connection, uuid);
+            Portfolio next = change.apply(current);
+            if (next != null) {
+                try (PreparedStatement statement = connection.prepareStatement(MERGE)) {
+                    bind(statement, next);
+                    statement.executeUpdate();
+                }
+            } else if (current != null) {
+                try (PreparedStatement statement = connection.prepareStatement(DELETE)) {
+                    statement.setString(1, uuid);
+                    statement.executeUpdate();
+                }
+            }
+            return next;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not store portfolio " + uuid, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Portfolio get(String uuid) {
+        try (Connection connection = pool.getConnection()) {
+            return selectOne(connection, uuid);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read portfolio " + uuid, e);
+        }
+    }
+
+    /**
+     * Looked up on the primary key with one prepared IN-list query per {@value #IN_LIST_SIZE} uuids
+     */
+    @Override
+    public List<Portfolio> getAll(Collection<String> uuids) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(uuids));
+        List<Portfolio> found = new ArrayList<>(sorted.size());
+        if (sorted.isEmpty()) {
+            return found;
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_UUIDS)) {
+            for (int from = 0; from < sorted.size(); from += IN_LIST_SIZE) {
+                for (int i = 0; i < IN_LIST_SIZE; i++) {
+                    statement.setString(i + 1, sorted.get(Math.min(from + i, sorted.size() - 1)));
+                }
+                found.addAll(query(statement));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read " + sorted.size() + " portfolios", e);
+        }
+        found.sort(Comparator.comparing(Portfolio::getUuid));
+        return found;
+    }
+
+    @Override
+    public List<Portfolio> range(String afterUuid, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(afterUuid == null ? SELECT_FIRST : SELECT_AFTER)) {
+            int index = 1;
+            if (afterUuid != null) {
+                statement.setString(index++, afterUuid);
+            }
+            statement.setInt(index, limit);
+            return query(statement);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not page portfolios after " + afterUuid, e);
+        }
+    }
+
+    @Override
+    public List<String> uuids() {
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT uuid FROM portfolio ORDER BY uuid")) {
+            List<String> uuids = new ArrayList<>();
+            while (rows.next()) {
+                uuids.add(rows.getString(1));
+            }
+            return uuids;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not list portfolios", e);
+        }
+    }
+
+    @Override
+    public int size() {
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM portfolio")) {
+            return rows.next() ? rows.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not count portfolios", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    private static Portfolio selectOne(Connection connection, String uuid) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ONE)) {
+            statement.setString(1, uuid);
+            List<Portfolio> found = query(statement);
+            return found.isEmpty() ? null : found.get(0);
+        }
+    }
+
+    private static List<Portfolio> query(PreparedStatement statement) throws SQLException {
+        List<Portfolio> portfolios = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                portfolios.add(read(rows));
+            }
+        }
+        return portfolios;
+    }
+
+    private static Portfolio read(ResultSet rows) throws SQLException {
+        String managerUuid = rows.getString(3);
+        String firstName = rows.getString(4);
+        String lastName = rows.getString(5);
+        User manager = managerUuid == null && firstName == null && lastName == null ? null
+                : User.builder().uuid(managerUuid).firstName(firstName).lastName(lastName).build();
+        String status = rows.getString(6);
+        return new Portfolio(rows.getString(1), manager, rows.getString(2),
+                status == null ? null : PortfolioStatus.valueOf(status));
+    }
+
+    private static void bind(PreparedStatement statement, Portfolio portfolio) throws SQLException {
+        User manager = portfolio.getPortfolioManager();
+        statement.setString(1, portfolio.getUuid());
+        statement.setString(2, portfolio.getName());
+        statement.setString(3, manager == null ? null : manager.getUuid());
+        statement.setString(4, manager == null ? null : manager.getFirstName());
+        statement.setString(5, manager == null ? null : manager.getLastName());
+        statement.setString(6, portfolio.getStatus() == null ? null : portfolio.getStatus().name());
+    }
+}
@@ -0,0 +1,165 @@
+package com.bourse.wealthwise.repository.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Closes in an embedded H2 database, so price history is bounded by disk rather than heap.
+ * The primary key (isin, price_date) is the index every point and range query seeks on.
+ * Batches are written with one prepared MERGE in a single transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "wealthwise.storage", havingValue = "jdbc")
+@Slf4j
+public class JdbcPriceStore implements PriceStore, AutoCloseable {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS security_price (
+                isin VARCHAR(32) NOT NULL,
+                price_date DATE NOT NULL,
+                price DOUBLE PRECISION NOT NULL,
+                PRIMARY KEY (isin, price_date)
+            )""";
+    private static final String MERGE = "MERGE INTO security_price (isin, price_date, price) KEY (isin, price_date) VALUES (?, ?, ?)";
+    private static final String SELECT_ONE = "SELECT price FROM security_price WHERE isin = ? AND price_date = ?";
+    private static final String SELECT_RANGE = "SELECT price_date, price FROM security_price"
+            + " WHERE isin = ? AND price_date BETWEEN ? AND ? ORDER BY price_date";
+    private static final String SELECT_ALL = "SELECT price_date, price FROM security_price WHERE isin = ? ORDER BY price_date";
+    private static final String SELECT_LOWER = "SELECT price_date, price FROM security_price"
+            + " WHERE isin = ? AND price_date < ? ORDER BY price_date DESC LIMIT 1";
+
+    private final JdbcConnectionPool pool;
+    private final int batchSize;
+
+    public JdbcPriceStore(@Value("${wealthwise.storage.jdbc.url:jdbc:h2:file:./data/wealthwise}") String url,
+                          @Value("${wealthwise.storage.jdbc.user:sa}") String user,
+                          @Value("${wealthwise.storage.jdbc.password:}") String password,
+                          @Value("${wealthwise.storage.jdbc.batch-size:1000}") int batchSize) {
+        this.pool = JdbcConnectionPool.create(url, user, password);
+        this.batchSize = batchSize;
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not initialise price store at " + url, e);
+        }
+        log.info("Storing prices in {}", url);
+    }
+
+    @Override
+    public void put(String isin, LocalDate date, double price) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(MERGE)) {
+            bind(statement, isin, date, price);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not store price of " + isin, e);
+        }
+    }
+
+    @Override
+    public void putAll(String isin, SortedMap<LocalDate, Double> prices) {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(MERGE)) {
+                int pending = 0;
+                for (Map.Entry<LocalDate, Double> entry : prices.entrySet()) {
+                    bind(statement, isin, entry.getKey(), entry.getValue());
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not store prices of " + isin, e);
+        }
+    }
+
+    @Override
+    public Optional<Double> get(String isin, LocalDate date) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_ONE)) {
+            statement.setString(1, isin);
+            statement.setObject(2, date);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? Optional.of(rows.getDouble(1)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read price of " + isin, e);
+        }
+    }
+
+    @Override
+    public NavigableMap<LocalDate, Double> range(String isin, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return Collections.emptyNavigableMap();
+        }
+        return query(SELECT_RANGE, isin, from, to);
+    }
+
+    @Override
+    public NavigableMap<LocalDate, Double> all(String isin) {
+        return query(SELECT_ALL, isin);
+    }
+
+    @Override
+    public Optional<Map.Entry<LocalDate, Double>> lowerEntry(String isin, LocalDate date) {
+        return Optional.ofNullable(query(SELECT_LOWER, isin, date).firstEntry());
+    }
+
+    @Override
+    public void clear() {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE security_price");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not clear price store", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    private NavigableMap<LocalDate, Double> query(String sql, String isin, LocalDate... dates) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, isin);
+            for (int i = 0; i < dates.length; i++) {
+                statement.setObject(i + 2, dates[i]);
+            }
+            NavigableMap<LocalDate, Double> prices = new TreeMap<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    prices.put(rows.getObject(1, LocalDate.class), rows.getDouble(2));
+                }
+            }
+            return prices;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read prices of " + isin, e);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, String isin, LocalDate date, double price) throws SQLException {
+        statement.setString(1, isin);
+        statement.setObject(2, date);
+        statement.setDouble(3, price);
+    }
+}
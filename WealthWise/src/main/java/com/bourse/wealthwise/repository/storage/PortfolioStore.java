@@ -0,0 +1,49 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage of portfolios behind {@link com.bourse.wealthwise.repository.PortfolioRepository}, keyed by uuid.
+ * The repository keeps its own manager and status indexes and updates them from within {@link #compute},
+ * so changes to one portfolio reach the store and the indexes one at a time.
+ * Portfolios stay on the heap unless {@code wealthwise.portfolios.storage=jdbc} puts them in an embedded database.
+ */
+public interface PortfolioStore {
+
+    /**
+     * Replace the portfolio stored under a uuid with the result of the change, atomically for that uuid
+     * @param change Called exactly once with the stored portfolio or null; returns the portfolio to store,
+     *               or null to remove it
+     * @return The portfolio now stored, or null
+     */
+    Portfolio compute(String uuid, UnaryOperator<Portfolio> change);
+
+    /**
+     * @return The portfolio stored under the uuid, or null
+     */
+    Portfolio get(String uuid);
+
+    /**
+     * Look up several portfolios at once
+     * @return The stored portfolios among the given uuids, in uuid order; uuids with none are skipped
+     */
+    List<Portfolio> getAll(Collection<String> uuids);
+
+    /**
+     * Page through the portfolios in uuid order
+     * @param afterUuid Exclusive lower bound, or null to start from the first portfolio
+     * @return Up to limit portfolios following the bound
+     */
+    List<Portfolio> range(String afterUuid, int limit);
+
+    /**
+     * @return Every stored uuid, in uuid order; a snapshot
+     */
+    List<String> uuids();
+
+    int size();
+}
@@ -0,0 +1,40 @@
+package com.bourse.wealthwise.repository.storage;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.SortedMap;
+
+/**
+ * Storage of daily closing prices behind {@link com.bourse.wealthwise.repository.SecurityPriceRepository}.
+ * The backend is chosen with the {@code wealthwise.storage} property: {@code memory} (default) or {@code jdbc}.
+ */
+public interface PriceStore {
+
+    void put(String isin, LocalDate date, double price);
+
+    /**
+     * Store many closes of one security in a single batch, replacing existing closes of the same dates
+     */
+    void putAll(String isin, SortedMap<LocalDate, Double> prices);
+
+    Optional<Double> get(String isin, LocalDate date);
+
+    /**
+     * @return Closes within the closed date range, oldest first
+     */
+    NavigableMap<LocalDate, Double> range(String isin, LocalDate from, LocalDate to);
+
+    /**
+     * @return Every close of the security, oldest first
+     */
+    NavigableMap<LocalDate, Double> all(String isin);
+
+    /**
+     * @return The last close strictly before the given date
+     */
+    Optional<Map.Entry<LocalDate, Double>> lowerEntry(String isin, LocalDate date);
+
+    void clear();
+}
@@ -0,0 +1,314 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Histories of the most recently used portfolios on the heap, the rest in one compact file each.
+ * A history evicted from the heap is written out only if it changed since it was last loaded,
+ * and is read back on its next access. The files are a cache of this process: they are
+ * discarded on startup, like the in-memory indexes pointing into them.
+ * <p>
+ * A read of a history on the heap takes no lock. Loading, changing and spilling a history run
+ * under that portfolio's own lock, so a change can never land in an evicted copy, and a cold
+ * load or a spill only ever holds up the portfolio it reads or writes. Once the heap holds more
+ * histories than its capacity, the least recently used tenth is spilled in one pass.
+ */
+@Component
+@ConditionalOnExpression("'${wealthwise.actions.storage:memory}' == 'memory' and ${wealthwise.actions.hot-portfolios:0} > 0")
+public class SpillingActionStore implements ActionStore {
+
+    private final int capacity;
+    private final Path directory;
+    private final ActionRecordCodec codec;
+
+    // Every portfolio with a history, on the heap or spilled
+    private final ConcurrentHashMap<String, History> histories = new ConcurrentHashMap<>();
+    private final AtomicInteger hotCount = new AtomicInteger();
+    // Only one thread picks histories to spill at a time; the others carry on without waiting
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder spills = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+
+    private static final class History {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Null while spilled; set and cleared under the lock
+        private volatile ConcurrentSkipListMap<ActionTimeKey, BaseAction> actions;
+        private volatile long lastAccessNanos = System.nanoTime();
+        // Changed since it was created or loaded; guarded by the lock
+        private boolean dirty;
+        // Has a file to be loaded back from; guarded by the lock
+        private boolean written;
+
+        private History(ConcurrentSkipListMap<ActionTimeKey, BaseAction> actions) {
+            this.actions = actions;
+        }
+    }
+
+    public SpillingActionStore(@Value("${wealthwise.actions.hot-portfolios}") int capacity,
+                               @Value("${wealthwise.actions.spill-dir:./data/actions}") String directory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Hot portfolio capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.directory = Path.of(directory);
+        this.codec = new ActionRecordCodec();
+        try {
+            Files.createDirectories(this.directory);
+            deleteSpillFiles();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not prepare spill directory " + directory, e);
+        }
+    }
+
+    @Override
+    public void put(String portfolioId, ActionTimeKey key, BaseAction action) {
+        History history = histories.computeIfAbsent(portfolioId, k -> {
+            hotCount.incrementAndGet();
+            return new History(new ConcurrentSkipListMap<>());
+        });
+        history.lock.lock();
+        try {
+            loaded(portfolioId, history).put(key, action);
+            history.dirty = true;
+        } finally {
+            history.lock.unlock();
+        }
+        evictIfFull();
+    }
+
+    @Override
+    public void remove(String portfolioId, ActionTimeKey key) {
+        History history = histories.get(portfolioId);
+        if (history == null) {
+            return;
+        }
+        history.lock.lock();
+        try {
+            if (loaded(portfolioId, history).remove(key) != null) {
+                history.dirty = true;
+            }
+        } finally {
+            history.lock.unlock();
+        }
+        evictIfFull();
+    }
+
+    @Override
+    public BaseAction get(String portfolioId, ActionTimeKey key) {
+        ConcurrentSkipListMap<ActionTimeKey, BaseAction> actions = load(portfolioId);
+        return actions == null ? null : actions.get(key);
+    }
+
+    /**
+     * Loads the history once for all the keys
+     */
+    @Override
+    public List<BaseAction> getAll(String portfolioId, List<ActionTimeKey> keys) {
+        ConcurrentSkipListMap<ActionTimeKey, BaseAction> actions = load(portfolioId);
+        List<BaseAction> found = new ArrayList<>(keys.size());
+        for (ActionTimeKey key : keys) {
+            found.add(actions == null ? null : actions.get(key));
+        }
+        return found;
+    }
+
+    /**
+     * The view reads the history as it was loaded; if the history is evicted meanwhile,
+     * later changes are not seen through it
+     */
+    @Override
+    public Collection<BaseAction> range(String portfolioId, ActionTimeKey from, boolean fromInclusive,
+                                        ActionTimeKey toInclusive) {
+        ConcurrentSkipListMap<ActionTimeKey, BaseAction> actions = load(portfolioId);
+        if (actions == null || from != null && toInclusive != null && from.compareTo(toInclusive) > 0) {
+            return List.of();
+        }
+        ConcurrentNavigableMap<ActionTimeKey, BaseAction> range = actions;
+        if (from != null) {
+            range = range.tailMap(from, fromInclusive);
+        }
+        if (toInclusive != null) {
+            range = range.headMap(toInclusive, true);
+        }
+        return range.values();
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            histories.clear();
+            hotCount.set(0);
+            deleteSpillFiles();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clear spill directory " + directory, e);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public HistoryCacheStats getStats() {
+        int hot = hotCount.get();
+        return HistoryCacheStats.builder()
+                .hotPortfolios(hot)
+                .spilledPortfolios(Math.max(0, histories.size() - hot))
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .spills(spills.sum())
+                .totalLoadNanos(totalLoadNanos.sum())
+                .build();
+    }
+
+    /**
+     * @return The portfolio's history, loaded back from its file if spilled; null if it has none
+     */
+    private ConcurrentSkipListMap<ActionTimeKey, BaseAction> load(String portfolioId) {
+        History history = histories.get(portfolioId);
+        if (history == null) {
+            return null;
+        }
+        ConcurrentSkipListMap<ActionTimeKey, BaseAction> actions = history.actions;
+        if (actions != null) {
+            hits.increment();
+            history.lastAccessNanos = System.nanoTime();
+            return actions;
+        }
+        history.lock.lock();
+        try {
+            actions = loaded(portfolioId, history);
+        } finally {
+            history.lock.unlock();
+        }
+        evictIfFull();
+        return actions;
+    }
+
+    /**
+     * Called under the history's lock
+     * @return The history's actions, read back from its file first if it is spilled
+     */
+    private ConcurrentSkipListMap<ActionTimeKey, BaseAction> loaded(String portfolioId, History history) {
+        history.lastAccessNanos = System.nanoTime();
+        ConcurrentSkipListMap<ActionTimeKey, BaseAction> actions = history.actions;
+        if (actions != null) {
+            hits.increment();
+            return actions;
+        }
+        long start = System.nanoTime();
+        actions = new ConcurrentSkipListMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(fileOf(portfolioId))))) {
+            for (int remaining = in.readInt(); remaining > 0; remaining--) {
+                BaseAction action = codec.read(in);
+                actions.put(ActionTimeKey.of(action), action);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load action history of " + portfolioId, e);
+        }
+        misses.increment();
+        totalLoadNanos.add(System.nanoTime() - start);
+        history.actions = actions;
+        history.dirty = false;
+        hotCount.incrementAndGet();
+        return actions;
+    }
+
+    /**
+     * Spill the least recently used histories once the heap holds more than its capacity.
+     * Each is written under its own lock; no other portfolio waits on the disk.
+     */
+    private void evictIfFull() {
+        if (hotCount.get() <= capacity || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int target = capacity - capacity / 10;
+            List<Map.Entry<String, History>> hot = new ArrayList<>();
+            for (Map.Entry<String, History> entry : histories.entrySet()) {
+                if (entry.getValue().actions != null) {
+                    hot.add(entry);
+                }
+            }
+            hot.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccessNanos));
+            for (Iterator<Map.Entry<String, History>> eldest = hot.iterator(); eldest.hasNext() && hotCount.get() > target; ) {
+                Map.Entry<String, History> entry = eldest.next();
+                spill(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void spill(String portfolioId, History history) {
+        history.lock.lock();
+        try {
+            ConcurrentSkipListMap<ActionTimeKey, BaseAction> actions = history.actions;
+            if (actions == null) {
+                return;
+            }
+            if (history.dirty || !history.written) {
+                write(portfolioId, actions);
+                history.dirty = false;
+                history.written = true;
+            }
+            history.actions = null;
+            hotCount.decrementAndGet();
+            spills.increment();
+        } finally {
+            history.lock.unlock();
+        }
+    }
+
+    private void write(String portfolioId, ConcurrentSkipListMap<ActionTimeKey, BaseAction> history) {
+        Path file = fileOf(portfolioId);
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+            List<BaseAction> actions = new ArrayList<>(history.values());
+            out.writeInt(actions.size());
+            for (BaseAction action : actions) {
+                codec.write(out, action);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill action history of " + portfolioId, e);
+        }
+        try {
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill action history of " + portfolioId, e);
+        }
+    }
+
+    private Path fileOf(String portfolioId) {
+        // Portfolio ids are free text; name files by a digest of the id
+        return directory.resolve(UUID.nameUUIDFromBytes(portfolioId.getBytes(StandardCharsets.UTF_8)) + ".actions");
+    }
+
+    private void deleteSpillFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{actions,tmp}")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.bourse.wealthwise.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Conversion between {@link LocalDateTime} and nanoseconds since the epoch, both taken as UTC.
+ * A long holds about 292 years either side of 1970. Times outside that range saturate to
+ * {@link #MIN} or {@link #MAX} rather than fail, so open-ended bounds such as
+ * {@link LocalDateTime#MAX} stay ordered. Both limits sit one step inside the long range:
+ * {@code MAX + 1} cannot overflow, and {@link Long#MIN_VALUE} stays free as a "no time" marker.
+ */
+public final class EpochNanos {
+
+    public static final long MIN = Long.MIN_VALUE + 1;
+    public static final long MAX = Long.MAX_VALUE - 1;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private EpochNanos() {
+    }
+
+    /**
+     * @return Nanoseconds since the epoch, saturated to {@link #MIN} or {@link #MAX} out of range
+     */
+    public static long of(LocalDateTime dateTime) {
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+        try {
+            long nanos = Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), dateTime.getNano());
+            return Math.min(Math.max(nanos, MIN), MAX);
+        } catch (ArithmeticException e) {
+            return seconds < 0 ? MIN : MAX;
+        }
+    }
+
+    /**
+     * @return Whether a value may stand for a time it does not represent exactly
+     */
+    public static boolean isSaturated(long nanos) {
+        return nanos <= MIN || nanos >= MAX;
+    }
+
+    public static LocalDateTime toDateTime(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,174 @@
+package com.bourse.wealthwise.domain.adjustments;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AdjustedPriceServiceTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Autowired
+    private AdjustedPriceService adjustedPriceService;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private Portfolio portfolio1, portfolio2;
+    private Security stock, rights;
+    private LocalDate exDate;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        securityPriceRepository.clear();
+
+        User user = User.builder().uuid("user1").build();
+        portfolio1 = new Portfolio("adj-port1", user, "Portfolio 1");
+        portfolio2 = new Portfolio("adj-port2", user, "Portfolio 2");
+        stock = Security.builder().name("Adjusted Company").symbol("ADJ").isin("ADJ001")
+                .securityType(SecurityType.STOCK).build();
+        rights = Security.builder().name("Adjusted Company Rights").symbol("HADJ").isin("HADJ001")
+                .securityType(SecurityType.STOCK_RIGHT).build();
+
+        exDate = LocalDate.of(2025, 3, 10);
+        securityPriceRepository.addPrice("ADJ001", exDate.minusDays(2), 280.0);
+        securityPriceRepository.addPrice("ADJ001", exDate.minusDays(1), 300.0);
+        securityPriceRepository.addPrice("ADJ001", exDate, 210.0);
+    }
+
+    @Test
+    void givenCapitalRaiseForSeveralHolders_whenGettingAdjustedPrices_thenIssueAppliedOnce() {
+        // Given: The same 50% rights issue booked in two portfolios, with rights converted at 100 per share
+        actionRepository.save(capitalRaise(portfolio1));
+        actionRepository.save(capitalRaise(portfolio2));
+        actionRepository.save(rightUsage(rights, 10, 1000));
+
+        // When: Getting adjusted closes around the ex-date
+        List<SecurityPrice> adjusted = adjustedPriceService.getAdjustedPrices("ADJ001", exDate.minusDays(2), exDate);
+
+        // Then: Closes before the ex-date are scaled by (300 + 0.5 * 100) / (1.5 * 300)
+        double factor = 350.0 / 450.0;
+        assertEquals(3, adjusted.size());
+        assertEquals(280.0 * factor, adjusted.get(0).getPrice(), EPSILON);
+        assertEquals(300.0 * factor, adjusted.get(1).getPrice(), EPSILON);
+        assertEquals(210.0, adjusted.get(2).getPrice(), EPSILON);
+    }
+
+    @Test
+    void givenRightUsage_whenGettingFactor_thenObservedSubscriptionPriceIsUsed() {
+        // Given: An issue whose subscription price is not known yet
+        actionRepository.save(capitalRaise(portfolio1));
+        assertEquals(1.0, adjustedPriceService.getAdjustmentFactor("ADJ001", exDate.minusDays(1)), EPSILON);
+
+        // When: Rights are converted at 200 per share
+        actionRepository.save(rightUsage(rights, 10, 2000));
+        double factor = adjustedPriceService.getAdjustmentFactor("ADJ001", exDate.minusDays(1));
+
+        // Then: The cached factor was dropped and recomputed with (300 + 0.5 * 200) / (1.5 * 300)
+        assertEquals(400.0 / 450.0, factor, EPSILON);
+    }
+
+    @Test
+    void givenRightUsageDeleted_whenGettingFactor_thenPricesAreUnadjustedAgain() {
+        // Given: The only usage that priced the issue is deleted
+        actionRepository.save(capitalRaise(portfolio1));
+        StockRightUsage usage = rightUsage(rights, 10, 2000);
+        actionRepository.save(usage);
+        assertEquals(400.0 / 450.0, adjustedPriceService.getAdjustmentFactor("ADJ001", exDate.minusDays(1)), EPSILON);
+
+        actionRepository.deleteById(usage.getUuid());
+
+        // When / Then: Without a subscription price the issue no longer adjusts
+        assertEquals(1.0, adjustedPriceService.getAdjustmentFactor("ADJ001", exDate.minusDays(1)), EPSILON);
+    }
+
+    @Test
+    void givenConflictingIssueOfSameRights_whenGettingFactor_thenConflictIsIgnored() {
+        // Given: A second capital raise of the same rights with another ratio
+        actionRepository.save(capitalRaise(portfolio1));
+        CapitalRaise conflicting = capitalRaise(portfolio2).toBuilder().rightPerShare(1.0).build();
+        actionRepository.save(conflicting);
+        actionRepository.save(rightUsage(rights, 10, 1000));
+
+        // When / Then: Only the booked 50% issue counts, and dropping the conflict leaves it intact
+        assertEquals(350.0 / 450.0, adjustedPriceService.getAdjustmentFactor("ADJ001", exDate.minusDays(1)), EPSILON);
+        actionRepository.deleteById(conflicting.getUuid());
+        assertEquals(350.0 / 450.0, adjustedPriceService.getAdjustmentFactor("ADJ001", exDate.minusDays(1)), EPSILON);
+    }
+
+    @Test
+    void givenTwoIssuesOnOneExDate_whenGettingFactor_thenTheyAreCombined() {
+        // Given: A 50% issue at 100 and a 25% issue of other rights at 200 on the same day
+        Security otherRights = Security.builder().name("Adjusted Company Rights 2").symbol("HADJ2").isin("HADJ002")
+                .securityType(SecurityType.STOCK_RIGHT).build();
+        actionRepository.save(capitalRaise(portfolio1));
+        actionRepository.save(capitalRaise(portfolio1).toBuilder().rightSecurity(otherRights).rightPerShare(0.25).build());
+        actionRepository.save(rightUsage(rights, 10, 1000));
+        actionRepository.save(rightUsage(otherRights, 10, 2000));
+
+        // When
+        double factor = adjustedPriceService.getAdjustmentFactor("ADJ001", exDate.minusDays(1));
+
+        // Then: (300 + 0.5 * 100 + 0.25 * 200) / ((1 + 0.75) * 300)
+        assertEquals(400.0 / 525.0, factor, EPSILON);
+    }
+
+    @Test
+    void givenAllCapitalRaiseActionsDeleted_whenGettingAdjustedPrice_thenRawPriceReturned() {
+        // Given: An issue whose only action is deleted
+        CapitalRaise capitalRaise = capitalRaise(portfolio1);
+        actionRepository.save(capitalRaise);
+        actionRepository.save(rightUsage(rights, 10, 1000));
+        assertNotEquals(300.0, adjustedPriceService.getAdjustedPrice("ADJ001", exDate.minusDays(1)).orElseThrow());
+
+        actionRepository.deleteById(capitalRaise.getUuid());
+
+        // When / Then: Prices are unadjusted again
+        assertEquals(300.0, adjustedPriceService.getAdjustedPrice("ADJ001", exDate.minusDays(1)).orElseThrow(), EPSILON);
+    }
+
+    private StockRightUsage rightUsage(Security rightSecurity, long volume, long cost) {
+        return StockRightUsage.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio1)
+                .datetime(exDate.plusDays(5).atTime(10, 0))
+                .rightSecurity(rightSecurity)
+                .mainSecurity(stock)
+                .volumeToConvert(BigInteger.valueOf(volume))
+                .conversionCost(BigInteger.valueOf(cost))
+                .actionType(ActionType.STOCK_RIGHT_USAGE)
+                .build();
+    }
+
+    private CapitalRaise capitalRaise(Portfolio portfolio) {
+        return CapitalRaise.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(exDate.atTime(8, 30))
+                .originalSecurity(stock)
+                .rightSecurity(rights)
+                .rightVolume(BigInteger.valueOf(50))
+                .rightPerShare(0.5)
+                .actionType(ActionType.CAPITAL_RAISE)
+                .build();
+    }
+}
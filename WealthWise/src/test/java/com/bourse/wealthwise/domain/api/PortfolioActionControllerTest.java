@@ -0,0 +1,192 @@
+package com.bourse.wealthwise.domain.api;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.services.PortfolioQueryService;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PortfolioActionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private PortfolioQueryService portfolioQueryService;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private LocalDateTime buyTime;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+
+        Portfolio portfolio = new Portfolio("api-portfolio", User.builder().uuid("user1").build(), "API Portfolio");
+        portfolioRepository.save(portfolio);
+        Security security = Security.builder().name("Test Company").symbol("TEST").isin("TEST001")
+                .securityType(SecurityType.STOCK).build();
+        buyTime = LocalDateTime.now().minusDays(1);
+
+        actionRepository.save(Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(buyTime.minusHours(1))
+                .amount(BigInteger.valueOf(5000))
+                .actionType(ActionType.DEPOSIT)
+                .build());
+        actionRepository.save(Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(buyTime)
+                .security(security)
+                .volume(BigInteger.valueOf(100))
+                .price(10)
+                .totalValue(BigInteger.valueOf(1000))
+                .actionType(ActionType.BUY)
+                .build());
+    }
+
+    @Test
+    void givenPortfolioWithActions_whenGettingBalance_thenCashIsReturned() throws Exception {
+        mockMvc.perform(get("/api/portfolios/api-portfolio/balance"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(4000));
+    }
+
+    @Test
+    void givenPortfolioWithActions_whenGettingHoldings_thenHoldingsAreStreamed() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/portfolios/api-portfolio/holdings"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].isin").value("TEST001"))
+                .andExpect(jsonPath("$[0].volume").value(100));
+    }
+
+    @Test
+    void givenPortfolioWithActions_whenGettingHistoryWindow_thenOnlyWindowIsStreamed() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/portfolios/api-portfolio/actions")
+                        .param("from", buyTime.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].type").value("BUY"))
+                .andExpect(jsonPath("$[0].version").value(1));
+    }
+
+    @Test
+    void givenUnchangedPortfolio_whenPollingWithETag_thenNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/portfolios/api-portfolio/balance"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        long hitsBefore = portfolioQueryService.getCacheHits();
+
+        mockMvc.perform(get("/api/portfolios/api-portfolio/balance").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        assertEquals(hitsBefore + 1, portfolioQueryService.getCacheHits());
+    }
+
+    @Test
+    void givenNewAction_whenPollingWithOldETag_thenFreshBalanceReturned() throws Exception {
+        String etag = mockMvc.perform(get("/api/portfolios/api-portfolio/balance"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        actionRepository.save(Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolioRepository.findById("api-portfolio").orElseThrow())
+                .datetime(LocalDateTime.now().minusMinutes(1))
+                .amount(BigInteger.valueOf(500))
+                .actionType(ActionType.DEPOSIT)
+                .build());
+
+        mockMvc.perform(get("/api/portfolios/api-portfolio/balance").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.balance").value(4500));
+    }
+
+    @Test
+    void givenHoldingsETag_whenPollingUnchangedHoldings_thenNotModified() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/portfolios/api-portfolio/holdings"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/portfolios/api-portfolio/holdings").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void givenUnknownPortfolio_whenGettingActions_thenNotFound() throws Exception {
+        mockMvc.perform(get("/api/portfolios/missing/actions"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void givenUnknownPortfolio_whenGettingHoldings_thenNotFoundBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/api/portfolios/missing/holdings"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Portfolio not found: missing"));
+    }
+
+    @Test
+    void givenHoldingsETag_whenOnlyOtherSecuritiesTick_thenNotModifiedUntilHeldOneTicks() throws Exception {
+        String etag = mockMvc.perform(get("/api/portfolios/api-portfolio/holdings"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // A tick of a security the portfolio does not hold leaves the stamp alone
+        securityPriceRepository.addTick("OTHER001", LocalDateTime.now(), 55.0);
+        mockMvc.perform(get("/api/portfolios/api-portfolio/holdings").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // A tick of the held security changes its value and so the stamp
+        securityPriceRepository.addTick("TEST001", LocalDateTime.now(), 12.0);
+        mockMvc.perform(get("/api/portfolios/api-portfolio/holdings").header("If-None-Match", etag))
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    void givenCachedBalance_whenPortfolioDeleted_thenNotFound() throws Exception {
+        String etag = mockMvc.perform(get("/api/portfolios/api-portfolio/balance"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        portfolioRepository.deleteById("api-portfolio");
+
+        mockMvc.perform(get("/api/portfolios/api-portfolio/balance").header("If-None-Match", etag))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,146 @@
+package com.bourse.wealthwise.domain.candles;
+
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CandleAggregatorTest {
+
+    @Autowired
+    private CandleAggregator candleAggregator;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private LocalDateTime open;
+
+    @BeforeEach
+    void setUp() {
+        securityPriceRepository.clear();
+        open = LocalDateTime.of(2025, 1, 7, 9, 0); // A Tuesday
+    }
+
+    @Test
+    void givenTicksAcrossMinutes_whenGettingMinuteCandles_thenOneBarPerMinute() {
+        // Given: Ticks in two minutes
+        securityPriceRepository.addTick("ISIN1", open, 100);
+        securityPriceRepository.addTick("ISIN1", open.plusSeconds(20), 104);
+        securityPriceRepository.addTick("ISIN1", open.plusSeconds(40), 98);
+        securityPriceRepository.addTick("ISIN1", open.plusSeconds(70), 101);
+
+        // When: Getting 1m candles
+        List<Candle> candles = candleAggregator.getCandles("ISIN1", CandleResolution.ONE_MINUTE,
+                open, open.plusMinutes(5));
+
+        // Then: The first bar aggregates three ticks, the second one
+        assertEquals(2, candles.size());
+        assertCandle(candles.get(0), open, 100, 104, 98, 98);
+        assertEquals(3, candles.get(0).getCount());
+        assertCandle(candles.get(1), open.plusMinutes(1), 101, 101, 101, 101);
+    }
+
+    @Test
+    void givenLateTick_whenGettingCandles_thenOnlyItsBarIsCorrected() {
+        // Given: Ticks in order, then one arriving late for the first minute
+        securityPriceRepository.addTick("ISIN1", open.plusSeconds(30), 100);
+        securityPriceRepository.addTick("ISIN1", open.plusMinutes(2), 110);
+        securityPriceRepository.addTick("ISIN1", open.plusSeconds(5), 95);
+
+        // When: Getting 1m and 1h candles
+        List<Candle> minutes = candleAggregator.getCandles("ISIN1", CandleResolution.ONE_MINUTE,
+                open, open.plusMinutes(5));
+        List<Candle> hours = candleAggregator.getCandles("ISIN1", CandleResolution.ONE_HOUR,
+                open, open.plusHours(1));
+
+        // Then: The late tick becomes the open of its minute; the later minute is untouched
+        assertCandle(minutes.get(0), open, 95, 100, 95, 100);
+        assertCandle(minutes.get(1), open.plusMinutes(2), 110, 110, 110, 110);
+        assertCandle(hours.get(0), open, 95, 110, 95, 110);
+    }
+
+    @Test
+    void givenBarInsertedBeforeExistingOnes_whenGettingCandles_thenBarsStayOrdered() {
+        // Given: A later bar first, then an earlier one
+        securityPriceRepository.addTick("ISIN1", open.plusMinutes(10), 120);
+        securityPriceRepository.addTick("ISIN1", open, 100);
+
+        // When: Getting 1m candles
+        List<Candle> candles = candleAggregator.getCandles("ISIN1", CandleResolution.ONE_MINUTE,
+                open, open.plusHours(1));
+
+        // Then: Both bars are returned oldest first
+        assertEquals(List.of(open, open.plusMinutes(10)), candles.stream().map(Candle::getStart).toList());
+    }
+
+    @Test
+    void givenDailyCloses_whenGettingWeeklyCandles_thenWeekStartsOnMonday() {
+        // Given: Closes on Tuesday, Wednesday and the next Monday
+        LocalDate tuesday = open.toLocalDate();
+        securityPriceRepository.addPrice("ISIN1", tuesday, 50);
+        securityPriceRepository.addPrice("ISIN1", tuesday.plusDays(1), 55);
+        securityPriceRepository.addPrice("ISIN1", tuesday.plusDays(6), 60);
+
+        // When: Getting 1w candles
+        List<Candle> weeks = candleAggregator.getCandles("ISIN1", CandleResolution.ONE_WEEK,
+                tuesday.atStartOfDay(), tuesday.plusDays(7).atStartOfDay());
+
+        // Then: Two weekly bars
+        assertEquals(2, weeks.size());
+        assertCandle(weeks.get(0), tuesday.minusDays(1).atStartOfDay(), 50, 55, 50, 55);
+        assertCandle(weeks.get(1), tuesday.plusDays(6).atStartOfDay(), 60, 60, 60, 60);
+    }
+
+    @Test
+    void givenDailyClose_whenGettingIntradayCandles_thenNoBarIsMadeUp() {
+        // Given: A tick in the morning and the day's close
+        securityPriceRepository.addTick("ISIN1", open, 100);
+        securityPriceRepository.addPrice("ISIN1", open.toLocalDate(), 105);
+
+        // When: Getting candles of every resolution over the day
+        LocalDateTime endOfDay = open.toLocalDate().plusDays(1).atStartOfDay();
+        List<Candle> minutes = candleAggregator.getCandles("ISIN1", CandleResolution.ONE_MINUTE, open, endOfDay);
+        List<Candle> hours = candleAggregator.getCandles("ISIN1", CandleResolution.ONE_HOUR, open, endOfDay);
+        List<Candle> days = candleAggregator.getCandles("ISIN1", CandleResolution.ONE_DAY, open, endOfDay);
+
+        // Then: Only the tick's minute and hour exist, and the close ends the daily bar
+        assertEquals(List.of(open), minutes.stream().map(Candle::getStart).toList());
+        assertEquals(List.of(open), hours.stream().map(Candle::getStart).toList());
+        assertCandle(days.get(0), open.toLocalDate().atStartOfDay(), 100, 105, 100, 105);
+    }
+
+    @Test
+    void givenMoreBarsThanRetained_whenAddingPoints_thenOldestAreDropped() {
+        // Given: A minute series keeping three bars, fed five minutes
+        CandleSeries series = new CandleSeries(CandleResolution.ONE_MINUTE, 3);
+        for (int minute = 0; minute < 5; minute++) {
+            series.add(open.plusMinutes(minute), 100 + minute);
+        }
+
+        // When: A point arrives for a minute older than every kept bar, and one for a kept minute
+        series.add(open, 90);
+        series.add(open.plusMinutes(2).plusSeconds(30), 90);
+
+        // Then: Only the three newest minutes are kept, and the kept one took its late point
+        List<Candle> candles = series.between(open, open.plusHours(1));
+        assertEquals(3, series.size());
+        assertEquals(List.of(open.plusMinutes(2), open.plusMinutes(3), open.plusMinutes(4)),
+                candles.stream().map(Candle::getStart).toList());
+        assertCandle(candles.get(0), open.plusMinutes(2), 102, 102, 90, 90);
+    }
+
+    private static void assertCandle(Candle candle, LocalDateTime start, double open, double high, double low, double close) {
+        assertEquals(start, candle.getStart());
+        assertEquals(open, candle.getOpen());
+        assertEquals(high, candle.getHigh());
+        assertEquals(low, candle.getLow());
+        assertEquals(close, candle.getClose());
+    }
+}
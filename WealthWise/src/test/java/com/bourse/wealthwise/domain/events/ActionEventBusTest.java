@@ -0,0 +1,143 @@
+package com.bourse.wealthwise.domain.events;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionEventBusTest {
+
+    private ActionEventBus bus;
+    private Portfolio portfolio;
+
+    @BeforeEach
+    void setUp() {
+        bus = new ActionEventBus(8);
+        portfolio = new Portfolio("portfolio-1", User.builder().uuid("user1").build(), "Portfolio");
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.shutdown();
+    }
+
+    @Test
+    void givenTwoConsumers_whenPublishing_thenBothReceiveAllEventsInOrder() {
+        // Given: Two consumers recording sequences
+        List<Long> first = new CopyOnWriteArrayList<>();
+        List<Long> second = new CopyOnWriteArrayList<>();
+        bus.subscribe("first", (event, endOfBatch) -> first.add(event.getSequence()));
+        bus.subscribe("second", (event, endOfBatch) -> second.add(event.getSequence()));
+
+        // When: More events than the ring size are published
+        for (int i = 0; i < 20; i++) {
+            bus.publish(ActionEventType.SAVED, deposit());
+        }
+
+        // Then: Both consumers catch up and saw every sequence in order
+        assertTrue(bus.awaitCaughtUp("first", Duration.ofSeconds(5)));
+        assertTrue(bus.awaitCaughtUp("second", Duration.ofSeconds(5)));
+        assertEquals(20, first.size());
+        assertEquals(first, second);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, first.get(i));
+        }
+        assertEquals(0, bus.getLag("first"));
+        assertEquals(0, bus.getLag("second"));
+    }
+
+    @Test
+    void givenBlockedConsumer_whenRingIsFull_thenProducerWaitsAndLagIsReported() throws Exception {
+        // Given: A consumer blocked on its first event
+        CountDownLatch release = new CountDownLatch(1);
+        bus.subscribe("slow", (event, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // When: A producer publishes more than the ring can hold
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 12; i++) {
+                bus.publish(ActionEventType.SAVED, deposit());
+            }
+        });
+        producer.start();
+
+        // Then: The producer is held back by the slow consumer
+        producer.join(300);
+        assertTrue(producer.isAlive());
+        assertTrue(bus.getLag("slow") > 0);
+        assertFalse(bus.awaitCaughtUp("slow", Duration.ofMillis(50)));
+
+        // When: The consumer is released
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Then: Everything is delivered
+        assertFalse(producer.isAlive());
+        assertTrue(bus.awaitCaughtUp("slow", Duration.ofSeconds(5)));
+        assertEquals(0, bus.getConsumerLags().get("slow"));
+    }
+
+    @Test
+    void givenFailingConsumer_whenPublishing_thenItIsStoppedAndReportedWithoutBlockingOthers() {
+        // Given: A consumer that throws on its third event, and a healthy one
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        bus.subscribe("failing", (event, endOfBatch) -> {
+            if (event.getSequence() == 2) {
+                throw new IllegalStateException("boom");
+            }
+            seen.add(event.getSequence());
+        });
+        bus.subscribe("healthy", (event, endOfBatch) -> { });
+
+        // When: More events than the ring size are published
+        for (int i = 0; i < 20; i++) {
+            bus.publish(ActionEventType.SAVED, deposit());
+        }
+
+        // Then: The failing consumer stopped before the failing event and is reported
+        assertTrue(bus.awaitCaughtUp("healthy", Duration.ofSeconds(5)));
+        assertFalse(bus.awaitCaughtUp("failing", Duration.ofSeconds(5)));
+        assertEquals(List.of(0L, 1L), seen);
+        assertFalse(bus.isHealthy("failing"));
+        assertTrue(bus.isHealthy("healthy"));
+        assertEquals(18, bus.getLag("failing"));
+        assertInstanceOf(IllegalStateException.class, bus.getFailedConsumers().get("failing"));
+    }
+
+    @Test
+    void givenDuplicateConsumerName_whenSubscribing_thenExceptionThrown() {
+        bus.subscribe("dup", (event, endOfBatch) -> { });
+
+        assertThrows(IllegalArgumentException.class,
+                () -> bus.subscribe("dup", (event, endOfBatch) -> { }));
+    }
+
+    private Deposit deposit() {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now())
+                .amount(BigInteger.TEN)
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.bourse.wealthwise.domain.exposure;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.services.ActionAmendmentService;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class MarketExposureProjectionTest {
+
+    @Autowired
+    private MarketExposureProjection marketExposureProjection;
+    @Autowired
+    private ActionAmendmentService actionAmendmentService;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private Security apple;
+    private Portfolio first, second;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        securityPriceRepository.clear();
+
+        apple = Security.builder().name("Apple Inc").symbol("AAPL").isin("US0378331005")
+                .securityType(SecurityType.STOCK).build();
+        securityPriceRepository.addPrice("US0378331005", LocalDate.now(), 150.0);
+        first = portfolioRepository.save(new Portfolio("exposure-1", User.builder().uuid("user1").build(), "First"));
+        second = portfolioRepository.save(new Portfolio("exposure-2", User.builder().uuid("user1").build(), "Second"));
+    }
+
+    @Test
+    void givenTradesInSeveralPortfolios_whenReadingExposure_thenVolumesAreSummed() {
+        // Given: Two portfolios buy and one sells part of its position
+        actionRepository.save(buy(first, 100));
+        actionRepository.save(buy(second, 60));
+        actionRepository.save(sale(second, 10));
+        marketExposureProjection.awaitCaughtUp();
+
+        // Then: Net volume, value and a capital raise estimate come from the aggregate
+        assertEquals(150, marketExposureProjection.getTotalVolume("US0378331005"));
+        assertEquals(22_500.0, marketExposureProjection.getTotalValue("US0378331005").orElseThrow());
+        assertEquals(BigInteger.valueOf(75), marketExposureProjection.estimateRightVolume("US0378331005", 0.5));
+    }
+
+    @Test
+    void givenAmendedAndDeletedActions_whenReadingExposure_thenDeltasAreReverted() {
+        // Given: A buy is amended from 100 to 40 shares, and another buy is deleted
+        Buy original = buy(first, 100);
+        actionRepository.save(original);
+        Buy deleted = buy(second, 60);
+        actionRepository.save(deleted);
+        actionAmendmentService.amend(original.getUuid(), Buy.builder()
+                .uuid(original.getUuid())
+                .portfolio(first)
+                .datetime(original.getDatetime())
+                .security(apple)
+                .volume(BigInteger.valueOf(40))
+                .price(100)
+                .totalValue(BigInteger.valueOf(4000))
+                .actionType(ActionType.BUY)
+                .build());
+        actionRepository.deleteById(deleted.getUuid());
+        marketExposureProjection.awaitCaughtUp();
+
+        // Then: Only the amended volume remains
+        assertEquals(40, marketExposureProjection.getTotalVolume("US0378331005"));
+    }
+
+    @Test
+    void givenOversoldPortfolio_whenEstimatingRights_thenOnlyPositivePositionsCount() {
+        // Given: One portfolio holds 101 shares and another has sold 40 it never held
+        actionRepository.save(buy(first, 101));
+        actionRepository.save(sale(second, 40));
+        marketExposureProjection.awaitCaughtUp();
+
+        // Then: The shortfall lowers the net total but not the holdings a raise allocates on
+        assertEquals(61, marketExposureProjection.getTotalVolume("US0378331005"));
+        assertEquals(BigInteger.valueOf(101), marketExposureProjection.getHeldVolume("US0378331005"));
+        assertEquals(BigInteger.valueOf(50), marketExposureProjection.estimateRightVolume("US0378331005", 0.5));
+    }
+
+    @Test
+    void givenUnknownSecurity_whenReadingExposure_thenZero() {
+        assertEquals(0, marketExposureProjection.getTotalVolume("UNKNOWN"));
+        assertTrue(marketExposureProjection.getTotalValue("UNKNOWN").isEmpty());
+        assertEquals(BigInteger.ZERO, marketExposureProjection.estimateRightVolume("UNKNOWN", 1.0));
+    }
+
+    private Buy buy(Portfolio portfolio, long volume) {
+        return Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusHours(1))
+                .security(apple)
+                .volume(BigInteger.valueOf(volume))
+                .price(100)
+                .totalValue(BigInteger.valueOf(volume * 100))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    private Sale sale(Portfolio portfolio, long volume) {
+        return Sale.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusMinutes(30))
+                .security(apple)
+                .volume(BigInteger.valueOf(volume))
+                .price(100)
+                .totalValue(BigInteger.valueOf(volume * 100))
+                .actionType(ActionType.SALE)
+                .build();
+    }
+}
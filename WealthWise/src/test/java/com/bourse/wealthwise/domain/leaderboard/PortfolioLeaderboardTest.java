@@ -0,0 +1,150 @@
+package com.bourse.wealthwise.domain.leaderboard;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "wealthwise.leaderboard.refresh-ms=3600000",
+        "wealthwise.leaderboard.max-staleness-ms=0"
+})
+class PortfolioLeaderboardTest {
+
+    @Autowired
+    private PortfolioLeaderboard leaderboard;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private Security apple, microsoft;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        securityPriceRepository.clear();
+
+        apple = Security.builder().name("Apple Inc").symbol("AAPL").isin("US0378331005")
+                .securityType(SecurityType.STOCK).build();
+        microsoft = Security.builder().name("Microsoft Corp").symbol("MSFT").isin("US5949181045")
+                .securityType(SecurityType.STOCK).build();
+        securityPriceRepository.addPrice("US0378331005", LocalDate.now().minusDays(1), 100.0);
+        securityPriceRepository.addPrice("US5949181045", LocalDate.now().minusDays(1), 100.0);
+
+        // Given: Three portfolios with different holdings and cash
+        Portfolio alpha = portfolio("alpha");
+        Portfolio beta = portfolio("beta");
+        Portfolio gamma = portfolio("gamma");
+        deposit(alpha, 50_000);
+        deposit(beta, 20_000);
+        deposit(gamma, 30_000);
+        buy(alpha, apple, 100);
+        buy(beta, microsoft, 150);
+        buy(gamma, apple, 50);
+    }
+
+    @Test
+    void givenPortfolios_whenReadingTop_thenRankedByMarketValueAndByCash() {
+        // When: Reading both rankings
+        List<LeaderboardEntry> byValue = leaderboard.getTop(Ranking.MARKET_VALUE, 2);
+        List<LeaderboardEntry> byCash = leaderboard.getTop(Ranking.CASH, 3);
+
+        // Then: Market value 15,000 > 10,000 > 5,000 and cash 40,000 > 25,000 > 5,000
+        assertEquals(List.of("beta", "alpha"), byValue.stream().map(LeaderboardEntry::getPortfolioId).toList());
+        assertEquals(15_000, byValue.get(0).getValue(), 1e-9);
+        assertEquals(List.of("alpha", "gamma", "beta"), byCash.stream().map(LeaderboardEntry::getPortfolioId).toList());
+    }
+
+    @Test
+    void givenPriceChange_whenReadingTop_thenHoldersAreRescored() {
+        // Given: Apple triples on an intraday tick
+        leaderboard.getTop(Ranking.MARKET_VALUE, 3);
+        securityPriceRepository.addTick("US0378331005", LocalDateTime.now(), 300.0);
+
+        // When: Reading the ranking
+        List<LeaderboardEntry> byValue = leaderboard.getTop(Ranking.MARKET_VALUE, 3);
+
+        // Then: Apple holders move up
+        assertEquals(List.of("alpha", "beta", "gamma"), byValue.stream().map(LeaderboardEntry::getPortfolioId).toList());
+        assertEquals(30_000, byValue.get(0).getValue(), 1e-9);
+    }
+
+    @Test
+    void givenTicksAroundATrade_whenReadingTop_thenHoldersAreValuedAtVolumeTimesLatestPrice() {
+        // Given: Apple ticks to 300, alpha buys 100 more, then Apple ticks down to 200
+        leaderboard.getTop(Ranking.MARKET_VALUE, 3);
+        securityPriceRepository.addTick("US0378331005", LocalDateTime.now(), 300.0);
+        leaderboard.getTop(Ranking.MARKET_VALUE, 3);
+        buy(portfolioRepository.findById("alpha").orElseThrow(), apple, 100);
+        leaderboard.getTop(Ranking.MARKET_VALUE, 3);
+        securityPriceRepository.addTick("US0378331005", LocalDateTime.now(), 200.0);
+
+        // When: Reading the ranking
+        List<LeaderboardEntry> byValue = leaderboard.getTop(Ranking.MARKET_VALUE, 3);
+
+        // Then: 200 x 200 for alpha, 150 x 100 for beta, 50 x 200 for gamma
+        assertEquals(List.of("alpha", "beta", "gamma"), byValue.stream().map(LeaderboardEntry::getPortfolioId).toList());
+        assertEquals(40_000, byValue.get(0).getValue(), 1e-9);
+        assertEquals(15_000, byValue.get(1).getValue(), 1e-9);
+        assertEquals(10_000, byValue.get(2).getValue(), 1e-9);
+    }
+
+    @Test
+    void givenDeletedActions_whenReadingTop_thenEmptyPortfolioIsDropped() {
+        leaderboard.getTop(Ranking.CASH, 3);
+
+        // Given: Every action of gamma is deleted
+        actionRepository.findAllActionsOf("gamma").forEach(action -> actionRepository.deleteById(action.getUuid()));
+
+        // Then: gamma is no longer ranked
+        assertEquals(List.of("alpha", "beta"),
+                leaderboard.getTop(Ranking.CASH, 3).stream().map(LeaderboardEntry::getPortfolioId).toList());
+    }
+
+    private Portfolio portfolio(String uuid) {
+        return portfolioRepository.save(new Portfolio(uuid, User.builder().uuid("user1").build(), uuid));
+    }
+
+    private void deposit(Portfolio portfolio, long amount) {
+        actionRepository.save(Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusDays(2))
+                .amount(BigInteger.valueOf(amount))
+                .actionType(ActionType.DEPOSIT)
+                .build());
+    }
+
+    private void buy(Portfolio portfolio, Security security, long volume) {
+        actionRepository.save(Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusDays(1))
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price(100)
+                .totalValue(BigInteger.valueOf(volume * 100))
+                .actionType(ActionType.BUY)
+                .build());
+    }
+}
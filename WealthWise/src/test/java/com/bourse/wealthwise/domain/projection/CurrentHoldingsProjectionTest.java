@@ -0,0 +1,172 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.services.BalanceActionService;
+import com.bourse.wealthwise.domain.services.PortfolioSharesService;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CurrentHoldingsProjectionTest {
+
+    @Autowired
+    private CurrentHoldingsProjection projection;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private HoldingsCheckpointProjection checkpoints;
+    @Autowired
+    private PortfolioSharesService portfolioSharesService;
+    @Autowired
+    private BalanceActionService balanceActionService;
+
+    private Portfolio portfolio;
+    private Security security;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+
+        portfolio = new Portfolio("projection-portfolio", User.builder().uuid("user1").build(), "Projection");
+        portfolioRepository.save(portfolio);
+
+        security = Security.builder()
+                .name("Test Company")
+                .symbol("TEST")
+                .isin("TEST001")
+                .securityType(SecurityType.STOCK)
+                .build();
+    }
+
+    @Test
+    void givenSavedActions_whenReadingProjection_thenHoldingsAndCashAreLive() {
+        // Given: A deposit and a buy
+        LocalDateTime now = LocalDateTime.now();
+        actionRepository.save(deposit(now.minusHours(2), 10000));
+        actionRepository.save(buy(now.minusHours(1), 40, 4000));
+
+        // When: The projection has caught up
+        assertTrue(projection.awaitCaughtUp());
+
+        // Then: Volumes and cash reflect both actions
+        assertEquals(BigInteger.valueOf(40), projection.getVolume(portfolio.getUuid(), security));
+        assertEquals(BigInteger.valueOf(6000), projection.getCashBalance(portfolio.getUuid()));
+        assertTrue(projection.isCurrentAt(portfolio.getUuid(), now));
+    }
+
+    @Test
+    void givenDeletedAction_whenReadingProjection_thenItsDeltasAreReverted() {
+        // Given: Two buys, one of them deleted
+        LocalDateTime now = LocalDateTime.now();
+        actionRepository.save(buy(now.minusHours(2), 40, 4000));
+        Buy second = buy(now.minusHours(1), 10, 1000);
+        actionRepository.save(second);
+        actionRepository.deleteById(second.getUuid());
+
+        // When: The projection has caught up
+        assertTrue(projection.awaitCaughtUp());
+
+        // Then: Only the first buy remains
+        assertEquals(BigInteger.valueOf(40), projection.getVolume(portfolio.getUuid(), security));
+        assertEquals(BigInteger.valueOf(-4000), projection.getCashBalance(portfolio.getUuid()));
+    }
+
+    @Test
+    void givenActionDatedAfterQueryTime_whenGettingVolumes_thenHistoryIsReplayed() {
+        // Given: A buy in the past and one dated in the future
+        LocalDateTime now = LocalDateTime.now();
+        actionRepository.save(buy(now.minusHours(1), 40, 4000));
+        actionRepository.save(buy(now.plusHours(1), 10, 1000));
+
+        // When: Querying holdings and balance now
+        Map<Security, BigInteger> volumes = portfolioSharesService.getSecurityVolumes(portfolio.getUuid(), now);
+        BigInteger balance = balanceActionService.getBalanceForPortfolio(portfolio.getUuid(), now);
+
+        // Then: The future action is ignored even though the projection includes it
+        assertFalse(projection.isCurrentAt(portfolio.getUuid(), now));
+        assertEquals(BigInteger.valueOf(40), volumes.get(security));
+        assertEquals(BigInteger.valueOf(-4000), balance);
+    }
+
+    @Test
+    void givenBackdatedBuyBeforeSellOut_whenReadingProjection_thenPositionMatchesReplay() {
+        // Given: 50 bought, 60 sold, which drops the position, then 30 bought again
+        LocalDateTime now = LocalDateTime.now();
+        actionRepository.save(buy(now.minusHours(4), 50, 5000));
+        actionRepository.save(sale(now.minusHours(2), 60, 6000));
+        actionRepository.save(buy(now.minusHours(1), 30, 3000));
+        assertTrue(projection.awaitCaughtUp());
+        assertEquals(BigInteger.valueOf(30), projection.getVolume(portfolio.getUuid(), security));
+
+        // When: A buy of 20 is backdated before the sale, so the sale no longer sells out
+        Buy backdated = buy(now.minusHours(3), 20, 2000);
+        actionRepository.save(backdated);
+        assertTrue(projection.awaitCaughtUp());
+
+        // Then: 10 survive the sale and the later buy adds to them, as a replay has it
+        assertEquals(BigInteger.valueOf(40), projection.getVolume(portfolio.getUuid(), security));
+        assertEquals(BigInteger.valueOf(40), checkpoints.snapshotAt(portfolio.getUuid(), now).getVolumes().get(security));
+
+        // When: The backdated buy is deleted again
+        actionRepository.deleteById(backdated.getUuid());
+        assertTrue(projection.awaitCaughtUp());
+
+        // Then: The sale sells out once more and only the later buy is held
+        assertEquals(BigInteger.valueOf(30), projection.getVolume(portfolio.getUuid(), security));
+        assertEquals(BigInteger.valueOf(30), checkpoints.snapshotAt(portfolio.getUuid(), now).getVolumes().get(security));
+    }
+
+    private Deposit deposit(LocalDateTime dateTime, long amount) {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(dateTime)
+                .amount(BigInteger.valueOf(amount))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    private Buy buy(LocalDateTime dateTime, long volume, long totalValue) {
+        return Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(dateTime)
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price((int) (totalValue / volume))
+                .totalValue(BigInteger.valueOf(totalValue))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    private Sale sale(LocalDateTime dateTime, long volume, long totalValue) {
+        return Sale.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(dateTime)
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price((int) (totalValue / volume))
+                .totalValue(BigInteger.valueOf(totalValue))
+                .actionType(ActionType.SALE)
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.bourse.wealthwise.domain.projection;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "wealthwise.checkpoints.interval=2")
+class HoldingsCheckpointProjectionTest {
+
+    @Autowired
+    private HoldingsCheckpointProjection checkpoints;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    private Portfolio portfolio;
+    private LocalDateTime baseTime;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+
+        portfolio = new Portfolio("checkpoint-portfolio", User.builder().uuid("user1").build(), "Checkpoints");
+        portfolioRepository.save(portfolio);
+
+        // Given: Eight daily deposits of 100 in the past
+        baseTime = LocalDateTime.now().minusDays(10);
+        for (int day = 0; day < 8; day++) {
+            actionRepository.save(deposit(baseTime.plusDays(day), 100));
+        }
+    }
+
+    @Test
+    void givenHistory_whenQueryingPast_thenCheckpointsAreBuiltAndReused() {
+        // When: Querying the state after the last deposit
+        HoldingsSnapshot snapshot = checkpoints.snapshotAt(portfolio.getUuid(), baseTime.plusDays(7));
+
+        // Then: Every second action left a checkpoint and the totals are correct
+        assertEquals(BigInteger.valueOf(800), snapshot.getCash());
+        assertEquals(4, checkpoints.getCheckpointCount(portfolio.getUuid()));
+        assertEquals(BigInteger.valueOf(300),
+                checkpoints.snapshotAt(portfolio.getUuid(), baseTime.plusDays(2)).getCash());
+    }
+
+    @Test
+    void givenBackdatedInsert_whenQueryingPast_thenOnlyLaterCheckpointsAreRebuilt() {
+        // Given: Checkpoints exist for the whole history
+        checkpoints.snapshotAt(portfolio.getUuid(), baseTime.plusDays(7));
+
+        // When: A correction is booked between the fourth and fifth deposit
+        actionRepository.save(deposit(baseTime.plusDays(3).plusHours(12), 1000));
+        // Waits for the checkpoints consumer, so the invalidation has run before counting
+        BigInteger beforeCorrection = checkpoints.snapshotAt(
+                portfolio.getUuid(), baseTime.plusDays(3).plusHours(1)).getCash();
+        int checkpointsAfterInvalidation = checkpoints.getCheckpointCount(portfolio.getUuid());
+        BigInteger afterCorrection = checkpoints.snapshotAt(
+                portfolio.getUuid(), baseTime.plusDays(6).plusHours(1)).getCash();
+
+        // Then: Earlier checkpoints survive, later ones are rebuilt, and later balances include the correction
+        assertEquals(2, checkpointsAfterInvalidation);
+        assertEquals(BigInteger.valueOf(400), beforeCorrection);
+        assertEquals(BigInteger.valueOf(1700), afterCorrection);
+        assertEquals(4, checkpoints.getCheckpointCount(portfolio.getUuid()));
+    }
+
+    private Deposit deposit(LocalDateTime dateTime, long amount) {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(dateTime)
+                .amount(BigInteger.valueOf(amount))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+}
@@ -0,0 +1,193 @@
+package com.bourse.wealthwise.domain.replication;
+
+import com.bourse.wealthwise.WealthWiseApplication;
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.services.CapitalRaiseListenerService;
+import com.bourse.wealthwise.domain.sharding.ShardController;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import com.bourse.wealthwise.repository.replication.MutationLog;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A leader and a follower, each a full application context with its own web server.
+ */
+class ReplicationTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private static ConfigurableApplicationContext leader;
+    private static ConfigurableApplicationContext follower;
+    private static int followerPort;
+
+    private static final Security security = Security.builder().name("Test Company").symbol("TEST").isin("TEST001")
+            .securityType(SecurityType.STOCK).build();
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        int leaderPort = freePort();
+        followerPort = freePort();
+        leader = new SpringApplicationBuilder(WealthWiseApplication.class)
+                .properties("server.port=" + leaderPort)
+                .run();
+        follower = new SpringApplicationBuilder(WealthWiseApplication.class)
+                .properties("server.port=" + followerPort,
+                        "wealthwise.replication.leader-url=http://localhost:" + leaderPort,
+                        "wealthwise.replication.poll-ms=20",
+                        "wealthwise.replication.batch-size=3")
+                .run();
+        for (ConfigurableApplicationContext node : new ConfigurableApplicationContext[]{leader, follower}) {
+            node.getBean(SecurityRepository.class).addSecurity(security);
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        follower.close();
+        leader.close();
+    }
+
+    @Test
+    void givenWritesOnLeader_whenFollowerCatchesUp_thenItHoldsTheSameData() {
+        // Given: A portfolio with a deposit, a buy, an amended buy and a cancelled deposit on the leader
+        Portfolio portfolio = savePortfolio("replicated");
+        ActionRepository actions = leader.getBean(ActionRepository.class);
+        Buy buy = buy(portfolio, UUID.randomUUID().toString(), 100);
+        actions.save(deposit(portfolio, 5000));
+        actions.save(buy);
+        actions.amend(buy(portfolio, buy.getUuid(), 150));
+        BaseAction cancelled = actions.save(deposit(portfolio, 700));
+        actions.cancel(cancelled.getUuid());
+        leader.getBean(PortfolioRepository.class).updateStatus("replicated", PortfolioStatus.INACTIVE);
+
+        // When: The follower reaches the leader's version
+        long version = leader.getBean(MutationLog.class).getVersion();
+        assertTrue(follower.getBean(ReplicationFollower.class).awaitVersion(version, WAIT));
+
+        // Then: It holds the same actions, versions and portfolio state
+        ActionRepository replica = follower.getBean(ActionRepository.class);
+        assertEquals(2, replica.findAllActionsOf("replicated").size());
+        BaseAction replicatedBuy = replica.findById(buy.getUuid()).orElseThrow();
+        assertEquals(BigInteger.valueOf(150), ((Buy) replicatedBuy).getVolume());
+        assertEquals(2, replicatedBuy.getVersion());
+        assertTrue(replica.findById(cancelled.getUuid()).isEmpty());
+        assertEquals(1, replica.findVersionsOf(cancelled.getUuid()).size());
+        assertEquals(PortfolioStatus.INACTIVE,
+                follower.getBean(PortfolioRepository.class).findById("replicated").orElseThrow().getStatus());
+
+        // Then: No lag is reported
+        ReplicationStatus status = follower.getBean(ReplicationFollower.class).getStatus();
+        assertTrue(status.isFollower());
+        assertEquals(0, status.getLag());
+    }
+
+    @Test
+    void givenMinVersion_whenReadingFromFollower_thenAnswerReflectsThatVersion() throws Exception {
+        // Given: A write on the leader and the version it produced
+        Portfolio portfolio = savePortfolio("read-your-writes");
+        leader.getBean(ActionRepository.class).save(deposit(portfolio, 1234));
+        long version = leader.getBean(MutationLog.class).getVersion();
+
+        // When: The balance is read from the follower, at least at that version
+        HttpResponse<String> response = get("/api/portfolios/read-your-writes/balance", version);
+
+        // Then: The write is visible
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"balance\":1234"), response.body());
+        long answered = Long.parseLong(response.headers().firstValue(ReplicaReadFilter.VERSION_HEADER).orElseThrow());
+        assertTrue(answered >= version);
+    }
+
+    @Test
+    void givenVersionNotYetWritten_whenReadingFromFollower_thenUnavailable() throws Exception {
+        // When: A read asks for a version the leader has not reached
+        long future = leader.getBean(MutationLog.class).getVersion() + 1_000_000;
+        HttpResponse<String> response = get("/api/portfolios/anything/balance", future);
+
+        // Then: The follower refuses rather than answering stale
+        assertEquals(503, response.statusCode());
+        assertTrue(response.headers().firstValue("Retry-After").isPresent());
+    }
+
+    @Test
+    void givenFollower_whenWriting_thenEveryWritePathIsOff() throws Exception {
+        // When: A peer asks the follower to allocate a capital raise
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + followerPort
+                                + "/api/shards/capital-raises?symbol=TEST&rightPerShare=0.5"))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Then: It is refused, and the follower has no listener or peer endpoint that could write
+        assertEquals(403, response.statusCode());
+        assertTrue(follower.getBeansOfType(CapitalRaiseListenerService.class).isEmpty());
+        assertTrue(follower.getBeansOfType(ShardController.class).isEmpty());
+        assertFalse(leader.getBeansOfType(CapitalRaiseListenerService.class).isEmpty());
+    }
+
+    private static Portfolio savePortfolio(String uuid) {
+        Portfolio portfolio = new Portfolio(uuid, User.builder().uuid("user1").build(), "Portfolio " + uuid);
+        return leader.getBean(PortfolioRepository.class).save(portfolio);
+    }
+
+    private static Deposit deposit(Portfolio portfolio, long amount) {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusDays(2))
+                .amount(BigInteger.valueOf(amount))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    private static Buy buy(Portfolio portfolio, String uuid, long volume) {
+        return Buy.builder()
+                .uuid(uuid)
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusDays(1))
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price(10)
+                .totalValue(BigInteger.valueOf(volume * 10))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    private static HttpResponse<String> get(String path, long minVersion) throws Exception {
+        return HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + followerPort + path))
+                        .header(ReplicaReadFilter.MIN_VERSION_HEADER, Long.toString(minVersion))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
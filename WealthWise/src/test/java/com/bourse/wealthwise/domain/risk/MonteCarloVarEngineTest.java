@@ -0,0 +1,153 @@
+package com.bourse.wealthwise.domain.risk;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"wealthwise.var.paths=20000"})
+class MonteCarloVarEngineTest {
+
+    // 99% quantile of the standard normal
+    private static final double Z_99 = 2.326;
+
+    @Autowired
+    private MonteCarloVarEngine engine;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    private LocalDate asOf;
+    private Security stock;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        securityPriceRepository.clear();
+
+        // Given: A stock alternating between +1% and -1% daily returns for 200 days
+        asOf = LocalDate.of(2025, 6, 30);
+        stock = Security.builder().name("Var Company").symbol("VAR").isin("VAR001")
+                .securityType(SecurityType.STOCK).build();
+        double price = 100;
+        for (int d = 200; d >= 0; d--) {
+            securityPriceRepository.addPrice("VAR001", asOf.minusDays(d), price);
+            price *= d % 2 == 0 ? 1.01 : 0.99;
+        }
+    }
+
+    @Test
+    void givenSingleStockPortfolio_whenRunning_thenVarMatchesNormalQuantile() {
+        // Given: A portfolio holding 1,000 shares
+        hold("var-portfolio", 1000);
+        double value = 1000 * securityPriceRepository.getPrice("VAR001", asOf).orElseThrow();
+
+        // When: Running the engine
+        ValueAtRisk result = engine.run(List.of("var-portfolio"), asOf).get("var-portfolio");
+
+        // Then: Figures are close to the analytic normal VaR and scale with the square root of time
+        double expectedOneDay = Z_99 * 0.01 * value;
+        assertEquals(value, result.getMarketValue(), 1e-6);
+        assertEquals(expectedOneDay, result.getOneDayVar(), expectedOneDay * 0.06);
+        assertEquals(expectedOneDay * Math.sqrt(10), result.getTenDayVar(), expectedOneDay * Math.sqrt(10) * 0.06);
+        assertTrue(result.getOneDayExpectedShortfall() > result.getOneDayVar());
+        assertTrue(result.getTenDayExpectedShortfall() > result.getTenDayVar());
+    }
+
+    @Test
+    void givenPortfoliosInDifferentChunks_whenRunning_thenTheyShareScenarios() {
+        // Given: Two portfolios of the same stock, one twice the size, valued against the same paths
+        hold("small-portfolio", 100);
+        hold("large-portfolio", 200);
+
+        // When: Running the full book
+        Map<String, ValueAtRisk> results = engine.runFullBook(asOf);
+
+        // Then: Losses are exactly proportional, because both saw the same paths
+        double small = results.get("small-portfolio").getOneDayVar();
+        double large = results.get("large-portfolio").getOneDayVar();
+        assertEquals(2 * small, large, 2 * small * 1e-6);
+        assertTrue(engine.getLatest("large-portfolio").isPresent());
+    }
+
+    @Test
+    void givenParallelBlocks_whenRunningTwice_thenFiguresAreIdentical() {
+        // Given: A portfolio holding 1,000 shares
+        hold("var-portfolio", 1000);
+
+        // When: Running the engine twice, with blocks scheduled however the pool likes
+        ValueAtRisk first = engine.run(List.of("var-portfolio"), asOf).get("var-portfolio");
+        ValueAtRisk second = engine.run(List.of("var-portfolio"), asOf).get("var-portfolio");
+
+        // Then: Every figure matches to the last digit
+        assertEquals(first.getOneDayVar(), second.getOneDayVar());
+        assertEquals(first.getOneDayExpectedShortfall(), second.getOneDayExpectedShortfall());
+        assertEquals(first.getTenDayVar(), second.getTenDayVar());
+        assertEquals(first.getTenDayExpectedShortfall(), second.getTenDayExpectedShortfall());
+    }
+
+    @Test
+    void givenEmptyPortfolio_whenRunning_thenNoRisk() {
+        portfolioRepository.save(new Portfolio("empty-portfolio", User.builder().uuid("user1").build(), "Empty"));
+
+        ValueAtRisk result = engine.run(List.of("empty-portfolio"), asOf).get("empty-portfolio");
+
+        assertEquals(0, result.getOneDayVar());
+        assertEquals(0, result.getTenDayExpectedShortfall());
+    }
+
+    @Test
+    void givenSemiDefiniteCovariance_whenDecomposing_thenFactorReproducesMatrix() {
+        // Given: Two perfectly correlated securities and an independent one
+        double[][] covariance = {{4, 2, 0}, {2, 1, 0}, {0, 0, 9}};
+
+        // When: Decomposing
+        double[] lower = Cholesky.decompose(covariance);
+
+        // Then: L * L' equals the matrix
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                double sum = 0;
+                for (int k = 0; k <= Math.min(i, j); k++) {
+                    sum += lower[i * (i + 1) / 2 + k] * lower[j * (j + 1) / 2 + k];
+                }
+                assertEquals(covariance[i][j], sum, 1e-12);
+            }
+        }
+    }
+
+    private void hold(String portfolioId, long volume) {
+        Portfolio portfolio = portfolioRepository.save(new Portfolio(portfolioId, User.builder().uuid("user1").build(), portfolioId));
+        actionRepository.save(Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(asOf.minusDays(300).atStartOfDay())
+                .security(stock)
+                .volume(BigInteger.valueOf(volume))
+                .price(100)
+                .totalValue(BigInteger.valueOf(volume * 100))
+                .actionType(ActionType.BUY)
+                .build());
+    }
+}
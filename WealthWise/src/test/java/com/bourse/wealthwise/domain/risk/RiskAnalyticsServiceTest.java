@@ -0,0 +1,175 @@
+package com.bourse.wealthwise.domain.risk;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class RiskAnalyticsServiceTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Autowired
+    private RiskAnalyticsService riskAnalyticsService;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    private LocalDate start;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        securityPriceRepository.clear();
+        start = LocalDate.of(2025, 1, 1);
+
+        // Given: An index, a stock moving twice as much, and one moving against it
+        double[] indexReturns = {0.01, -0.02, 0.015, 0.005, -0.01, 0.02};
+        double index = 100, leveraged = 50, inverse = 80;
+        for (int d = 0; d <= indexReturns.length; d++) {
+            securityPriceRepository.addPrice("INDEX", start.plusDays(d), index);
+            securityPriceRepository.addPrice("LEV", start.plusDays(d), leveraged);
+            securityPriceRepository.addPrice("INV", start.plusDays(d), inverse);
+            if (d < indexReturns.length) {
+                index *= 1 + indexReturns[d];
+                leveraged *= 1 + 2 * indexReturns[d];
+                inverse *= 1 - indexReturns[d];
+            }
+        }
+    }
+
+    @Test
+    void givenRandomReturns_whenComputingCovariance_thenMatchesNaiveComputation() {
+        // Given: A random return matrix
+        Random random = new Random(42);
+        int securities = 37, observations = 120;
+        double[][] returns = new double[securities][observations];
+        for (double[] row : returns) {
+            for (int t = 0; t < observations; t++) {
+                row[t] = random.nextGaussian() * 0.02;
+            }
+        }
+        List<String> isins = java.util.stream.IntStream.range(0, securities).mapToObj(i -> "S" + i).toList();
+
+        // When: Computing the covariance in parallel
+        CovarianceMatrix matrix = RiskAnalyticsService.computeCovariance(
+                new ReturnMatrix(isins, new LocalDate[observations], returns));
+
+        // Then: Every entry equals the textbook sample covariance
+        for (int i = 0; i < securities; i++) {
+            for (int j = 0; j < securities; j++) {
+                assertEquals(naiveCovariance(returns[i], returns[j]), matrix.getCovariance("S" + i, "S" + j), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void givenPriceHistories_whenComputingCorrelation_thenLinearRelationsAreFound() {
+        // When: Getting the covariance of the three securities
+        CovarianceMatrix matrix = riskAnalyticsService.getCovariance(List.of("INDEX", "LEV", "INV"), start, start.plusDays(6));
+
+        // Then: Correlations and volatilities follow the construction
+        assertEquals(6, matrix.getObservationCount());
+        assertEquals(1.0, matrix.getCorrelation("INDEX", "LEV"), 1e-6);
+        assertEquals(-1.0, matrix.getCorrelation("INDEX", "INV"), 1e-6);
+        assertEquals(2 * matrix.getDailyVolatility("INDEX"), matrix.getDailyVolatility("LEV"), 1e-9);
+    }
+
+    @Test
+    void givenSecurityListedMidWindow_whenComputingCovariance_thenOthersKeepTheirWholeHistory() {
+        // Given: A stock first closing on day 3, with its own returns from then on
+        double[] closes = {199, 200, 201, 198};
+        for (int d = 0; d < closes.length; d++) {
+            securityPriceRepository.addPrice("NEW", start.plusDays(3 + d), closes[d]);
+        }
+
+        // When: Getting the covariance over the whole window
+        CovarianceMatrix matrix = riskAnalyticsService.getCovariance(List.of("INDEX", "LEV", "NEW"), start, start.plusDays(6));
+
+        // Then: The index keeps all six returns, the new stock has three, and their pair uses the three shared days
+        double[] indexReturns = {0.01, -0.02, 0.015, 0.005, -0.01, 0.02};
+        double[] sharedIndexReturns = {0.005, -0.01, 0.02};
+        double[] newReturns = {200.0 / 199 - 1, 201.0 / 200 - 1, 198.0 / 201 - 1};
+        assertEquals(6, matrix.getObservationCount());
+        assertEquals(6, matrix.getObservationCount("INDEX"));
+        assertEquals(3, matrix.getObservationCount("NEW"));
+        assertEquals(naiveCovariance(indexReturns, indexReturns), matrix.getCovariance("INDEX", "INDEX"), EPSILON);
+        assertEquals(naiveCovariance(newReturns, newReturns), matrix.getCovariance("NEW", "NEW"), EPSILON);
+        assertEquals(naiveCovariance(sharedIndexReturns, newReturns), matrix.getCovariance("INDEX", "NEW"), EPSILON);
+        assertEquals(1.0, matrix.getCorrelation("INDEX", "LEV"), 1e-6);
+    }
+
+    @Test
+    void givenSameSecuritySetAndWindow_whenGettingCovarianceTwice_thenCachedUntilPricesChange() {
+        // Given: A computed matrix
+        CovarianceMatrix first = riskAnalyticsService.getCovariance(List.of("LEV", "INDEX"), start, start.plusDays(6));
+
+        // When / Then: The same set in another order hits the cache
+        assertSame(first, riskAnalyticsService.getCovariance(List.of("INDEX", "LEV"), start, start.plusDays(6)));
+
+        // When / Then: A new close invalidates it
+        securityPriceRepository.addPrice("INDEX", start.plusDays(3), 101.0);
+        assertNotSame(first, riskAnalyticsService.getCovariance(List.of("INDEX", "LEV"), start, start.plusDays(6)));
+    }
+
+    @Test
+    void givenPortfolioHoldingLeveragedStock_whenGettingRisk_thenBetaIsTwo() {
+        // Given: A portfolio holding only the leveraged stock
+        Portfolio portfolio = portfolioRepository.save(new Portfolio("risk-portfolio", User.builder().uuid("user1").build(), "Risk"));
+        Security leveraged = Security.builder().name("Leveraged").symbol("LEV").isin("LEV")
+                .securityType(SecurityType.STOCK).build();
+        actionRepository.save(Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(start.atTime(10, 0))
+                .security(leveraged)
+                .volume(BigInteger.valueOf(10))
+                .price(50)
+                .totalValue(BigInteger.valueOf(500))
+                .actionType(ActionType.BUY)
+                .build());
+
+        // When: Getting the portfolio risk against the index
+        PortfolioRisk risk = riskAnalyticsService.getPortfolioRisk("risk-portfolio", start, start.plusDays(6), "INDEX");
+
+        // Then: The stock carries all the weight and twice the index's beta
+        assertEquals(1.0, risk.getWeights().get("LEV"), EPSILON);
+        assertEquals(2.0, risk.getBeta(), 1e-6);
+        assertTrue(risk.getAnnualizedVolatility() > risk.getDailyVolatility());
+    }
+
+    private static double naiveCovariance(double[] x, double[] y) {
+        double meanX = 0, meanY = 0;
+        for (int t = 0; t < x.length; t++) {
+            meanX += x[t] / x.length;
+            meanY += y[t] / y.length;
+        }
+        double sum = 0;
+        for (int t = 0; t < x.length; t++) {
+            sum += (x[t] - meanX) * (y[t] - meanY);
+        }
+        return sum / (x.length - 1);
+    }
+}
@@ -0,0 +1,198 @@
+package com.bourse.wealthwise.domain.scenario;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.services.BalanceActionService;
+import com.bourse.wealthwise.domain.services.PortfolioSharesService;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ScenarioServiceTest {
+
+    @Autowired
+    private ScenarioService scenarioService;
+    @Autowired
+    private BalanceActionService balanceActionService;
+    @Autowired
+    private PortfolioSharesService portfolioSharesService;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private Portfolio portfolio;
+    private Security apple, microsoft;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        securityPriceRepository.clear();
+
+        // Given: A portfolio with 10,000 cash and 50 Apple shares
+        portfolio = new Portfolio("scenario-portfolio", User.builder().uuid("user1").build(), "Scenario Portfolio");
+        portfolioRepository.save(portfolio);
+        apple = Security.builder().name("Apple Inc").symbol("AAPL").isin("US0378331005")
+                .securityType(SecurityType.STOCK).build();
+        microsoft = Security.builder().name("Microsoft Corp").symbol("MSFT").isin("US5949181045")
+                .securityType(SecurityType.STOCK).build();
+        securityPriceRepository.addPrice("US0378331005", LocalDate.now(), 150.0);
+        securityPriceRepository.addPrice("US5949181045", LocalDate.now(), 300.0);
+
+        now = LocalDateTime.now();
+        actionRepository.save(Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(now.minusDays(2))
+                .amount(BigInteger.valueOf(10000))
+                .actionType(ActionType.DEPOSIT)
+                .build());
+        actionRepository.save(buy(apple, 50, 100, now.minusDays(1)));
+    }
+
+    @Test
+    void givenSellAndBuy_whenQueryingScenario_thenHoldingsAndBalanceReflectThemWithoutTouchingRealState() {
+        // Given: A scenario selling 20 Apple shares and buying 10 Microsoft shares
+        Scenario scenario = scenarioService.create("scenario-portfolio")
+                .apply(sale(apple, 20, 150))
+                .apply(buy(microsoft, 10, 300, now));
+
+        // When: Querying the scenario
+        List<PortfolioSharesService.SecurityHolding> holdings = scenarioService.getHoldings(scenario, now.plusMinutes(1));
+
+        // Then: The hypothetical actions are reflected
+        assertEquals(BigInteger.valueOf(5000 + 3000 - 3000), scenario.getCashBalance());
+        assertEquals(2, holdings.size());
+        assertEquals(BigInteger.valueOf(30), holdings.get(0).getVolume());
+        assertEquals(4500.0, holdings.get(0).getValue());
+        assertEquals(BigInteger.valueOf(10), holdings.get(1).getVolume());
+
+        // Then: The real portfolio is unchanged
+        assertEquals(BigInteger.valueOf(5000), balanceActionService.getBalanceForPortfolio("scenario-portfolio", now.plusMinutes(1)));
+        assertEquals(BigInteger.valueOf(50),
+                portfolioSharesService.getSecurityVolumes("scenario-portfolio", now.plusMinutes(1)).get(apple));
+        assertEquals(2, actionRepository.findAllActionsOf("scenario-portfolio").size());
+    }
+
+    @Test
+    void givenFullSale_whenQueryingScenario_thenSecurityDisappears() {
+        // Given: A scenario selling every Apple share
+        Scenario scenario = scenarioService.create("scenario-portfolio").apply(sale(apple, 50, 150));
+
+        // Then: Apple is no longer held, and another sale would not be covered
+        assertTrue(scenario.getPositionVolumes(now.plusMinutes(1)).isEmpty());
+        assertEquals(BigInteger.ZERO, scenario.getVolume(apple));
+        assertFalse(scenario.canSell(apple, BigInteger.ONE, now.plusMinutes(1)));
+    }
+
+    @Test
+    void givenForkedScenarios_whenApplyingToEach_thenSiblingsStayIndependent() {
+        // Given: A parent scenario and two forks
+        Scenario parent = scenarioService.create("scenario-portfolio").apply(sale(apple, 10, 150));
+        Scenario left = parent.fork().apply(sale(apple, 10, 150));
+        Scenario right = parent.fork().apply(buy(apple, 5, 150, now));
+
+        // Then: Each fork sees the parent's deltas plus only its own
+        assertEquals(BigInteger.valueOf(40), parent.getVolume(apple));
+        assertEquals(BigInteger.valueOf(30), left.getVolume(apple));
+        assertEquals(BigInteger.valueOf(45), right.getVolume(apple));
+        assertEquals(1, left.getActions().size());
+    }
+
+    @Test
+    void givenOversoldParent_whenForkBuysBack_thenForkReadsAsTheWholeChainReplayed() {
+        // Given: A parent scenario selling 80 of the 50 Apple shares, and a fork buying 40 back
+        Scenario parent = scenarioService.create("scenario-portfolio").apply(sale(apple, 80, 150));
+        Scenario child = parent.fork().apply(buy(apple, 40, 150, now));
+
+        // Then: The parent's sale drops the position, so the fork holds just what it bought back
+        assertEquals(BigInteger.ZERO, parent.getVolume(apple));
+        assertTrue(parent.getPositionVolumes(now.plusMinutes(1)).isEmpty());
+        assertEquals(BigInteger.valueOf(40), child.getVolume(apple));
+        assertEquals(BigInteger.valueOf(40), child.getPositionVolumes(now.plusMinutes(1)).get(apple).getTotal());
+        assertFalse(child.canSell(apple, BigInteger.valueOf(41), now.plusMinutes(1)));
+    }
+
+    @Test
+    void givenUndoneAction_whenQueryingScenario_thenBaseStateReturns() {
+        Sale sale = sale(apple, 20, 150);
+        Scenario scenario = scenarioService.create("scenario-portfolio").apply(sale);
+
+        scenario.undo(sale);
+
+        assertEquals(BigInteger.valueOf(50), scenario.getVolume(apple));
+        assertEquals(BigInteger.valueOf(5000), scenario.getCashBalance());
+        assertThrows(IllegalArgumentException.class, () -> scenario.undo(sale));
+    }
+
+    @Test
+    void givenRealActionAfterCreation_whenQueryingScenario_thenItIsVisible() {
+        Scenario scenario = scenarioService.create("scenario-portfolio").apply(sale(apple, 20, 150));
+
+        actionRepository.save(buy(apple, 10, 100, now.minusHours(1)));
+        scenarioService.create("scenario-portfolio"); // waits for the projection
+
+        assertEquals(BigInteger.valueOf(40), scenario.getVolume(apple));
+    }
+
+    @Test
+    void givenActionOfAnotherPortfolio_whenApplying_thenThrows() {
+        Portfolio other = new Portfolio("other-portfolio", User.builder().uuid("user1").build(), "Other");
+        Scenario scenario = scenarioService.create("scenario-portfolio");
+
+        assertThrows(IllegalArgumentException.class, () -> scenario.apply(Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(other)
+                .datetime(now)
+                .amount(BigInteger.TEN)
+                .actionType(ActionType.DEPOSIT)
+                .build()));
+        assertThrows(IllegalArgumentException.class, () -> scenarioService.create("missing-portfolio"));
+    }
+
+    private Buy buy(Security security, long volume, int price, LocalDateTime datetime) {
+        return Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price(price)
+                .totalValue(BigInteger.valueOf(volume * price))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    private Sale sale(Security security, long volume, int price) {
+        return Sale.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(now)
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price(price)
+                .totalValue(BigInteger.valueOf(volume * price))
+                .actionType(ActionType.SALE)
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ActionAmendmentServiceTest {
+
+    @Autowired
+    private ActionAmendmentService amendmentService;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private PortfolioSharesService portfolioSharesService;
+    @Autowired
+    private BalanceActionService balanceActionService;
+    @Autowired
+    private ProfitAndLossService profitAndLossService;
+
+    private Portfolio portfolio;
+    private Security security;
+    private LocalDateTime buyTime;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+
+        portfolio = new Portfolio("amend-portfolio", User.builder().uuid("user1").build(), "Amendments");
+        portfolioRepository.save(portfolio);
+        security = Security.builder().name("Test Company").symbol("TEST").isin("TEST001")
+                .securityType(SecurityType.STOCK).build();
+        buyTime = LocalDateTime.now().minusDays(1);
+    }
+
+    @Test
+    void givenBookedBuy_whenAmendingVolume_thenDerivedStateFollowsNewVersion() {
+        // Given: A buy of 100 shares for 1000
+        String uuid = UUID.randomUUID().toString();
+        actionRepository.save(buy(uuid, 100, 1000));
+
+        // When: The buy is corrected to 80 shares for 800
+        BaseAction correction = buy(uuid, 80, 800);
+        BaseAction amended = amendmentService.amend(uuid, correction);
+
+        // Then: Holdings, balance and cost basis reflect only the new version
+        LocalDateTime now = LocalDateTime.now();
+        Map<Security, BigInteger> volumes = portfolioSharesService.getSecurityVolumes(portfolio.getUuid(), now);
+        List<ProfitAndLossService.HoldingProfitAndLoss> pnl =
+                profitAndLossService.getProfitAndLoss(portfolio.getUuid(), LocalDate.now());
+
+        assertEquals(2, amended.getVersion());
+        assertEquals(1, correction.getVersion());
+        assertEquals(BigInteger.valueOf(80), volumes.get(security));
+        assertEquals(BigInteger.valueOf(-800), balanceActionService.getBalanceForPortfolio(portfolio.getUuid(), now));
+        assertEquals(0, BigDecimal.valueOf(800).compareTo(pnl.get(0).getCostBasis()));
+        assertEquals(1, amendmentService.getHistory(uuid).size());
+        assertEquals(1, amendmentService.getHistory(uuid).get(0).getVersion());
+    }
+
+    @Test
+    void givenBookedBuy_whenCancelling_thenItsDeltasAreReverted() {
+        // Given: Two buys
+        String cancelled = UUID.randomUUID().toString();
+        actionRepository.save(buy(UUID.randomUUID().toString(), 100, 1000));
+        actionRepository.save(buy(cancelled, 50, 500));
+
+        // When: The second one is cancelled
+        amendmentService.cancel(cancelled);
+
+        // Then: Only the first buy remains in every derived view
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(BigInteger.valueOf(100),
+                portfolioSharesService.getSecurityVolumes(portfolio.getUuid(), now).get(security));
+        assertEquals(BigInteger.valueOf(-1000), balanceActionService.getBalanceForPortfolio(portfolio.getUuid(), now));
+        assertTrue(actionRepository.findById(cancelled).isEmpty());
+        assertEquals(1, amendmentService.getHistory(cancelled).size());
+    }
+
+    @Test
+    void givenUnknownAction_whenAmending_thenExceptionThrown() {
+        String uuid = UUID.randomUUID().toString();
+
+        assertThrows(IllegalArgumentException.class, () -> amendmentService.amend(uuid, buy(uuid, 1, 10)));
+    }
+
+    private Buy buy(String uuid, long volume, long totalValue) {
+        return Buy.builder()
+                .uuid(uuid)
+                .portfolio(portfolio)
+                .datetime(buyTime)
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price((int) (totalValue / volume))
+                .totalValue(BigInteger.valueOf(totalValue))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.bourse.wealthwise.domain.services;
 import com.bourse.wealthwise.domain.entity.account.User;
 import com.bourse.wealthwise.domain.entity.action.*;
 import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
 import com.bourse.wealthwise.domain.entity.security.Security;
 import com.bourse.wealthwise.domain.entity.security.SecurityType;
 import com.bourse.wealthwise.repository.ActionRepository;
@@ -156,6 +157,31 @@ class CapitalRaiseListenerAdvancedTest {
         assertEquals(BigInteger.valueOf(6), capitalRaise.getRightVolume());
     }
 
+    @Test
+    void givenBuyBookedAhead_whenProcessing_thenOnlyHoldingsAsOfNowEarnRights() {
+        // Given: Portfolio 1 has 400 more shares booked for next week
+        actionRepository.save(Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio1)
+                .datetime(LocalDateTime.now().plusDays(7))
+                .security(testSecurity)
+                .volume(BigInteger.valueOf(400))
+                .price(10)
+                .totalValue(BigInteger.valueOf(4000))
+                .actionType(ActionType.BUY)
+                .build());
+
+        // When: Capital raise message is processed
+        listener.handleCapitalRaiseAnnouncement("CAPITAL_RAISE TEST 0.5");
+
+        // Then: Rights are allocated on the 1000 shares held today only
+        CapitalRaise capitalRaise = (CapitalRaise) actionRepository.findAllActionsOf("port1").stream()
+                .filter(a -> a instanceof CapitalRaise)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(BigInteger.valueOf(500), capitalRaise.getRightVolume());
+    }
+
     @Test
     void givenInvalidMessageFormat_whenProcessing_thenNoActionsCreated() {
         // Given: Initial action count
@@ -181,4 +207,17 @@ class CapitalRaiseListenerAdvancedTest {
         int finalActionCount = actionRepository.findAllActionsOf("port1").size();
         assertEquals(initialActionCount, finalActionCount);
     }
+
+    @Test
+    void givenInactivePortfolio_whenProcessing_thenItGetsNoRights() {
+        // Given: Portfolio 2 is deactivated
+        portfolioRepository.updateStatus("port2", PortfolioStatus.INACTIVE);
+
+        // When: Capital raise message is processed
+        listener.handleCapitalRaiseAnnouncement("CAPITAL_RAISE TEST 0.5");
+
+        // Then: Only the active holder gets rights
+        assertTrue(actionRepository.findAllActionsOf("port1").stream().anyMatch(a -> a instanceof CapitalRaise));
+        assertTrue(actionRepository.findAllActionsOf("port2").stream().noneMatch(a -> a instanceof CapitalRaise));
+    }
 }
@@ -348,4 +348,100 @@ class PortfolioSharesServiceTest {
         // Then: No holdings are returned as negative positions are excluded
         assertTrue(holdings.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenOversoldPositionBoughtBack_whenGettingShares_thenBuysStartAgainFromZero() {
+        // Given: 100 sold with nothing held, then 60 bought back twice
+        LocalDateTime baseTime = LocalDateTime.now().minusHours(3);
+
+        Sale oversell = Sale.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(baseTime)
+                .security(appleStock)
+                .volume(BigInteger.valueOf(100))
+                .price(150)
+                .totalValue(BigInteger.valueOf(15000))
+                .actionType(ActionType.SALE)
+                .build();
+        actionRepository.save(oversell);
+        for (int hour = 1; hour <= 2; hour++) {
+            actionRepository.save(Buy.builder()
+                    .uuid(UUID.randomUUID().toString())
+                    .portfolio(portfolio)
+                    .datetime(baseTime.plusHours(hour))
+                    .security(appleStock)
+                    .volume(BigInteger.valueOf(60))
+                    .price(150)
+                    .totalValue(BigInteger.valueOf(9000))
+                    .actionType(ActionType.BUY)
+                    .build());
+        }
+
+        // When: Getting shares between the buys (replayed) and now (live)
+        List<PortfolioSharesService.SecurityHolding> afterFirstBuy =
+                portfolioSharesService.getPortfolioSharesAtDateTime("portfolio-123", baseTime.plusMinutes(90));
+        List<PortfolioSharesService.SecurityHolding> afterSecondBuy =
+                portfolioSharesService.getPortfolioSharesAtDateTime("portfolio-123", LocalDateTime.now());
+
+        // Then: The oversold position was dropped, so each buy counts from zero on both paths
+        assertEquals(1, afterFirstBuy.size());
+        assertEquals(BigInteger.valueOf(60), afterFirstBuy.get(0).getVolume());
+        assertEquals(1, afterSecondBuy.size());
+        assertEquals(BigInteger.valueOf(120), afterSecondBuy.get(0).getVolume());
+    }
+
+    @Test
+    void givenIntradayTicks_whenGettingShares_thenValuedAtFreshestMark() {
+        // Given: A holding, and intraday marks after the daily close was recorded
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
+        actionRepository.save(Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(startOfDay)
+                .security(appleStock)
+                .volume(BigInteger.valueOf(100))
+                .price(150)
+                .totalValue(BigInteger.valueOf(15000))
+                .actionType(ActionType.BUY)
+                .build());
+        securityPriceRepository.addTick("US0378331005", startOfDay, 151.0);
+        securityPriceRepository.addTick("US0378331005", startOfDay.plusNanos(2), 153.0);
+        securityPriceRepository.addTick("US0378331005", startOfDay.plusNanos(1), 152.0); // Late tick
+
+        // When: Valuing now, and valuing the moment of the first tick
+        List<PortfolioSharesService.SecurityHolding> latest =
+                portfolioSharesService.getPortfolioSharesAtDateTime("portfolio-123", now);
+        List<PortfolioSharesService.SecurityHolding> earlier =
+                portfolioSharesService.getPortfolioSharesAtDateTime("portfolio-123", startOfDay);
+
+        // Then: The newest mark in effect at each time is used
+        assertEquals(15300.0, latest.get(0).getValue());
+        assertEquals(15100.0, earlier.get(0).getValue());
+    }
+
+    @Test
+    void givenTicksOnlyOnEarlierDay_whenGettingShares_thenFallBackToDailyClose() {
+        // Given: A holding and a mark from yesterday only
+        LocalDateTime now = LocalDateTime.now();
+        actionRepository.save(Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(now.minusDays(1))
+                .security(appleStock)
+                .volume(BigInteger.valueOf(10))
+                .price(150)
+                .totalValue(BigInteger.valueOf(1500))
+                .actionType(ActionType.BUY)
+                .build());
+        securityPriceRepository.addTick("US0378331005", now.minusDays(1), 140.0);
+
+        // When: Getting portfolio shares for today
+        List<PortfolioSharesService.SecurityHolding> holdings =
+                portfolioSharesService.getPortfolioSharesAtDateTime("portfolio-123", now);
+
+        // Then: Today's close is used
+        assertEquals(1500.0, holdings.get(0).getValue());
+    }
+}
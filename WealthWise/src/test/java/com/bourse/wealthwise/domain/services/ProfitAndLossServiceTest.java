@@ -0,0 +1,183 @@
+package com.bourse.wealthwise.domain.services;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ProfitAndLossServiceTest {
+
+    @Autowired
+    private ProfitAndLossService profitAndLossService;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private Portfolio portfolio;
+    private Security stock, rights;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        securityPriceRepository.clear();
+
+        portfolio = new Portfolio("pnl-portfolio", User.builder().uuid("user1").build(), "P&L Portfolio");
+        portfolioRepository.save(portfolio);
+
+        stock = Security.builder().name("Test Company").symbol("TEST").isin("TEST001")
+                .securityType(SecurityType.STOCK).build();
+        rights = Security.builder().name("Test Company Rights").symbol("HTEST").isin("HTEST001")
+                .securityType(SecurityType.STOCK_RIGHT).build();
+
+        today = LocalDate.now();
+        securityPriceRepository.addPrice("TEST001", today, 30.0);
+        securityPriceRepository.addPrice("TEST001", today.minusDays(2), 25.0);
+    }
+
+    @Test
+    void givenTwoBuysAndPartialSale_whenGettingPnl_thenFifoLotsAreConsumed() {
+        // Given: Two lots at different costs and a sale of 150 shares
+        actionRepository.save(buy(today.minusDays(3).atTime(10, 0), 100, 1000));
+        actionRepository.save(buy(today.minusDays(2).atTime(10, 0), 100, 2000));
+        actionRepository.save(sale(today.minusDays(1).atTime(10, 0), 150, 4500));
+
+        // When: Getting P&L for today
+        List<ProfitAndLossService.HoldingProfitAndLoss> pnl =
+                profitAndLossService.getProfitAndLoss(portfolio.getUuid(), today);
+
+        // Then: The first lot and half the second are sold (cost 1000 + 1000)
+        assertEquals(1, pnl.size());
+        ProfitAndLossService.HoldingProfitAndLoss holding = pnl.get(0);
+        assertEquals(BigInteger.valueOf(50), holding.getOpenVolume());
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(holding.getCostBasis()));
+        assertEquals(0, BigDecimal.valueOf(2500).compareTo(holding.getRealizedGain()));
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(holding.getMarketValue()));
+        assertEquals(0, BigDecimal.valueOf(500).compareTo(holding.getUnrealizedGain()));
+    }
+
+    @Test
+    void givenSaleAfterQueryDate_whenGettingPnlInThePast_thenLotsAreStillOpen() {
+        // Given: Two buys and a later sale
+        actionRepository.save(buy(today.minusDays(3).atTime(10, 0), 100, 1000));
+        actionRepository.save(buy(today.minusDays(2).atTime(10, 0), 100, 2000));
+        actionRepository.save(sale(today.minusDays(1).atTime(10, 0), 150, 4500));
+
+        // When: Getting P&L two days ago
+        List<ProfitAndLossService.HoldingProfitAndLoss> pnl =
+                profitAndLossService.getProfitAndLoss(portfolio.getUuid(), today.minusDays(2));
+
+        // Then: Nothing is realized yet and both lots are valued at that day's price
+        ProfitAndLossService.HoldingProfitAndLoss holding = pnl.get(0);
+        assertEquals(BigInteger.valueOf(200), holding.getOpenVolume());
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo(holding.getCostBasis()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(holding.getRealizedGain()));
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(holding.getUnrealizedGain()));
+    }
+
+    @Test
+    void givenRightsConverted_whenGettingPnl_thenConversionCostBecomesCostBasis() {
+        // Given: Free rights converted into shares at a cost
+        actionRepository.save(CapitalRaise.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(today.minusDays(2).atTime(10, 0))
+                .originalSecurity(stock)
+                .rightSecurity(rights)
+                .rightVolume(BigInteger.valueOf(100))
+                .rightPerShare(1.0)
+                .actionType(ActionType.CAPITAL_RAISE)
+                .build());
+        actionRepository.save(StockRightUsage.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(today.minusDays(1).atTime(10, 0))
+                .rightSecurity(rights)
+                .mainSecurity(stock)
+                .volumeToConvert(BigInteger.valueOf(40))
+                .conversionCost(BigInteger.valueOf(400))
+                .actionType(ActionType.STOCK_RIGHT_USAGE)
+                .build());
+
+        // When: Getting P&L for today
+        List<ProfitAndLossService.HoldingProfitAndLoss> pnl =
+                profitAndLossService.getProfitAndLoss(portfolio.getUuid(), today);
+
+        // Then: 60 rights remain at zero cost, 40 shares cost the conversion price
+        ProfitAndLossService.HoldingProfitAndLoss shares = pnl.stream()
+                .filter(h -> h.getSecurity() == stock).findFirst().orElseThrow();
+        ProfitAndLossService.HoldingProfitAndLoss remainingRights = pnl.stream()
+                .filter(h -> h.getSecurity() == rights).findFirst().orElseThrow();
+        assertEquals(BigInteger.valueOf(40), shares.getOpenVolume());
+        assertEquals(0, BigDecimal.valueOf(400).compareTo(shares.getCostBasis()));
+        assertEquals(0, BigDecimal.valueOf(800).compareTo(shares.getUnrealizedGain()));
+        assertEquals(BigInteger.valueOf(60), remainingRights.getOpenVolume());
+        assertNull(remainingRights.getMarketValue());
+    }
+
+    @Test
+    void givenBackdatedBuy_whenGettingPnl_thenLaterSaleIsRematched() {
+        // Given: One lot sold in full
+        actionRepository.save(buy(today.minusDays(2).atTime(10, 0), 100, 2000));
+        actionRepository.save(sale(today.minusDays(1).atTime(10, 0), 100, 3000));
+
+        // When: A cheaper buy is booked before both of them
+        actionRepository.save(buy(today.minusDays(3).atTime(10, 0), 100, 1000));
+        List<ProfitAndLossService.HoldingProfitAndLoss> pnl =
+                profitAndLossService.getProfitAndLoss(portfolio.getUuid(), today);
+
+        // Then: FIFO now sells the backdated lot and keeps the later one open
+        ProfitAndLossService.HoldingProfitAndLoss holding = pnl.get(0);
+        assertEquals(BigInteger.valueOf(100), holding.getOpenVolume());
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(holding.getCostBasis()));
+        assertEquals(0, BigDecimal.valueOf(2000).compareTo(holding.getRealizedGain()));
+    }
+
+    private Buy buy(LocalDateTime dateTime, long volume, long totalValue) {
+        return Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(dateTime)
+                .security(stock)
+                .volume(BigInteger.valueOf(volume))
+                .price((int) (totalValue / volume))
+                .totalValue(BigInteger.valueOf(totalValue))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    private Sale sale(LocalDateTime dateTime, long volume, long totalValue) {
+        return Sale.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(dateTime)
+                .security(stock)
+                .volume(BigInteger.valueOf(volume))
+                .price((int) (totalValue / volume))
+                .totalValue(BigInteger.valueOf(totalValue))
+                .actionType(ActionType.SALE)
+                .build();
+    }
+}
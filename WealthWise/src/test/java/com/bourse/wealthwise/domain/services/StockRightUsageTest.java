@@ -30,6 +30,8 @@ class StockRightUsageTest {
     private SecurityRepository securityRepository;
     @Autowired
     private BalanceActionService balanceService;
+    @Autowired
+    private PortfolioSharesService portfolioSharesService;
 
     private Portfolio portfolio;
     private Security mainSecurity, rightSecurity;
@@ -314,6 +316,99 @@ class StockRightUsageTest {
         assertEquals(BigInteger.valueOf(40), mainSharesAfterUsage);
     }
 
+    @Test
+    void givenConvertedSharesWithUnlockTime_whenGettingHoldings_thenLockedUntilUnlockTime() {
+        // Given: Rights converted to main shares that unlock two hours after conversion
+        LocalDateTime baseTime = LocalDateTime.now().minusDays(1);
+
+        CapitalRaise capitalRaise = CapitalRaise.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(baseTime)
+                .originalSecurity(mainSecurity)
+                .rightSecurity(rightSecurity)
+                .rightVolume(BigInteger.valueOf(100))
+                .rightPerShare(1.0)
+                .actionType(ActionType.CAPITAL_RAISE)
+                .build();
+
+        StockRightUsage usage = StockRightUsage.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(baseTime.plusHours(1))
+                .rightSecurity(rightSecurity)
+                .mainSecurity(mainSecurity)
+                .volumeToConvert(BigInteger.valueOf(40))
+                .conversionCost(BigInteger.valueOf(4000))
+                .tradableFrom(baseTime.plusHours(3))
+                .actionType(ActionType.STOCK_RIGHT_USAGE)
+                .build();
+
+        actionRepository.save(capitalRaise);
+        actionRepository.save(usage);
+
+        // When: Getting holdings before and after the unlock time
+        PortfolioSharesService.SecurityHolding beforeUnlock = holdingOf(mainSecurity, baseTime.plusHours(2));
+        PortfolioSharesService.SecurityHolding afterUnlock = holdingOf(mainSecurity, LocalDateTime.now());
+
+        // Then: The converted shares are locked first and tradable afterwards
+        assertEquals(BigInteger.valueOf(40), beforeUnlock.getVolume());
+        assertEquals(BigInteger.ZERO, beforeUnlock.getTradableVolume());
+        assertEquals(BigInteger.valueOf(40), beforeUnlock.getLockedVolume());
+        assertFalse(portfolioSharesService.canSell(
+                portfolio.getUuid(), mainSecurity, BigInteger.ONE, baseTime.plusHours(2)));
+
+        assertEquals(BigInteger.valueOf(40), afterUnlock.getTradableVolume());
+        assertEquals(BigInteger.ZERO, afterUnlock.getLockedVolume());
+        assertTrue(portfolioSharesService.canSell(
+                portfolio.getUuid(), mainSecurity, BigInteger.valueOf(40), LocalDateTime.now()));
+    }
+
+    @Test
+    void givenConvertedSharesWithoutUnlockTime_whenGettingHoldings_thenSharesStayLocked() {
+        // Given: Rights converted without an unlock time
+        CapitalRaise capitalRaise = CapitalRaise.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusHours(2))
+                .originalSecurity(mainSecurity)
+                .rightSecurity(rightSecurity)
+                .rightVolume(BigInteger.valueOf(100))
+                .rightPerShare(1.0)
+                .actionType(ActionType.CAPITAL_RAISE)
+                .build();
+
+        StockRightUsage usage = StockRightUsage.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusHours(1))
+                .rightSecurity(rightSecurity)
+                .mainSecurity(mainSecurity)
+                .volumeToConvert(BigInteger.valueOf(30))
+                .conversionCost(BigInteger.valueOf(3000))
+                .actionType(ActionType.STOCK_RIGHT_USAGE)
+                .build();
+
+        actionRepository.save(capitalRaise);
+        actionRepository.save(usage);
+
+        // When: Getting current holdings
+        PortfolioSharesService.SecurityHolding mainHolding = holdingOf(mainSecurity, LocalDateTime.now());
+        PortfolioSharesService.SecurityHolding rightHolding = holdingOf(rightSecurity, LocalDateTime.now());
+
+        // Then: Main shares are locked, remaining rights are tradable
+        assertEquals(BigInteger.valueOf(30), mainHolding.getLockedVolume());
+        assertEquals(BigInteger.ZERO, mainHolding.getTradableVolume());
+        assertEquals(BigInteger.valueOf(70), rightHolding.getTradableVolume());
+    }
+
+    private PortfolioSharesService.SecurityHolding holdingOf(Security security, LocalDateTime time) {
+        return portfolioSharesService.getPortfolioSharesAtDateTime(portfolio.getUuid(), time).stream()
+                .filter(holding -> holding.getSecurity().equals(security))
+                .findFirst()
+                .orElseThrow();
+    }
+
     private BigInteger getRemainingVolume(Security security) {
         return actionRepository.findAllActionsOf(portfolio.getUuid()).stream()
                 .flatMap(action -> action.getSecurityChanges().stream())
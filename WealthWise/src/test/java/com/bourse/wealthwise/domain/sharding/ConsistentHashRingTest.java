@@ -0,0 +1,66 @@
+package com.bourse.wealthwise.domain.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 30_000;
+
+    @Test
+    void givenThreeNodes_whenPlacingKeys_thenEachNodeOwnsRoughlyAThird() {
+        // Given: A ring of three nodes
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+
+        // When: Many portfolio ids are placed
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owned.merge(ring.ownerOf("portfolio-" + i), 1, Integer::sum);
+        }
+
+        // Then: No node is far from its fair share
+        for (String node : ring.getNodes()) {
+            double share = owned.getOrDefault(node, 0) / (double) KEYS;
+            assertTrue(share > 0.25 && share < 0.42, node + " owns " + share);
+        }
+    }
+
+    @Test
+    void givenNodeAdded_whenPlacingKeys_thenOnlyKeysOfTheNewNodeMove() {
+        // Given: A ring before and after adding a fourth node
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+
+        // When: The same keys are placed on both
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "portfolio-" + i;
+            String owner = after.ownerOf(key);
+            if (!owner.equals(before.ownerOf(key))) {
+                moved++;
+                // Then: A key only ever moves to the new node
+                assertEquals("d", owner);
+            }
+        }
+
+        // Then: About a quarter of the keys moved
+        assertTrue(moved > KEYS * 0.15 && moved < KEYS * 0.35, moved + " keys moved");
+    }
+
+    @Test
+    void givenSameNodes_whenBuildingTwice_thenOwnershipAgrees() {
+        // Given: Two nodes of a cluster started with the same node list
+        ConsistentHashRing first = new ConsistentHashRing(List.of("a", "b"), 64);
+        ConsistentHashRing second = new ConsistentHashRing(List.of("a", "b"), 64);
+
+        // Then: They agree on every owner
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.ownerOf("portfolio-" + i), second.ownerOf("portfolio-" + i));
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.bourse.wealthwise.domain.sharding;
+
+import com.bourse.wealthwise.WealthWiseApplication;
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.services.CapitalRaiseListenerService;
+import com.bourse.wealthwise.domain.services.CapitalRaiseResult;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import com.bourse.wealthwise.repository.SecurityRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two nodes of a cluster, each a full application context with its own web server,
+ * partitioning the portfolios between them.
+ */
+class ShardedClusterTest {
+
+    private static final int PORTFOLIOS = 40;
+    private static final String SECRET = "cluster-secret";
+
+    private static final Map<String, ConfigurableApplicationContext> nodes = new LinkedHashMap<>();
+    private static final Map<String, Integer> ports = new LinkedHashMap<>();
+    private static final Security security = Security.builder().name("Test Company").symbol("TEST").isin("TEST001")
+            .securityType(SecurityType.STOCK).build();
+    private static final Security rightSecurity = Security.builder().name("Test Company Rights").symbol("HTEST")
+            .isin("HTEST001").securityType(SecurityType.STOCK_RIGHT).build();
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        ports.put("a", freePort());
+        ports.put("b", freePort());
+        String nodeList = "a=http://localhost:" + ports.get("a") + ",b=http://localhost:" + ports.get("b");
+        for (String node : ports.keySet()) {
+            nodes.put(node, new SpringApplicationBuilder(WealthWiseApplication.class)
+                    .properties("server.port=" + ports.get(node),
+                            "wealthwise.sharding.self=" + node,
+                            "wealthwise.sharding.nodes=" + nodeList,
+                            "wealthwise.sharding.secret=" + SECRET)
+                    .run());
+            SecurityRepository securities = nodes.get(node).getBean(SecurityRepository.class);
+            securities.addSecurity(security);
+            securities.addSecurity(rightSecurity);
+        }
+
+        // Every portfolio is stored on the node owning it, as a client routed by the ring would
+        User user = User.builder().uuid("user1").build();
+        for (int i = 0; i < PORTFOLIOS; i++) {
+            Portfolio portfolio = new Portfolio("sharded-" + i, user, "Portfolio " + i);
+            ConfigurableApplicationContext owner = ownerOf(portfolio.getUuid());
+            owner.getBean(PortfolioRepository.class).save(portfolio);
+            ActionRepository actions = owner.getBean(ActionRepository.class);
+            actions.save(Deposit.builder()
+                    .uuid(UUID.randomUUID().toString())
+                    .portfolio(portfolio)
+                    .datetime(LocalDateTime.now().minusDays(2))
+                    .amount(BigInteger.valueOf(5000))
+                    .actionType(ActionType.DEPOSIT)
+                    .build());
+            actions.save(Buy.builder()
+                    .uuid(UUID.randomUUID().toString())
+                    .portfolio(portfolio)
+                    .datetime(LocalDateTime.now().minusDays(1))
+                    .security(security)
+                    .volume(BigInteger.valueOf(100 + i))
+                    .price(10)
+                    .totalValue(BigInteger.valueOf(1000))
+                    .actionType(ActionType.BUY)
+                    .build());
+        }
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        nodes.values().forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void givenTwoNodes_whenPlacingPortfolios_thenBothOwnSome() {
+        // Then: Each node stores only its share, and together they store every portfolio
+        int stored = 0;
+        for (Map.Entry<String, ConfigurableApplicationContext> node : nodes.entrySet()) {
+            int local = node.getValue().getBean(PortfolioRepository.class).findAll().size();
+            assertTrue(local > 0, "Node " + node.getKey() + " owns no portfolio");
+            stored += local;
+        }
+        assertEquals(PORTFOLIOS, stored);
+    }
+
+    @Test
+    void givenRemotePortfolio_whenQueryingAnyNode_thenOwnerAnswers() throws Exception {
+        // Given: A portfolio owned by node b
+        String portfolioId = portfolioOwnedBy("b");
+
+        // When: Its balance is asked of node a
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + ports.get("a")
+                        + "/api/portfolios/" + portfolioId + "/balance")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Then: Node b's answer comes back through node a
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"balance\":4000"), response.body());
+        assertTrue(response.headers().firstValue("ETag").isPresent());
+    }
+
+    @Test
+    void givenRemotePortfolio_whenSavingOnWrongNode_thenItIsRejected() {
+        // Given: A portfolio owned by node b
+        Portfolio portfolio = new Portfolio(portfolioOwnedBy("b"), User.builder().uuid("user1").build(), "Misplaced");
+
+        // Then: Node a refuses to store it
+        assertThrows(IllegalArgumentException.class,
+                () -> nodes.get("a").getBean(PortfolioRepository.class).save(portfolio));
+    }
+
+    @Test
+    void givenHoldersOnBothNodes_whenRaisingCapital_thenEveryShardAllocatesItsShare() {
+        // When: A capital raise is coordinated by node a
+        CapitalRaiseResult result = nodes.get("a").getBean(CapitalRaiseListenerService.class).raise("TEST", 0.5);
+
+        // Then: The combined result covers the portfolios of both nodes
+        BigInteger expected = BigInteger.ZERO;
+        for (int i = 0; i < PORTFOLIOS; i++) {
+            expected = expected.add(CapitalRaise.calculateRightVolume(BigInteger.valueOf(100 + i), 0.5));
+        }
+        assertTrue(result.isComplete());
+        assertEquals(PORTFOLIOS, result.getAllocatedPortfolios());
+        assertEquals(expected, result.getRightVolume());
+
+        // Then: Each node recorded the rights of its own portfolios
+        for (int i = 0; i < PORTFOLIOS; i++) {
+            String portfolioId = "sharded-" + i;
+            assertTrue(ownerOf(portfolioId).getBean(ActionRepository.class).findAllActionsOf(portfolioId).stream()
+                    .anyMatch(a -> a instanceof CapitalRaise), portfolioId);
+        }
+    }
+
+    @Test
+    void givenRaiseAllocated_whenRaisingAgain_thenNothingIsAllocatedTwice() {
+        // Given: A capital raise already allocated today
+        CapitalRaiseListenerService listener = nodes.get("a").getBean(CapitalRaiseListenerService.class);
+        CapitalRaiseResult first = listener.raise("TEST", 0.5);
+
+        // When: It is raised again, as a retry after a lost answer would
+        CapitalRaiseResult second = listener.raise("TEST", 0.5);
+
+        // Then: The same allocation is reported and every portfolio holds a single one
+        assertEquals(first.getAllocatedPortfolios(), second.getAllocatedPortfolios());
+        assertEquals(first.getRightVolume(), second.getRightVolume());
+        for (int i = 0; i < PORTFOLIOS; i++) {
+            String portfolioId = "sharded-" + i;
+            assertEquals(1, ownerOf(portfolioId).getBean(ActionRepository.class).findAllActionsOf(portfolioId).stream()
+                    .filter(a -> a instanceof CapitalRaise).count(), portfolioId);
+        }
+    }
+
+    @Test
+    void givenNoClusterSecret_whenAllocatingOnShard_thenItIsForbidden() throws Exception {
+        // When: A client outside the cluster calls the shard endpoint without the secret, then with a wrong one
+        URI uri = URI.create("http://localhost:" + ports.get("b")
+                + "/api/shards/capital-raises?symbol=TEST&rightPerShare=0.5&date=2024-01-01");
+        HttpResponse<String> anonymous = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> guessed = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(uri).header(ShardClient.SHARD_TOKEN_HEADER, "guess")
+                        .POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Then: Both are refused
+        assertEquals(403, anonymous.statusCode());
+        assertEquals(403, guessed.statusCode());
+    }
+
+    private static ConfigurableApplicationContext ownerOf(String portfolioId) {
+        return nodes.get(nodes.get("a").getBean(ShardRouter.class).ownerOf(portfolioId));
+    }
+
+    private static String portfolioOwnedBy(String node) {
+        ShardRouter router = nodes.get("a").getBean(ShardRouter.class);
+        for (int i = 0; i < PORTFOLIOS; i++) {
+            if (router.ownerOf("sharded-" + i).equals(node)) {
+                return "sharded-" + i;
+            }
+        }
+        throw new IllegalStateException("Node " + node + " owns no portfolio");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
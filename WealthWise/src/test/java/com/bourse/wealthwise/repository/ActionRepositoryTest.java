@@ -0,0 +1,214 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.action.Withdrawal;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.events.ActionEventBus;
+import com.bourse.wealthwise.domain.events.ActionEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class ActionRepositoryTest {
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private ActionEventBus actionEventBus;
+
+    private Portfolio first, second;
+    private LocalDateTime morning;
+
+    @BeforeEach
+    public void setUp() {
+        actionRepository.deleteAll();
+        User user = User.builder().uuid("user1").build();
+        first = new Portfolio("first-portfolio", user, "First");
+        second = new Portfolio("second-portfolio", user, "Second");
+        morning = LocalDateTime.of(2025, 1, 6, 9, 0);
+    }
+
+    @Test
+    public void actionsInSeveralPortfolios_findActionsBetween_onlyWindowReturnedInTimeOrder() {
+        BaseAction early = actionRepository.save(deposit(first, morning.minusMinutes(1)));
+        BaseAction atStart = actionRepository.save(deposit(second, morning));
+        BaseAction inside = actionRepository.save(withdrawal(first, morning.plusHours(2)));
+        BaseAction atEnd = actionRepository.save(deposit(first, morning.plusHours(3).plusMinutes(30)));
+        actionRepository.save(deposit(second, morning.plusHours(4)));
+
+        List<BaseAction> window = List.copyOf(
+                actionRepository.findActionsBetween(morning, morning.plusHours(3).plusMinutes(30)));
+
+        assertThat(window).containsExactly(atStart, inside, atEnd);
+        assertThat(window).doesNotContain(early);
+    }
+
+    @Test
+    public void batchWithRepeatedTracingNumber_saveAll_firstOfEachKeptInOrder() {
+        BaseAction deposit = deposit(first, morning, "T-1");
+        BaseAction repeated = deposit(second, morning.plusMinutes(1), "T-1");
+        BaseAction withdrawal = withdrawal(first, morning.plusMinutes(2));
+
+        List<BaseAction> saved = actionRepository.saveAll(List.of(deposit, repeated, withdrawal));
+
+        assertThat(saved).containsExactly(deposit, deposit, withdrawal);
+        assertThat(actionRepository.findActionsBetween(morning, morning.plusHours(1))).containsExactly(deposit, withdrawal);
+    }
+
+    @Test
+    public void actionsOfSeveralTypes_findActionsBetweenWithType_onlyThatTypeReturned() {
+        actionRepository.save(deposit(first, morning));
+        BaseAction withdrawal = actionRepository.save(withdrawal(second, morning.plusMinutes(5)));
+
+        assertThat(actionRepository.findActionsBetween(morning, morning.plusDays(1), ActionType.WITHDRAWAL))
+                .containsExactly(withdrawal);
+        assertThat(actionRepository.findActionsBetween(morning, morning.plusDays(1), ActionType.CAPITAL_RAISE))
+                .isEmpty();
+    }
+
+    @Test
+    public void actionDeleted_findActionsBetween_actionNoLongerIndexed() {
+        BaseAction deposit = actionRepository.save(deposit(first, morning));
+
+        actionRepository.deleteById(deposit.getUuid());
+
+        assertThat(actionRepository.findActionsBetween(morning, morning)).isEmpty();
+        assertThat(actionRepository.findActionsBetween(morning, morning, ActionType.DEPOSIT)).isEmpty();
+    }
+
+    @Test
+    public void tradeAlreadyStored_saveWithSameTracingNumber_existingActionKept() {
+        BaseAction original = actionRepository.save(deposit(first, morning, "TRC-1"));
+
+        BaseAction reingested = actionRepository.save(deposit(first, morning, "TRC-1"));
+
+        assertThat(reingested).isEqualTo(original);
+        assertThat(reingested.getDatetime()).isEqualTo(original.getDatetime());
+        assertThat(actionRepository.findAllActionsOf(first.getUuid())).containsExactly(original);
+        assertThat(actionRepository.findByTracingNumber("TRC-1")).contains(original);
+    }
+
+    @Test
+    public void actionDeleted_saveWithSameTracingNumber_newActionStored() {
+        BaseAction original = actionRepository.save(deposit(first, morning, "TRC-2"));
+        actionRepository.deleteById(original.getUuid());
+
+        BaseAction replacement = actionRepository.save(deposit(first, morning, "TRC-2"));
+
+        assertThat(replacement).isNotSameAs(original);
+        assertThat(actionRepository.findByTracingNumber("TRC-2")).contains(replacement);
+    }
+
+    @Test
+    public void unknownTracingNumber_findByTracingNumber_nothingFound() {
+        assertThat(actionRepository.findByTracingNumber("TRC-404")).isEmpty();
+    }
+
+    @Test
+    public void concurrentSavesOfOneUuid_consumerReplaysEvents_endsAtStoredAction() throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        AtomicReference<BaseAction> lastSaved = new AtomicReference<>();
+        String consumer = "ordering-" + uuid;
+        actionEventBus.subscribe(consumer, (event, endOfBatch) -> {
+            if (uuid.equals(event.getAction().getUuid()) && event.getType() == ActionEventType.SAVED) {
+                lastSaved.set(event.getAction());
+            }
+        });
+
+        Thread[] writers = new Thread[8];
+        for (int t = 0; t < writers.length; t++) {
+            int minute = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    actionRepository.save(Deposit.builder()
+                            .uuid(uuid)
+                            .portfolio(first)
+                            .datetime(morning.plusMinutes(minute).plusSeconds(i))
+                            .amount(BigInteger.valueOf(1000))
+                            .actionType(ActionType.DEPOSIT)
+                            .build());
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertThat(actionEventBus.awaitCaughtUp(consumer, Duration.ofSeconds(5))).isTrue();
+        assertThat(lastSaved.get().getDatetime()).isEqualTo(actionRepository.findById(uuid).orElseThrow().getDatetime());
+        assertThat(actionRepository.findAllActionsOf(first.getUuid())).hasSize(1);
+    }
+
+    @Test
+    public void actionStored_cancel_publishedAsCancelledAndKeptInHistory() {
+        BaseAction deposit = actionRepository.save(deposit(first, morning));
+        List<ActionEventType> types = new CopyOnWriteArrayList<>();
+        String consumer = "cancel-" + deposit.getUuid();
+        actionEventBus.subscribe(consumer, (event, endOfBatch) -> {
+            if (deposit.getUuid().equals(event.getAction().getUuid())) {
+                types.add(event.getType());
+            }
+        });
+
+        actionRepository.cancel(deposit.getUuid());
+
+        assertThat(actionEventBus.awaitCaughtUp(consumer, Duration.ofSeconds(5))).isTrue();
+        assertThat(types).containsExactly(ActionEventType.CANCELLED);
+        assertThat(actionRepository.findById(deposit.getUuid())).isEmpty();
+        assertThat(actionRepository.findVersionsOf(deposit.getUuid())).containsExactly(deposit);
+    }
+
+    @Test
+    public void actionAmendedManyTimes_findVersionsOf_onlyLatestVersionsKept() {
+        BaseAction current = actionRepository.save(deposit(first, morning));
+        for (int i = 1; i <= 20; i++) {
+            current = actionRepository.amend(current.toBuilder().datetime(morning.plusMinutes(i)).build());
+        }
+
+        List<BaseAction> versions = actionRepository.findVersionsOf(current.getUuid());
+
+        assertThat(versions).hasSize(16);
+        assertThat(versions.get(0).getVersion()).isEqualTo(current.getVersion() - 16);
+        assertThat(versions.get(15).getVersion()).isEqualTo(current.getVersion() - 1);
+    }
+
+    private Deposit deposit(Portfolio portfolio, LocalDateTime datetime) {
+        return deposit(portfolio, datetime, null);
+    }
+
+    private Deposit deposit(Portfolio portfolio, LocalDateTime datetime, String tracingNumber) {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .tracing_number(tracingNumber)
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .amount(BigInteger.valueOf(1000))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    private Withdrawal withdrawal(Portfolio portfolio, LocalDateTime datetime) {
+        return Withdrawal.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .amount(BigInteger.valueOf(100))
+                .actionType(ActionType.WITHDRAWAL)
+                .build();
+    }
+}
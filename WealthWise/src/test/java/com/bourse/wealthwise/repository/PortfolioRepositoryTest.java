@@ -0,0 +1,86 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class PortfolioRepositoryTest {
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    private Portfolio first, second, other;
+
+    @BeforeEach
+    public void setUp() {
+        portfolioRepository.deleteAll();
+        User manager = User.builder().uuid("manager1").build();
+        first = portfolioRepository.save(new Portfolio("p1", manager, "First"));
+        second = portfolioRepository.save(new Portfolio("p2", manager, "Second"));
+        other = portfolioRepository.save(new Portfolio("p3", User.builder().uuid("manager2").build(), "Other"));
+    }
+
+    @Test
+    public void portfoliosOfTwoManagers_findByManager_onlyManagedPortfoliosReturned() {
+        assertThat(portfolioRepository.findByManager("manager1")).containsExactlyInAnyOrder(first, second);
+        assertThat(portfolioRepository.findByManager("manager2")).containsExactly(other);
+        assertThat(portfolioRepository.findByManager("nobody")).isEmpty();
+    }
+
+    @Test
+    public void newPortfolios_findByStatus_allActive() {
+        assertThat(portfolioRepository.findByStatus(PortfolioStatus.ACTIVE)).containsExactlyInAnyOrder(first, second, other);
+        assertThat(portfolioRepository.findByStatus(PortfolioStatus.INACTIVE)).isEmpty();
+    }
+
+    @Test
+    public void portfolioDeactivated_findByStatus_movedToInactive() {
+        portfolioRepository.updateStatus("p2", PortfolioStatus.INACTIVE);
+
+        assertThat(portfolioRepository.findByStatus(PortfolioStatus.ACTIVE)).containsExactlyInAnyOrder(first, other);
+        assertThat(portfolioRepository.findByStatus(PortfolioStatus.INACTIVE)).containsExactly(second);
+        assertThat(portfolioRepository.findById("p2").orElseThrow().getStatus()).isEqualTo(PortfolioStatus.INACTIVE);
+        // The saved object is not changed behind the index's back
+        assertThat(second.getStatus()).isEqualTo(PortfolioStatus.ACTIVE);
+    }
+
+    @Test
+    public void portfolioDeleted_findByManagerAndStatus_noLongerIndexed() {
+        portfolioRepository.deleteById("p1");
+
+        assertThat(portfolioRepository.findByManager("manager1")).containsExactly(second);
+        assertThat(portfolioRepository.findByStatus(PortfolioStatus.ACTIVE)).doesNotContain(first);
+    }
+
+    @Test
+    public void unknownPortfolio_updateStatus_exceptionThrown() {
+        assertThrows(IllegalArgumentException.class,
+                () -> portfolioRepository.updateStatus("missing", PortfolioStatus.INACTIVE));
+    }
+
+    @Test
+    public void severalPortfoliosSaved_findPage_pagedInUuidOrder() {
+        portfolioRepository.saveAll(List.of(new Portfolio("p5", null, "Fifth"), new Portfolio("p4", null, "Fourth")));
+
+        List<Portfolio> firstPage = portfolioRepository.findPage(null, 2);
+        List<Portfolio> secondPage = portfolioRepository.findPage(firstPage.get(1).getUuid(), 2);
+
+        assertThat(firstPage).extracting(Portfolio::getUuid).containsExactly("p1", "p2");
+        assertThat(secondPage).extracting(Portfolio::getUuid).containsExactly("p3", "p4");
+        assertThat(portfolioRepository.findPage("p4", 2)).extracting(Portfolio::getUuid).containsExactly("p5");
+    }
+
+    @Test
+    public void someUuidsUnknown_findAllById_onlyStoredPortfoliosInUuidOrder() {
+        assertThat(portfolioRepository.findAllById(List.of("p3", "missing", "p1"))).containsExactly(first, other);
+    }
+}
@@ -0,0 +1,65 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.security.PriceTick;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "wealthwise.prices.tick-buffer-size=4")
+public class SecurityPriceRepositoryTest {
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private LocalDateTime open;
+
+    @BeforeEach
+    public void setUp() {
+        securityPriceRepository.clear();
+        open = LocalDateTime.of(2025, 1, 6, 9, 0);
+    }
+
+    @Test
+    public void moreTicksThanCapacity_getTicks_onlyNewestRetained() {
+        IntStream.range(0, 6).forEach(i -> securityPriceRepository.addTick("ISIN1", open.plusSeconds(i), 100 + i));
+
+        List<PriceTick> ticks = securityPriceRepository.getTicks("ISIN1", open, open.plusHours(1));
+
+        assertThat(ticks).extracting(PriceTick::getPrice).containsExactly(102.0, 103.0, 104.0, 105.0);
+    }
+
+    @Test
+    public void lateTick_getLastTick_newerPriceKept() {
+        securityPriceRepository.addTick("ISIN1", open.plusSeconds(10), 101.0);
+        securityPriceRepository.addTick("ISIN1", open.plusSeconds(5), 99.0);
+
+        assertThat(securityPriceRepository.getLastTick("ISIN1"))
+                .get().extracting(PriceTick::getPrice).isEqualTo(101.0);
+    }
+
+    @Test
+    public void concurrentFeeds_addTick_lastTickIsNewest() throws InterruptedException {
+        Thread[] feeds = new Thread[4];
+        for (int f = 0; f < feeds.length; f++) {
+            int feed = f;
+            feeds[f] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    securityPriceRepository.addTick("ISIN1", open.plusNanos(i * 4L + feed), i);
+                }
+            });
+            feeds[f].start();
+        }
+        for (Thread feed : feeds) {
+            feed.join();
+        }
+
+        assertThat(securityPriceRepository.getLastTick("ISIN1"))
+                .get().extracting(PriceTick::getTimestamp).isEqualTo(open.plusNanos(9_999 * 4L + 3));
+    }
+}
@@ -0,0 +1,176 @@
+package com.bourse.wealthwise.repository;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.action.Buy;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.projection.CurrentHoldingsProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "wealthwise.actions.hot-portfolios=2",
+        "wealthwise.actions.spill-dir=${java.io.tmpdir}/wealthwise-spill-test"
+})
+public class SpillingActionRepositoryTest {
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private CurrentHoldingsProjection currentHoldingsProjection;
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final Security stock = Security.builder().name("Spill Company").symbol("SPL").isin("SPL001")
+            .securityType(SecurityType.STOCK).build();
+    private final User user = User.builder().uuid("user1").build();
+    private LocalDateTime morning;
+
+    @BeforeEach
+    public void setUp() {
+        actionRepository.deleteAll();
+        morning = LocalDateTime.of(2025, 1, 6, 9, 0);
+    }
+
+    @Test
+    public void morePortfoliosThanCapacity_findAllActionsOf_coldHistoryLoadedBackIntact() {
+        Portfolio cold = new Portfolio("cold-portfolio", user, "Cold");
+        Buy buy = buy(cold, morning);
+        actionRepository.save(deposit(cold, morning.minusHours(1)));
+        actionRepository.save(buy);
+        for (int i = 0; i < 3; i++) {
+            actionRepository.save(deposit(new Portfolio("hot-" + i, user, "Hot"), morning));
+        }
+        long missesBefore = actionRepository.getHistoryCacheStats().getMisses();
+
+        List<BaseAction> history = actionRepository.findAllActionsOf("cold-portfolio");
+
+        assertThat(actionRepository.getHistoryCacheStats().getMisses()).isEqualTo(missesBefore + 1);
+        assertThat(history).hasSize(2);
+        Buy loaded = (Buy) history.get(1);
+        assertThat(loaded).isNotSameAs(buy).isEqualTo(buy);
+        assertThat(loaded.getSecurity()).isSameAs(stock);
+        assertThat(loaded.getVolume()).isEqualTo(buy.getVolume());
+        assertThat(loaded.getTracing_number()).isEqualTo(buy.getTracing_number());
+        assertThat(loaded.getDatetime()).isEqualTo(morning);
+        assertThat(actionRepository.getHistoryCacheStats().getHotPortfolios()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void spilledAction_deleteById_projectionReverted() {
+        Portfolio cold = new Portfolio("cold-portfolio", user, "Cold");
+        Buy buy = buy(cold, morning);
+        actionRepository.save(buy);
+        for (int i = 0; i < 3; i++) {
+            actionRepository.save(deposit(new Portfolio("hot-" + i, user, "Hot"), morning));
+        }
+
+        actionRepository.deleteById(buy.getUuid());
+        currentHoldingsProjection.awaitCaughtUp();
+
+        assertThat(actionRepository.findById(buy.getUuid())).isEmpty();
+        assertThat(currentHoldingsProjection.getVolume("cold-portfolio", stock)).isZero();
+    }
+
+    @Test
+    public void spilledActions_findActionsBetween_resolvedAcrossTiers() {
+        for (int i = 0; i < 4; i++) {
+            actionRepository.save(deposit(new Portfolio("portfolio-" + i, user, "P"), morning.plusMinutes(i)));
+        }
+
+        assertThat(actionRepository.findActionsBetween(morning, morning.plusHours(1), ActionType.DEPOSIT))
+                .extracting(action -> action.getPortfolio().getUuid())
+                .containsExactly("portfolio-0", "portfolio-1", "portfolio-2", "portfolio-3");
+        assertThat(actionRepository.getHistoryCacheStats().getHitRate()).isBetween(0.0, 1.0);
+    }
+
+    @Test
+    public void coldAndHotReads_statsEndpoint_reportsHitRateAndLoadLatency() throws Exception {
+        actionRepository.save(deposit(new Portfolio("cold-portfolio", user, "Cold"), morning));
+        for (int i = 0; i < 3; i++) {
+            actionRepository.save(deposit(new Portfolio("hot-" + i, user, "Hot"), morning));
+        }
+        actionRepository.findAllActionsOf("cold-portfolio");
+        actionRepository.findAllActionsOf("cold-portfolio");
+
+        mockMvc.perform(get("/api/stats/action-histories"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.misses").value(greaterThanOrEqualTo(1)))
+                .andExpect(jsonPath("$.hits").value(greaterThanOrEqualTo(1)))
+                .andExpect(jsonPath("$.hitRate").isNumber())
+                .andExpect(jsonPath("$.averageLoadMillis").isNumber());
+    }
+
+    @Test
+    public void concurrentReadsAndWrites_acrossMorePortfoliosThanCapacity_noActionLost() throws Exception {
+        int portfolios = 8;
+        int perPortfolio = 50;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int p = 0; p < portfolios; p++) {
+                Portfolio portfolio = new Portfolio("busy-" + p, user, "Busy");
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < perPortfolio; i++) {
+                        actionRepository.save(deposit(portfolio, morning.plusMinutes(i)));
+                        actionRepository.findAllActionsOf(portfolio.getUuid());
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+
+        for (int p = 0; p < portfolios; p++) {
+            assertThat(actionRepository.findAllActionsOf("busy-" + p)).hasSize(perPortfolio);
+        }
+        assertThat(actionRepository.getHistoryCacheStats().getHotPortfolios()).isLessThanOrEqualTo(2);
+    }
+
+    private Deposit deposit(Portfolio portfolio, LocalDateTime datetime) {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .amount(BigInteger.valueOf(1000))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    private Buy buy(Portfolio portfolio, LocalDateTime datetime) {
+        return Buy.builder()
+                .uuid(UUID.randomUUID().toString())
+                .tracing_number("TN-" + UUID.randomUUID())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .security(stock)
+                .volume(BigInteger.valueOf(10))
+                .price(100)
+                .totalValue(BigInteger.valueOf(1000))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+}
@@ -0,0 +1,228 @@
+package com.bourse.wealthwise.repository.cdc;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.replication.MutationLog;
+import com.bourse.wealthwise.repository.replication.MutationType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+
+    @TempDir
+    Path directory;
+
+    private final Portfolio portfolio = new Portfolio("cdc-portfolio", User.builder().uuid("user1").build(), "CDC");
+    private final Security security = Security.builder().name("Test Company").symbol("TEST").isin("TEST001")
+            .securityType(SecurityType.STOCK).build();
+
+    @Test
+    void givenMutations_whenReadingFeed_thenEveryChangeComesInOrder() {
+        // Given: A portfolio whose buy is saved, amended and deleted
+        MutationLog log = new MutationLog(1000);
+        try (ChangeFeed feed = new ChangeFeed(log, directory.toString(), 100, 0, 10)) {
+            Buy buy = buy("buy-1", 100);
+            log.portfolioSaved(portfolio);
+            log.actionSaved(buy);
+            log.actionAmended(buy.toBuilder().version(2).build());
+            log.actionDeleted(buy);
+            log.portfolioStatusChanged(portfolio.getUuid(), PortfolioStatus.INACTIVE);
+
+            // When: The feed is read from its first offset
+            feed.drain();
+            List<ChangeRecord> records = feed.read(1, 100);
+
+            // Then: Every change is there, with consecutive offsets
+            assertEquals(List.of(MutationType.PORTFOLIO_SAVED, MutationType.ACTION_SAVED, MutationType.ACTION_AMENDED,
+                            MutationType.ACTION_DELETED, MutationType.PORTFOLIO_STATUS_CHANGED),
+                    records.stream().map(ChangeRecord::getType).toList());
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals(i + 1, records.get(i).getOffset());
+                assertEquals("cdc-portfolio", records.get(i).getPortfolioId());
+            }
+            Buy saved = (Buy) records.get(1).getAction();
+            assertEquals(BigInteger.valueOf(100), saved.getVolume());
+            assertEquals("TEST001", saved.getSecurity().getIsin());
+            assertEquals(2, records.get(2).getAction().getVersion());
+            assertEquals("buy-1", records.get(3).getActionId());
+            assertEquals(PortfolioStatus.INACTIVE, records.get(4).getStatus());
+        }
+    }
+
+    @Test
+    void givenSmallSegments_whenResumingMidway_thenReadContinuesAcrossSegments() throws IOException {
+        // Given: Ten saved actions in segments of three entries
+        MutationLog log = new MutationLog(1000);
+        try (ChangeFeed feed = new ChangeFeed(log, directory.toString(), 3, 0, 10)) {
+            for (int i = 0; i < 10; i++) {
+                log.actionSaved(buy("buy-" + i, i + 1));
+            }
+            feed.drain();
+
+            // When: A consumer reads two batches, resuming after the first
+            List<ChangeRecord> first = feed.read(2, 4);
+            List<ChangeRecord> second = feed.read(first.get(first.size() - 1).getOffset() + 1, 100);
+
+            // Then: The batches are contiguous and end at the latest offset
+            assertEquals(List.of(2L, 3L, 4L, 5L), first.stream().map(ChangeRecord::getOffset).toList());
+            assertEquals(List.of(6L, 7L, 8L, 9L, 10L), second.stream().map(ChangeRecord::getOffset).toList());
+            assertEquals(10, feed.getLatestOffset());
+            assertTrue(feed.read(11, 100).isEmpty());
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(4, files.count());
+            }
+        }
+    }
+
+    @Test
+    void givenRestart_whenWritingAgain_thenOffsetsContinueFromDisk() {
+        // Given: A feed that wrote three entries before the process stopped
+        MutationLog before = new MutationLog(1000);
+        try (ChangeFeed feed = new ChangeFeed(before, directory.toString(), 100, 0, 10)) {
+            for (int i = 0; i < 3; i++) {
+                before.actionSaved(buy("before-" + i, 1));
+            }
+        }
+
+        // When: A new process starts with a fresh mutation log and writes two more
+        MutationLog after = new MutationLog(1000);
+        try (ChangeFeed feed = new ChangeFeed(after, directory.toString(), 100, 0, 10)) {
+            after.actionSaved(buy("after-0", 1));
+            after.actionSaved(buy("after-1", 1));
+            feed.drain();
+
+            // Then: The new entries follow the old ones, and both remain readable
+            List<ChangeRecord> records = feed.read(1, 100);
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L), records.stream().map(ChangeRecord::getOffset).toList());
+            assertEquals("after-0", records.get(3).getActionId());
+        }
+    }
+
+    @Test
+    void givenExpiredSegments_whenReadingOldOffset_thenItIsRejected() {
+        // Given: At most two segments of two entries are retained
+        MutationLog log = new MutationLog(1000);
+        try (ChangeFeed feed = new ChangeFeed(log, directory.toString(), 2, 2, 10)) {
+            for (int i = 0; i < 8; i++) {
+                log.actionSaved(buy("buy-" + i, 1));
+            }
+            feed.drain();
+
+            // Then: Offsets of dropped segments are refused, retained ones are served
+            assertEquals(5, feed.getOldestOffset());
+            assertThrows(IllegalArgumentException.class, () -> feed.read(1, 10));
+            assertEquals(4, feed.read(5, 10).size());
+        }
+    }
+
+    @Test
+    void givenManyEntries_whenReadingFromTheMiddle_thenSeekingFindsTheOffsetBeforeAndAfterRestart() {
+        // Given: Three thousand entries in one segment, spanning several index points
+        MutationLog log = new MutationLog(10_000);
+        try (ChangeFeed feed = new ChangeFeed(log, directory.toString(), 100_000, 0, 10)) {
+            for (int i = 0; i < 3000; i++) {
+                log.actionSaved(buy("buy-" + i, 1));
+            }
+            feed.drain();
+
+            // Then: Reads starting on, just before and just after an index point are exact
+            for (long from : List.of(1024L, 1025L, 1026L, 2049L, 2999L)) {
+                List<ChangeRecord> records = feed.read(from, 3);
+                assertEquals(from, records.get(0).getOffset());
+                assertEquals("buy-" + (from - 1), records.get(0).getActionId());
+                assertEquals(Math.min(3, 3001 - from), records.size());
+            }
+        }
+
+        // When: The process restarts, so the index is rebuilt from the file
+        try (ChangeFeed feed = new ChangeFeed(new MutationLog(10), directory.toString(), 100_000, 0, 10)) {
+            // Then: Seeking still lands on the requested offset
+            assertEquals(3000, feed.getLatestOffset());
+            assertEquals("buy-2500", feed.read(2501, 1).get(0).getActionId());
+        }
+    }
+
+    @Test
+    void givenFreshFeed_whenReadingFromZero_thenReadStartsAtTheFirstEntry() {
+        // Given: A feed that never dropped a segment
+        MutationLog log = new MutationLog(1000);
+        try (ChangeFeed feed = new ChangeFeed(log, directory.toString(), 2, 2, 10)) {
+            for (int i = 0; i < 3; i++) {
+                log.actionSaved(buy("buy-" + i, 1));
+            }
+            feed.drain();
+
+            // When: A consumer starts from offset zero
+            List<ChangeRecord> records = feed.read(0, 10);
+
+            // Then: It gets every entry from the first one
+            assertEquals(List.of(1L, 2L, 3L), records.stream().map(ChangeRecord::getOffset).toList());
+        }
+    }
+
+    @Test
+    void givenMutationsNoLongerRetained_whenDraining_thenFeedRecordsTheLossAsAGap() {
+        // Given: A mutation log that dropped entries before the feed could tail them
+        MutationLog log = new MutationLog(2);
+        for (int i = 0; i < 5; i++) {
+            log.actionSaved(buy("buy-" + i, 1));
+        }
+        try (ChangeFeed feed = new ChangeFeed(log, directory.toString(), 100, 0, 10)) {
+            // When: The feed catches up
+            feed.drain();
+
+            // Then: One gap stands for the lost offsets, the retained entries follow, and the feed stays healthy
+            List<ChangeRecord> records = feed.read(1, 10);
+            assertEquals(List.of(3L, 4L, 5L), records.stream().map(ChangeRecord::getOffset).toList());
+            assertTrue(records.get(0).isGap());
+            assertEquals(1L, records.get(0).getGapFromOffset());
+            assertNull(records.get(0).getType());
+            assertEquals("buy-3", records.get(1).getActionId());
+            assertEquals(3L, feed.read(2, 10).get(0).getOffset());
+            assertTrue(feed.isHealthy());
+            assertEquals(3L, feed.getLastGapOffset().orElseThrow());
+
+            // And: Tailing carries on after the gap
+            log.actionSaved(buy("buy-5", 1));
+            feed.drain();
+            assertEquals(6, feed.getLatestOffset());
+        }
+
+        // When: The process restarts
+        try (ChangeFeed feed = new ChangeFeed(new MutationLog(10), directory.toString(), 100, 0, 10)) {
+            // Then: The gap is still reported, and the feed still reads from its first offset
+            assertEquals(3L, feed.getLastGapOffset().orElseThrow());
+            assertEquals(1, feed.getOldestOffset());
+            assertTrue(feed.read(0, 10).get(0).isGap());
+        }
+    }
+
+    private Buy buy(String uuid, long volume) {
+        return Buy.builder()
+                .uuid(uuid)
+                .portfolio(portfolio)
+                .datetime(LocalDateTime.now().minusDays(1))
+                .security(security)
+                .volume(BigInteger.valueOf(volume))
+                .price(10)
+                .totalValue(BigInteger.valueOf(volume * 10))
+                .actionType(ActionType.BUY)
+                .tracing_number(UUID.randomUUID().toString())
+                .build();
+    }
+}
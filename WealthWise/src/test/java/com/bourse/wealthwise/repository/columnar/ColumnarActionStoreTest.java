@@ -0,0 +1,167 @@
+package com.bourse.wealthwise.repository.columnar;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.domain.services.ActionAmendmentService;
+import com.bourse.wealthwise.repository.ActionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "wealthwise.columnar.chunk-size=4")
+public class ColumnarActionStoreTest {
+    @Autowired
+    private ColumnarActionStore columnarActionStore;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private ActionAmendmentService actionAmendmentService;
+
+    private final Security stock = Security.builder().name("Column Company").symbol("COL").isin("COL001")
+            .securityType(SecurityType.STOCK).build();
+    private Portfolio first, second;
+    private LocalDateTime morning;
+
+    @BeforeEach
+    public void setUp() {
+        actionRepository.deleteAll();
+        User user = User.builder().uuid("user1").build();
+        first = new Portfolio("columnar-first", user, "First");
+        second = new Portfolio("columnar-second", user, "Second");
+        morning = LocalDateTime.of(2025, 1, 6, 9, 0, 0, 123_456_789);
+    }
+
+    @Test
+    public void actionsAcrossChunks_aggregations_matchTheActions() {
+        actionRepository.save(deposit(first, morning, 10_000));
+        actionRepository.save(buy(first, morning.plusMinutes(1), 30, 3_000));
+        actionRepository.save(sale(first, morning.plusMinutes(2), 10, 1_500));
+        actionRepository.save(buy(second, morning.plusMinutes(3), 5, 500));
+        actionRepository.save(buy(first, morning.plusDays(1), 100, 10_000));
+
+        assertThat(columnarActionStore.getCashBalance("columnar-first", morning.plusHours(1))).isEqualTo(8_500);
+        assertThat(columnarActionStore.getVolume("columnar-first", stock, morning.plusHours(1))).isEqualTo(20);
+        assertThat(columnarActionStore.getVolume("columnar-first", stock, LocalDateTime.MAX)).isEqualTo(120);
+        assertThat(columnarActionStore.getTotalVolume(stock)).isEqualTo(125);
+        assertThat(columnarActionStore.getColumnBytes()).isGreaterThan(0);
+    }
+
+    @Test
+    public void oversoldPosition_getVolume_buysStartAgainFromZero() {
+        actionRepository.save(sale(second, morning, 10, 1_000));
+        actionRepository.save(buy(second, morning.plusMinutes(1), 5, 500));
+
+        assertThat(columnarActionStore.getVolume("columnar-second", stock, morning)).isZero();
+        assertThat(columnarActionStore.getVolume("columnar-second", stock, morning.plusHours(1))).isEqualTo(5);
+        assertThat(columnarActionStore.getTotalVolume(stock)).isEqualTo(-5);
+    }
+
+    @Test
+    public void storedAction_findActionsOf_materializedEqualToOriginal() {
+        Buy buy = buy(first, morning, 30, 3_000);
+        Deposit deposit = Deposit.builder()
+                .uuid("not-a-uuid")
+                .tracing_number("TN-1")
+                .portfolio(first)
+                .datetime(morning.minusMinutes(1))
+                .amount(BigInteger.valueOf(5_000))
+                .actionType(ActionType.DEPOSIT)
+                .actor(Actor.MANUAL)
+                .build();
+        actionRepository.save(buy);
+        actionRepository.save(deposit);
+
+        List<BaseAction> actions = columnarActionStore.findActionsOf("columnar-first", morning.minusHours(1), morning);
+
+        assertThat(actions).containsExactly(deposit, buy);
+        assertThat(actions.get(0).getTracing_number()).isEqualTo("TN-1");
+        assertThat(actions.get(0).getActor()).isEqualTo(Actor.MANUAL);
+        Buy materialized = (Buy) actions.get(1);
+        assertThat(materialized).isNotSameAs(buy);
+        assertThat(materialized.getDatetime()).isEqualTo(morning);
+        assertThat(materialized.getSecurity()).isSameAs(stock);
+        assertThat(materialized.getVolume()).isEqualTo(BigInteger.valueOf(30));
+        assertThat(materialized.getTotalValue()).isEqualTo(BigInteger.valueOf(3_000));
+        assertThat(materialized.getPrice()).isEqualTo(100);
+    }
+
+    @Test
+    public void deletedAndAmendedActions_aggregations_onlyLiveRowsCounted() {
+        Buy amended = buy(first, morning, 30, 3_000);
+        Buy deleted = buy(first, morning.plusMinutes(1), 50, 5_000);
+        actionRepository.save(amended);
+        actionRepository.save(deleted);
+        actionAmendmentService.amend(amended.getUuid(), buy(first, morning, 40, 4_000, amended.getUuid()));
+        actionRepository.deleteById(deleted.getUuid());
+
+        assertThat(columnarActionStore.getVolume("columnar-first", stock, morning.plusHours(1))).isEqualTo(40);
+        assertThat(columnarActionStore.getLiveRowCount()).isEqualTo(1);
+        assertThat(columnarActionStore.findActionsOf("columnar-first", morning, morning.plusHours(1)))
+                .extracting(BaseAction::getVersion).containsExactly(2);
+    }
+
+    @Test
+    public void actionSavedToRepository_readBack_builtFromTheColumns() {
+        Buy buy = buy(first, morning, 30, 3_000);
+        actionRepository.save(deposit(first, morning.minusMinutes(1), 10_000));
+        actionRepository.save(buy);
+
+        BaseAction stored = actionRepository.findById(buy.getUuid()).orElseThrow();
+
+        assertThat(stored).isNotSameAs(buy).isEqualTo(buy);
+        assertThat(((Buy) stored).getSecurity()).isSameAs(stock);
+        assertThat(actionRepository.getCashBalanceBefore("columnar-first", morning)).isEqualTo(BigInteger.valueOf(10_000));
+        assertThat(actionRepository.getCashBalanceBefore("columnar-first", morning.plusNanos(1))).isEqualTo(BigInteger.valueOf(7_000));
+    }
+
+    private Deposit deposit(Portfolio portfolio, LocalDateTime datetime, long amount) {
+        return Deposit.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .amount(BigInteger.valueOf(amount))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    private Buy buy(Portfolio portfolio, LocalDateTime datetime, long volume, long total) {
+        return buy(portfolio, datetime, volume, total, UUID.randomUUID().toString());
+    }
+
+    private Buy buy(Portfolio portfolio, LocalDateTime datetime, long volume, long total, String uuid) {
+        return Buy.builder()
+                .uuid(uuid)
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .security(stock)
+                .volume(BigInteger.valueOf(volume))
+                .price(100)
+                .totalValue(BigInteger.valueOf(total))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    private Sale sale(Portfolio portfolio, LocalDateTime datetime, long volume, long total) {
+        return Sale.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .security(stock)
+                .volume(BigInteger.valueOf(volume))
+                .price(150)
+                .totalValue(BigInteger.valueOf(total))
+                .actionType(ActionType.SALE)
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.ActionTimeKey;
+import com.bourse.wealthwise.domain.entity.action.ActionType;
+import com.bourse.wealthwise.domain.entity.action.BaseAction;
+import com.bourse.wealthwise.domain.entity.action.Deposit;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.repository.columnar.ColumnarActionStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Batch write, point read, batched read and range read timings of each action store backend.
+ * Reads visit the portfolios one after another, a run of reads each, as a report over all portfolios would.
+ * Run with {@code mvn test -Dtest=ActionStoreBenchmark -Dwealthwise.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "wealthwise.benchmark", matches = "true")
+public class ActionStoreBenchmark {
+
+    private static final int PORTFOLIOS = 200;
+    private static final int ACTIONS = 2_500;
+    private static final int POINT_READS = 100_000;
+    private static final int BATCH_READS = 2_000;
+    private static final int BATCH_KEYS = 256;
+    private static final int RANGE_READS = 5_000;
+    private static final int RANGE_ACTIONS = 250;
+
+    @Test
+    public void columnar() {
+        run("columnar", () -> new ColumnarActionStore(4096));
+    }
+
+    @Test
+    public void spilling() {
+        run("spilling", () -> new SpillingActionStore(PORTFOLIOS / 4, "./target/bench-actions"));
+    }
+
+    @Test
+    public void jdbcInMemoryDatabase() {
+        run("jdbc (h2 mem)", () -> new JdbcActionStore("jdbc:h2:mem:bench-actions;DB_CLOSE_DELAY=-1", "sa", "", 1000));
+    }
+
+    @Test
+    public void jdbcFileDatabase() {
+        run("jdbc (h2 file)", () -> new JdbcActionStore("jdbc:h2:file:./target/bench-actions", "sa", "", 1000));
+    }
+
+    private void run(String name, Supplier<ActionStore> factory) {
+        ActionStore store = factory.get();
+        store.clear();
+        LocalDateTime start = LocalDateTime.of(2015, 1, 1, 9, 0);
+        List<List<ActionTimeKey>> keys = new ArrayList<>(PORTFOLIOS);
+
+        long began = System.nanoTime();
+        for (int p = 0; p < PORTFOLIOS; p++) {
+            Portfolio portfolio = new Portfolio(portfolioId(p), User.builder().uuid("bench").build(), "Bench");
+            List<BaseAction> history = new ArrayList<>(ACTIONS);
+            List<ActionTimeKey> portfolioKeys = new ArrayList<>(ACTIONS);
+            for (int a = 0; a < ACTIONS; a++) {
+                Deposit deposit = Deposit.builder()
+                        .uuid(String.format("%s-%07d", portfolio.getUuid(), a))
+                        .portfolio(portfolio)
+                        .datetime(start.plusHours(a))
+                        .amount(BigInteger.valueOf(100 + a % 50))
+                        .actionType(ActionType.DEPOSIT)
+                        .build();
+                history.add(deposit);
+                portfolioKeys.add(ActionTimeKey.of(deposit));
+            }
+            store.putAll(portfolio.getUuid(), history);
+            keys.add(portfolioKeys);
+        }
+        report(name, "batch write", PORTFOLIOS * (long) ACTIONS, System.nanoTime() - began);
+
+        began = System.nanoTime();
+        long found = 0;
+        for (int i = 0; i < POINT_READS; i++) {
+            int p = i / (POINT_READS / PORTFOLIOS);
+            found += store.get(portfolioId(p), keys.get(p).get(i % ACTIONS)) == null ? 0 : 1;
+        }
+        report(name, "point read", POINT_READS, System.nanoTime() - began);
+
+        began = System.nanoTime();
+        for (int i = 0; i < BATCH_READS; i++) {
+            int p = i / (BATCH_READS / PORTFOLIOS);
+            int from = i % (ACTIONS - BATCH_KEYS);
+            found += store.getAll(portfolioId(p), keys.get(p).subList(from, from + BATCH_KEYS)).size();
+        }
+        report(name, "batched read (" + BATCH_KEYS + " keys)", BATCH_READS, System.nanoTime() - began);
+
+        began = System.nanoTime();
+        long rows = 0;
+        for (int i = 0; i < RANGE_READS; i++) {
+            int p = i / (RANGE_READS / PORTFOLIOS);
+            int from = i % (ACTIONS - RANGE_ACTIONS);
+            for (BaseAction ignored : store.range(portfolioId(p), keys.get(p).get(from), true,
+                    keys.get(p).get(from + RANGE_ACTIONS - 1))) {
+                rows++;
+            }
+        }
+        report(name, "range read (" + RANGE_ACTIONS + " actions)", RANGE_READS, System.nanoTime() - began);
+
+        store.clear();
+        if (store instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+            }
+        }
+        System.out.printf("%s checksum %d / %d%n", name, found, rows);
+    }
+
+    private static String portfolioId(int p) {
+        return String.format("bench-%05d", p);
+    }
+
+    private static void report(String store, String operation, long count, long nanos) {
+        System.out.printf("%-16s %-28s %,12d ops %10.1f ms %12.0f ops/s%n",
+                store, operation, count, nanos / 1e6, count / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,163 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.action.*;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import com.bourse.wealthwise.domain.entity.portfolio.PortfolioStatus;
+import com.bourse.wealthwise.domain.entity.security.Security;
+import com.bourse.wealthwise.domain.entity.security.SecurityType;
+import com.bourse.wealthwise.repository.ActionRepository;
+import com.bourse.wealthwise.repository.PortfolioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "wealthwise.actions.storage=jdbc",
+        "wealthwise.portfolios.storage=jdbc",
+        "wealthwise.storage.jdbc.url=jdbc:h2:mem:actions;DB_CLOSE_DELAY=-1",
+        "wealthwise.storage.jdbc.batch-size=7"
+})
+public class JdbcActionStoreTest {
+    @Autowired
+    private ActionStore actionStore;
+    @Autowired
+    private PortfolioStore portfolioStore;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+
+    private final Security stock = Security.builder().name("Jdbc Company").symbol("JDB").isin("JDB001")
+            .securityType(SecurityType.STOCK).build();
+    private final User manager = User.builder().uuid("manager1").firstName("Sara").lastName("Karimi").build();
+    private Portfolio portfolio;
+    private LocalDateTime morning;
+
+    @BeforeEach
+    public void setUp() {
+        actionRepository.deleteAll();
+        portfolioRepository.deleteAll();
+        portfolio = portfolioRepository.save(new Portfolio("jdbc-portfolio", manager, "Jdbc"));
+        morning = LocalDateTime.of(2025, 1, 6, 9, 0);
+    }
+
+    @Test
+    public void jdbcStorageSelected_stores_areJdbcBackends() {
+        assertThat(actionStore).isInstanceOf(JdbcActionStore.class);
+        assertThat(portfolioStore).isInstanceOf(JdbcPortfolioStore.class);
+    }
+
+    @Test
+    public void actionsAcrossTheDay_rangeReads_keyOrderAndBoundsKept() {
+        Deposit deposit = deposit(morning.minusHours(1), "a");
+        Buy first = buy(morning, "b");
+        Buy second = buy(morning, "c");
+        Withdrawal withdrawal = withdrawal(morning.plusHours(1));
+        actionRepository.saveAll(List.of(withdrawal, second, first, deposit));
+
+        List<BaseAction> history = actionRepository.findAllActionsOf("jdbc-portfolio");
+
+        assertThat(history).containsExactly(deposit, first, second, withdrawal);
+        Buy loaded = (Buy) history.get(1);
+        assertThat(loaded).isNotSameAs(first);
+        assertThat(loaded.getSecurity()).isSameAs(stock);
+        assertThat(loaded.getVolume()).isEqualTo(first.getVolume());
+        assertThat(actionRepository.findActionsFrom("jdbc-portfolio", ActionTimeKey.of(second)))
+                .containsExactly(second, withdrawal);
+        assertThat(actionRepository.findActionsOf("jdbc-portfolio", ActionTimeKey.of(first), ActionTimeKey.highest(morning)))
+                .containsExactly(second);
+        assertThat(actionRepository.findActionsBetween(morning, morning.plusHours(1), ActionType.BUY))
+                .containsExactly(first, second);
+    }
+
+    @Test
+    public void depositsAndTrades_getCashBalanceBefore_summedByTheDatabase() {
+        actionRepository.save(deposit(morning.minusHours(1), "a"));
+        actionRepository.save(buy(morning, "b"));
+        actionRepository.save(withdrawal(morning.plusHours(1)));
+
+        assertThat(actionRepository.getCashBalanceBefore("jdbc-portfolio", morning)).isEqualTo(BigInteger.valueOf(10_000));
+        assertThat(actionRepository.getCashBalanceBefore("jdbc-portfolio", morning.plusMinutes(1)))
+                .isEqualTo(BigInteger.valueOf(9_000));
+        assertThat(actionRepository.getCashBalanceBefore("jdbc-portfolio", morning.minusDays(1))).isEqualTo(BigInteger.ZERO);
+    }
+
+    @Test
+    public void actionAmendedToAnotherTime_findAllActionsOf_onlyNewVersionStored() {
+        Buy buy = buy(morning, "b");
+        actionRepository.save(buy);
+        Buy moved = buy.toBuilder().datetime(morning.plusHours(2)).build();
+
+        actionRepository.amend(moved);
+
+        assertThat(actionRepository.findAllActionsOf("jdbc-portfolio"))
+                .singleElement().extracting(BaseAction::getDatetime).isEqualTo(morning.plusHours(2));
+        actionRepository.deleteById(buy.getUuid());
+        assertThat(actionRepository.findAllActionsOf("jdbc-portfolio")).isEmpty();
+    }
+
+    @Test
+    public void portfoliosOfTwoManagers_pageAndBatchReads_uuidOrderAndFieldsKept() {
+        portfolioRepository.save(new Portfolio("jdbc-b", User.builder().uuid("manager2").build(), "B"));
+        portfolioRepository.save(new Portfolio("jdbc-a", manager, "A"));
+        portfolioRepository.updateStatus("jdbc-b", PortfolioStatus.INACTIVE);
+
+        assertThat(portfolioRepository.findPage(null, 2)).extracting(Portfolio::getUuid).containsExactly("jdbc-a", "jdbc-b");
+        assertThat(portfolioRepository.findPage("jdbc-b", 10)).extracting(Portfolio::getUuid).containsExactly("jdbc-portfolio");
+        assertThat(portfolioRepository.findAllById(List.of("jdbc-portfolio", "missing", "jdbc-b")))
+                .extracting(Portfolio::getUuid).containsExactly("jdbc-b", "jdbc-portfolio");
+        Portfolio loaded = portfolioRepository.findById("jdbc-portfolio").orElseThrow();
+        assertThat(loaded.getName()).isEqualTo("Jdbc");
+        assertThat(loaded.getPortfolioManager().getLastName()).isEqualTo("Karimi");
+        assertThat(portfolioRepository.findById("jdbc-b").orElseThrow().getStatus()).isEqualTo(PortfolioStatus.INACTIVE);
+        assertThat(portfolioRepository.findByManager("manager1")).extracting(Portfolio::getUuid)
+                .containsExactlyInAnyOrder("jdbc-portfolio", "jdbc-a");
+
+        portfolioRepository.deleteById("jdbc-a");
+
+        assertThat(portfolioStore.uuids()).containsExactly("jdbc-b", "jdbc-portfolio");
+        assertThat(portfolioStore.size()).isEqualTo(2);
+    }
+
+    private Deposit deposit(LocalDateTime datetime, String uuidPrefix) {
+        return Deposit.builder()
+                .uuid(uuidPrefix + UUID.randomUUID())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .amount(BigInteger.valueOf(10_000))
+                .actionType(ActionType.DEPOSIT)
+                .build();
+    }
+
+    private Buy buy(LocalDateTime datetime, String uuidPrefix) {
+        return Buy.builder()
+                .uuid(uuidPrefix + UUID.randomUUID())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .security(stock)
+                .volume(BigInteger.TEN)
+                .price(100)
+                .totalValue(BigInteger.valueOf(1_000))
+                .actionType(ActionType.BUY)
+                .build();
+    }
+
+    private Withdrawal withdrawal(LocalDateTime datetime) {
+        return Withdrawal.builder()
+                .uuid(UUID.randomUUID().toString())
+                .portfolio(portfolio)
+                .datetime(datetime)
+                .amount(BigInteger.valueOf(500))
+                .actionType(ActionType.WITHDRAWAL)
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.security.SecurityPrice;
+import com.bourse.wealthwise.repository.SecurityPriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "wealthwise.storage=jdbc",
+        "wealthwise.storage.jdbc.url=jdbc:h2:mem:prices;DB_CLOSE_DELAY=-1",
+        "wealthwise.storage.jdbc.batch-size=7"
+})
+public class JdbcPriceStoreTest {
+    @Autowired
+    private PriceStore priceStore;
+    @Autowired
+    private SecurityPriceRepository securityPriceRepository;
+
+    private LocalDate start;
+
+    @BeforeEach
+    public void setUp() {
+        securityPriceRepository.clear();
+        start = LocalDate.of(2025, 1, 1);
+    }
+
+    @Test
+    public void jdbcStorageSelected_priceStore_isJdbcBackend() {
+        assertThat(priceStore).isInstanceOf(JdbcPriceStore.class);
+    }
+
+    @Test
+    public void batchOfCloses_getPrices_rangeReadInDateOrder() {
+        SortedMap<LocalDate, Double> closes = new TreeMap<>();
+        for (int d = 0; d < 30; d++) {
+            closes.put(start.plusDays(d), 100.0 + d);
+        }
+        securityPriceRepository.addPrices("ISIN1", closes);
+
+        assertThat(securityPriceRepository.getPrices("ISIN1", start.plusDays(10), start.plusDays(12)))
+                .extracting(SecurityPrice::getPrice).containsExactly(110.0, 111.0, 112.0);
+        assertThat(securityPriceRepository.getPricesForSecurity("ISIN1")).hasSize(30);
+        assertThat(securityPriceRepository.getPricesForSecurity("ISIN2")).isEmpty();
+    }
+
+    @Test
+    public void restatedClose_getPrice_latestValueKept() {
+        securityPriceRepository.addPrice("ISIN1", start, 100.0);
+        securityPriceRepository.addPrice("ISIN1", start, 101.0);
+
+        assertThat(securityPriceRepository.getPrice("ISIN1", start)).contains(101.0);
+        assertThat(securityPriceRepository.getPrice("ISIN1", start.plusDays(1))).isEmpty();
+    }
+
+    @Test
+    public void gapInCloses_getLatestCloseBefore_previousTradingDay() {
+        securityPriceRepository.addPrice("ISIN1", start, 100.0);
+        securityPriceRepository.addPrice("ISIN1", start.plusDays(3), 103.0);
+
+        assertThat(securityPriceRepository.getLatestCloseBefore("ISIN1", start.plusDays(3)))
+                .map(SecurityPrice::getDate).contains(start);
+        assertThat(securityPriceRepository.getLatestCloseBefore("ISIN1", start)).isEmpty();
+    }
+}
@@ -0,0 +1,94 @@
+package com.bourse.wealthwise.repository.storage;
+
+import com.bourse.wealthwise.domain.entity.account.User;
+import com.bourse.wealthwise.domain.entity.portfolio.Portfolio;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Write, point read, batched read and page timings of each portfolio store backend.
+ * Run with {@code mvn test -Dtest=PortfolioStoreBenchmark -Dwealthwise.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "wealthwise.benchmark", matches = "true")
+public class PortfolioStoreBenchmark {
+
+    private static final int PORTFOLIOS = 100_000;
+    private static final int POINT_READS = 200_000;
+    private static final int BATCH_READS = 5_000;
+    private static final int BATCH_UUIDS = 100;
+    private static final int PAGE_SIZE = 500;
+
+    @Test
+    public void inMemory() {
+        run("memory", InMemoryPortfolioStore::new);
+    }
+
+    @Test
+    public void jdbcInMemoryDatabase() {
+        run("jdbc (h2 mem)", () -> new JdbcPortfolioStore("jdbc:h2:mem:bench-portfolios;DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+
+    @Test
+    public void jdbcFileDatabase() {
+        run("jdbc (h2 file)", () -> new JdbcPortfolioStore("jdbc:h2:file:./target/bench-portfolios", "sa", ""));
+    }
+
+    private void run(String name, Supplier<PortfolioStore> factory) {
+        PortfolioStore store = factory.get();
+        User manager = User.builder().uuid("bench").firstName("Bench").lastName("Mark").build();
+
+        long began = System.nanoTime();
+        for (int p = 0; p < PORTFOLIOS; p++) {
+            Portfolio portfolio = new Portfolio(uuid(p), manager, "Bench " + p);
+            store.compute(portfolio.getUuid(), current -> portfolio);
+        }
+        report(name, "write", PORTFOLIOS, System.nanoTime() - began);
+
+        began = System.nanoTime();
+        long found = 0;
+        for (int i = 0; i < POINT_READS; i++) {
+            found += store.get(uuid(i % PORTFOLIOS)) == null ? 0 : 1;
+        }
+        report(name, "point read", POINT_READS, System.nanoTime() - began);
+
+        began = System.nanoTime();
+        for (int i = 0; i < BATCH_READS; i++) {
+            List<String> uuids = new ArrayList<>(BATCH_UUIDS);
+            for (int u = 0; u < BATCH_UUIDS; u++) {
+                uuids.add(uuid((i * 7919 + u * 104_729) % PORTFOLIOS));
+            }
+            found += store.getAll(uuids).size();
+        }
+        report(name, "batched read (" + BATCH_UUIDS + " uuids)", BATCH_READS, System.nanoTime() - began);
+
+        began = System.nanoTime();
+        long pages = 0;
+        String after = null;
+        for (List<Portfolio> page = store.range(null, PAGE_SIZE); !page.isEmpty(); page = store.range(after, PAGE_SIZE)) {
+            after = page.get(page.size() - 1).getUuid();
+            pages++;
+        }
+        report(name, "page (" + PAGE_SIZE + " portfolios)", pages, System.nanoTime() - began);
+
+        if (store instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+            }
+        }
+        System.out.printf("%s checksum %d / %d%n", name, found, pages);
+    }
+
+    private static String uuid(int p) {
+        return String.format("bench-%07d", p);
+    }
+
+    private static void report(String store, String operation, long count, long nanos) {
+        System.out.printf("%-16s %-28s %,12d ops %10.1f ms %12.0f ops/s%n",
+                store, operation, count, nanos / 1e6, count / (nanos / 1e9));
+    }
+}
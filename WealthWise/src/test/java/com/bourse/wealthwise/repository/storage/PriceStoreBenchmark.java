@@ -0,0 +1,87 @@
+package com.bourse.wealthwise.repository.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDate;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Batch write, point read and range read timings of each price store backend.
+ * Run with {@code mvn test -Dtest=PriceStoreBenchmark -Dwealthwise.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "wealthwise.benchmark", matches = "true")
+public class PriceStoreBenchmark {
+
+    private static final int SECURITIES = 500;
+    private static final int DAYS = 2_500;
+    private static final int POINT_READS = 200_000;
+    private static final int RANGE_READS = 20_000;
+    private static final int RANGE_DAYS = 250;
+
+    @Test
+    public void inMemory() {
+        run("memory", InMemoryPriceStore::new);
+    }
+
+    @Test
+    public void jdbcInMemoryDatabase() {
+        run("jdbc (h2 mem)", () -> new JdbcPriceStore("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1", "sa", "", 1000));
+    }
+
+    @Test
+    public void jdbcFileDatabase() {
+        run("jdbc (h2 file)", () -> new JdbcPriceStore("jdbc:h2:file:./target/bench-prices", "sa", "", 1000));
+    }
+
+    private void run(String name, Supplier<PriceStore> factory) {
+        PriceStore store = factory.get();
+        store.clear();
+        LocalDate start = LocalDate.of(2015, 1, 1);
+
+        long began = System.nanoTime();
+        for (int s = 0; s < SECURITIES; s++) {
+            SortedMap<LocalDate, Double> closes = new TreeMap<>();
+            for (int d = 0; d < DAYS; d++) {
+                closes.put(start.plusDays(d), 100.0 + (s + d) % 50);
+            }
+            store.putAll(isin(s), closes);
+        }
+        report(name, "batch write", SECURITIES * (long) DAYS, System.nanoTime() - began);
+
+        began = System.nanoTime();
+        double sum = 0;
+        for (int i = 0; i < POINT_READS; i++) {
+            sum += store.get(isin(i % SECURITIES), start.plusDays(i % DAYS)).orElse(0.0);
+        }
+        report(name, "point read", POINT_READS, System.nanoTime() - began);
+
+        began = System.nanoTime();
+        long rows = 0;
+        for (int i = 0; i < RANGE_READS; i++) {
+            LocalDate from = start.plusDays(i % (DAYS - RANGE_DAYS));
+            rows += store.range(isin(i % SECURITIES), from, from.plusDays(RANGE_DAYS - 1)).size();
+        }
+        report(name, "range read (" + RANGE_DAYS + " days)", RANGE_READS, System.nanoTime() - began);
+
+        store.clear();
+        if (store instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+            }
+        }
+        System.out.printf("%s checksum %.1f / %d%n", name, sum, rows);
+    }
+
+    private static String isin(int s) {
+        return String.format("BENCH%07d", s);
+    }
+
+    private static void report(String store, String operation, long count, long nanos) {
+        System.out.printf("%-16s %-24s %,12d ops %10.1f ms %12.0f ops/s%n",
+                store, operation, count, nanos / 1e6, count / (nanos / 1e9));
+    }
+}